@@ -0,0 +1,183 @@
+package javaFiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the result persona of a fusion is found in the result arcana, by the backward and
+ * forward scans over the personas of the arcana that calculateFusions used before
+ * ArcanaLevelIndex (the *Scan benchmarks) and by ArcanaLevelIndex (the *Index benchmarks), on
+ * the personas including dlc personas:
+ * - differentArcana* resolves every pair of personas into every arcana
+ * - sameArcana* resolves every pair of personas of an arcana into that arcana
+ * Each invocation resolves all of them and returns the number of possible fusions, which is the
+ * same for the scan and the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArcanaLevelIndexBenchmark {
+
+	private List<Persona> personas;
+
+	// the personas of each arcana ordered by base level, the level of the highest-level regular
+	// persona of each arcana, and the ArcanaLevelIndex of each arcana
+	private List<List<Persona>> arcanas;
+	private int[] highestLevels;
+	private ArcanaLevelIndex[] indexes;
+
+	@Setup
+	public void setUp() throws IOException {
+		HashMap<String, List<Persona>> arcana = new HashMap<String, List<Persona>>();
+		HashMap<String, Integer> highest = new HashMap<String, Integer>();
+		personas = new ArrayList<Persona>();
+		Persona5ByteParser.parsePersonas(FusionDataGraph.DATA_DIR + FusionDataGraph.PERSONA_DATA, arcana,
+				new HashMap<String, Persona>(), personas, highest, new Graph<String, String>(), true);
+
+		int maxLevel = 0;
+		for (Persona p : personas) {
+			maxLevel = Math.max(maxLevel, p.getBaseLevel());
+		}
+		arcanas = new ArrayList<List<Persona>>(arcana.values());
+		highestLevels = new int[arcanas.size()];
+		indexes = new ArcanaLevelIndex[arcanas.size()];
+		for (int a = 0; a < arcanas.size(); a++) {
+			Integer level = highest.get(arcanas.get(a).get(0).getArcana());
+			highestLevels[a] = level == null ? 0 : level;
+			indexes[a] = new ArcanaLevelIndex(arcanas.get(a), highestLevels[a], maxLevel);
+		}
+	}
+
+	@Benchmark
+	public int differentArcanaScan() {
+		int count = 0;
+		for (int a = 0; a < arcanas.size(); a++) {
+			for (Persona p1 : personas) {
+				for (Persona p2 : personas) {
+					if (roundUpScan(arcanas.get(a), highestLevels[a], p1, p2) != null) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int differentArcanaIndex() {
+		int count = 0;
+		for (int a = 0; a < arcanas.size(); a++) {
+			for (Persona p1 : personas) {
+				for (Persona p2 : personas) {
+					if (indexes[a].roundUp(p1.getBaseLevel() + p2.getBaseLevel()) != null) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int sameArcanaScan() {
+		int count = 0;
+		for (List<Persona> pers : arcanas) {
+			for (Persona p1 : pers) {
+				for (Persona p2 : pers) {
+					if (p1 != p2 && roundDownScan(pers, p1, p2) != null) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int sameArcanaIndex() {
+		int count = 0;
+		for (int a = 0; a < arcanas.size(); a++) {
+			for (Persona p1 : arcanas.get(a)) {
+				for (Persona p2 : arcanas.get(a)) {
+					if (p1 != p2 && indexes[a].roundDown(p1, p2) != null) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * private helper method that finds the result of a different-arcana fusion of p1 and p2 in
+	 * the arcana of the personas pers by searching down from the highest-level persona, as
+	 * calculateFusions did before ArcanaLevelIndex
+	 */
+	private static Persona roundUpScan(List<Persona> pers, int highestLevel, Persona p1, Persona p2) {
+		double calculatedLevel = (p1.getBaseLevel() + p2.getBaseLevel()) / 2.0 + 0.5;
+		if (highestLevel < calculatedLevel) {
+			return null;
+		}
+		Persona finalPersona = null;
+		for (int i = pers.size() - 1; i >= 0; i--) {
+			Persona currPersona = pers.get(i);
+			if (calculatedLevel == currPersona.getBaseLevel()) { // found an exact match
+				if (!currPersona.getSpecialCase().equals("treasure") &&
+						!currPersona.getSpecialCase().equals("guillotine")) {
+					finalPersona = currPersona;
+				}
+				break;
+			} else if (calculatedLevel > currPersona.getBaseLevel()) { // went over the limit
+				break;
+			} else if (!currPersona.getSpecialCase().equals("treasure") &&
+					!currPersona.getSpecialCase().equals("guillotine")) {
+				finalPersona = currPersona;
+			}
+		}
+		return finalPersona;
+	}
+
+	/**
+	 * private helper method that finds the result of a same-arcana fusion of p1 and p2 by
+	 * searching up from the lowest-level persona of their arcana pers, as calculateFusions did
+	 * before ArcanaLevelIndex
+	 */
+	private static Persona roundDownScan(List<Persona> pers, Persona p1, Persona p2) {
+		double calculatedLevel = (p1.getBaseLevel() + p2.getBaseLevel()) / 2.0 + 0.5;
+		Persona finalPersona = null;
+		for (int i = 0; i < pers.size(); i++) {
+			Persona currPersona = pers.get(i);
+			if (calculatedLevel == currPersona.getBaseLevel()) { // found an exact match
+				if (!currPersona.getSpecialCase().equals("treasure") &&
+						!currPersona.getSpecialCase().equals("guillotine") &&
+						!currPersona.equals(p1) && !currPersona.equals(p2)) {
+					finalPersona = currPersona;
+				}
+				break;
+			} else if (calculatedLevel < currPersona.getBaseLevel()) { // went over the limit
+				break;
+			} else if (currPersona.getSpecialCase().equals("") && !currPersona.equals(p1) &&
+					!currPersona.equals(p2)) {
+				finalPersona = currPersona;
+			}
+		}
+		return finalPersona;
+	}
+}
@@ -0,0 +1,31 @@
+package javaFiles;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler enabled, so every result reports the allocation
+ * rate and the bytes allocated per operation next to the throughput or time. Unless the command
+ * line chooses another result file, the results are also written to target/jmh-result.json so
+ * runs can be compared over time.
+ *
+ * Takes the usual JMH command line options, e.g. "Query" to only run QueryBenchmark.
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class);
+		if (!cmd.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!cmd.getResult().hasValue()) {
+			options.result("target/jmh-result.json");
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,101 @@
+package javaFiles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hammers one FrozenFusionData that includes dlc personas, shared by THREADS threads, with
+ * getFusionResult, getFusions and getIncludedFusions. Every thread walks all the persona ids from
+ * its own starting point, so the threads read the same tables at different places. The total
+ * throughput of all the threads is reported; to see how it scales, run with -t 1, 2, 4, ... up to
+ * the number of cores, e.g. "ConcurrentQuery -t 1". It only measures: the answers are checked
+ * by FrozenFusionDataConcurrencyTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(ConcurrentQueryBenchmark.THREADS)
+public class ConcurrentQueryBenchmark {
+
+	public static final int THREADS = 64;
+
+	private FrozenFusionData fd;
+	private int n;
+
+	@Setup
+	public void setUp() {
+		// frozen in place, as a FusionDataReloader serves it
+		fd = new FusionDataGraph(true).freezeInPlace();
+		n = fd.getPersonaCount();
+	}
+
+	/**
+	 * The position of one thread in the walk over the persona ids.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private static int threads;
+
+		private int p1;
+		private int p2;
+
+		@Setup
+		public void setUp(ConcurrentQueryBenchmark shared) {
+			synchronized (Cursor.class) {
+				p1 = (threads++ * 37) % shared.n;
+			}
+		}
+
+		/**
+		 * @return the next persona id of this thread
+		 */
+		int next(int n) {
+			if (++p1 == n) {
+				p1 = 0;
+			}
+			return p1;
+		}
+
+		/**
+		 * @return the next second ingredient id of this thread, walking the row of p1
+		 */
+		int nextPartner(int n) {
+			if (++p2 == n) {
+				p2 = 0;
+				next(n);
+			}
+			return p2;
+		}
+	}
+
+	@Benchmark
+	public Persona fusionResult(Cursor cursor) {
+		int p2 = cursor.nextPartner(n);
+		return fd.getFusionResult(cursor.p1, p2);
+	}
+
+	@Benchmark
+	public int[] fusions(Cursor cursor) {
+		return fd.getFusions(cursor.next(n));
+	}
+
+	@Benchmark
+	public int[] includedFusions(Cursor cursor) {
+		return fd.getIncludedFusions(cursor.next(n));
+	}
+}
@@ -0,0 +1,99 @@
+package javaFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to build a FusionDataGraph from the data files: parsing them and
+ * calculating every fusion, sequentially or in parallel. The synthetic benchmark builds from a
+ * personaData file where every persona but the treasure demons is repeated SYNTHETIC_COPIES times
+ * in its arcana, each copy with its own name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FusionDataGraphBenchmark {
+
+	private static final int SYNTHETIC_COPIES = 4;
+
+	@Param({"true", "false"})
+	public boolean includeDlc;
+
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	private Path syntheticDir;
+
+	@Setup
+	public void writeSyntheticData() throws IOException {
+		Path source = Paths.get(FusionDataGraph.DATA_DIR);
+		syntheticDir = Files.createTempDirectory("fusionData");
+		for (String file : new String[] { FusionDataGraph.POSSIBLE_FUSIONS, FusionDataGraph.TREASURE_FUSIONS }) {
+			Files.copy(source.resolve(file), syntheticDir.resolve(file));
+		}
+		List<String> lines = new ArrayList<String>();
+		for (String line : Files.readAllLines(source.resolve(FusionDataGraph.PERSONA_DATA), StandardCharsets.UTF_8)) {
+			String[] tokens = line.split("\t");
+			if (tokens.length <= 1 || (tokens.length > 17 && tokens[17].equals("t"))) {
+				// arcana names, blank lines and treasure demons, which treasureFusions names, once
+				lines.add(line);
+				continue;
+			}
+			for (int copy = 0; copy < SYNTHETIC_COPIES; copy++) {
+				String[] copied = tokens.clone();
+				if (copy > 0) {
+					// rename the persona and its guillotine ingredients, keep the dlc flag
+					copied[1] += " " + copy;
+					for (int i = 17; i < copied.length; i++) {
+						if (!copied[i].equals("y")) {
+							copied[i] += " " + copy;
+						}
+					}
+				}
+				lines.add(String.join("\t", copied));
+			}
+		}
+		Files.write(syntheticDir.resolve(FusionDataGraph.PERSONA_DATA), lines, StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void deleteSyntheticData() throws IOException {
+		for (String file : new String[] { FusionDataGraph.PERSONA_DATA, FusionDataGraph.POSSIBLE_FUSIONS,
+				FusionDataGraph.TREASURE_FUSIONS }) {
+			Files.deleteIfExists(syntheticDir.resolve(file));
+		}
+		Files.deleteIfExists(syntheticDir);
+	}
+
+	@Benchmark
+	public FusionDataGraph build() {
+		return new FusionDataGraph(FusionDataGraph.DATA_DIR, includeDlc, parallel);
+	}
+
+	@Benchmark
+	public FusionDataGraph buildSynthetic() {
+		return new FusionDataGraph(syntheticDir.toString() + "/", includeDlc, parallel);
+	}
+}
@@ -0,0 +1,110 @@
+package javaFiles;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the raw operations of Graph and of the FrozenGraph made from it on random graphs of
+ * several sizes, each node having DEGREE edges to random nodes, labeled like the fusion graph
+ * with the name of a node. insertEdges builds a whole graph and freeze copies one, so their time
+ * and allocation are for nodes * DEGREE edges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+	private static final int DEGREE = 8;
+
+	@Param({"100", "1000", "10000"})
+	public int nodes;
+
+	private String[] names;
+
+	// the edges of the graph as consecutive (from, to, label) node indexes
+	private int[] edges;
+
+	private Graph<String, String> graph;
+	private FrozenGraph<String, String> frozen;
+
+	private int nextEdge;
+	private int nextNode;
+
+	@Setup
+	public void setUp() {
+		names = new String[nodes];
+		for (int i = 0; i < nodes; i++) {
+			names[i] = "persona" + i;
+		}
+		Random rnd = new Random(42);
+		edges = new int[3 * nodes * DEGREE];
+		for (int i = 0; i < nodes * DEGREE; i++) {
+			edges[3 * i] = i / DEGREE;
+			edges[3 * i + 1] = rnd.nextInt(nodes);
+			edges[3 * i + 2] = rnd.nextInt(nodes);
+		}
+		graph = insertEdges();
+		frozen = graph.freeze();
+	}
+
+	@Benchmark
+	public Graph<String, String> insertEdges() {
+		Graph<String, String> g = new Graph<String, String>();
+		for (String name : names) {
+			g.insertNode(name);
+		}
+		for (int i = 0; i < edges.length; i += 3) {
+			g.insertEdge(names[edges[i]], names[edges[i + 1]], names[edges[i + 2]]);
+		}
+		return g;
+	}
+
+	@Benchmark
+	public Set<String> getEdges() {
+		int i = nextEdge;
+		nextEdge = i + 3 == edges.length ? 0 : i + 3;
+		return graph.getEdges(names[edges[i]], names[edges[i + 1]]);
+	}
+
+	@Benchmark
+	public Set<String> getChildren() {
+		int i = nextNode;
+		nextNode = i + 1 == names.length ? 0 : i + 1;
+		return graph.getChildren(names[i]);
+	}
+
+	@Benchmark
+	public FrozenGraph<String, String> freeze() {
+		return graph.freeze();
+	}
+
+	@Benchmark
+	public Set<String> frozenGetEdges() {
+		int i = nextEdge;
+		nextEdge = i + 3 == edges.length ? 0 : i + 3;
+		return frozen.getEdges(names[edges[i]], names[edges[i + 1]]);
+	}
+
+	@Benchmark
+	public Set<String> frozenGetChildren() {
+		int i = nextNode;
+		nextNode = i + 1 == names.length ? 0 : i + 1;
+		return frozen.getChildren(names[i]);
+	}
+}
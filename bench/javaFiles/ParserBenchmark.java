@@ -0,0 +1,148 @@
+package javaFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to parse each of the data files into fresh collections, with
+ * Persona5ParserGraph and with Persona5ByteParser. The synthetic benchmarks parse a personaData
+ * file SYNTHETIC_COPIES times the size of the real one, where every copy of a persona has its own
+ * name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	private static final int SYNTHETIC_COPIES = 100;
+
+	private Path syntheticPersonas;
+
+	@Setup
+	public void writeSyntheticPersonas() throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(FusionDataGraph.DATA_DIR + FusionDataGraph.PERSONA_DATA),
+				StandardCharsets.UTF_8);
+		StringBuilder sb = new StringBuilder();
+		for (int copy = 0; copy < SYNTHETIC_COPIES; copy++) {
+			for (String line : lines) {
+				String[] tokens = line.split("\t");
+				if (tokens.length > 1) {
+					// rename the persona and its guillotine ingredients, keep the dlc and treasure flags
+					tokens[1] += " " + copy;
+					for (int i = 17; i < tokens.length; i++) {
+						if (!tokens[i].equals("y") && !tokens[i].equals("t")) {
+							tokens[i] += " " + copy;
+						}
+					}
+				}
+				sb.append(String.join("\t", tokens)).append('\n');
+			}
+		}
+		syntheticPersonas = Files.createTempFile("personaData", ".txt");
+		Files.write(syntheticPersonas, sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void deleteSyntheticPersonas() throws IOException {
+		Files.deleteIfExists(syntheticPersonas);
+	}
+
+	@Benchmark
+	public List<Persona> parsePersonas() {
+		return parsePersonas(true);
+	}
+
+	@Benchmark
+	public List<Persona> parsePersonasWithoutDlc() {
+		return parsePersonas(false);
+	}
+
+	@Benchmark
+	public List<Persona> byteParsePersonas() throws IOException {
+		return byteParsePersonas(FusionDataGraph.DATA_DIR + FusionDataGraph.PERSONA_DATA, true);
+	}
+
+	@Benchmark
+	public List<Persona> parseSyntheticPersonas() {
+		return parsePersonas(syntheticPersonas.toString(), true);
+	}
+
+	@Benchmark
+	public List<Persona> byteParseSyntheticPersonas() throws IOException {
+		return byteParsePersonas(syntheticPersonas.toString(), true);
+	}
+
+	private static List<Persona> parsePersonas(boolean includeDlc) {
+		return parsePersonas(FusionDataGraph.DATA_DIR + FusionDataGraph.PERSONA_DATA, includeDlc);
+	}
+
+	private static List<Persona> parsePersonas(String filename, boolean includeDlc) {
+		List<Persona> personaList = new ArrayList<Persona>();
+		Persona5ParserGraph.parsePersonas(filename,
+				new HashMap<String, List<Persona>>(), new HashMap<String, Persona>(), personaList,
+				new HashMap<String, Integer>(), new Graph<String, String>(), includeDlc);
+		return personaList;
+	}
+
+	private static List<Persona> byteParsePersonas(String filename, boolean includeDlc) throws IOException {
+		List<Persona> personaList = new ArrayList<Persona>();
+		Persona5ByteParser.parsePersonas(filename,
+				new HashMap<String, List<Persona>>(), new HashMap<String, Persona>(), personaList,
+				new HashMap<String, Integer>(), new Graph<String, String>(), includeDlc);
+		return personaList;
+	}
+
+	@Benchmark
+	public Graph<String, String> parsePossibleFusions() {
+		Graph<String, String> possibleFusions = new Graph<String, String>();
+		Persona5ParserGraph.parsePossibleFusions(FusionDataGraph.DATA_DIR + FusionDataGraph.POSSIBLE_FUSIONS,
+				possibleFusions);
+		return possibleFusions;
+	}
+
+	@Benchmark
+	public HashMap<String, HashMap<String, Integer>> parseTreasureFusions() {
+		HashMap<String, HashMap<String, Integer>> treasureFusions = new HashMap<String, HashMap<String, Integer>>();
+		Persona5ParserGraph.parseTreasureFusions(FusionDataGraph.DATA_DIR + FusionDataGraph.TREASURE_FUSIONS,
+				treasureFusions);
+		return treasureFusions;
+	}
+
+	@Benchmark
+	public Graph<String, String> byteParsePossibleFusions() throws IOException {
+		Graph<String, String> possibleFusions = new Graph<String, String>();
+		Persona5ByteParser.parsePossibleFusions(FusionDataGraph.DATA_DIR + FusionDataGraph.POSSIBLE_FUSIONS,
+				possibleFusions);
+		return possibleFusions;
+	}
+
+	@Benchmark
+	public HashMap<String, HashMap<String, Integer>> byteParseTreasureFusions() throws IOException {
+		HashMap<String, HashMap<String, Integer>> treasureFusions = new HashMap<String, HashMap<String, Integer>>();
+		Persona5ByteParser.parseTreasureFusions(FusionDataGraph.DATA_DIR + FusionDataGraph.TREASURE_FUSIONS,
+				treasureFusions);
+		return treasureFusions;
+	}
+}
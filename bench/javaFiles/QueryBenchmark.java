@@ -0,0 +1,183 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the queries of a FusionDataGraph that includes dlc personas:
+ * - getFusionResult on the same pair every time (hot) and on every ordered pair of personas in
+ *   a shuffled order (cold)
+ * - getFusions on the personas with the most recipes
+ * - getIncludedFusions on every persona
+ * - getRelatedFusions on every persona, keeping the results of one arcana and level range
+ * - getFusableIds on random rosters of ROSTER_SIZE personas
+ * - getClosure on the same rosters at PLAYER_LEVEL
+ * - AffinityIndex.search on a filter of two affinity clauses and a level range, and parsing and
+ *   searching it as the search command does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+	// the number of personas with the most recipes that getFusions cycles through
+	private static final int TOP_TARGETS = 8;
+
+	// the number of random rosters getFusableIds cycles through, and the size of each
+	private static final int ROSTERS = 64;
+	private static final int ROSTER_SIZE = 50;
+
+	// the player level getClosure caps the fusions at
+	private static final int PLAYER_LEVEL = 50;
+
+	// the filter affinitySearch searches with
+	private static final String SEARCH_FILTER = "nu/rp fire, not wk gun, level <=40";
+
+	private FusionDataGraph fd;
+	private String[] names;
+
+	// every ordered pair of persona names in a shuffled order, as consecutive entries
+	private String[] coldPairs;
+	private int[] coldIdPairs;
+
+	private String[] topTargets;
+
+	private Roster[] rosters;
+
+	private AffinityIndex affinityIndex;
+	private AffinityFilter affinityFilter;
+
+	private int nextPair;
+	private int nextTarget;
+	private int nextName;
+	private int nextRoster;
+
+	@Setup
+	public void setUp() {
+		fd = new FusionDataGraph(true);
+		int n = fd.getPersonaCount();
+		names = new String[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = fd.getPersona(i).getName();
+		}
+
+		List<Integer> pairs = new ArrayList<Integer>(n * n);
+		for (int i = 0; i < n * n; i++) {
+			pairs.add(i);
+		}
+		Collections.shuffle(pairs, new Random(42));
+		coldPairs = new String[2 * pairs.size()];
+		coldIdPairs = new int[2 * pairs.size()];
+		for (int i = 0; i < pairs.size(); i++) {
+			int p1 = pairs.get(i) / n;
+			int p2 = pairs.get(i) % n;
+			coldPairs[2 * i] = names[p1];
+			coldPairs[2 * i + 1] = names[p2];
+			coldIdPairs[2 * i] = p1;
+			coldIdPairs[2 * i + 1] = p2;
+		}
+
+		List<String> targets = new ArrayList<String>();
+		for (String name : names) {
+			if (fd.getFusions(name) != null) {
+				targets.add(name);
+			}
+		}
+		targets.sort((a, b) -> Integer.compare(fd.getFusions(b).size(), fd.getFusions(a).size()));
+		topTargets = targets.subList(0, TOP_TARGETS).toArray(new String[0]);
+
+		Random random = new Random(42);
+		rosters = new Roster[ROSTERS];
+		for (int i = 0; i < ROSTERS; i++) {
+			rosters[i] = new Roster(fd);
+			while (rosters[i].size() < ROSTER_SIZE) {
+				rosters[i].add(random.nextInt(n));
+			}
+		}
+
+		affinityIndex = new AffinityIndex(fd);
+		affinityFilter = AffinityFilter.parse(SEARCH_FILTER);
+	}
+
+	@Benchmark
+	public Persona fusionResultHot() {
+		return fd.getFusionResult("Arsene", "Pixie");
+	}
+
+	@Benchmark
+	public Persona fusionResultCold() {
+		int i = nextPair;
+		nextPair = i + 2 == coldPairs.length ? 0 : i + 2;
+		return fd.getFusionResult(coldPairs[i], coldPairs[i + 1]);
+	}
+
+	@Benchmark
+	public int fusionResultIdCold() {
+		int i = nextPair;
+		nextPair = i + 2 == coldIdPairs.length ? 0 : i + 2;
+		return fd.getFusionResultId(coldIdPairs[i], coldIdPairs[i + 1]);
+	}
+
+	@Benchmark
+	public List<Pair> fusionsOfTopTargets() {
+		int i = nextTarget;
+		nextTarget = i + 1 == topTargets.length ? 0 : i + 1;
+		return fd.getFusions(topTargets[i]);
+	}
+
+	@Benchmark
+	public Set<String> includedFusions() {
+		int i = nextName;
+		nextName = i + 1 == names.length ? 0 : i + 1;
+		return fd.getIncludedFusions(names[i]);
+	}
+
+	@Benchmark
+	public int[] relatedFusionsFiltered() {
+		int i = nextName;
+		nextName = i + 1 == names.length ? 0 : i + 1;
+		return fd.getRelatedFusions(i, "Death", 20, 60);
+	}
+
+	@Benchmark
+	public int[] fusableFromRoster() {
+		int i = nextRoster;
+		nextRoster = i + 1 == rosters.length ? 0 : i + 1;
+		return fd.getFusableIds(rosters[i]);
+	}
+
+	@Benchmark
+	public RosterClosure closureOfRoster() {
+		int i = nextRoster;
+		nextRoster = i + 1 == rosters.length ? 0 : i + 1;
+		return fd.getClosure(rosters[i], PLAYER_LEVEL);
+	}
+
+	@Benchmark
+	public int[] affinitySearch() {
+		return affinityIndex.search(affinityFilter);
+	}
+
+	@Benchmark
+	public int[] affinitySearchParsed() {
+		return affinityIndex.search(AffinityFilter.parse(SEARCH_FILTER));
+	}
+}
@@ -0,0 +1,58 @@
+package javaFiles;
+
+/**
+ * Affinity is how a persona takes attacks of one element, with the codes used in
+ * personaData.txt and by Persona.getWR().
+ */
+public enum Affinity {
+
+	NEUTRAL("-"),
+	WEAK("wk"),
+	RESIST("rs"),
+	NULL("nu"),
+	REPEL("rp"),
+	ABSORB("ab");
+
+	// the affinities in the order of their ordinals, without the copy values() makes
+	private static final Affinity[] VALUES = values();
+
+	private final String code;
+
+	/**
+	 * @param code The code of the affinity in the data files
+	 * @effects Constructs an Affinity with the given code
+	 */
+	Affinity(String code) {
+		this.code = code;
+	}
+
+	/**
+	 * @return The code of this affinity in the data files, for example "wk"
+	 */
+	public String getCode() {
+		return code;
+	}
+
+	/**
+	 * @param code The code of an affinity in the data files
+	 * @return The affinity with the given code
+	 * @throws IllegalArgumentException if code is not the code of an affinity
+	 */
+	public static Affinity of(String code) throws IllegalArgumentException {
+		for (Affinity a : VALUES) {
+			if (a.code.equals(code)) {
+				return a;
+			}
+		}
+		throw new IllegalArgumentException("unknown affinity " + code);
+	}
+
+	/**
+	 * @param ordinal The ordinal of an affinity
+	 * @requires 0 <= ordinal < values().length
+	 * @return The affinity with the given ordinal
+	 */
+	static Affinity get(int ordinal) {
+		return VALUES[ordinal];
+	}
+}
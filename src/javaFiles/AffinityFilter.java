@@ -0,0 +1,352 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AffinityFilter is an immutable predicate over personas, made of clauses about the affinity of a
+ * persona to an element and about its base level, joined with and, or and and-not. An
+ * AffinityIndex evaluates it over every persona at once.
+ *
+ * parse reads a filter typed by a user, of the form:
+ * filter := conjunction { "or" conjunction }
+ * conjunction := clause { ("," | "and") clause }
+ * clause := ["not" | "!"] affinity { ("/" | "or") affinity } ["to"] element | "level" range
+ * range := N | N-M | <=N | <N | >=N | >N
+ * where an affinity is a code of the abbreviation key (-, wk, rs, nu, rp, ab) or its name
+ * (neutral, weak, resist, null, repel, absorb), and an element is an abbreviation of the
+ * abbreviation key (phys, gun, fire, ice, elec, wind, psych, nucl, bless, curse) or its full name.
+ * For example, "nu/rp fire, not wk gun, level <=40" and "null or repel fire and not weak to gun
+ * and level <= 40" both match the personas that null or repel fire and aren't weak to gun, with a
+ * base level of at most 40.
+ */
+public class AffinityFilter {
+
+	// the abbreviations and full names of the elements, in the order of Persona.getWR()
+	private static final String[] ELEMENTS = {"phys", "gun", "fire", "ice", "elec", "wind", "psych",
+			"nucl", "bless", "curse"};
+	private static final String[] ELEMENT_NAMES = {"physical", "gun", "fire", "ice", "electricity",
+			"wind", "psychic", "nuclear", "bless", "curse"};
+
+	private static final int AFFINITIES = Affinity.values().length;
+
+	// the kinds of nodes of a filter
+	private static final int ALL = 0;
+	private static final int AFFINITY = 1;
+	private static final int LEVEL = 2;
+	private static final int AND = 3;
+	private static final int OR = 4;
+	private static final int AND_NOT = 5;
+
+	private static final AffinityFilter ALL_PERSONAS = new AffinityFilter(ALL, 0, 0, 0, 0, null, null);
+
+	private final int op;
+	private final int element;
+	private final int affinities;
+	private final int minLevel;
+	private final int maxLevel;
+	private final AffinityFilter left;
+	private final AffinityFilter right;
+
+	// Abstraction Function:
+	// An AffinityFilter f matches
+	// - every persona if op == ALL
+	// - the personas whose affinity to element has an ordinal whose bit is set in affinities if
+	//   op == AFFINITY
+	// - the personas with a base level from minLevel to maxLevel if op == LEVEL
+	// - the personas left and right both match if op == AND
+	// - the personas left or right match if op == OR
+	// - the personas left matches and right doesn't if op == AND_NOT
+	//
+	// Representation Invariant for every AffinityFilter f:
+	// op == AFFINITY implies 0 <= element < PersonaTable.ELEMENTS && affinities != 0 &&
+	// op == LEVEL implies minLevel <= maxLevel &&
+	// (left != null && right != null) iff op is AND, OR or AND_NOT
+
+	/**
+	 * @effects Constructs an AffinityFilter node
+	 */
+	private AffinityFilter(int op, int element, int affinities, int minLevel, int maxLevel,
+			AffinityFilter left, AffinityFilter right) {
+		this.op = op;
+		this.element = element;
+		this.affinities = affinities;
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+		this.left = left;
+		this.right = right;
+		checkRep();
+	}
+
+	/**
+	 * @return An AffinityFilter that matches every persona
+	 */
+	public static AffinityFilter all() {
+		return ALL_PERSONAS;
+	}
+
+	/**
+	 * @param element The index of an element, in the order of Persona.getWR()
+	 * @param affinities The affinities that match
+	 * @return An AffinityFilter that matches the personas that have one of affinities to element
+	 * @throws IllegalArgumentException if element is not the index of an element, or affinities
+	 * 		   is null, empty or holds null
+	 */
+	public static AffinityFilter affinity(int element, Affinity... affinities) throws IllegalArgumentException {
+		if (element < 0 || element >= PersonaTable.ELEMENTS || affinities == null || affinities.length == 0) {
+			throw new IllegalArgumentException();
+		}
+		int mask = 0;
+		for (Affinity a : affinities) {
+			if (a == null) {
+				throw new IllegalArgumentException();
+			}
+			mask |= 1 << a.ordinal();
+		}
+		return new AffinityFilter(AFFINITY, element, mask, 0, 0, null, null);
+	}
+
+	/**
+	 * @param minLevel The lowest base level that matches
+	 * @param maxLevel The highest base level that matches
+	 * @return An AffinityFilter that matches the personas with a base level from minLevel to maxLevel
+	 * @throws IllegalArgumentException if minLevel > maxLevel
+	 */
+	public static AffinityFilter level(int minLevel, int maxLevel) throws IllegalArgumentException {
+		if (minLevel > maxLevel) {
+			throw new IllegalArgumentException("empty level range " + minLevel + "-" + maxLevel);
+		}
+		return new AffinityFilter(LEVEL, 0, 0, minLevel, maxLevel, null, null);
+	}
+
+	/**
+	 * @param other Another AffinityFilter
+	 * @return An AffinityFilter that matches the personas this and other both match
+	 * @throws IllegalArgumentException if other == null
+	 */
+	public AffinityFilter and(AffinityFilter other) throws IllegalArgumentException {
+		if (other == null) {
+			throw new IllegalArgumentException();
+		}
+		return op == ALL ? other : new AffinityFilter(AND, 0, 0, 0, 0, this, other);
+	}
+
+	/**
+	 * @param other Another AffinityFilter
+	 * @return An AffinityFilter that matches the personas this or other matches
+	 * @throws IllegalArgumentException if other == null
+	 */
+	public AffinityFilter or(AffinityFilter other) throws IllegalArgumentException {
+		if (other == null) {
+			throw new IllegalArgumentException();
+		}
+		return new AffinityFilter(OR, 0, 0, 0, 0, this, other);
+	}
+
+	/**
+	 * @param other Another AffinityFilter
+	 * @return An AffinityFilter that matches the personas this matches and other doesn't
+	 * @throws IllegalArgumentException if other == null
+	 */
+	public AffinityFilter andNot(AffinityFilter other) throws IllegalArgumentException {
+		if (other == null) {
+			throw new IllegalArgumentException();
+		}
+		return new AffinityFilter(AND_NOT, 0, 0, 0, 0, this, other);
+	}
+
+	/**
+	 * @param input A filter typed by a user, in the form described above
+	 * @return The AffinityFilter input stands for
+	 * @throws IllegalArgumentException if input == null or is not a filter, with a message that
+	 * 		   says what is wrong with it
+	 */
+	public static AffinityFilter parse(String input) throws IllegalArgumentException {
+		if (input == null) {
+			throw new IllegalArgumentException();
+		}
+		List<String> tokens = new ArrayList<String>();
+		for (String token : input.toLowerCase().replace(",", " , ").replace("/", " / ").replace("!", " ! ")
+				.trim().split("\\s+")) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		if (tokens.isEmpty()) {
+			throw new IllegalArgumentException("empty filter");
+		}
+
+		int[] next = {0};
+		AffinityFilter filter = parseConjunction(tokens, next);
+		while (next[0] < tokens.size()) {
+			String token = tokens.get(next[0]++);
+			if (!token.equals("or")) {
+				throw new IllegalArgumentException("expected \",\", \"and\" or \"or\" before " + token);
+			}
+			filter = filter.or(parseConjunction(tokens, next));
+		}
+		return filter;
+	}
+
+	/**
+	 * @param index The AffinityIndex of the personas
+	 * @return The bitset over persona ids of the personas this matches, with
+	 * 		   index.getWordCount() words
+	 */
+	long[] evaluate(AffinityIndex index) {
+		if (op == ALL) {
+			return index.allBits();
+		} else if (op == AFFINITY) {
+			long[] bits = new long[index.getWordCount()];
+			for (int a = 0; a < AFFINITIES; a++) {
+				if ((affinities & 1 << a) != 0) {
+					index.orAffinity(bits, element, a);
+				}
+			}
+			return bits;
+		} else if (op == LEVEL) {
+			long[] bits = new long[index.getWordCount()];
+			index.orLevels(bits, minLevel, maxLevel);
+			return bits;
+		}
+
+		long[] bits = left.evaluate(index);
+		long[] other = right.evaluate(index);
+		for (int w = 0; w < bits.length; w++) {
+			if (op == AND) {
+				bits[w] &= other[w];
+			} else if (op == OR) {
+				bits[w] |= other[w];
+			} else {
+				bits[w] &= ~other[w];
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * private helper method that parses the conjunction that starts at tokens[next[0]] and moves
+	 * next[0] past it
+	 */
+	private static AffinityFilter parseConjunction(List<String> tokens, int[] next) {
+		AffinityFilter conjunction = ALL_PERSONAS;
+		while (true) {
+			boolean negated = false;
+			if (next[0] < tokens.size() && (tokens.get(next[0]).equals("not") || tokens.get(next[0]).equals("!"))) {
+				negated = true;
+				next[0]++;
+			}
+			AffinityFilter clause = parseClause(tokens, next);
+			conjunction = negated ? conjunction.andNot(clause) : conjunction.and(clause);
+
+			if (next[0] == tokens.size() || !(tokens.get(next[0]).equals(",") || tokens.get(next[0]).equals("and"))) {
+				return conjunction;
+			}
+			next[0]++;
+		}
+	}
+
+	/**
+	 * private helper method that parses the clause without "not" that starts at tokens[next[0]]
+	 * and moves next[0] past it
+	 */
+	private static AffinityFilter parseClause(List<String> tokens, int[] next) {
+		if (next[0] == tokens.size()) {
+			throw new IllegalArgumentException("expected an affinity or level at the end");
+		}
+		String first = tokens.get(next[0]++);
+		if (first.equals("level")) {
+			return parseLevel(tokens, next);
+		}
+
+		List<Affinity> affinities = new ArrayList<Affinity>();
+		affinities.add(parseAffinity(first));
+		while (next[0] + 1 < tokens.size() && (tokens.get(next[0]).equals("/")
+				|| (tokens.get(next[0]).equals("or") && isAffinity(tokens.get(next[0] + 1))))) {
+			affinities.add(parseAffinity(tokens.get(next[0] + 1)));
+			next[0] += 2;
+		}
+
+		if (next[0] < tokens.size() && tokens.get(next[0]).equals("to")) {
+			next[0]++;
+		}
+		if (next[0] == tokens.size()) {
+			throw new IllegalArgumentException("expected an element after " + first);
+		}
+		String name = tokens.get(next[0]++);
+		for (int e = 0; e < PersonaTable.ELEMENTS; e++) {
+			if (ELEMENTS[e].equals(name) || ELEMENT_NAMES[e].equals(name)) {
+				return affinity(e, affinities.toArray(new Affinity[affinities.size()]));
+			}
+		}
+		throw new IllegalArgumentException("unknown element " + name);
+	}
+
+	/**
+	 * private helper method that parses the level range after "level" that starts at
+	 * tokens[next[0]] and moves next[0] past it
+	 */
+	private static AffinityFilter parseLevel(List<String> tokens, int[] next) {
+		// the range may be typed with spaces, as in "<= 40" or "10 - 40"
+		StringBuilder range = new StringBuilder();
+		while (next[0] < tokens.size() && !tokens.get(next[0]).equals(",") && !tokens.get(next[0]).equals("and")
+				&& !tokens.get(next[0]).equals("or")) {
+			range.append(tokens.get(next[0]++));
+		}
+		String r = range.toString();
+		try {
+			if (r.startsWith("<=")) {
+				return level(Integer.MIN_VALUE, Integer.parseInt(r.substring(2)));
+			} else if (r.startsWith("<")) {
+				return level(Integer.MIN_VALUE, Integer.parseInt(r.substring(1)) - 1);
+			} else if (r.startsWith(">=")) {
+				return level(Integer.parseInt(r.substring(2)), Integer.MAX_VALUE);
+			} else if (r.startsWith(">")) {
+				return level(Integer.parseInt(r.substring(1)) + 1, Integer.MAX_VALUE);
+			}
+			int dash = r.indexOf('-', 1);
+			if (dash < 0) {
+				int level = Integer.parseInt(r);
+				return level(level, level);
+			}
+			return level(Integer.parseInt(r.substring(0, dash)), Integer.parseInt(r.substring(dash + 1)));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("expected a level range after level, found \"" + r + "\"");
+		}
+	}
+
+	/**
+	 * private helper method that returns true if token is the code or name of an affinity
+	 */
+	private static boolean isAffinity(String token) {
+		for (Affinity a : Affinity.values()) {
+			if (a.getCode().equals(token) || a.name().equalsIgnoreCase(token)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * private helper method that returns the affinity whose code or name is token
+	 */
+	private static Affinity parseAffinity(String token) {
+		for (Affinity a : Affinity.values()) {
+			if (a.getCode().equals(token) || a.name().equalsIgnoreCase(token)) {
+				return a;
+			}
+		}
+		throw new IllegalArgumentException("unknown affinity " + token);
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (op != AFFINITY || (element >= 0 && element < PersonaTable.ELEMENTS && affinities != 0))
+				: "affinity clause without an element or affinity";
+		assert (op != LEVEL || minLevel <= maxLevel) : "empty level range";
+		assert ((left != null && right != null) == (op == AND || op == OR || op == AND_NOT))
+				: "operands don't match the operation";
+	}
+}
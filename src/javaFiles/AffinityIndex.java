@@ -0,0 +1,208 @@
+package javaFiles;
+
+import java.util.Arrays;
+
+/**
+ * AffinityIndex answers AffinityFilters over the personas of a FusionData, such as "the personas
+ * that null or repel fire and aren't weak to gun, at or below level 40", in microseconds. For
+ * every pair of an element and an affinity it holds a bitset over persona ids of the personas
+ * with that affinity to that element, and it holds the persona ids ordered by base level so that
+ * the personas in a level range are one run found by binary search. A filter is evaluated over
+ * 64 personas at a time, with a word-level and, or or and-not for every operation.
+ *
+ * An AffinityIndex reflects the personas of the FusionData it was built from at the time it was
+ * built, and is immutable, so it can be searched from any number of threads at once.
+ */
+public class AffinityIndex {
+
+	private static final int AFFINITIES = Affinity.values().length;
+
+	private final int personaCount;
+
+	// the number of 64-bit words of a bitset over persona ids
+	private final int wordCount;
+
+	// the bitset of the personas with the affinity of ordinal a to the element e is the
+	// wordCount words starting at (e * AFFINITIES + a) * wordCount
+	private final long[] affinityBits;
+
+	// the persona ids ordered by base level then id, and the base level of each
+	private final int[] idsByLevel;
+	private final int[] levels;
+
+	// Abstraction Function:
+	// An AffinityIndex a indexes the personas with the ids 0 to personaCount - 1. Bit id of the
+	// bitset of (e, a) is set iff the persona id has the affinity of ordinal a to the element e.
+	//
+	// Representation Invariant for every AffinityIndex a:
+	// wordCount == ceil(personaCount / 64) &&
+	// affinityBits.length == PersonaTable.ELEMENTS * AFFINITIES * wordCount &&
+	// for every element, the bitsets of its affinities are disjoint and cover every persona &&
+	// idsByLevel is a permutation of 0 to personaCount - 1 && levels is sorted &&
+	// levels[i] is the base level of idsByLevel[i]
+
+	/**
+	 * @param fd The FusionData whose personas will be indexed
+	 * @throws IllegalArgumentException if fd == null
+	 * @effects Constructs an AffinityIndex of the personas of fd
+	 */
+	public AffinityIndex(FusionData fd) throws IllegalArgumentException {
+		if (fd == null) {
+			throw new IllegalArgumentException();
+		}
+		PersonaTable table = fd.getPersonaTable();
+		personaCount = fd.getPersonaCount();
+		wordCount = (personaCount + 63) >>> 6;
+
+		affinityBits = new long[PersonaTable.ELEMENTS * AFFINITIES * wordCount];
+		for (int id = 0; id < personaCount; id++) {
+			for (int e = 0; e < PersonaTable.ELEMENTS; e++) {
+				int a = table.getAffinity(id, e).ordinal();
+				affinityBits[(e * AFFINITIES + a) * wordCount + (id >>> 6)] |= 1L << id;
+			}
+		}
+
+		// sort (level, id) keys packed into longs
+		long[] keys = new long[personaCount];
+		for (int id = 0; id < personaCount; id++) {
+			keys[id] = (long) table.getBaseLevel(id) << 32 | id;
+		}
+		Arrays.sort(keys);
+		idsByLevel = new int[personaCount];
+		levels = new int[personaCount];
+		for (int i = 0; i < personaCount; i++) {
+			idsByLevel[i] = (int) keys[i];
+			levels[i] = (int) (keys[i] >> 32);
+		}
+		checkRep();
+	}
+
+	/**
+	 * @return The number of personas indexed
+	 */
+	public int getPersonaCount() {
+		return personaCount;
+	}
+
+	/**
+	 * @param filter The AffinityFilter the personas will be matched against
+	 * @return The ids of the personas filter matches, in increasing order
+	 * @throws IllegalArgumentException if filter == null
+	 */
+	public int[] search(AffinityFilter filter) throws IllegalArgumentException {
+		if (filter == null) {
+			throw new IllegalArgumentException();
+		}
+		long[] bits = filter.evaluate(this);
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		int[] ids = new int[count];
+		int k = 0;
+		for (int w = 0; w < wordCount; w++) {
+			for (long word = bits[w]; word != 0; word &= word - 1) {
+				ids[k++] = w << 6 | Long.numberOfTrailingZeros(word);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * @param filter The AffinityFilter the personas will be matched against
+	 * @return The number of personas filter matches
+	 * @throws IllegalArgumentException if filter == null
+	 */
+	public int count(AffinityFilter filter) throws IllegalArgumentException {
+		if (filter == null) {
+			throw new IllegalArgumentException();
+		}
+		int count = 0;
+		for (long word : filter.evaluate(this)) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @return The number of words of a bitset over the persona ids
+	 */
+	int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * @return A new bitset with the bit of every persona set
+	 */
+	long[] allBits() {
+		long[] bits = new long[wordCount];
+		Arrays.fill(bits, -1L);
+		if ((personaCount & 63) != 0) {
+			bits[wordCount - 1] = (1L << personaCount) - 1;
+		}
+		return bits;
+	}
+
+	/**
+	 * @param bits A bitset over the persona ids
+	 * @param element The index of an element, in the order of Persona.getWR()
+	 * @param affinity The ordinal of an affinity
+	 * @requires bits.length == getWordCount() && 0 <= element < PersonaTable.ELEMENTS &&
+	 * 			 0 <= affinity < Affinity.values().length
+	 * @modifies bits
+	 * @effects sets the bits of the personas with the affinity to element
+	 */
+	void orAffinity(long[] bits, int element, int affinity) {
+		int start = (element * AFFINITIES + affinity) * wordCount;
+		for (int w = 0; w < wordCount; w++) {
+			bits[w] |= affinityBits[start + w];
+		}
+	}
+
+	/**
+	 * @param bits A bitset over the persona ids
+	 * @param minLevel The lowest base level of the personas whose bits will be set
+	 * @param maxLevel The highest base level of the personas whose bits will be set
+	 * @requires bits.length == getWordCount()
+	 * @modifies bits
+	 * @effects sets the bits of the personas with a base level from minLevel to maxLevel
+	 */
+	void orLevels(long[] bits, int minLevel, int maxLevel) {
+		for (int i = firstAtLeast(minLevel); i < personaCount && levels[i] <= maxLevel; i++) {
+			int id = idsByLevel[i];
+			bits[id >>> 6] |= 1L << id;
+		}
+	}
+
+	/**
+	 * private helper method that returns the index of the first entry of levels that is at
+	 * least level, or personaCount if there is none
+	 */
+	private int firstAtLeast(int level) {
+		int low = 0;
+		int high = personaCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (levels[mid] < level) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (wordCount == (personaCount + 63) >>> 6) : "wordCount doesn't fit personaCount";
+		assert (affinityBits.length == PersonaTable.ELEMENTS * AFFINITIES * wordCount)
+				: "affinityBits has the wrong size";
+		assert (idsByLevel.length == personaCount && levels.length == personaCount)
+				: "the level index has the wrong size";
+		for (int i = 1; i < personaCount; i++) {
+			assert (levels[i - 1] <= levels[i]) : "levels is not sorted";
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package javaFiles;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ArcanaLevelIndex answers "which persona of this arcana does a fusion with the calculated level
+ * L produce" in constant time. It is built once per arcana from the ordered (by base level) list
+ * of personas in the arcana, and is indexed by the sum of the base levels of the two ingredient
+ * personas, which determines L = sum / 2 + 0.5.
+ */
+public class ArcanaLevelIndex {
+
+	// the personas of the arcana, ordered by base level
+	private final List<Persona> personas;
+
+	// for every level sum, the index of the persona a different-arcana fusion produces, or -1 if
+	// no persona of the arcana is produced
+	private final int[] roundUp;
+
+	// for every level sum, the index of the first persona whose base level is at least the
+	// calculated level (personas.size() if there is none)
+	private final int[] roundDownStop;
+
+	// for every index i (including personas.size()), the index of the closest regular persona
+	// below i, or -1 if there is none
+	private final int[] previousRegular;
+
+	// for every index, true if the persona at that index may be the result of a fusion (it is
+	// neither a treasure demon nor a guillotine-only persona)
+	private final boolean[] fusible;
+
+	// map from persona names to their index in personas
+	private final HashMap<String, Integer> positions;
+
+	/**
+	 * @param personas The personas of the arcana, ordered by base level
+	 * @param highestLevel The level of the highest-level regular persona in the arcana
+	 * @param maxLevel The highest base level of any persona that can be an ingredient
+	 * @requires personas != null
+	 * @effects Constructs an ArcanaLevelIndex for every level sum from 0 to 2 * maxLevel
+	 */
+	public ArcanaLevelIndex(List<Persona> personas, int highestLevel, int maxLevel) {
+		this.personas = personas;
+		int size = personas.size();
+
+		fusible = new boolean[size];
+		previousRegular = new int[size + 1];
+		positions = new HashMap<String, Integer>();
+		int lastRegular = -1;
+		for (int i = 0; i < size; i++) {
+			Persona p = personas.get(i);
+			fusible[i] = !p.getSpecialCase().equals("treasure") && !p.getSpecialCase().equals("guillotine");
+			previousRegular[i] = lastRegular;
+			if (p.getSpecialCase().equals("")) {
+				lastRegular = i;
+			}
+			positions.put(p.getName(), i);
+		}
+		previousRegular[size] = lastRegular;
+
+		roundUp = new int[2 * maxLevel + 1];
+		roundDownStop = new int[2 * maxLevel + 1];
+		for (int sum = 0; sum < roundUp.length; sum++) {
+			// the calculated level is sum / 2 + 0.5, so compare against twice the base levels
+			int doubleLevel = sum + 1;
+
+			// different-arcana fusions: search down from the top for the lowest fusible persona
+			// with a base level of at least the calculated level. An exact match that is not
+			// fusible ends the search.
+			int result = -1;
+			if (2 * highestLevel >= doubleLevel) {
+				for (int i = size - 1; i >= 0; i--) {
+					int level = 2 * personas.get(i).getBaseLevel();
+					if (level < doubleLevel) {
+						break;
+					}
+					if (fusible[i]) {
+						result = i;
+					}
+					if (level == doubleLevel) {
+						break;
+					}
+				}
+			}
+			roundUp[sum] = result;
+
+			// same-arcana fusions: the search up from the bottom stops at the first persona with
+			// a base level of at least the calculated level
+			int stop = 0;
+			while (stop < size && 2 * personas.get(stop).getBaseLevel() < doubleLevel) {
+				stop++;
+			}
+			roundDownStop[sum] = stop;
+		}
+	}
+
+	/**
+	 * @param levelSum The sum of the base levels of the two ingredient personas
+	 * @return The persona of this arcana that a fusion between two personas of different arcanas
+	 * 		   that results in this arcana produces, or null if the fusion is impossible
+	 */
+	public Persona roundUp(int levelSum) {
+		if (levelSum < 0 || levelSum >= roundUp.length) {
+			return null;
+		}
+		int result = roundUp[levelSum];
+		return result < 0 ? null : personas.get(result);
+	}
+
+	/**
+	 * @param p1 The first ingredient persona, of this arcana
+	 * @param p2 The second ingredient persona, of this arcana
+	 * @return The persona of this arcana that a fusion between p1 and p2 produces, or null if
+	 * 		   the fusion is impossible. The result is never p1 or p2.
+	 */
+	public Persona roundDown(Persona p1, Persona p2) {
+		int levelSum = p1.getBaseLevel() + p2.getBaseLevel();
+		int stop = levelSum < roundDownStop.length ? roundDownStop[levelSum] : personas.size();
+
+		// an exact match is the result unless it can't be fused or is one of the ingredients
+		if (stop < personas.size() && 2 * personas.get(stop).getBaseLevel() == levelSum + 1) {
+			Persona exact = personas.get(stop);
+			if (fusible[stop] && !exact.equals(p1) && !exact.equals(p2)) {
+				return exact;
+			}
+		}
+
+		// otherwise the result is the closest regular persona below that isn't an ingredient
+		int i = previousRegular[stop];
+		while (i >= 0 && (personas.get(i).equals(p1) || personas.get(i).equals(p2))) {
+			i = previousRegular[i];
+		}
+		return i < 0 ? null : personas.get(i);
+	}
+
+	/**
+	 * @param p A persona of this arcana
+	 * @return The index of p in the ordered list of personas of this arcana, or -1 if p is not
+	 * 		   in this arcana
+	 */
+	public int indexOf(Persona p) {
+		Integer index = positions.get(p.getName());
+		return index == null ? -1 : index;
+	}
+}
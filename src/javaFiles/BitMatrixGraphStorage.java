@@ -0,0 +1,459 @@
+package javaFiles;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * BitMatrixGraphStorage stores a Graph as an adjacency bit matrix over dense node ids, with the
+ * labels of the edges in a parallel array that has an entry per pair of nodes. It takes memory
+ * in proportion to the square of the number of nodes, about 4.25 bytes per pair of nodes with
+ * compressed references, whatever the number of edges, so it suits small dense graphs like the
+ * fusion graph, where most personas can be fused with most others.
+ *
+ * Every row of the matrix is a run of 64-bit words, so the children of a node are found a word
+ * at a time with Long.numberOfTrailingZeros, and clearing or copying a row is a word-parallel
+ * array operation. A transposed matrix does the same for the parents of a node.
+ */
+public class BitMatrixGraphStorage<N, E> implements GraphStorage<N, E> {
+
+	private static final int MIN_CAPACITY = 64;
+
+	// map from the nodes to their id
+	private HashMap<N, Integer> ids;
+
+	// the nodes indexed by their id, null for the ids that are not in use
+	private Object[] nodes;
+
+	// the ids of removed nodes, reused before new ids are handed out
+	private ArrayDeque<Integer> freeIds;
+
+	// the number of ids the matrices have rows and columns for, a multiple of 64
+	private int capacity;
+
+	// the number of 64-bit words in a row, capacity / 64
+	private int words;
+
+	// bit j of row i (word i * words + j / 64) of out is set if node i has an edge to node j,
+	// and bit i of row j of in is set in the same case
+	private long[] out;
+	private long[] in;
+
+	// the labels of the edges from node i to node j at i * capacity + j: null if there are
+	// none, the label itself if there is one, and a LabelSet if there are several
+	private Object[] labels;
+
+	// Abstraction Function:
+	// The storage holds the nodes in ids, and for every pair of ids i and j with bit j of row i
+	// of out set, the edges from nodes[i] to nodes[j] with the labels at labels[i * capacity + j].
+	//
+	// Representation Invariant:
+	// ids.get(nodes[i]) == i for every non-null nodes[i], and ids has no other entries &&
+	// freeIds holds the ids below the highest id in use whose nodes[id] is null &&
+	// bit j of row i of out is set iff bit i of row j of in is set iff
+	// labels[i * capacity + j] != null &&
+	// no LabelSet in labels has fewer than 2 labels
+
+	/**
+	 * @effects Constructs an empty BitMatrixGraphStorage
+	 */
+	public BitMatrixGraphStorage() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedNodes The number of nodes to make room for. The storage grows if more are
+	 * 		  inserted.
+	 * @effects Constructs an empty BitMatrixGraphStorage with room for expectedNodes nodes
+	 */
+	public BitMatrixGraphStorage(int expectedNodes) {
+		ids = new HashMap<N, Integer>();
+		freeIds = new ArrayDeque<Integer>();
+		allocate(Math.max(MIN_CAPACITY, (expectedNodes + 63) & ~63));
+		checkRep();
+	}
+
+	@Override
+	public boolean insertNode(N node) {
+		if (ids.containsKey(node)) {
+			return false;
+		}
+		int id;
+		if (!freeIds.isEmpty()) {
+			id = freeIds.pop();
+		} else {
+			id = ids.size();
+			if (id == capacity) {
+				grow();
+			}
+		}
+		ids.put(node, id);
+		nodes[id] = node;
+		checkRep();
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean insertEdge(N nodeFrom, N nodeTo, E label) {
+		int from = ids.get(nodeFrom);
+		int to = ids.get(nodeTo);
+		int pair = from * capacity + to;
+		Object current = labels[pair];
+		if (current == null) {
+			labels[pair] = label;
+			out[from * words + (to >>> 6)] |= 1L << to;
+			in[to * words + (from >>> 6)] |= 1L << from;
+		} else if (current instanceof LabelSet) {
+			if (!((LabelSet<E>) current).add(label)) {
+				return false;
+			}
+		} else if (current.equals(label)) {
+			return false;
+		} else {
+			LabelSet<E> set = new LabelSet<E>();
+			set.add((E) current);
+			set.add(label);
+			labels[pair] = set;
+		}
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public boolean removeNode(N node) {
+		Integer id = ids.remove(node);
+		if (id == null) {
+			return false;
+		}
+
+		// clear the column of the node in the rows of its parents and children, then its own rows
+		for (int child = nextBit(out, id, 0); child >= 0; child = nextBit(out, id, child + 1)) {
+			in[child * words + (id >>> 6)] &= ~(1L << id);
+			labels[id * capacity + child] = null;
+		}
+		for (int parent = nextBit(in, id, 0); parent >= 0; parent = nextBit(in, id, parent + 1)) {
+			out[parent * words + (id >>> 6)] &= ~(1L << id);
+			labels[parent * capacity + id] = null;
+		}
+		Arrays.fill(out, id * words, (id + 1) * words, 0L);
+		Arrays.fill(in, id * words, (id + 1) * words, 0L);
+
+		nodes[id] = null;
+		freeIds.push(id);
+		checkRep();
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean removeEdge(N nodeFrom, N nodeTo, E label) {
+		Integer from = ids.get(nodeFrom);
+		Integer to = ids.get(nodeTo);
+		if (from == null || to == null) {
+			return false;
+		}
+		int pair = from * capacity + to;
+		Object current = labels[pair];
+		if (current instanceof LabelSet) {
+			LabelSet<E> set = (LabelSet<E>) current;
+			if (!set.remove(label)) {
+				return false;
+			}
+			if (set.size() == 1) {
+				labels[pair] = set.iterator().next();
+			}
+		} else if (current != null && current.equals(label)) {
+			labels[pair] = null;
+			out[from * words + (to >>> 6)] &= ~(1L << to);
+			in[to * words + (from >>> 6)] &= ~(1L << from);
+		} else {
+			return false;
+		}
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public boolean containsNode(N node) {
+		return ids.containsKey(node);
+	}
+
+	@Override
+	public int nodeCount() {
+		return ids.size();
+	}
+
+	@Override
+	public Set<N> nodes() {
+		return new HashSet<N>(ids.keySet());
+	}
+
+	@Override
+	public Set<N> children(N node) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			return null;
+		}
+		return rowSet(out, id);
+	}
+
+	@Override
+	public Set<N> parents(N node) {
+		Set<N> result = rowSet(in, ids.get(node));
+		return result == null ? new HashSet<N>() : result;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<E> edges(N nodeFrom, N nodeTo) {
+		Integer from = ids.get(nodeFrom);
+		Integer to = ids.get(nodeTo);
+		if (from == null || to == null) {
+			return null;
+		}
+		Object current = labels[from * capacity + to];
+		if (current == null) {
+			return null;
+		}
+		if (current instanceof LabelSet) {
+			return new HashSet<E>((LabelSet<E>) current);
+		}
+		Set<E> result = new HashSet<E>();
+		result.add((E) current);
+		return result;
+	}
+
+	@Override
+	public Set<N> nodesView() {
+		return Collections.unmodifiableSet(ids.keySet());
+	}
+
+	@Override
+	public Set<N> childrenView(N node) {
+		Integer id = ids.get(node);
+		if (id == null || isEmptyRow(out, id)) {
+			return null;
+		}
+		return new RowView(true, id);
+	}
+
+	@Override
+	public Set<N> parentsView(N node) {
+		return new RowView(false, ids.get(node));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<E> edgesView(N nodeFrom, N nodeTo) {
+		Integer from = ids.get(nodeFrom);
+		Integer to = ids.get(nodeTo);
+		if (from == null || to == null) {
+			return null;
+		}
+		Object current = labels[from * capacity + to];
+		if (current == null) {
+			return null;
+		}
+		if (current instanceof LabelSet) {
+			return Collections.unmodifiableSet((LabelSet<E>) current);
+		}
+		return Collections.singleton((E) current);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void copyEdges(N nodeFrom, N nodeTo, Collection<? super E> target) {
+		Integer from = ids.get(nodeFrom);
+		Integer to = ids.get(nodeTo);
+		if (from == null || to == null) {
+			return;
+		}
+		Object current = labels[from * capacity + to];
+		if (current instanceof LabelSet) {
+			for (E label : (LabelSet<E>) current) {
+				target.add(label);
+			}
+		} else if (current != null) {
+			target.add((E) current);
+		}
+	}
+
+	@Override
+	public void clear() {
+		ids.clear();
+		freeIds.clear();
+		allocate(MIN_CAPACITY);
+		checkRep();
+	}
+
+	/**
+	 * private helper method that returns the nodes with their bit set in row id of matrix, or
+	 * null if there are none
+	 */
+	@SuppressWarnings("unchecked")
+	private Set<N> rowSet(long[] matrix, int id) {
+		int count = 0;
+		for (int w = id * words; w < (id + 1) * words; w++) {
+			count += Long.bitCount(matrix[w]);
+		}
+		if (count == 0) {
+			return null;
+		}
+		Set<N> result = new HashSet<N>(count * 4 / 3 + 1);
+		for (int w = 0; w < words; w++) {
+			long word = matrix[id * words + w];
+			while (word != 0) {
+				result.add((N) nodes[(w << 6) + Long.numberOfTrailingZeros(word)]);
+				word &= word - 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * private helper method that returns whether no bit is set in row id of matrix
+	 */
+	private boolean isEmptyRow(long[] matrix, int id) {
+		for (int w = id * words; w < (id + 1) * words; w++) {
+			if (matrix[w] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * private helper method that returns the first column at or after from with its bit set in
+	 * row id of matrix, or -1 if there is none
+	 */
+	private int nextBit(long[] matrix, int id, int from) {
+		if (from >= capacity) {
+			return -1;
+		}
+		int w = from >>> 6;
+		long word = matrix[id * words + w] & (-1L << from);
+		while (word == 0) {
+			if (++w == words) {
+				return -1;
+			}
+			word = matrix[id * words + w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * private helper method that allocates empty matrices for newCapacity ids
+	 */
+	private void allocate(int newCapacity) {
+		capacity = newCapacity;
+		words = newCapacity >>> 6;
+		nodes = new Object[newCapacity];
+		out = new long[newCapacity * words];
+		in = new long[newCapacity * words];
+		labels = new Object[newCapacity * newCapacity];
+	}
+
+	/**
+	 * private helper method that doubles the capacity, copying every row into the larger matrices
+	 */
+	private void grow() {
+		int oldCapacity = capacity;
+		int oldWords = words;
+		Object[] oldNodes = nodes;
+		long[] oldOut = out;
+		long[] oldIn = in;
+		Object[] oldLabels = labels;
+		allocate(2 * oldCapacity);
+		System.arraycopy(oldNodes, 0, nodes, 0, oldCapacity);
+		for (int i = 0; i < oldCapacity; i++) {
+			System.arraycopy(oldOut, i * oldWords, out, i * words, oldWords);
+			System.arraycopy(oldIn, i * oldWords, in, i * words, oldWords);
+			System.arraycopy(oldLabels, i * oldCapacity, labels, i * capacity, oldCapacity);
+		}
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (ids.size() + freeIds.size() <= capacity) : "more ids than capacity";
+		assert (out.length == capacity * words && in.length == capacity * words) : "matrix has the wrong size";
+		assert (labels.length == capacity * capacity) : "labels has the wrong size";
+	}
+
+	/**
+	 * An unmodifiable view of the nodes with their bit set in a row of out or in. It reads the
+	 * row as it is when the view is used, a word at a time.
+	 */
+	private class RowView extends AbstractSet<N> {
+
+		// whether the view is of a row of out, and not of in
+		private final boolean outgoing;
+		private final int id;
+
+		RowView(boolean outgoing, int id) {
+			this.outgoing = outgoing;
+			this.id = id;
+		}
+
+		// the matrix is read through the field each time, as grow() replaces it
+		private long[] matrix() {
+			return outgoing ? out : in;
+		}
+
+		@Override
+		public int size() {
+			long[] matrix = matrix();
+			int count = 0;
+			for (int w = id * words; w < (id + 1) * words; w++) {
+				count += Long.bitCount(matrix[w]);
+			}
+			return count;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Integer column = ids.get(o);
+			return column != null && (matrix()[id * words + (column >>> 6)] & 1L << column) != 0;
+		}
+
+		@Override
+		public Iterator<N> iterator() {
+			return new Iterator<N>() {
+
+				private int next = nextBit(matrix(), id, 0);
+
+				@Override
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public N next() {
+					if (next < 0) {
+						throw new NoSuchElementException();
+					}
+					N node = (N) nodes[next];
+					next = nextBit(matrix(), id, next + 1);
+					return node;
+				}
+			};
+		}
+	}
+
+	/**
+	 * The labels of the edges between a pair of nodes that has more than one.
+	 */
+	private static class LabelSet<E> extends HashSet<E> {
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,460 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FrozenFusionData is an immutable snapshot of a FusionDataGraph, made by
+ * FusionDataGraph.freeze(). It answers the queries of FusionData with the same results as the
+ * FusionDataGraph it was made from at the time it was made, from its own copies of the personas
+ * and of the fusion tables: later changes to the FusionDataGraph are not reflected in it. A
+ * FusionDataGraph frozen in place by FusionDataGraph.freezeInPlace(), which can't be changed
+ * anymore, is frozen without copying: the FrozenFusionData holds its personas, Pair lists, matrix
+ * and indexes themselves.
+ *
+ * A FrozenFusionData is deeply immutable: every field is final and is never written after the
+ * constructor, the personas it holds are rows of PersonaTables that are never added to
+ * afterwards, nothing it holds is changed by anything else, and every list, set and map it
+ * returns is either a fresh copy or unmodifiable. So it is safely published however it is
+ * shared, and every method is thread-safe and can be called from any number of threads at once
+ * without locking.
+ */
+public class FrozenFusionData implements FusionData {
+
+	// personas indexed by their id, each with the fields of the row of personaRows with its id
+	private final Persona[] personaTable;
+	private final PersonaTable personaRows;
+
+	// map from persona names to their id
+	private final HashMap<String, Integer> personaIds;
+
+	// row-major personaTable.length x personaTable.length matrix of the ids of fusion results,
+	// -1 where the fusion is impossible
+	private final int[] fusionMatrix;
+
+	// for each persona id, the ingredient ids of the fusions that make it as consecutive pairs,
+	// and the same fusions as an unmodifiable list of Pairs, or null for guillotine-only
+	// personas and treasure demons
+	private final int[][] fusionPairIds;
+	private final List<Pair>[] fusionLists;
+
+	// for each persona id, the sorted ids of the personas it can be fused with
+	private final int[][] includedFusionIds;
+
+	// the fusions persona p is an ingredient of are the (partner, result) entries from
+	// 2 * relatedFusionStarts[p] to 2 * relatedFusionStarts[p + 1], ordered by result level
+	private final int[] relatedFusionIds;
+	private final int[] relatedFusionStarts;
+
+	private final NameIndex personaNames;
+	private final NameIndex arcanaNames;
+
+	// unmodifiable map from arcana names to the unmodifiable list of personas in that arcana,
+	// ordered by base level
+	private final Map<String, List<Persona>> arcanas;
+
+	// Abstraction Function:
+	// A FrozenFusionData f has the personas personaTable[0] to personaTable[n - 1] with the ids
+	// 0 to n - 1, where n = personaTable.length. Fusing the personas p1 and p2 makes the persona
+	// with the id fusionMatrix[p1 * n + p2] if it is at least 0.
+	//
+	// Representation Invariant for every FrozenFusionData f:
+	// personaIds.get(personaTable[i].getName()) == i for every i &&
+	// personaRows.size() == n && personaTable[i] has the fields of row i of personaRows for every i &&
+	// fusionMatrix.length == n * n &&
+	// fusionPairIds.length == fusionLists.length == includedFusionIds.length == n &&
+	// relatedFusionStarts.length == n + 1 &&
+	// relatedFusionIds.length == 2 * relatedFusionStarts[n]
+
+	/**
+	 * @param personaTable The personas indexed by their id
+	 * @param personaRows The PersonaTable whose row i has the fields of personaTable[i]
+	 * @param personaIds A map from persona names to their id
+	 * @param arcanas An unmodifiable map from arcana names to the unmodifiable list of personas in
+	 * 		  that arcana, ordered by base level
+	 * @param fusionMatrix The row-major matrix of the ids of fusion results, -1 where the fusion
+	 * 		  is impossible
+	 * @param fusionPairIds For each persona id, the ingredient ids of the fusions that make it
+	 * @param fusionLists For each persona id, the unmodifiable list of the fusions that make it,
+	 * 		  or null for guillotine-only personas and treasure demons
+	 * @param includedFusionIds For each persona id, the sorted ids of the personas it can be fused with
+	 * @param relatedFusionIds The (partner, result) entries of the fusions each persona is an
+	 * 		  ingredient of
+	 * @param relatedFusionStarts For each persona id, the index of its first entry in relatedFusionIds
+	 * @param personaNames The index of the names of the personas
+	 * @param arcanaNames The index of the names of the arcanas
+	 * @requires none of the arguments is ever changed
+	 * @effects Constructs a FrozenFusionData that holds the given personas and tables
+	 */
+	private FrozenFusionData(Persona[] personaTable, PersonaTable personaRows, HashMap<String, Integer> personaIds,
+			Map<String, List<Persona>> arcanas, int[] fusionMatrix, int[][] fusionPairIds, List<Pair>[] fusionLists,
+			int[][] includedFusionIds, int[] relatedFusionIds, int[] relatedFusionStarts,
+			NameIndex personaNames, NameIndex arcanaNames) {
+		this.personaTable = personaTable;
+		this.personaRows = personaRows;
+		this.personaIds = personaIds;
+		this.arcanas = arcanas;
+		this.fusionMatrix = fusionMatrix;
+		this.fusionPairIds = fusionPairIds;
+		this.fusionLists = fusionLists;
+		this.includedFusionIds = includedFusionIds;
+		this.relatedFusionIds = relatedFusionIds;
+		this.relatedFusionStarts = relatedFusionStarts;
+		this.personaNames = personaNames;
+		this.arcanaNames = arcanaNames;
+		checkRep();
+	}
+
+	/**
+	 * @param personaTable The personas indexed by their id
+	 * @param arcanas A map from arcana names to the personas in that arcana, ordered by base level
+	 * @param fusionMatrix The row-major matrix of the ids of fusion results, -1 where the fusion
+	 * 		  is impossible
+	 * @param fusionPairIds For each persona id, the ingredient ids of the fusions that make it
+	 * @param includedFusionIds For each persona id, the sorted ids of the personas it can be fused with
+	 * @param relatedFusionIds The (partner, result) entries of the fusions each persona is an
+	 * 		  ingredient of
+	 * @param relatedFusionStarts For each persona id, the index of its first entry in relatedFusionIds
+	 * @param personaNames The index of the names of the personas
+	 * @param arcanaNames The index of the names of the arcanas
+	 * @requires the arguments are the tables of a FusionDataGraph and aren't changed during this call
+	 * @return A FrozenFusionData with copies of the personas and tables
+	 */
+	static FrozenFusionData copyOf(Persona[] personaTable, Map<String, List<Persona>> arcanas, int[] fusionMatrix,
+			int[][] fusionPairIds, int[][] includedFusionIds, int[] relatedFusionIds, int[] relatedFusionStarts,
+			NameIndex personaNames, NameIndex arcanaNames) {
+		int n = personaTable.length;
+		Persona[] personaCopy = new Persona[n];
+		PersonaTable personaRows = new PersonaTable(n);
+		HashMap<String, Integer> personaIds = new HashMap<String, Integer>(n * 4 / 3 + 1);
+		for (int i = 0; i < n; i++) {
+			personaCopy[i] = personaRows.add(personaTable[i]);
+			personaIds.put(personaTable[i].getName(), i);
+		}
+
+		HashMap<String, List<Persona>> arcanaCopy = new HashMap<String, List<Persona>>();
+		for (Map.Entry<String, List<Persona>> entry : arcanas.entrySet()) {
+			List<Persona> members = new ArrayList<Persona>(entry.getValue().size());
+			for (Persona p : entry.getValue()) {
+				members.add(personaCopy[personaIds.get(p.getName())]);
+			}
+			arcanaCopy.put(entry.getKey(), Collections.unmodifiableList(members));
+		}
+
+		int[][] pairIdsCopy = new int[n][];
+		@SuppressWarnings("unchecked")
+		List<Pair>[] lists = (List<Pair>[]) new List<?>[n];
+		for (int i = 0; i < n; i++) {
+			pairIdsCopy[i] = fusionPairIds[i].clone();
+			if (!isSpecial(personaCopy[i])) {
+				int[] ids = pairIdsCopy[i];
+				List<Pair> pairs = new ArrayList<Pair>(ids.length / 2);
+				for (int k = 0; k < ids.length; k += 2) {
+					pairs.add(new Pair(personaCopy[ids[k]], personaCopy[ids[k + 1]]));
+				}
+				lists[i] = Collections.unmodifiableList(pairs);
+			}
+		}
+
+		int[][] includedCopy = new int[n][];
+		for (int i = 0; i < n; i++) {
+			includedCopy[i] = includedFusionIds[i].clone();
+		}
+		return new FrozenFusionData(personaCopy, personaRows, personaIds, Collections.unmodifiableMap(arcanaCopy),
+				fusionMatrix.clone(), pairIdsCopy, lists, includedCopy, relatedFusionIds.clone(),
+				relatedFusionStarts.clone(), personaNames, arcanaNames);
+	}
+
+	/**
+	 * @param personaTable The personas indexed by their id
+	 * @param personaRows The PersonaTable whose row i has the fields of personaTable[i]
+	 * @param personaIds A map from persona names to their id
+	 * @param arcanas A map from arcana names to the personas in that arcana, ordered by base level
+	 * @param fusionResults A map from persona names to the fusions that make that persona, in
+	 * 		  the order of fusionPairIds
+	 * @param fusionMatrix The row-major matrix of the ids of fusion results, -1 where the fusion
+	 * 		  is impossible
+	 * @param fusionPairIds For each persona id, the ingredient ids of the fusions that make it
+	 * @param includedFusionIds For each persona id, the sorted ids of the personas it can be fused with
+	 * @param relatedFusionIds The (partner, result) entries of the fusions each persona is an
+	 * 		  ingredient of
+	 * @param relatedFusionStarts For each persona id, the index of its first entry in relatedFusionIds
+	 * @param personaNames The index of the names of the personas
+	 * @param arcanaNames The index of the names of the arcanas
+	 * @requires the arguments are the tables of a FusionDataGraph that can't be changed anymore,
+	 * 			 and the personas are rows of PersonaTables that are never added to
+	 * @return A FrozenFusionData that holds the personas, lists and tables themselves, behind
+	 * 		   unmodifiable views
+	 */
+	static FrozenFusionData sharing(Persona[] personaTable, PersonaTable personaRows,
+			HashMap<String, Integer> personaIds, Map<String, List<Persona>> arcanas,
+			Map<String, List<Pair>> fusionResults, int[] fusionMatrix, int[][] fusionPairIds,
+			int[][] includedFusionIds, int[] relatedFusionIds, int[] relatedFusionStarts,
+			NameIndex personaNames, NameIndex arcanaNames) {
+		HashMap<String, List<Persona>> arcanaViews = new HashMap<String, List<Persona>>();
+		for (Map.Entry<String, List<Persona>> entry : arcanas.entrySet()) {
+			arcanaViews.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+		}
+
+		int n = personaTable.length;
+		@SuppressWarnings("unchecked")
+		List<Pair>[] lists = (List<Pair>[]) new List<?>[n];
+		for (int i = 0; i < n; i++) {
+			if (!isSpecial(personaTable[i])) {
+				List<Pair> pairs = fusionResults.get(personaTable[i].getName());
+				lists[i] = pairs == null ? Collections.<Pair>emptyList() : Collections.unmodifiableList(pairs);
+			}
+		}
+		return new FrozenFusionData(personaTable, personaRows, personaIds, Collections.unmodifiableMap(arcanaViews),
+				fusionMatrix, fusionPairIds, lists, includedFusionIds, relatedFusionIds, relatedFusionStarts,
+				personaNames, arcanaNames);
+	}
+
+	@Override
+	public Persona getPersona(String p) {
+		Integer id = personaIds.get(p);
+		if (id == null) {
+			return null;
+		}
+		return personaTable[id];
+	}
+
+	@Override
+	public Persona getPersona(int id) {
+		return personaTable[id];
+	}
+
+	@Override
+	public int getPersonaId(String p) {
+		Integer id = personaIds.get(p);
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	@Override
+	public Persona resolvePersona(CharSequence input) {
+		// exact names, the common case, skip the binary search
+		Integer id = input instanceof String ? personaIds.get(input) : null;
+		if (id != null) {
+			return personaTable[id];
+		}
+		String name = personaNames.resolve(input);
+		if (name == null) {
+			return null;
+		}
+		return personaTable[personaIds.get(name)];
+	}
+
+	@Override
+	public String resolveArcana(CharSequence input) {
+		return arcanaNames.resolve(input);
+	}
+
+	@Override
+	public NameIndex getPersonaNames() {
+		return personaNames;
+	}
+
+	@Override
+	public NameIndex getArcanaNames() {
+		return arcanaNames;
+	}
+
+	@Override
+	public int getPersonaCount() {
+		return personaTable.length;
+	}
+
+	@Override
+	public PersonaTable getPersonaTable() {
+		return personaRows;
+	}
+
+	@Override
+	public Set<String> getAllArcana() {
+		return new HashSet<String>(arcanas.keySet());
+	}
+
+	@Override
+	public Set<String> viewAllArcana() {
+		return arcanas.keySet();
+	}
+
+	@Override
+	public List<Persona> getArcPersonas(String arc) {
+		return new ArrayList<Persona>(arcanas.get(arc));
+	}
+
+	@Override
+	public List<Persona> viewArcPersonas(String arc) {
+		return arcanas.get(arc);
+	}
+
+	@Override
+	public List<Pair> getFusions(String p) {
+		List<Pair> pairs = viewFusions(p);
+		return pairs == null ? null : new ArrayList<Pair>(pairs);
+	}
+
+	@Override
+	public List<Pair> viewFusions(String p) {
+		Integer id = personaIds.get(p);
+		if (id == null) {
+			return null;
+		}
+		return fusionLists[id];
+	}
+
+	@Override
+	public int[] getFusions(int p) {
+		return fusionLists[p] == null ? null : fusionPairIds[p].clone();
+	}
+
+	@Override
+	public int getFusionCount(int p) {
+		return fusionLists[p] == null ? 0 : fusionPairIds[p].length / 2;
+	}
+
+	@Override
+	public int getFusionIngredientId(int p, int i) {
+		return fusionPairIds[p][i];
+	}
+
+	@Override
+	public List<String> getGuillotineFusion(String p) {
+		List<String> ingredients = viewGuillotineFusion(p);
+		return ingredients == null ? null : new ArrayList<String>(ingredients);
+	}
+
+	@Override
+	public List<String> viewGuillotineFusion(String p) {
+		Persona pers = getPersona(p);
+		if (pers == null || !pers.getSpecialCase().equals("guillotine")) {
+			return null;
+		}
+		return pers.getSpecialFusion();
+	}
+
+	@Override
+	public Persona getFusionResult(String p1, String p2) {
+		Integer id1 = personaIds.get(p1);
+		Integer id2 = personaIds.get(p2);
+		if (id1 == null || id2 == null) {
+			return null;
+		}
+		return getFusionResult(id1.intValue(), id2.intValue());
+	}
+
+	@Override
+	public Persona getFusionResult(int p1, int p2) {
+		int result = fusionMatrix[p1 * personaTable.length + p2];
+		return result < 0 ? null : personaTable[result];
+	}
+
+	@Override
+	public int getFusionResultId(int p1, int p2) {
+		return fusionMatrix[p1 * personaTable.length + p2];
+	}
+
+	@Override
+	public Set<String> getIncludedFusions(String p) {
+		Integer id = personaIds.get(p);
+		if (id == null) {
+			return null;
+		}
+		Set<String> result = new HashSet<String>();
+		for (int partner : includedFusionIds[id]) {
+			result.add(personaTable[partner].getName());
+		}
+		return result;
+	}
+
+	@Override
+	public int[] getIncludedFusions(int p) {
+		return includedFusionIds[p].clone();
+	}
+
+	@Override
+	public int getIncludedFusionCount(int p) {
+		return includedFusionIds[p].length;
+	}
+
+	@Override
+	public int getIncludedFusionId(int p, int i) {
+		return includedFusionIds[p][i];
+	}
+
+	@Override
+	public int getRelatedFusionCount(int p) {
+		return relatedFusionStarts[p + 1] - relatedFusionStarts[p];
+	}
+
+	@Override
+	public int getRelatedPartnerId(int p, int i) {
+		return relatedFusionIds[2 * (relatedFusionStarts[p] + i)];
+	}
+
+	@Override
+	public int getRelatedResultId(int p, int i) {
+		return relatedFusionIds[2 * (relatedFusionStarts[p] + i) + 1];
+	}
+
+	@Override
+	public int[] getRelatedFusions(int p, String arcana, int minLevel, int maxLevel) {
+		int from = relatedFusionStarts[p];
+		int to = relatedFusionStarts[p + 1];
+		// binary search for the first fusion whose result has a base level of at least minLevel
+		int lo = from;
+		int hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (personaTable[relatedFusionIds[2 * mid + 1]].getBaseLevel() < minLevel) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		int[] related = new int[2 * (to - lo)];
+		int count = 0;
+		for (int k = 2 * lo; k < 2 * to; k += 2) {
+			Persona result = personaTable[relatedFusionIds[k + 1]];
+			if (result.getBaseLevel() > maxLevel) {
+				break;
+			}
+			if (arcana == null || arcana.equals(result.getArcana())) {
+				related[count++] = relatedFusionIds[k];
+				related[count++] = relatedFusionIds[k + 1];
+			}
+		}
+		return Arrays.copyOf(related, count);
+	}
+
+	/**
+	 * private helper method that returns true if p is a guillotine-only persona or a treasure demon
+	 */
+	private static boolean isSpecial(Persona p) {
+		return p.getSpecialCase().equals("guillotine") || p.getSpecialCase().equals("treasure");
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		int n = personaTable.length;
+		assert (personaIds.size() == n) : "personaIds and personaTable have different sizes";
+		assert (personaRows.size() == n) : "personaRows and personaTable have different sizes";
+		assert (fusionMatrix.length == n * n) : "fusionMatrix has the wrong size";
+		assert (fusionPairIds.length == n && fusionLists.length == n && includedFusionIds.length == n)
+				: "the per-persona tables have the wrong size";
+		assert (relatedFusionStarts.length == n + 1
+				&& relatedFusionIds.length == 2 * relatedFusionStarts[n]) : "related fusions have the wrong size";
+	}
+}
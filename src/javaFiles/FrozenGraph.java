@@ -0,0 +1,271 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * FrozenGraph is an immutable snapshot of a Graph, made by Graph.freeze(). It answers the same
+ * queries as the Graph it was made from with the same results, but stores the edges in compressed
+ * sparse row (CSR) form: every node has an integer id, and the edges are held in a few flat arrays
+ * indexed by id instead of a hash table per node and per pair of nodes. That takes a fraction of
+ * the memory of a Graph and no locking to be read from several threads at once.
+ */
+public class FrozenGraph<N, E> {
+
+	// the nodes indexed by their id
+	private final Object[] nodes;
+
+	// map from the nodes to their id
+	private final HashMap<N, Integer> ids;
+
+	// the children of node i are the ids neighbors[offsets[i]] to neighbors[offsets[i + 1] - 1],
+	// in ascending order
+	private final int[] offsets;
+	private final int[] neighbors;
+
+	// the labels of the edges from node i to the child at neighbors[k] are labels[labelOffsets[k]]
+	// to labels[labelOffsets[k + 1] - 1]
+	private final int[] labelOffsets;
+	private final Object[] labels;
+
+	// the nodes with edges to node i (its pointsToMe set in the Graph) are the ids
+	// reverseNeighbors[reverseOffsets[i]] to reverseNeighbors[reverseOffsets[i + 1] - 1], in
+	// ascending order
+	private final int[] reverseOffsets;
+	private final int[] reverseNeighbors;
+
+	// Abstraction Function:
+	// The FrozenGraph g has the nodes in nodes and, for every node id i and every k with
+	// offsets[i] <= k < offsets[i + 1], an edge from nodes[i] to nodes[neighbors[k]] for every
+	// label in labels[labelOffsets[k]] to labels[labelOffsets[k + 1] - 1].
+	//
+	// Representation Invariant for every FrozenGraph g:
+	// ids.get(nodes[i]) == i for every i &&
+	// offsets.length == reverseOffsets.length == nodes.length + 1 &&
+	// labelOffsets.length == neighbors.length + 1 &&
+	// the ids in every row of neighbors and reverseNeighbors are strictly ascending &&
+	// every range of labels is non-empty and holds distinct labels &&
+	// j is in row i of neighbors if and only if i is in row j of reverseNeighbors
+
+	/**
+	 * @param storage The storage of the Graph to copy
+	 * @effects Constructs a FrozenGraph with the nodes and edges in storage
+	 */
+	FrozenGraph(GraphStorage<N, E> storage) {
+		Set<N> nodeSet = storage.nodesView();
+		int n = nodeSet.size();
+		nodes = new Object[n];
+		ids = new HashMap<N, Integer>(n * 4 / 3 + 1);
+		for (N node : nodeSet) {
+			ids.put(node, ids.size());
+			nodes[ids.size() - 1] = node;
+		}
+
+		// collect the children of every node in order of id as sorted rows, and the labels of
+		// the edges to each child in the same order
+		offsets = new int[n + 1];
+		int[] row = new int[0];
+		int[] neighborList = new int[16];
+		int[] labelOffsetList = new int[16];
+		ArrayList<E> labelList = new ArrayList<E>();
+		int[] inDegrees = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			@SuppressWarnings("unchecked")
+			N node = (N) nodes[i];
+			Set<N> children = storage.childrenView(node);
+			int size = children == null ? 0 : children.size();
+			offsets[i + 1] = offsets[i] + size;
+			if (size == 0) {
+				continue;
+			}
+			if (row.length < size) {
+				row = new int[size];
+			}
+			int k = 0;
+			for (N child : children) {
+				row[k++] = ids.get(child);
+			}
+			Arrays.sort(row, 0, size);
+			if (neighborList.length < offsets[i + 1]) {
+				int length = Math.max(2 * neighborList.length, offsets[i + 1]);
+				neighborList = Arrays.copyOf(neighborList, length);
+				labelOffsetList = Arrays.copyOf(labelOffsetList, length);
+			}
+			for (k = 0; k < size; k++) {
+				int c = row[k];
+				neighborList[offsets[i] + k] = c;
+				labelOffsetList[offsets[i] + k] = labelList.size();
+				@SuppressWarnings("unchecked")
+				N child = (N) nodes[c];
+				storage.copyEdges(node, child, labelList);
+				inDegrees[c + 1]++;
+			}
+		}
+		neighbors = Arrays.copyOf(neighborList, offsets[n]);
+		labelOffsets = Arrays.copyOf(labelOffsetList, offsets[n] + 1);
+		labelOffsets[offsets[n]] = labelList.size();
+		labels = labelList.toArray();
+
+		// the reverse rows are filled in ascending order of the parent ids, so they come out sorted
+		reverseOffsets = inDegrees;
+		for (int i = 0; i < n; i++) {
+			reverseOffsets[i + 1] += reverseOffsets[i];
+		}
+		reverseNeighbors = new int[offsets[n]];
+		int[] next = Arrays.copyOf(reverseOffsets, n);
+		for (int i = 0; i < n; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				reverseNeighbors[next[neighbors[k]]++] = i;
+			}
+		}
+
+		checkRep();
+	}
+
+	/**
+	 * @param node The object that represents the node for which the children will be returned
+	 * @return a set of the objects that represent the children of node, or null if node has no
+	 * 		   children or is not in 'this'
+	 * @throws IllegalArgumentException if: node == null
+	 */
+	public Set<N> getChildren(N node) throws IllegalArgumentException {
+		if (node == null) {
+			throw new IllegalArgumentException();
+		}
+		Integer id = ids.get(node);
+		if (id == null) {
+			return null;
+		}
+		return nodeSet(neighbors, offsets[id], offsets[id + 1]);
+	}
+
+	/**
+	 * @param node The object that represents the node for which the parents will be returned
+	 * @return a set of the objects that represent the nodes with edges to node, or null if no
+	 * 		   node has an edge to node or node is not in 'this'
+	 * @throws IllegalArgumentException if: node == null
+	 */
+	public Set<N> getParents(N node) throws IllegalArgumentException {
+		if (node == null) {
+			throw new IllegalArgumentException();
+		}
+		Integer id = ids.get(node);
+		if (id == null) {
+			return null;
+		}
+		return nodeSet(reverseNeighbors, reverseOffsets[id], reverseOffsets[id + 1]);
+	}
+
+	/**
+	 * @param nodeFrom The object that represents the node the edges point from
+	 * @param nodeTo The object that represents the node the edges point to
+	 * @return a set of the labels of the edges from nodeFrom to nodeTo, or null if there are no
+	 * 		   such edges or either node is not in 'this'
+	 * @throws IllegalArgumentException if: nodeFrom == null || nodeTo == null
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<E> getEdges(N nodeFrom, N nodeTo) throws IllegalArgumentException {
+		if (nodeFrom == null || nodeTo == null) {
+			throw new IllegalArgumentException();
+		}
+		Integer from = ids.get(nodeFrom);
+		Integer to = ids.get(nodeTo);
+		if (from == null || to == null) {
+			return null;
+		}
+		int k = Arrays.binarySearch(neighbors, offsets[from], offsets[from + 1], to);
+		if (k < 0) {
+			return null;
+		}
+		Set<E> result = new HashSet<E>(capacity(labelOffsets[k + 1] - labelOffsets[k]));
+		for (int i = labelOffsets[k]; i < labelOffsets[k + 1]; i++) {
+			result.add((E) labels[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @param nodeFrom The object that represents the node the edge points from
+	 * @param nodeTo The object that represents the node the edge points to
+	 * @return true if there is at least one edge from nodeFrom to nodeTo and false otherwise
+	 * @throws IllegalArgumentException if: nodeFrom == null || nodeTo == null
+	 */
+	public boolean hasEdge(N nodeFrom, N nodeTo) throws IllegalArgumentException {
+		if (nodeFrom == null || nodeTo == null) {
+			throw new IllegalArgumentException();
+		}
+		Integer from = ids.get(nodeFrom);
+		Integer to = ids.get(nodeTo);
+		return from != null && to != null
+				&& Arrays.binarySearch(neighbors, offsets[from], offsets[from + 1], to) >= 0;
+	}
+
+	/**
+	 * @return true if 'this' is empty and false otherwise
+	 */
+	public boolean isEmpty() {
+		return nodes.length == 0;
+	}
+
+	/**
+	 * @return a set of the objects that represent all the nodes in 'this', or null if 'this'
+	 * 		   is empty. The set returned is not guaranteed to be in any particular order.
+	 */
+	public Set<N> getAllNodes() {
+		if (isEmpty()) {
+			return null;
+		}
+		return new HashSet<N>(ids.keySet());
+	}
+
+	/**
+	 * @return the number of nodes in 'this'
+	 */
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * @return the number of edges in 'this', counting every label of every pair of nodes
+	 */
+	public int getEdgeCount() {
+		return labels.length;
+	}
+
+	/**
+	 * private helper method that returns the nodes with the ids in ids[from] to ids[to - 1],
+	 * or null if there are none
+	 */
+	@SuppressWarnings("unchecked")
+	private Set<N> nodeSet(int[] ids, int from, int to) {
+		if (from == to) {
+			return null;
+		}
+		Set<N> result = new HashSet<N>(capacity(to - from));
+		for (int k = from; k < to; k++) {
+			result.add((N) nodes[ids[k]]);
+		}
+		return result;
+	}
+
+	/**
+	 * private helper method that returns the initial capacity of a HashSet that holds size
+	 * elements without resizing
+	 */
+	private static int capacity(int size) {
+		return size * 4 / 3 + 1;
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (offsets.length == nodes.length + 1) : "offsets has the wrong length";
+		assert (reverseOffsets.length == nodes.length + 1) : "reverseOffsets has the wrong length";
+		assert (labelOffsets.length == neighbors.length + 1) : "labelOffsets has the wrong length";
+		assert (labelOffsets[neighbors.length] == labels.length) : "labels has the wrong length";
+	}
+}
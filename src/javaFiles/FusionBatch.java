@@ -0,0 +1,421 @@
+package javaFiles;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FusionBatch runs the commands of the FusionCalculator menu non-interactively. It reads one query
+ * per line, a command followed by its arguments separated by tabs:
+ *
+ * persona          name
+ * arcanas
+ * personas         arcana
+ * fusions to       name
+ * fusion result    name1    name2
+ * related fusions  name
+ *
+ * Names are resolved as in FusionDataGraph.resolvePersona and resolveArcana, so they may be in any
+ * case and with or without spaces and punctuation. Empty lines and lines starting with # are
+ * skipped. The results of all the queries are written through one buffered writer, which is only
+ * flushed when it is full and at the end, in one of three formats:
+ *
+ * text   the output of the interactive calculator, each result preceded by "> query"
+ * tsv    one row per persona or fusion, starting with the line number of the query and a kind
+ *        (persona, arcana, fusion, guillotine, result or error)
+ * jsonl  one JSON object per query: {"line":..., "query":..., "result":...} where result has the
+ *        same form as the responses of FusionServer, or {"line":..., "query":..., "error":...}
+ *
+ * Usage: FusionBatch [-format text|tsv|jsonl] [-nodlc] [-v] [-o output file] [query file]
+ * (defaults: text, dlc personas included, standard output, standard input); -v writes the
+ * number of queries run to standard error at the end
+ */
+public class FusionBatch {
+
+	// the size of the output buffer, large enough that writes are not bound by flushes
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	public static final String TEXT = "text";
+	public static final String TSV = "tsv";
+	public static final String JSONL = "jsonl";
+
+	private final FusionDataGraph fd;
+	private final RecipeRanking ranking;
+	private final String format;
+	private final PrintWriter out;
+	// if format is jsonl, each JSON line is built in record by json, then written to out at once
+	private final StringBuilder record;
+	private JsonWriter json;
+
+	/**
+	 * @param fd The FusionDataGraph the queries are answered from
+	 * @param format The output format: TEXT, TSV or JSONL
+	 * @param out The PrintWriter the results will be written to
+	 * @throws IllegalArgumentException if fd == null || out == null or format is not a valid format
+	 * @effects Constructs a FusionBatch
+	 */
+	public FusionBatch(FusionDataGraph fd, String format, PrintWriter out) throws IllegalArgumentException {
+		if (fd == null || out == null || !(format.equals(TEXT) || format.equals(TSV) || format.equals(JSONL))) {
+			throw new IllegalArgumentException();
+		}
+		this.fd = fd;
+		this.ranking = new RecipeRanking(fd, FusionCost.MAX_INGREDIENT_LEVEL);
+		this.format = format;
+		this.out = out;
+		this.record = new StringBuilder();
+	}
+
+	public static void main(String[] args) throws IOException {
+		String format = TEXT;
+		boolean includeDlc = true;
+		boolean verbose = false;
+		String input = null;
+		String output = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-format") && i + 1 < args.length) {
+				format = args[++i];
+			} else if (args[i].equals("-nodlc")) {
+				includeDlc = false;
+			} else if (args[i].equals("-v")) {
+				verbose = true;
+			} else if (args[i].equals("-o") && i + 1 < args.length) {
+				output = args[++i];
+			} else if (input == null && !args[i].startsWith("-")) {
+				input = args[i];
+			} else {
+				System.err.println("Usage: FusionBatch [-format text|tsv|jsonl] [-nodlc] [-v] [-o output file] [query file]");
+				System.exit(2);
+			}
+		}
+
+		InputStream in = input == null ? System.in : new FileInputStream(input);
+		OutputStream os = output == null ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(output);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+				PrintWriter out = new PrintWriter(new BufferedWriter(
+						new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE), false)) {
+			FusionMetrics.register();
+			FusionBatch batch = new FusionBatch(FusionDataGraph.load(includeDlc), format, out);
+			int count = batch.run(reader);
+			out.flush();
+			if (verbose) {
+				System.err.println(count + " queries");
+			}
+		}
+	}
+
+	/**
+	 * @param reader The reader the queries are read from
+	 * @return The number of queries that were run
+	 * @throws IOException if reader throws an IOException
+	 * @modifies out
+	 * @effects runs every query read from reader and writes its results to out. out is not
+	 * 			flushed.
+	 */
+	public int run(BufferedReader reader) throws IOException {
+		int count = 0;
+		int lineNumber = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			query(lineNumber, line);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param lineNumber The line number of the query, used to identify its results
+	 * @param line The query: a command and its arguments separated by tabs
+	 * @modifies out
+	 * @effects runs the query, writes its results to out and records its latency in
+	 * 			FusionMetrics
+	 */
+	public void query(int lineNumber, String line) {
+		long start = System.nanoTime();
+		String[] words = line.split("\t");
+		String command = words[0].trim().toLowerCase();
+		boolean valid = true;
+
+		if (format.equals(TEXT)) {
+			out.println("> " + line);
+		}
+		try {
+			if (command.equals("persona") && words.length == 2) {
+				Persona p = getPersona(lineNumber, line, words[1]);
+				if (p != null) {
+					persona(lineNumber, line, p);
+				}
+			} else if (command.equals("arcanas") && words.length == 1) {
+				arcanas(lineNumber, line);
+			} else if (command.equals("personas") && words.length == 2) {
+				String arcana = fd.resolveArcana(words[1]);
+				if (arcana != null) {
+					personas(lineNumber, line, arcana);
+				} else {
+					error(lineNumber, line, FusionCalculator.invalidName("arcana", fd.getArcanaNames(), words[1]));
+				}
+			} else if (command.equals("fusions to") && words.length == 2) {
+				Persona p = getPersona(lineNumber, line, words[1]);
+				if (p != null) {
+					fusionsTo(lineNumber, line, p);
+				}
+			} else if (command.equals("fusion result") && words.length == 3) {
+				Persona p1 = getPersona(lineNumber, line, words[1]);
+				Persona p2 = p1 == null ? null : getPersona(lineNumber, line, words[2]);
+				if (p2 != null) {
+					fusionResult(lineNumber, line, p1, p2);
+				}
+			} else if (command.equals("related fusions") && words.length == 2) {
+				Persona p = getPersona(lineNumber, line, words[1]);
+				if (p != null) {
+					relatedFusions(lineNumber, line, p);
+				}
+			} else {
+				valid = false;
+				error(lineNumber, line, "Invalid command");
+			}
+		} catch (IOException e) { // PrintWriter never throws IOExceptions
+			throw new IllegalStateException(e);
+		}
+		if (valid) {
+			FusionMetrics.get().recordCommand(command, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * private helper method that returns the persona name stands for, or writes an error and
+	 * returns null if there is none
+	 */
+	private Persona getPersona(int lineNumber, String line, String name) throws IOException {
+		Persona p = fd.resolvePersona(name);
+		if (p == null) {
+			error(lineNumber, line, FusionCalculator.invalidName("persona", fd.getPersonaNames(), name));
+		}
+		return p;
+	}
+
+	/**
+	 * private helper method for the persona command
+	 */
+	private void persona(int lineNumber, String line, Persona p) throws IOException {
+		if (format.equals(TEXT)) {
+			FusionCalculator.printPersonaInfo(out, p);
+		} else if (format.equals(TSV)) {
+			printPersonaRow(lineNumber, p);
+		} else {
+			beginResult(lineNumber, line);
+			FusionJson.writePersona(json, p);
+			endResult();
+		}
+	}
+
+	/**
+	 * private helper method for the arcanas command
+	 */
+	private void arcanas(int lineNumber, String line) throws IOException {
+		if (format.equals(TEXT)) {
+			FusionCalculator.printArcana(out, fd);
+		} else if (format.equals(TSV)) {
+			for (String arc : fd.viewAllArcana()) {
+				out.print(lineNumber);
+				out.print("\tarcana\t");
+				out.print(arc);
+				out.println();
+			}
+		} else {
+			beginResult(lineNumber, line);
+			FusionJson.writeArcanas(json, fd);
+			endResult();
+		}
+	}
+
+	/**
+	 * private helper method for the personas command
+	 */
+	private void personas(int lineNumber, String line, String arcana) throws IOException {
+		if (format.equals(TEXT)) {
+			FusionCalculator.printPersonasInArcana(out, arcana, fd);
+		} else if (format.equals(TSV)) {
+			for (Persona p : fd.viewArcPersonas(arcana)) {
+				printPersonaRow(lineNumber, p);
+			}
+		} else {
+			beginResult(lineNumber, line);
+			FusionJson.writeArcana(json, fd, arcana);
+			endResult();
+		}
+	}
+
+	/**
+	 * private helper method for the fusions to command
+	 */
+	private void fusionsTo(int lineNumber, String line, Persona p) throws IOException {
+		boolean guillotine = p.getSpecialCase().equals("guillotine");
+		if (format.equals(TEXT)) {
+			if (guillotine) {
+				FusionCalculator.printGuillotineFusion(out, fd, p.getName());
+			} else {
+				FusionCalculator.printFusionPairs(out, fd, ranking, p.getName());
+			}
+		} else if (format.equals(TSV)) {
+			if (guillotine) {
+				for (String ingredient : fd.viewGuillotineFusion(p.getName())) {
+					out.print(lineNumber);
+					out.print("\tguillotine\t");
+					out.print(p.getName());
+					out.print('\t');
+					out.print(ingredient);
+					out.println();
+				}
+			} else {
+				int id = fd.getPersonaId(p.getName());
+				int count = ranking.getRecipeCount(id);
+				if (count < 0) {
+					error(lineNumber, line, "Treasure demons cannot be fused");
+				} else {
+					for (int i = 0; i < count; i++) {
+						printFusionRow(lineNumber, "fusion", fd.getPersona(ranking.getRecipeIngredientId(id, 2 * i)),
+								fd.getPersona(ranking.getRecipeIngredientId(id, 2 * i + 1)), p);
+					}
+				}
+			}
+		} else {
+			beginResult(lineNumber, line);
+			FusionJson.writeFusionsTo(json, fd, ranking, p, 0, Integer.MAX_VALUE);
+			endResult();
+		}
+	}
+
+	/**
+	 * private helper method for the fusion result command
+	 */
+	private void fusionResult(int lineNumber, String line, Persona p1, Persona p2) throws IOException {
+		if (format.equals(TEXT)) {
+			FusionCalculator.printFusionResult(out, fd, p1, p2);
+		} else if (format.equals(TSV)) {
+			printFusionRow(lineNumber, "result", p1, p2, fd.getFusionResult(p1.getName(), p2.getName()));
+		} else {
+			beginResult(lineNumber, line);
+			FusionJson.writeFusionResult(json, fd, p1, p2);
+			endResult();
+		}
+	}
+
+	/**
+	 * private helper method for the related fusions command
+	 */
+	private void relatedFusions(int lineNumber, String line, Persona p) throws IOException {
+		if (format.equals(TEXT)) {
+			FusionCalculator.printRelatedFusions(out, p, fd);
+		} else if (format.equals(TSV)) {
+			int id = fd.getPersonaId(p.getName());
+			int count = fd.getRelatedFusionCount(id);
+			for (int i = 0; i < count; i++) {
+				printFusionRow(lineNumber, "result", p, fd.getPersona(fd.getRelatedPartnerId(id, i)), 
+						fd.getPersona(fd.getRelatedResultId(id, i)));
+			}
+		} else {
+			beginResult(lineNumber, line);
+			FusionJson.writeRelatedFusions(json, fd, p);
+			endResult();
+		}
+	}
+
+	/**
+	 * private helper method that writes an error for a query
+	 */
+	private void error(int lineNumber, String line, String message) throws IOException {
+		if (format.equals(TEXT)) {
+			out.println(message);
+		} else if (format.equals(TSV)) {
+			out.print(lineNumber);
+			out.print("\terror\t");
+			out.print(message);
+			out.println();
+		} else {
+			json = new JsonWriter(record);
+			json.beginObject().name("line").value(lineNumber).name("query").value(line);
+			json.name("error").value(message).endObject();
+			writeRecord();
+		}
+	}
+
+	/**
+	 * private helper method that writes a TSV row for a persona: line number, "persona", name,
+	 * arcana, base level, the five stats, the ten weaknesses/resistances and the type
+	 */
+	private void printPersonaRow(int lineNumber, Persona p) {
+		out.print(lineNumber);
+		out.print("\tpersona\t");
+		out.print(p.getName());
+		out.print('\t');
+		out.print(p.getArcana());
+		out.print('\t');
+		out.print(p.getBaseLevel());
+		for (int i = 0; i < PersonaTable.STATS; i++) {
+			out.print('\t');
+			out.print(p.getStat(i));
+		}
+		for (int i = 0; i < PersonaTable.ELEMENTS; i++) {
+			out.print('\t');
+			out.print(p.getAffinity(i).getCode());
+		}
+		out.print('\t');
+		out.print(p.getSpecialCase().equals("") ? "regular" : p.getSpecialCase());
+		out.println();
+	}
+
+	/**
+	 * private helper method that writes a TSV row for a fusion: line number, kind, the two
+	 * ingredients and the result, or - if the fusion is impossible
+	 */
+	private void printFusionRow(int lineNumber, String kind, Persona p1, Persona p2, Persona result) {
+		out.print(lineNumber);
+		out.print('\t');
+		out.print(kind);
+		out.print('\t');
+		out.print(p1.getName());
+		out.print('\t');
+		out.print(p2.getName());
+		out.print('\t');
+		out.print(result == null ? "-" : result.getName());
+		out.println();
+	}
+
+	/**
+	 * private helper method that starts a JSON line for the result of a query
+	 */
+	private void beginResult(int lineNumber, String line) throws IOException {
+		json = new JsonWriter(record);
+		json.beginObject().name("line").value(lineNumber).name("query").value(line).name("result");
+	}
+
+	/**
+	 * private helper method that ends a JSON line started by beginResult
+	 */
+	private void endResult() throws IOException {
+		json.endObject();
+		writeRecord();
+	}
+
+	/**
+	 * private helper method that writes the JSON line in record to out and clears record
+	 */
+	private void writeRecord() {
+		out.append(record);
+		out.println();
+		record.setLength(0);
+	}
+}
@@ -1,7 +1,9 @@
 package javaFiles;
 
+import java.io.PrintWriter;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -33,17 +35,32 @@ import java.util.Set;
  * 3. List all the arcana in the game.
  * 4. List all the possible fusions for a specific persona given its name.
  * 5. Provide the resulting persona of a fusion between two specific personas, given their names.
+ * 6. List all the fusions a specific persona is an ingredient of.
+ * 7. Search the personas by their weaknesses/resistances and base level.
  */
 public class FusionCalculator {
 
+	// the most names suggested for a name that doesn't resolve
+	static final int SUGGESTIONS = 3;
+
 	public static void main(String[] args) {
 		Scanner scan = new Scanner(System.in);
 
+		// the results of commands are printed through out, which flushes at the end of each line
+		PrintWriter out = new PrintWriter(System.out, true);
+
 		System.out.println("Welcome to Mimi's Persona 5 Fusion Calculator!");
+		FusionMetrics.register();
 
 		// ask the user if they want to include dlc personas in the fusion calculations
 		FusionDataGraph fd = askForDLC(scan);
 
+		// fusions are listed starting with the ones whose ingredients need the lowest player level
+		RecipeRanking ranking = new RecipeRanking(fd, FusionCost.MAX_INGREDIENT_LEVEL);
+
+		// searches by weaknesses/resistances and base level
+		AffinityIndex affinityIndex = new AffinityIndex(fd);
+
 		printMenu();
 
 		// until the user quits the program, keep prompting for commands and execute them if
@@ -56,50 +73,73 @@ public class FusionCalculator {
 				printDescription();
 			} else if (input.equals("persona")) { // print information about a specific persona
 				Persona persona = getValidPersonaName(scan, 
-						"Enter the name of a persona (first letter capitalized): ", fd);
+						"Enter the name of a persona: ", fd);
 
 				if (persona != null) {
-					printPersonaInfo(persona);
+					long start = System.nanoTime();
+					printPersonaInfo(out, persona);
+					recordCommand("persona", start);
 				}
 			} else if (input.equals("arcanas")) { // print a list of the 20 arcana
-				printArcana(fd);
+				long start = System.nanoTime();
+				printArcana(out, fd);
+				recordCommand("arcanas", start);
 			} else if (input.equals("personas")) { // print all the personas in a specified arcana
 				String arcana = getValidArcanaName(scan, 
-						"Enter the name of an arcana (first letter of each word capitalized): ", fd);
+						"Enter the name of an arcana: ", fd);
 
 				if (!arcana.equals("")) {
-					printPersonasInArcana(arcana, fd);
+					long start = System.nanoTime();
+					printPersonasInArcana(out, arcana, fd);
+					recordCommand("personas", start);
 				}
 			} else if (input.equals("fusions to")) { // print a list of all the possible fusions to a specific persona
 				Persona persona = getValidPersonaName(scan, 
-						"Enter the name of a persona (first letter of each word capitalized): ", fd);
+						"Enter the name of a persona: ", fd);
 
 				if (persona != null) {
+					long start = System.nanoTime();
 					if (persona.getSpecialCase().equals("guillotine")) {
-						printGuillotineFusion(fd, persona.getName());
+						printGuillotineFusion(out, fd, persona.getName());
 					} else {
-						printFusionPairs(fd, persona.getName());
+						printFusionPairs(out, fd, ranking, persona.getName());
 					}
+					recordCommand("fusions to", start);
 				}
 			} else if (input.equals("fusion result")) { // print the resulting persona of a fusion between two specific personas
 				Persona persona1 = getValidPersonaName(scan, 
-						"Enter the name of the first persona (first letter of each word capitalized): ", fd);
+						"Enter the name of the first persona: ", fd);
 
 				Persona persona2 = getValidPersonaName(scan, 
-						"Enter the name of the second persona (first letter of each word capitalized): ", fd);
+						"Enter the name of the second persona: ", fd);
 
 				if (persona1 != null && persona2 != null) {
-					printFusionResult(fd, persona1, persona2);
+					long start = System.nanoTime();
+					printFusionResult(out, fd, persona1, persona2);
+					recordCommand("fusion result", start);
 				}
 			} else if (input.equals("m")) { // print the menu
 				printMenu();
 			} else if (input.equals("related fusions")) { // print the related fusions of a persona
 				Persona persona = getValidPersonaName(scan, 
-						"Enter the name of a persona (first letter capitalized): ", fd);
+						"Enter the name of a persona: ", fd);
 
 				if (persona != null) {
-					printRelatedFusions(persona, fd);
+					long start = System.nanoTime();
+					printRelatedFusions(out, persona, fd);
+					recordCommand("related fusions", start);
 				}
+			} else if (input.equals("search")) { // print the personas that match a filter
+				AffinityFilter filter = getValidFilter(scan,
+						"Enter a filter, for example nu/rp fire, not wk gun, level <=40: ");
+
+				if (filter != null) {
+					long start = System.nanoTime();
+					printSearchResults(out, fd, affinityIndex, filter);
+					recordCommand("search", start);
+				}
+			} else if (input.equals("stats")) { // print the runtime metrics
+				printStats(out, FusionMetrics.get());
 			} else if (input.equals("key")) { // print the abbreviation key
 				printAbbreviationKey();
 			} else if (input.equals("quit")) { // quit the program
@@ -129,12 +169,13 @@ public class FusionCalculator {
 		boolean invalidName = true;
 		while (invalidName) {
 			String input = scan.nextLine();
-			Persona p = fd.getPersona(input);
+			Persona p = input.equals("b") ? null : fd.resolvePersona(input);
 
 			if (input.equals("b")) {
 				invalidName = false;
 			} else if (p == null) {
-				System.out.println("Invalid persona name. Enter another name or b to go back to main menu: ");
+				System.out.println(invalidName("persona", fd.getPersonaNames(), input) + 
+						" Enter another name or b to go back to main menu: ");
 			} else {
 				return p;
 			}
@@ -154,8 +195,6 @@ public class FusionCalculator {
 	 *         to the menu to choose another option
 	 */
 	private static String getValidArcanaName(Scanner scan, String userPrompt, FusionDataGraph fd) {
-		Set<String> arcana = fd.getAllArcana();
-
 		System.out.print(userPrompt);
 
 		// keep prompting the user for a valid arcana name until the user inputs a valid name or
@@ -163,19 +202,71 @@ public class FusionCalculator {
 		boolean invalidName = true;
 		while (invalidName) {
 			String input = scan.nextLine();
+			String arcana = input.equals("b") ? null : fd.resolveArcana(input);
 
 			if (input.equals("b")) {
 				invalidName = false;
-			} else if (!arcana.contains(input)) {
-				System.out.print("Invalid arcana name. Enter another name or b to go back to main menu: ");
+			} else if (arcana == null) {
+				System.out.print(invalidName("arcana", fd.getArcanaNames(), input) + 
+						" Enter another name or b to go back to main menu: ");
 			} else {
-				return input;
+				return arcana;
 			}
 		}
 
 		return "";
 	}
 
+	/**
+	 * returns the filter of personas typed by the user, see AffinityFilter.parse. If the user
+	 * decides to quit, returns null.
+	 * 
+	 * @param scan The Scanner from which input will be read
+	 * @param userPrompt The message that prompts the user to input a filter
+	 * @return a filter if the user provides a valid one, or null if the user decides to quit back
+	 *         to the menu to choose another option
+	 */
+	private static AffinityFilter getValidFilter(Scanner scan, String userPrompt) {
+		System.out.print(userPrompt);
+
+		// keep prompting the user for a valid filter until the user inputs a valid filter or
+		// inputs "b" to quit and choose another menu option
+		while (true) {
+			String input = scan.nextLine();
+			if (input.equals("b")) {
+				return null;
+			}
+			try {
+				return AffinityFilter.parse(input);
+			} catch (IllegalArgumentException e) {
+				System.out.print("Invalid filter: " + e.getMessage() + 
+						". Enter another filter or b to go back to main menu: ");
+			}
+		}
+	}
+
+	/**
+	 * returns the message for a name that doesn't resolve, in the format:
+	 * Invalid kind name. Did you mean suggestion 1, suggestion 2 or suggestion 3?
+	 * where the second sentence is left out if there are no suggestions. Every front end reports
+	 * names that don't resolve through this method, so it also counts them as invalid lookups.
+	 * 
+	 * @param kind What the name is the name of, such as persona or arcana
+	 * @param names The names input was resolved against
+	 * @param input The name that doesn't resolve
+	 * @return the message for input
+	 */
+	static String invalidName(String kind, NameIndex names, String input) {
+		FusionMetrics.get().invalidLookup();
+		StringBuilder message = new StringBuilder("Invalid " + kind + " name.");
+		List<String> suggestions = input == null ? List.of() : names.suggest(input, SUGGESTIONS);
+		for (int i = 0; i < suggestions.size(); i++) {
+			message.append(i == 0 ? " Did you mean " : i == suggestions.size() - 1 ? " or " : ", ");
+			message.append(suggestions.get(i));
+		}
+		return suggestions.isEmpty() ? message.toString() : message.append('?').toString();
+	}
+
 	/**
 	 * configures the program according to whether the user wants to include dlc persona
 	 * in the fusion calculations or not
@@ -193,10 +284,10 @@ public class FusionCalculator {
 
 			String input = scan.nextLine();
 			if (input.equals("y")) {
-				fd = new FusionDataGraph(true);
+				fd = FusionDataGraph.load(true);
 				invalidInput = false;
 			} else if (input.equals("n")) {
-				fd = new FusionDataGraph(false);
+				fd = FusionDataGraph.load(false);
 				invalidInput = false;
 			} else {
 				System.out.println("Invalid answer.\n");
@@ -215,88 +306,94 @@ public class FusionCalculator {
 	 * Weaknesses/Resistances: physical, gun, fire, ice, electricity, wind, psychic, nuclear, bless, curse
 	 * Regular, dlc, or guillotine persona
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param p The persona for which information will be printed
 	 */
-	private static void printPersonaInfo(Persona p) {
-		System.out.println(p.getName());
-		System.out.println("Arcana: " + p.getArcana());
-		System.out.println("Base Level: " + p.getBaseLevel());
+	static void printPersonaInfo(PrintWriter out, Persona p) {
+		out.println(p.getName());
+		out.println("Arcana: " + p.getArcana());
+		out.println("Base Level: " + p.getBaseLevel());
 
 		// print the base stats of the persona
-		List<Integer> stats = p.getStats();
-		System.out.print("Stats: " + stats.get(0));
-		for (int i = 1; i < stats.size(); i++) {
-			System.out.print(", " + stats.get(i));
+		out.print("Stats: " + p.getStat(0));
+		for (int i = 1; i < PersonaTable.STATS; i++) {
+			out.print(", " + p.getStat(i));
 		}
-		System.out.println(" (strength, magic, endurance, agility, luck)");
+		out.println(" (strength, magic, endurance, agility, luck)");
 
 		// print the weaknesses and resistances of the persona
-		List<String> weakRes = p.getWR();
-		System.out.println("Weaknesses/Resistances: ");
-		System.out.println("phys\tgun\tfire\tice\telec\twind\tpsych\tnucl\tbless\tcurse");
-		for (int i = 0; i < weakRes.size(); i++) {
-			System.out.print(weakRes.get(i) + "\t");
+		out.println("Weaknesses/Resistances: ");
+		out.println("phys\tgun\tfire\tice\telec\twind\tpsych\tnucl\tbless\tcurse");
+		for (int i = 0; i < PersonaTable.ELEMENTS; i++) {
+			out.print(p.getAffinity(i).getCode() + "\t");
 		}
-		System.out.println();
+		out.println();
 
 		// print the type of the persona: regular, guillotine, or treasure demon
 		if (p.getSpecialCase().equals("")) {
-			System.out.println("regular persona");
+			out.println("regular persona");
 		} else {
-			System.out.println(p.getSpecialCase() + " persona");
+			out.println(p.getSpecialCase() + " persona");
 		}
 	}
 
 	/**
 	 * prints out a list of all the arcanas in the game, separated by commas
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param fd The FusionDataGraph from which data will be drawn
 	 */
-	private static void printArcana(FusionDataGraph fd) {
-		Set<String> arcana = fd.getAllArcana();
+	static void printArcana(PrintWriter out, FusionDataGraph fd) {
+		Set<String> arcana = fd.viewAllArcana();
 		Iterator<String> itr = arcana.iterator();
-		System.out.print("Arcana: " + itr.next());
+		out.print("Arcana: " + itr.next());
 		while (itr.hasNext()) {
 			String arc = itr.next();
-			System.out.print(", " + arc);
+			out.print(", " + arc);
 		}
-		System.out.println();
+		out.println();
 	}
 
 	/**
 	 * prints the ingredient personas of a guillotine fusion for the persona input
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param fd The FusionDataGraph from which data will be drawn
 	 * @param personaName The resulting persona for which the guillotine fusion will be printed
 	 */
-	private static void printGuillotineFusion(FusionDataGraph fd, String personaName) {
-		List<String> ingredientPersonas = fd.getGuillotineFusion(personaName);
+	static void printGuillotineFusion(PrintWriter out, FusionDataGraph fd, String personaName) {
+		List<String> ingredientPersonas = fd.viewGuillotineFusion(personaName);
 
-		System.out.print("Guillotine Fusion for " + personaName + ": " + ingredientPersonas.get(0));
+		out.print("Guillotine Fusion for " + personaName + ": " + ingredientPersonas.get(0));
 		for (int i = 1; i < ingredientPersonas.size(); i++) {
-			System.out.print(", " + ingredientPersonas.get(i));
+			out.print(", " + ingredientPersonas.get(i));
 		}
+		out.println();
 	}
 
 	/**
-	 * prints the pairs of persona (p1, p2) that fuse together to make input in the format:
+	 * prints the pairs of persona (p1, p2) that fuse together to make input, cheapest first, 
+	 * in the format:
 	 * Name of p1 (base level of p1 / arcana of p1) x Name of p2 (base level of p2 / arcana of p2)
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param fd The FusionDataGraph from which data will be drawn
+	 * @param ranking The RecipeRanking of fd that orders the fusions
 	 * @param personaName The persona for which the fusions pairs will be printed
 	 */
-	private static void printFusionPairs(FusionDataGraph fd, String personaName) {
-		List<Pair> fusions = fd.getFusions(personaName);
-		if (fusions == null) { // the user-specified persona is a treasure demon; no possible fusions
-			System.out.println("Treasure demons cannot be fused.");
+	static void printFusionPairs(PrintWriter out, FusionDataGraph fd, RecipeRanking ranking, String personaName) {
+		int id = fd.getPersonaId(personaName);
+		int count = ranking.getRecipeCount(id);
+		if (count < 0) { // the user-specified persona is a treasure demon; no possible fusions
+			out.println("Treasure demons cannot be fused.");
 		} else {
-			System.out.println(fusions.size() + " fusions for " + personaName + ":");
-			for (int i = 0; i < fusions.size(); i++) {
-				Persona p1 = fusions.get(i).getP1();
-				Persona p2 = fusions.get(i).getP2();
+			out.println(count + " fusions for " + personaName + ":");
+			for (int i = 0; i < count; i++) {
+				Persona p1 = fd.getPersona(ranking.getRecipeIngredientId(id, 2 * i));
+				Persona p2 = fd.getPersona(ranking.getRecipeIngredientId(id, 2 * i + 1));
 
-				printPersonaInPairFormat(p1, p2);
-				System.out.println();
+				printPersonaInPairFormat(out, p1, p2);
+				out.println();
 			}
 		}
 	}
@@ -305,18 +402,30 @@ public class FusionCalculator {
 	 * prints the result of a fusion between p1 and p2 in the format:
 	 * Name of p1 (base level of p1 / arcana of p1) x Name of p2 (base level of p2 / arcana of p2) = Name of resulting persona
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param fd The FusionDataGraph from which data will be drawn
 	 * @param p1 The first ingredient persona
 	 * @param p2 The second ingredient persona
 	 */
-	private static void printFusionResult(FusionDataGraph fd, Persona p1, Persona p2) {
-		Persona result = fd.getFusionResult(p1.getName(), p2.getName());
+	static void printFusionResult(PrintWriter out, FusionDataGraph fd, Persona p1, Persona p2) {
+		printFusionResult(out, p1, p2, fd.getFusionResult(p1.getName(), p2.getName()));
+	}
 
+	/**
+	 * prints the result of a fusion between p1 and p2 in the format of 
+	 * printFusionResult(PrintWriter, FusionDataGraph, Persona, Persona)
+	 * 
+	 * @param out The PrintWriter the output will be printed to
+	 * @param p1 The first ingredient persona
+	 * @param p2 The second ingredient persona
+	 * @param result The result of the fusion between p1 and p2, or null if it is impossible
+	 */
+	private static void printFusionResult(PrintWriter out, Persona p1, Persona p2, Persona result) {
 		if (result == null) { // fusion is impossible between p1 and p2
-			System.out.println("Fusion is impossible between " + p1.getName() + " and " + p2.getName());
+			out.println("Fusion is impossible between " + p1.getName() + " and " + p2.getName());
 		} else {
-			printPersonaInPairFormat(p1, p2);
-			System.out.println(" = " + result.getName());
+			printPersonaInPairFormat(out, p1, p2);
+			out.println(" = " + result.getName());
 		}
 	}
 
@@ -324,49 +433,121 @@ public class FusionCalculator {
 	 * prints a fusion between p1 and p2 in the following format:
 	 * Name of p1 (base level of p1 / arcana of p1) x Name of p2 (base level of p2 / arcana of p2)
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param p1 The first ingredient persona
 	 * @param p2 The second ingredient persona
 	 */
-	private static void printPersonaInPairFormat(Persona p1, Persona p2) {
-		System.out.print(p1.getName() + " (" + p1.getBaseLevel() + " / "+ p1.getArcana() + ")" + " x " + 
+	static void printPersonaInPairFormat(PrintWriter out, Persona p1, Persona p2) {
+		out.print(p1.getName() + " (" + p1.getBaseLevel() + " / "+ p1.getArcana() + ")" + " x " + 
 				p2.getName() + " (" + p2.getBaseLevel() + " / "+ p2.getArcana() + ")");
 	}
 
 	/**
 	 * prints all the personas in the specified arcana
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param arcana The arcana for which all the personas will be printed
 	 * @param fd The FusionGraphData for this particular run of the program
 	 */
-	private static void printPersonasInArcana(String arcana, FusionDataGraph fd) {
-		List<Persona> personas = fd.getArcPersonas(arcana);
-		System.out.println("There are " + personas.size() + " personas in the " + arcana + " arcana:");
+	static void printPersonasInArcana(PrintWriter out, String arcana, FusionDataGraph fd) {
+		List<Persona> personas = fd.viewArcPersonas(arcana);
+		out.println("There are " + personas.size() + " personas in the " + arcana + " arcana:");
 		for (int i = 0; i < personas.size(); i++) {
-			printPersonaInfo(personas.get(i));
+			printPersonaInfo(out, personas.get(i));
 			if (i != personas.size() - 1) {
-				System.out.println();
+				out.println();
 			}
 		}
 	}
 
 	/**
 	 * prints all the fusions that include the specified persona as one of the ingredient
-	 * personas
+	 * personas, ordered by the base level of the result
 	 * 
+	 * @param out The PrintWriter the output will be printed to
 	 * @param persona The persona for which the related fusions will be printed
 	 * @param fd The FusionGraphData for this particular run of the program
 	 */
-	private static void printRelatedFusions(Persona persona, FusionDataGraph fd) {
-		System.out.println("Fusions " + persona.getName() + " is an ingredient persona in:");
+	static void printRelatedFusions(PrintWriter out, Persona persona, FusionDataGraph fd) {
+		out.println("Fusions " + persona.getName() + " is an ingredient persona in:");
+
+		int id = fd.getPersonaId(persona.getName());
+		int count = fd.getRelatedFusionCount(id);
+		for (int i = 0; i < count; i++) {
+			printFusionResult(out, persona, fd.getPersona(fd.getRelatedPartnerId(id, i)), 
+					fd.getPersona(fd.getRelatedResultId(id, i)));
+		}
+	}
 
-		Set<String> ingredients = fd.getIncludedFusions(persona.getName());
-		Iterator<String> itr = ingredients.iterator();
-		while (itr.hasNext()) {
-			String s = itr.next();
-			printFusionResult(fd, persona, fd.getPersona(s));
+	/**
+	 * prints the personas that match filter, in the order of their ids, in the format:
+	 * N personas match:
+	 * Name (base level / arcana)
+	 * 
+	 * @param out The PrintWriter the output will be printed to
+	 * @param fd The FusionDataGraph from which data will be drawn
+	 * @param index The AffinityIndex of the personas of fd
+	 * @param filter The filter the personas are matched against
+	 */
+	static void printSearchResults(PrintWriter out, FusionDataGraph fd, AffinityIndex index, AffinityFilter filter) {
+		int[] ids = index.search(filter);
+		out.println(ids.length + (ids.length == 1 ? " persona matches:" : " personas match:"));
+		for (int id : ids) {
+			Persona p = fd.getPersona(id);
+			out.println(p.getName() + " (" + p.getBaseLevel() + " / " + p.getArcana() + ")");
 		}
 	}
 
+	/**
+	 * prints the runtime metrics in the format:
+	 * Build phases (ms):
+	 *   dataset/phase: duration
+	 * Fusions calculated:
+	 *   dataset/kind: count
+	 * Command latencies (ms): count, mean, p50, p99, p99.9, max
+	 *   command: count, mean, p50, p99, p99.9, max
+	 * Invalid lookups: count
+	 * Data version: version, last reload (ms): duration, failed reloads: count (only once a
+	 *   FusionDataReloader has published data)
+	 * 
+	 * @param out The PrintWriter the output will be printed to
+	 * @param metrics The FusionMetrics that will be printed
+	 */
+	static void printStats(PrintWriter out, FusionMetrics metrics) {
+		out.println("Build phases (ms):");
+		for (Map.Entry<String, Long> entry : metrics.getBuildPhases().entrySet()) {
+			out.printf("  %s: %.3f%n", entry.getKey(), entry.getValue() / 1e6);
+		}
+
+		out.println("Fusions calculated:");
+		for (Map.Entry<String, Long> entry : metrics.getFusionCounts().entrySet()) {
+			out.println("  " + entry.getKey() + ": " + entry.getValue());
+		}
+
+		out.println("Command latencies (ms): count, mean, p50, p99, p99.9, max");
+		for (Map.Entry<String, LatencyHistogram.Summary> entry : metrics.getCommandLatencies().entrySet()) {
+			LatencyHistogram.Summary s = entry.getValue();
+			out.printf("  %s: %d, %.3f, %.3f, %.3f, %.3f, %.3f%n", entry.getKey(), s.getCount(), 
+					s.getMean() / 1e6, s.getP50() / 1e6, s.getP99() / 1e6, s.getP999() / 1e6, s.getMax() / 1e6);
+		}
+
+		out.println("Invalid lookups: " + metrics.getInvalidLookups());
+		if (metrics.getDataVersion() > 0) {
+			out.printf("Data version: %d, last reload (ms): %.3f, failed reloads: %d%n", metrics.getDataVersion(),
+					metrics.getLastReloadNanos() / 1e6, metrics.getFailedReloads());
+		}
+	}
+
+	/**
+	 * records the latency of a command that started at start
+	 * 
+	 * @param command The name of the command
+	 * @param start The value of System.nanoTime() when the command started
+	 */
+	private static void recordCommand(String command, long start) {
+		FusionMetrics.get().recordCommand(command, System.nanoTime() - start);
+	}
+
 	/**
 	 * prints the menu
 	 */
@@ -379,7 +560,9 @@ public class FusionCalculator {
 		System.out.println("fusions to: A list of all the possible fusions to a specific persona");
 		System.out.println("fusion result: The resulting persona of a fusion between two specific persona");
 		System.out.println("related fusions: A list of all the fusions a specific persona is an ingredient of");
+		System.out.println("search: The personas with specific weaknesses/resistances and base levels");
 		System.out.println("key: Abbreviation key");
+		System.out.println("stats: Build timings, command latencies and other runtime metrics");
 		System.out.println("quit: Quit the program");
 	}
 
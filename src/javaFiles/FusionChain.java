@@ -0,0 +1,119 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A FusionChain represents a way to obtain a persona starting from a roster of owned personas.
+ * A chain is either an owned persona, or a fusion of the chains of its ingredient personas (two
+ * for a regular fusion, more for a guillotine fusion).
+ */
+public class FusionChain {
+
+	private final Persona result; // the persona this chain produces
+	private final List<FusionChain> ingredients; // the chains of the ingredients, empty if owned
+	private final int fusionCount; // the total number of fusions in this chain
+
+	// Representation Invariant:
+	// result != null && ingredients != null &&
+	// fusionCount == 0 if ingredients is empty, otherwise 1 + the sum of the fusion counts of
+	// the ingredients
+
+	/**
+	 * @param result The persona that is produced
+	 * @param ingredients The chains that produce the ingredients of the fusion that makes result,
+	 * 		  or an empty list if result is owned
+	 * @requires result != null && ingredients != null
+	 * @effects Constructs a FusionChain
+	 */
+	public FusionChain(Persona result, List<FusionChain> ingredients) {
+		this.result = result;
+		this.ingredients = Collections.unmodifiableList(new ArrayList<FusionChain>(ingredients));
+		int count = 0;
+		if (!ingredients.isEmpty()) {
+			count = 1;
+			for (FusionChain c : ingredients) {
+				count += c.fusionCount;
+			}
+		}
+		this.fusionCount = count;
+	}
+
+	/**
+	 * @return The persona that this chain produces
+	 */
+	public Persona getResult() {
+		return result;
+	}
+
+	/**
+	 * @return An unmodifiable list of the chains that produce the ingredients of the last fusion
+	 * 		   of this chain. Empty if the result is owned.
+	 */
+	public List<FusionChain> getIngredients() {
+		return ingredients;
+	}
+
+	/**
+	 * @return true if the result of this chain is already owned and no fusion is needed
+	 */
+	public boolean isOwned() {
+		return ingredients.isEmpty();
+	}
+
+	/**
+	 * @return The total number of fusions needed to complete this chain
+	 */
+	public int getFusionCount() {
+		return fusionCount;
+	}
+
+	/**
+	 * @return The fusions of this chain in an order in which they can be performed. Each
+	 * 		   fusion is itself a FusionChain whose ingredients have already been produced by
+	 * 		   earlier fusions in the list or are owned.
+	 */
+	public List<FusionChain> getSteps() {
+		List<FusionChain> steps = new ArrayList<FusionChain>();
+		addSteps(steps);
+		return steps;
+	}
+
+	/**
+	 * @return A String representation of this chain with one fusion per line in the format:
+	 * 		   Name of ingredient 1 x Name of ingredient 2 x ... = Name of result
+	 * 		   or "Name of result (owned)" if no fusion is needed
+	 */
+	public String toString() {
+		if (isOwned()) {
+			return result.getName() + " (owned)";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (FusionChain step : getSteps()) {
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			for (int i = 0; i < step.ingredients.size(); i++) {
+				if (i > 0) {
+					sb.append(" x ");
+				}
+				sb.append(step.ingredients.get(i).result.getName());
+			}
+			sb.append(" = ").append(step.result.getName());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * private helper method that appends the fusions of this chain in post-order
+	 */
+	private void addSteps(List<FusionChain> steps) {
+		if (!isOwned()) {
+			for (FusionChain c : ingredients) {
+				c.addSteps(steps);
+			}
+			steps.add(this);
+		}
+	}
+}
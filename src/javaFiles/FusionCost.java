@@ -0,0 +1,41 @@
+package javaFiles;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * A FusionCost assigns a cost to a fusion between two ingredient personas, so that the fusions
+ * that make a persona can be ranked from cheapest to most expensive.
+ */
+public interface FusionCost {
+
+	/**
+	 * Ranks fusions by the base level of their highest-level ingredient, which is the player 
+	 * level needed to own both ingredients.
+	 */
+	public static final FusionCost MAX_INGREDIENT_LEVEL = 
+			(p1, p2) -> Math.max(p1.getBaseLevel(), p2.getBaseLevel());
+
+	/**
+	 * Ranks fusions by the sum of the base levels of their ingredients. The compendium summon
+	 * cost of a persona grows with its base level, so this favors fusions whose ingredients are
+	 * cheap to summon again.
+	 */
+	public static final FusionCost TOTAL_INGREDIENT_LEVEL = 
+			(p1, p2) -> p1.getBaseLevel() + p2.getBaseLevel();
+
+	/**
+	 * @param p1 The first ingredient persona
+	 * @param p2 The second ingredient persona
+	 * @return The cost of the fusion between p1 and p2. Lower is cheaper.
+	 */
+	public int cost(Persona p1, Persona p2);
+
+	/**
+	 * @param ingredientCost The cost of obtaining a single persona, for example its compendium
+	 * 		  summon cost
+	 * @return A FusionCost that is the sum of the costs of the two ingredients
+	 */
+	public static FusionCost ofIngredientCost(ToIntFunction<Persona> ingredientCost) {
+		return (p1, p2) -> ingredientCost.applyAsInt(p1) + ingredientCost.applyAsInt(p2);
+	}
+}
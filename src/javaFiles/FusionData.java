@@ -0,0 +1,248 @@
+package javaFiles;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * FusionData is the read-only view of the personas of Persona 5 and the fusions between them
+ * that the front ends query. FusionDataGraph builds the data and can change it; the FrozenFusionData
+ * made from it by FusionDataGraph.freeze() is deeply immutable and can be queried from any number
+ * of threads at once. Personas are identified by name or by a dense integer id from 0 to
+ * getPersonaCount() - 1.
+ */
+public interface FusionData {
+
+	/**
+	 * @param p	The name of the persona for which the persona object will be returned
+	 * @return A persona object with the name p. Returns null if p is not a valid persona
+	 * 		   name.
+	 */
+	Persona getPersona(String p);
+
+	/**
+	 * @param id The id of the persona that will be returned
+	 * @requires 0 <= id < getPersonaCount()
+	 * @return The persona object with the given id
+	 */
+	Persona getPersona(int id);
+
+	/**
+	 * @param p The name of the persona for which the id will be returned
+	 * @return The dense integer id of the persona with the name p, or -1 if p is not a
+	 * 		   valid persona name
+	 */
+	int getPersonaId(String p);
+
+	/**
+	 * @param input A persona name typed by a user, in any case and with or without spaces and
+	 * 		  punctuation
+	 * @return The persona input stands for, see NameIndex, or null if there is none
+	 */
+	Persona resolvePersona(CharSequence input);
+
+	/**
+	 * @param input An arcana name typed by a user, in any case and with or without spaces and
+	 * 		  punctuation
+	 * @return The name of the arcana input stands for, see NameIndex, or null if there is none
+	 */
+	String resolveArcana(CharSequence input);
+
+	/**
+	 * @return The index of the names of the personas, for completing and suggesting names
+	 */
+	NameIndex getPersonaNames();
+
+	/**
+	 * @return The index of the names of the arcanas, for completing and suggesting names
+	 */
+	NameIndex getArcanaNames();
+
+	/**
+	 * @return The number of personas. Persona ids range from 0 to getPersonaCount() - 1.
+	 */
+	int getPersonaCount();
+
+	/**
+	 * @return The personas as a PersonaTable whose row i is the persona with the id i, for
+	 * 		   scanning every persona without boxing. It must not be added to.
+	 */
+	PersonaTable getPersonaTable();
+
+	/**
+	 * @return A set of Strings that represent the arcanas in Persona 5
+	 */
+	Set<String> getAllArcana();
+
+	/**
+	 * @return An unmodifiable view of the names of the arcanas in Persona 5
+	 */
+	Set<String> viewAllArcana();
+
+	/**
+	 * @param arc The arcana for which the list of persona will be returned
+	 * @return A list of persona objects in the arcana arc
+	 */
+	List<Persona> getArcPersonas(String arc);
+
+	/**
+	 * @param arc The arcana for which the list of persona will be returned
+	 * @return An unmodifiable view of the list of persona objects in the arcana arc, ordered by
+	 * 		   base level, or null if arc is not a valid arcana name
+	 */
+	List<Persona> viewArcPersonas(String arc);
+
+	/**
+	 * @param p The name of the persona for which a list of possible fusions will
+	 *        be returned
+	 * @return A list of pair objects, each consisting of two persona that fuse
+	 *         together to produce the persona with the name p. Returns null if:
+	 *         - p is a guillotine-only persona or a treasure demon
+	 *         - p is not a valid persona name
+	 */
+	List<Pair> getFusions(String p);
+
+	/**
+	 * @param p The name of the persona for which a list of possible fusions will
+	 *        be returned
+	 * @return An unmodifiable view of the list returned by getFusions(p), or null in the
+	 * 		   same cases
+	 */
+	List<Pair> viewFusions(String p);
+
+	/**
+	 * @param p The id of the persona for which the possible fusions will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return An array of persona ids in which each consecutive pair of entries (p1, p2) is a
+	 * 		   fusion that produces the persona p, in the same order as getFusions(String).
+	 *         Returns null if p is a guillotine-only persona or a treasure demon.
+	 */
+	int[] getFusions(int p);
+
+	/**
+	 * @param p The id of the persona for which the number of fusions will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return The number of fusions that produce the persona p, or 0 if p is a
+	 * 		   guillotine-only persona or a treasure demon
+	 */
+	int getFusionCount(int p);
+
+	/**
+	 * @param p The id of the persona the fusion produces
+	 * @param i The index of the entry of getFusions(p) that will be returned
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < 2 * getFusionCount(p)
+	 * @return The entry at index i of getFusions(p), without copying the array
+	 */
+	int getFusionIngredientId(int p, int i);
+
+	/**
+	 * @param p The guillotine persona for which the list of ingredient personas will be
+	 * 		  returned
+	 * @return A list of personas that can fuse together to create the guillotine-only
+	 * 		   persona p. Returns null if p is not a valid persona name or not a guillotine-only
+	 * 		   persona.
+	 */
+	List<String> getGuillotineFusion(String p);
+
+	/**
+	 * @param p The guillotine persona for which the list of ingredient personas will be
+	 * 		  returned
+	 * @return An unmodifiable view of the list returned by getGuillotineFusion(p), or null in
+	 * 		   the same cases
+	 */
+	List<String> viewGuillotineFusion(String p);
+
+	/**
+	 * @param p1 The first persona involved in the fusion
+	 * @param p2 The second persona involved in the fusion
+	 * @return A persona object that is the result of the fusion between personas p1 and
+	 *         p2. Returns null if the fusion is impossible or p1, p2, or both are not valid
+	 *         persona names.
+	 */
+	Persona getFusionResult(String p1, String p2);
+
+	/**
+	 * @param p1 The id of the first persona involved in the fusion
+	 * @param p2 The id of the second persona involved in the fusion
+	 * @requires 0 <= p1, p2 < getPersonaCount()
+	 * @return A persona object that is the result of the fusion between personas p1 and
+	 *         p2. Returns null if the fusion between p1 and p2 is impossible.
+	 */
+	Persona getFusionResult(int p1, int p2);
+
+	/**
+	 * @param p1 The id of the first persona involved in the fusion
+	 * @param p2 The id of the second persona involved in the fusion
+	 * @requires 0 <= p1, p2 < getPersonaCount()
+	 * @return The id of the persona that is the result of the fusion between personas p1
+	 * 		   and p2, or -1 if the fusion between p1 and p2 is impossible.
+	 */
+	int getFusionResultId(int p1, int p2);
+
+	/**
+	 * @param p The name of the persona for which the fusions it is involved in will be returned
+	 *        (only fusions involving two persona will be returned, no guillotine fusions)
+	 * @return A set of Strings that represent the other half of the possible fusions with p.
+	 * 	       Returns null if p is not a valid persona name.
+	 */
+	Set<String> getIncludedFusions(String p);
+
+	/**
+	 * @param p The id of the persona for which the fusions it is involved in will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return A sorted array of the ids of the personas that p can be fused with
+	 */
+	int[] getIncludedFusions(int p);
+
+	/**
+	 * @param p The id of the persona for which the number of fusion partners will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return The number of personas that p can be fused with
+	 */
+	int getIncludedFusionCount(int p);
+
+	/**
+	 * @param p The id of the persona for which a fusion partner will be returned
+	 * @param i The index of the partner in getIncludedFusions(p)
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < getIncludedFusionCount(p)
+	 * @return The entry at index i of getIncludedFusions(p), without copying the array
+	 */
+	int getIncludedFusionId(int p, int i);
+
+	/**
+	 * @param p The id of the persona for which the number of fusions it is an ingredient of will
+	 * 		  be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return The number of fusions p is an ingredient of, which is getIncludedFusionCount(p)
+	 */
+	int getRelatedFusionCount(int p);
+
+	/**
+	 * @param p The id of the persona for which a fusion partner will be returned
+	 * @param i The index of the fusion among the fusions p is an ingredient of, which are
+	 * 		  ordered by the base level of their result, then by result id and partner id
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < getRelatedFusionCount(p)
+	 * @return The id of the persona p is fused with in fusion i
+	 */
+	int getRelatedPartnerId(int p, int i);
+
+	/**
+	 * @param p The id of the persona for which a fusion result will be returned
+	 * @param i The index of the fusion among the fusions p is an ingredient of, in the order of
+	 * 		  getRelatedPartnerId
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < getRelatedFusionCount(p)
+	 * @return The id of the persona fusion i makes
+	 */
+	int getRelatedResultId(int p, int i);
+
+	/**
+	 * @param p The id of the persona for which the fusions it is an ingredient of will be returned
+	 * @param arcana The arcana of the results that will be returned, or null for every arcana
+	 * @param minLevel The lowest base level of the results that will be returned
+	 * @param maxLevel The highest base level of the results that will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return An array in which each consecutive pair of entries (partner, result) is a fusion
+	 * 		   of p and partner that makes a persona of arcana with a base level from minLevel to
+	 * 		   maxLevel, in the order of getRelatedPartnerId
+	 */
+	int[] getRelatedFusions(int p, String arcana, int minLevel, int maxLevel);
+}
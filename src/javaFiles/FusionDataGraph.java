@@ -1,26 +1,104 @@
 package javaFiles;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * This class calculates and stores the data pertaining to the results of fusions between 
  * all the personas in Persona 5. The data is taken from the personaData.txt, possibleFusions.txt
  * and treasureFusions.txt datasets. 
+ *
+ * A FusionDataGraph is the builder of the data: it parses the data files, calculates the fusions
+ * and can change personas afterwards, and it is not safe to share between threads while it may
+ * change. freeze() makes a FrozenFusionData from it, which answers the same queries, is deeply
+ * immutable and can be queried from any number of threads.
  */
-public class FusionDataGraph {
+public class FusionDataGraph implements FusionData {
+
+	// the directory the data files are read from by default
+	public static final String DATA_DIR = "src/data/";
+
+	// the names of the data files and snapshot files inside the data directory
+	public static final String PERSONA_DATA = "personaData.txt";
+	public static final String POSSIBLE_FUSIONS = "possibleFusions.txt";
+	public static final String TREASURE_FUSIONS = "treasureFusions.txt";
+	public static final String SNAPSHOT = "fusions.snapshot";
+	public static final String DLC_SNAPSHOT = "fusionsDlc.snapshot";
 
 	// nodes are personas and edges is the persona that is the result of fusing the two
-	// nodes it connects
+	// nodes it connects. Filled from fusionMatrix the first time a persona is changed, whether
+	// the fusions were calculated or loaded from a snapshot; exports and queries are answered
+	// from fusionMatrix and the id tables below.
 	private Graph<String, String> fusions;
 
 	// map from persona names to the corresponding persona object
 	private HashMap<String, Persona> personas;
 
+	// personas indexed by their dense integer id; ids are assigned in the order the personas
+	// are read from personaData.txt
+	private Persona[] personaTable;
+
+	// map from persona names to their integer id
+	private HashMap<String, Integer> personaIds;
+
+	// the personas as columns: row i is the persona with the id i
+	private PersonaTable personaRows;
+
+	// row-major personaTable.length x personaTable.length matrix; the entry at p1 * n + p2 is the
+	// id of the persona that results from fusing p1 and p2, or -1 if the fusion is impossible
+	private int[] fusionMatrix;
+
+	// for each persona id, the ingredient ids of the fusions that make it, stored as consecutive
+	// (p1, p2) entries in the same order as the pairs in fusionResults
+	private int[][] fusionPairIds;
+
+	// for each persona id, the sorted ids of the personas it can be fused with
+	private int[][] includedFusionIds;
+
+	// for each persona id p, the fusions p is an ingredient of as consecutive (partner, result)
+	// entries, ordered by the base level of the result, then by result id and partner id; the
+	// fusions of p are the entries from 2 * relatedFusionStarts[p] to 2 * relatedFusionStarts[p + 1]
+	private int[] relatedFusionIds;
+	private int[] relatedFusionStarts;
+
+	// the number of longs in a bitset over the persona ids, (personaTable.length + 63) / 64
+	private int bitWords;
+
+	// row-major personaTable.length x bitWords bitsets; row r has the bits of the ids of every
+	// ingredient of a fusion that makes the persona with the id r, and is empty for
+	// guillotine-only personas and treasure demons
+	private long[] ingredientBits;
+
+	// bitsets of bitWords longs; the k-th bitset from ingredientPairStarts[r] has the bits of the
+	// ids of the personas that the k-th lowest id in row r of ingredientBits fuses with into r
+	private long[] ingredientPairBits;
+
+	// for each persona id, the index in ingredientPairBits of its first bitset
+	private int[] ingredientPairStarts;
+
+	// row-major personaTable.length x bitWords bitsets; row r has the bits of the ids of the
+	// ingredients of the guillotine fusion of r, and is empty if r is not a guillotine-only
+	// persona or an ingredient is not a persona of this FusionDataGraph
+	private long[] guillotineBits;
+
+	// the names of the personas and of the arcanas, for resolving names typed by users
+	private NameIndex personaNames;
+	private NameIndex arcanaNames;
+
 	// map from arcana names to an ordered (by base level) list of persona in that arcana
 	private HashMap<String, List<Persona>> arcanas;
 
@@ -30,6 +108,10 @@ public class FusionDataGraph {
 	// map from each arcana name to the highest level persona in the arcana
 	private HashMap<String, Integer> highestLevels;
 
+	// map from each arcana name to the index used to find the result of a fusion in that arcana.
+	// Only filled when the fusions are calculated from the data files or a persona is changed.
+	private HashMap<String, ArcanaLevelIndex> levelIndexes;
+
 	// nodes are arcanas and edges are the resulting arcana from fusing the two nodes the edge
 	// connects
 	private Graph<String, String> possibleFusions;
@@ -38,30 +120,202 @@ public class FusionDataGraph {
 	// how many levels to go up/down when fusing a regular persona with a treasure demon
 	private HashMap<String, HashMap<String, Integer>> treasureFusions;
 
+	// true if this FusionDataGraph was frozen in place, so that a FrozenFusionData holds its
+	// personas, lists, maps, matrix and indexes, in which case it can't be changed. Only read and
+	// written while holding the lock on this FusionDataGraph.
+	private boolean shared;
+
 	/**
-	 * @effects Constructs a FusionDataGraph
+	 * @effects Constructs a FusionDataGraph from the data files in DATA_DIR
 	 */
 	public FusionDataGraph(boolean includeDlc) {
+		this(DATA_DIR, includeDlc);
+	}
+
+	/**
+	 * @param dataDir The directory that contains personaData.txt, possibleFusions.txt and 
+	 * 		  treasureFusions.txt, ending in a path separator
+	 * @param includeDlc Whether dlc personas are included in the fusion calculations
+	 * @effects Constructs a FusionDataGraph from the data files in dataDir
+	 */
+	public FusionDataGraph(String dataDir, boolean includeDlc) {
+		this(dataDir, includeDlc, false);
+	}
+
+	/**
+	 * @param dataDir The directory that contains personaData.txt, possibleFusions.txt and 
+	 * 		  treasureFusions.txt, ending in a path separator
+	 * @param includeDlc Whether dlc personas are included in the fusion calculations
+	 * @param parallel Whether the fusions are calculated and stored in parallel on the common
+	 * 		  fork/join pool. The result is the same either way.
+	 * @throws UncheckedIOException if a data file can't be read, or wrapping a
+	 * 		   MalformedDataException if a line of a data file is malformed
+	 * @effects Constructs a FusionDataGraph from the data files in dataDir
+	 */
+	public FusionDataGraph(String dataDir, boolean includeDlc, boolean parallel) {
+		this();
+		String dataset = datasetName(includeDlc);
+		long start = System.nanoTime();
+
+		// parse the data in personaData.txt and fill arcanas, personas, and highestLevels
+		List<Persona> personaList = new ArrayList<Persona>();
+		long time;
+		try {
+			// fusions is filled from fusionMatrix when it is first needed, as after a snapshot
+			Persona5ByteParser.parsePersonas(dataDir + PERSONA_DATA, arcanas, personas, personaList, 
+					highestLevels, new Graph<String, String>(), includeDlc);
+			assignIds(personaList);
+			clearFusionMatrix();
+			time = recordPhase(dataset, "parsePersonas", start);
+
+			// parse the data in possibleFusions.txt and fill in possibleFusions
+			Persona5ByteParser.parsePossibleFusions(dataDir + POSSIBLE_FUSIONS, possibleFusions);
+			time = recordPhase(dataset, "parsePossibleFusions", time);
+
+			// parse the data in treasureFusions.txt and fill in treasureFusions
+			Persona5ByteParser.parseTreasureFusions(dataDir + TREASURE_FUSIONS, treasureFusions);
+			time = recordPhase(dataset, "parseTreasureFusions", time);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		// calculate and store all possible fusions between different personas
+		buildLevelIndexes();
+		time = recordPhase(dataset, "buildLevelIndexes", time);
+		calculateFusions(dataset, parallel);
+		time = recordPhase(dataset, "calculateFusions", time);
+		indexFusionTables();
+		recordPhase(dataset, "indexFusions", time);
+		recordPhase(dataset, "total", start);
+	}
+
+	/**
+	 * @effects Constructs a FusionDataGraph with no personas, arcanas or fusions
+	 */
+	private FusionDataGraph() {
 		fusions = new Graph<String, String>();
 		personas = new HashMap<String, Persona>();
+		personaIds = new HashMap<String, Integer>();
 		arcanas = new HashMap<String, List<Persona>>();
 		fusionResults = new HashMap<String, List<Pair>>();
 		highestLevels = new HashMap<String, Integer>();
+		levelIndexes = new HashMap<String, ArcanaLevelIndex>();
 		possibleFusions = new Graph<String, String>();
 		treasureFusions = new HashMap<String, HashMap<String, Integer>>();
+	}
 
-		// parse the data in personaData.txt and fill arcanas, personas, and highestLevels
-		Persona5ParserGraph.parsePersonas("src/data/personaData.txt", arcanas, personas, highestLevels, 
-				fusions, includeDlc);
+	/**
+	 * Loads the FusionDataGraph for the data files in DATA_DIR from its default snapshot file,
+	 * see load(String, boolean, String).
+	 * 
+	 * @param includeDlc Whether dlc personas are included in the fusion calculations
+	 * @return a FusionDataGraph for the data files in DATA_DIR
+	 */
+	public static FusionDataGraph load(boolean includeDlc) {
+		return load(DATA_DIR, includeDlc, DATA_DIR + (includeDlc ? DLC_SNAPSHOT : SNAPSHOT));
+	}
+
+	/**
+	 * Loads a FusionDataGraph from the snapshot file snapshotFile. If the snapshot file doesn't
+	 * exist, is corrupt, or was written from data files that differ from the current ones in 
+	 * dataDir, the FusionDataGraph is built from the data files instead and the snapshot file 
+	 * is rewritten.
+	 * 
+	 * @param dataDir The directory that contains personaData.txt, possibleFusions.txt and 
+	 * 		  treasureFusions.txt, ending in a path separator
+	 * @param includeDlc Whether dlc personas are included in the fusion calculations
+	 * @param snapshotFile The snapshot file to load from and write to
+	 * @return a FusionDataGraph for the data files in dataDir
+	 */
+	public static FusionDataGraph load(String dataDir, boolean includeDlc, String snapshotFile) {
+		long checksum;
+		try {
+			checksum = FusionSnapshot.checksum(includeDlc, dataDir + PERSONA_DATA, 
+					dataDir + POSSIBLE_FUSIONS, dataDir + TREASURE_FUSIONS);
+		} catch (IOException e) { // the parser reports missing data files
+			return new FusionDataGraph(dataDir, includeDlc);
+		}
+
+		if (new File(snapshotFile).isFile()) {
+			String dataset = datasetName(includeDlc);
+			long start = System.nanoTime();
+			FusionDataGraph fd = new FusionDataGraph();
+			List<Persona> personaList = new ArrayList<Persona>();
+			try {
+				if (FusionSnapshot.read(snapshotFile, checksum, fd.arcanas, fd.personas, personaList, 
+						fd.highestLevels, fd.possibleFusions, fd.treasureFusions, fd.fusionResults)) {
+					long time = recordPhase(dataset, "readSnapshot", start);
+					fd.assignIds(personaList);
+					fd.clearFusionMatrix();
+					fd.restoreFusions();
+					time = recordPhase(dataset, "restoreFusions", time);
+					fd.indexFusions();
+					recordPhase(dataset, "indexFusions", time);
+					recordPhase(dataset, "total", start);
+					return fd;
+				}
+			} catch (IOException | RuntimeException e) { // a corrupt snapshot, built from the data files below
+				System.err.println(e.toString());
+			}
+		}
+
+		// the snapshot is missing or stale: build from the data files and rewrite it
+		FusionDataGraph fd = new FusionDataGraph(dataDir, includeDlc);
+		try {
+			fd.writeSnapshot(snapshotFile, checksum);
+		} catch (IOException e) {
+			System.err.println(e.toString());
+		}
+		return fd;
+	}
 
-		// parse the data in possibleFusions.txt and fill in possibleFusions
-		Persona5ParserGraph.parsePossibleFusions("src/data/possibleFusions.txt", possibleFusions);
+	/**
+	 * Writes the graph of all the fusions, with a node per persona and, for every fusion, an
+	 * edge from each ingredient persona to the other labeled with the name of the result.
+	 * 
+	 * @param out The Appendable the graph will be written to
+	 * @param format The format of the graph: GraphExporter.DOT, GRAPHML or TSV
+	 * @throws IOException if out throws an IOException
+	 * @throws IllegalArgumentException if out == null or format is not a valid format
+	 * @modifies out
+	 * @effects writes the fusion graph to out in format
+	 */
+	public void exportFusions(Appendable out, String format) throws IOException, IllegalArgumentException {
+		// written straight from fusionMatrix, so that a FusionDataGraph loaded from a snapshot
+		// doesn't fill fusions just to be exported
+		List<String> names = new ArrayList<String>(personaTable.length);
+		for (Persona p : personaTable) {
+			names.add(p.getName());
+		}
+		new GraphExporter<String, String>().writeMatrix(names, fusionMatrix, names, "fusions", format, out);
+	}
 
-		// parse the data in treasureFusions.txt and fill in treasureFusions
-		Persona5ParserGraph.parseTreasureFusions("src/data/treasureFusions.txt", treasureFusions);
+	/**
+	 * Writes the graph of the arcana fusions, with a node per arcana and an edge between two
+	 * arcanas labeled with the arcana of their fusion.
+	 * 
+	 * @param out The Appendable the graph will be written to
+	 * @param format The format of the graph: GraphExporter.DOT, GRAPHML or TSV
+	 * @throws IOException if out throws an IOException
+	 * @throws IllegalArgumentException if out == null or format is not a valid format
+	 * @modifies out
+	 * @effects writes the arcana fusion graph to out in format
+	 */
+	public void exportPossibleFusions(Appendable out, String format) throws IOException, IllegalArgumentException {
+		new GraphExporter<String, String>().write(possibleFusions, "possibleFusions", format, out);
+	}
 
-		// calculate and store all possible fusions between different personas
-		calculateFusions();
+	/**
+	 * Writes a snapshot of this FusionDataGraph that can be read back with load().
+	 * 
+	 * @param snapshotFile The file the snapshot will be written to
+	 * @param checksum The checksum of the data files this FusionDataGraph was built from, as
+	 * 		  returned by FusionSnapshot.checksum
+	 * @throws IOException if the snapshot file can't be written
+	 */
+	public void writeSnapshot(String snapshotFile, long checksum) throws IOException {
+		FusionSnapshot.write(snapshotFile, checksum, Arrays.asList(personaTable), highestLevels, 
+				possibleFusions, treasureFusions, fusionPairIds);
 	}
 
 	/**
@@ -69,25 +323,134 @@ public class FusionDataGraph {
 	 * @return A persona object with the name p. Returns null if p is not a valid persona
 	 * 		   name.
 	 */
+	@Override
 	public Persona getPersona(String p) {
 		return personas.get(p);
 	}
 
+	/**
+	 * @param id The id of the persona that will be returned
+	 * @requires 0 <= id < getPersonaCount()
+	 * @return The persona object with the given id
+	 */
+	@Override
+	public Persona getPersona(int id) {
+		return personaTable[id];
+	}
+
+	/**
+	 * @param p The name of the persona for which the id will be returned
+	 * @return The dense integer id of the persona with the name p, or -1 if p is not a 
+	 * 		   valid persona name
+	 */
+	@Override
+	public int getPersonaId(String p) {
+		Integer id = personaIds.get(p);
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * @param input A persona name typed by a user, in any case and with or without spaces and
+	 * 		  punctuation
+	 * @return The persona input stands for, see NameIndex, or null if there is none
+	 */
+	@Override
+	public Persona resolvePersona(CharSequence input) {
+		// exact names, the common case, skip the binary search
+		Persona exact = input instanceof String ? personas.get(input) : null;
+		if (exact != null) {
+			return exact;
+		}
+		String name = personaNames.resolve(input);
+		if (name == null) {
+			return null;
+		}
+		return personas.get(name);
+	}
+
+	/**
+	 * @param input An arcana name typed by a user, in any case and with or without spaces and
+	 * 		  punctuation
+	 * @return The name of the arcana input stands for, see NameIndex, or null if there is none
+	 */
+	@Override
+	public String resolveArcana(CharSequence input) {
+		return arcanaNames.resolve(input);
+	}
+
+	/**
+	 * @return The index of the names of the personas, for completing and suggesting names
+	 */
+	@Override
+	public NameIndex getPersonaNames() {
+		return personaNames;
+	}
+
+	/**
+	 * @return The index of the names of the arcanas, for completing and suggesting names
+	 */
+	@Override
+	public NameIndex getArcanaNames() {
+		return arcanaNames;
+	}
+
+	/**
+	 * @return The number of personas in this FusionDataGraph. Persona ids range from 0 
+	 * 		   to getPersonaCount() - 1.
+	 */
+	@Override
+	public int getPersonaCount() {
+		return personaTable.length;
+	}
+
+	/**
+	 * @return The personas as a PersonaTable whose row i is the persona with the id i, for
+	 * 		   scanning every persona without boxing
+	 */
+	@Override
+	public PersonaTable getPersonaTable() {
+		return personaRows;
+	}
+
 	/**
 	 * @return A set of Strings that represent the arcanas in Persona 5
 	 */
+	@Override
 	public Set<String> getAllArcana() {
 		return new HashSet<String>(arcanas.keySet());
 	}
 
+	/**
+	 * @return An unmodifiable view of the names of the arcanas in Persona 5
+	 */
+	@Override
+	public Set<String> viewAllArcana() {
+		return Collections.unmodifiableSet(arcanas.keySet());
+	}
+
 	/**
 	 * @param arc The arcana for which the list of persona will be returned
 	 * @return A list of persona objects in the arcana arc
 	 */
+	@Override
 	public List<Persona> getArcPersonas(String arc) {
 		return new ArrayList<Persona>(arcanas.get(arc));
 	}
 
+	/**
+	 * @param arc The arcana for which the list of persona will be returned
+	 * @return An unmodifiable view of the list of persona objects in the arcana arc, ordered by
+	 * 		   base level, or null if arc is not a valid arcana name
+	 */
+	@Override
+	public List<Persona> viewArcPersonas(String arc) {
+		List<Persona> personaList = arcanas.get(arc);
+		return personaList == null ? null : Collections.unmodifiableList(personaList);
+	}
+
 	/**
 	 * @param p The name of the persona for which a list of possible fusions will 
 	 *        be returned
@@ -96,6 +459,7 @@ public class FusionDataGraph {
 	 *         - p is a guillotine-only persona
 	 *         - p is not a valid persona name
 	 */
+	@Override
 	public List<Pair> getFusions(String p) {
 		if (personas.containsKey(p)) {
 			if (personas.get(p).getSpecialCase().equals("guillotine") ||
@@ -108,6 +472,67 @@ public class FusionDataGraph {
 		}
 	}
 
+	/**
+	 * @param p The name of the persona for which a list of possible fusions will 
+	 *        be returned
+	 * @return An unmodifiable view of the list returned by getFusions(p), or null in the
+	 * 		   same cases
+	 */
+	@Override
+	public List<Pair> viewFusions(String p) {
+		Persona persona = personas.get(p);
+		if (persona == null) {
+			return null;
+		}
+		if (persona.getSpecialCase().equals("guillotine") || persona.getSpecialCase().equals("treasure")) {
+			return null;
+		}
+		return Collections.unmodifiableList(fusionResults.get(p));
+	}
+
+	/**
+	 * @param p The id of the persona for which the possible fusions will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return An array of persona ids in which each consecutive pair of entries (p1, p2) is a 
+	 * 		   fusion that produces the persona p, in the same order as getFusions(String).
+	 *         Returns null if p is a guillotine-only persona or a treasure demon.
+	 */
+	@Override
+	public int[] getFusions(int p) {
+		if (personaTable[p].getSpecialCase().equals("guillotine") ||
+				personaTable[p].getSpecialCase().equals("treasure")) {
+			return null;
+		}
+		return fusionPairIds[p].clone();
+	}
+
+	/**
+	 * @param p The id of the persona for which the number of fusions will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return The number of fusions that produce the persona p, or 0 if p is a 
+	 * 		   guillotine-only persona or a treasure demon
+	 */
+	@Override
+	public int getFusionCount(int p) {
+		if (personaTable[p].getSpecialCase().equals("guillotine") ||
+				personaTable[p].getSpecialCase().equals("treasure")) {
+			return 0;
+		}
+		return fusionPairIds[p].length / 2;
+	}
+
+	/**
+	 * @param p The id of the persona the fusion produces
+	 * @param i The index of the entry of getFusions(p) that will be returned
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < 2 * getFusionCount(p)
+	 * @return The entry at index i of getFusions(p), without copying the array: the id of the
+	 * 		   first ingredient persona of fusion i / 2 if i is even, and of the second if i is odd
+	 */
+	@Override
+	public int getFusionIngredientId(int p, int i) {
+		return fusionPairIds[p][i];
+	}
+
 	/**
 	 * @param p The guillotine persona for which the list of ingredient personas will be 
 	 * 		  returned
@@ -116,6 +541,7 @@ public class FusionDataGraph {
 	 *         - p is not a valid persona name
 	 *         - p is not a guillotine-only persona
 	 */
+	@Override
 	public List<String> getGuillotineFusion(String p) {
 		if (personas.containsKey(p)) {
 			Persona pers = personas.get(p);
@@ -129,6 +555,24 @@ public class FusionDataGraph {
 		}
 	}
 
+	/**
+	 * @param p The guillotine persona for which the list of ingredient personas will be 
+	 * 		  returned
+	 * @return An unmodifiable view of the list returned by getGuillotineFusion(p), or null in
+	 * 		   the same cases
+	 */
+	@Override
+	public List<String> viewGuillotineFusion(String p) {
+		Persona pers = personas.get(p);
+		if (pers == null) {
+			return null;
+		}
+		if (!pers.getSpecialCase().equals("guillotine")) {
+			return null;
+		}
+		return Collections.unmodifiableList(pers.getSpecialFusion());
+	}
+
 	/**
 	 * @param p1 The first persona involved in the fusion
 	 * @param p2 The second persona involved in the fusion
@@ -137,14 +581,39 @@ public class FusionDataGraph {
 	 *         - fusion between p1 and p2 is impossible
 	 *         - p1, p2, or both are not valid persona names
 	 */
+	@Override
 	public Persona getFusionResult(String p1, String p2) {
-		Set<String> temp = fusions.getEdges(p1, p2);
-		if (temp != null) {
-			Iterator<String> itr = temp.iterator();
-			return personas.get(itr.next());
-		} else {
+		Integer id1 = personaIds.get(p1);
+		Integer id2 = personaIds.get(p2);
+		if (id1 == null || id2 == null) {
 			return null;
 		}
+		return getFusionResult(id1.intValue(), id2.intValue());
+	}
+
+	/**
+	 * @param p1 The id of the first persona involved in the fusion
+	 * @param p2 The id of the second persona involved in the fusion
+	 * @requires 0 <= p1, p2 < getPersonaCount()
+	 * @return A persona object that is the result of the fusion between personas p1 and
+	 *         p2. Returns null if the fusion between p1 and p2 is impossible.
+	 */
+	@Override
+	public Persona getFusionResult(int p1, int p2) {
+		int result = fusionMatrix[p1 * personaTable.length + p2];
+		return result < 0 ? null : personaTable[result];
+	}
+
+	/**
+	 * @param p1 The id of the first persona involved in the fusion
+	 * @param p2 The id of the second persona involved in the fusion
+	 * @requires 0 <= p1, p2 < getPersonaCount()
+	 * @return The id of the persona that is the result of the fusion between personas p1 
+	 * 		   and p2, or -1 if the fusion between p1 and p2 is impossible.
+	 */
+	@Override
+	public int getFusionResultId(int p1, int p2) {
+		return fusionMatrix[p1 * personaTable.length + p2];
 	}
 
 	/**
@@ -153,200 +622,756 @@ public class FusionDataGraph {
 	 * @return A set of Strings that represent the other half of the possible fusions with p.
 	 * 	       Returns null if p is not a valid persona name.
 	 */
+	@Override
 	public Set<String> getIncludedFusions(String p) {
-		if (personas.containsKey(p)) {
-			return new HashSet<String>(fusions.getChildren(p));
-		} else {
+		Integer id = personaIds.get(p);
+		if (id == null) {
 			return null;
 		}
+		Set<String> result = new HashSet<String>();
+		for (int partner : includedFusionIds[id]) {
+			result.add(personaTable[partner].getName());
+		}
+		return result;
 	}
 
 	/**
-	 * private helper method that calculates all the possible fusions and stores the results
-	 * in private fields for later access
-	 * 
-	 * @modifies fusions, fusionResults
-	 * @effects adds an entry to fusions and to fusionResults if the fusion between p1 
-	 * 		    and p2 is possible
+	 * @param p The id of the persona for which the fusions it is involved in will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return A sorted array of the ids of the personas that p can be fused with
 	 */
-	private void calculateFusions() {
-		List<String> arc = new ArrayList<String>(arcanas.keySet()); // list of all the arcanas
+	@Override
+	public int[] getIncludedFusions(int p) {
+		return includedFusionIds[p].clone();
+	}
 
-		// for the personas of each arcana i, calculate their fusions with each of the other
-		// personas in each of the other arcanas. 
-		for (int i = 0; i < arc.size(); i++) {
-			List<Persona> arc1Personas = arcanas.get(arc.get(i));
-			for (int j = i; j < arc.size(); j++) { // j is initialized to i to avoid repeating calculations
-				List<Persona> arc2Personas = arcanas.get(arc.get(j));
-
-				if (i == j) { // special case: calculate same-arcana fusions
-					for (int k = 0; k < arc1Personas.size(); k++) {
-						// l is initialized to k + 1 to avoid calculating fusions between two identical personas
-						for (int l = k + 1; l < arc1Personas.size(); l++) {
-							calculateSingleSAFusion(arc1Personas.get(k), arc2Personas.get(l), arc1Personas.get(k).getArcana());
-						}
-					}
-				} else { // regular case: calculate different-arcana fusions
-					Set<String> result = possibleFusions.getEdges(arc.get(i), arc.get(j));
-					Iterator<String> itr = result.iterator();
-					String resultingArcana = itr.next();
-
-					for (int k = 0; k < arc1Personas.size(); k++) {
-						for (int l = 0; l < arc2Personas.size(); l++) {
-							calculateSingleDAFusion(arc1Personas.get(k), arc2Personas.get(l), resultingArcana);
-						}
-					}
-				}
-			}
-		}
+	/**
+	 * @param p The id of the persona for which the number of fusion partners will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return The number of personas that p can be fused with
+	 */
+	@Override
+	public int getIncludedFusionCount(int p) {
+		return includedFusionIds[p].length;
 	}
 
 	/**
-	 * private helper method that calculates a single fusion between p1 and p2 and
-	 * stores it in fusions. Handles the fusion cases of 1) regular fusion or treasure
-	 * demon x treasure demon, and 2) treasure demon x regular persona
-	 * 
-	 * @param p1 The first persona involved in the fusion
-	 * @param p2 The second persona involved in the fusion
-	 * @param resArc The resulting arcana that the fusion between p1 and p2 will produce
-	 * @modifies fusions, fusionResults
-	 * @effects adds entries to fusions and fusionResults if the fusion between p1 and p2 is possible
+	 * @param p The id of the persona for which a fusion partner will be returned
+	 * @param i The index of the partner in getIncludedFusions(p)
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < getIncludedFusionCount(p)
+	 * @return The entry at index i of getIncludedFusions(p), without copying the array
 	 */
-	private void calculateSingleDAFusion(Persona p1, Persona p2, String resArc) {
-		if (p1.getSpecialCase().equals("treasure") && !p2.getSpecialCase().equals("treasure")) {
-			calculateTreasureXNonTreasureFusion(p1, p2);
-		} else if (p2.getSpecialCase().equals("treasure") && !p1.getSpecialCase().equals("treasure")) {
-			calculateTreasureXNonTreasureFusion(p2, p1);
-		} else { // fusion between two treasure demons or two regular/guillotine/dlc personas
-			double calculatedLevel = (p1.getBaseLevel() + p2.getBaseLevel()) / 2.0 + 0.5;
-
-			if (highestLevels.get(resArc) >= calculatedLevel) {
-				// find the corresponding persona of the resulting arcana with the base level 
-				// calculatedLevel or the persona with the next highest base level that is not a 
-				// treasure demon, dlc persona or a guillotine fusion only persona
-				List<Persona> pers = arcanas.get(resArc);
-				boolean doneSearching = false;
-				int i = pers.size() - 1;
-				Persona finalPersona = null;
-				while (!doneSearching) {
-					if (i < 0) { 
-						doneSearching = true;
-					} else {
-						Persona currPersona = pers.get(i);
-
-						if (calculatedLevel == currPersona.getBaseLevel()) { // found an exact match
-							// check to see that currPersona is not a treasure demon/guillotine persona
-							if (!currPersona.getSpecialCase().equals("treasure") && 
-									!currPersona.getSpecialCase().equals("guillotine")) {
-								finalPersona = currPersona;
-							}
-							doneSearching = true;
-						} else if (calculatedLevel > currPersona.getBaseLevel()) { // went over the limit: backtrack
-							doneSearching = true;
-						} else { // the base level of the current persona is still greater than calculatedLevel; keep searching down
-							if (!currPersona.getSpecialCase().equals("treasure") && 
-									!currPersona.getSpecialCase().equals("guillotine")) {
-								finalPersona = currPersona;
-							}
-							i--;
-						}
-					}
-				}
+	@Override
+	public int getIncludedFusionId(int p, int i) {
+		return includedFusionIds[p][i];
+	}
 
-				if (finalPersona != null) { // the fusion is possible
-					storeFusionResults(finalPersona.getName(), p1, p2);
-				}
+	/**
+	 * @param p The id of the persona for which the number of fusions it is an ingredient of will
+	 * 		  be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return The number of fusions p is an ingredient of, which is getIncludedFusionCount(p)
+	 */
+	@Override
+	public int getRelatedFusionCount(int p) {
+		return relatedFusionStarts[p + 1] - relatedFusionStarts[p];
+	}
+
+	/**
+	 * @param p The id of the persona for which a fusion partner will be returned
+	 * @param i The index of the fusion among the fusions p is an ingredient of, which are
+	 * 		  ordered by the base level of their result, then by result id and partner id
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < getRelatedFusionCount(p)
+	 * @return The id of the persona p is fused with in fusion i
+	 */
+	@Override
+	public int getRelatedPartnerId(int p, int i) {
+		return relatedFusionIds[2 * (relatedFusionStarts[p] + i)];
+	}
+
+	/**
+	 * @param p The id of the persona for which a fusion result will be returned
+	 * @param i The index of the fusion among the fusions p is an ingredient of, in the order of
+	 * 		  getRelatedPartnerId
+	 * @requires 0 <= p < getPersonaCount() && 0 <= i < getRelatedFusionCount(p)
+	 * @return The id of the persona fusion i makes
+	 */
+	@Override
+	public int getRelatedResultId(int p, int i) {
+		return relatedFusionIds[2 * (relatedFusionStarts[p] + i) + 1];
+	}
+
+	/**
+	 * @param p The id of the persona for which the fusions it is an ingredient of will be returned
+	 * @param arcana The arcana of the results that will be returned, or null for every arcana
+	 * @param minLevel The lowest base level of the results that will be returned
+	 * @param maxLevel The highest base level of the results that will be returned
+	 * @requires 0 <= p < getPersonaCount()
+	 * @return An array in which each consecutive pair of entries (partner, result) is a fusion
+	 * 		   of p and partner that makes a persona of arcana with a base level from minLevel to
+	 * 		   maxLevel, in the order of getRelatedPartnerId
+	 */
+	@Override
+	public int[] getRelatedFusions(int p, String arcana, int minLevel, int maxLevel) {
+		int from = 2 * relatedFusionStarts[p];
+		int to = 2 * relatedFusionStarts[p + 1];
+		// binary search for the first fusion whose result has a base level of at least minLevel
+		int lo = from / 2;
+		int hi = to / 2;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (personaTable[relatedFusionIds[2 * mid + 1]].getBaseLevel() < minLevel) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		int[] related = new int[to - from];
+		int count = 0;
+		for (int k = 2 * lo; k < to; k += 2) {
+			Persona result = personaTable[relatedFusionIds[k + 1]];
+			if (result.getBaseLevel() > maxLevel) {
+				break;
+			}
+			if (arcana == null || arcana.equals(result.getArcana())) {
+				related[count++] = relatedFusionIds[k];
+				related[count++] = relatedFusionIds[k + 1];
 			}
 		}
+		return Arrays.copyOf(related, count);
 	}
 
 	/**
-	 * private helper method that calculates a single fusion between a treasure demon and
-	 * a non-treasure persona.
-	 * 
-	 * @param treasureDemon The persona that is the treasure demon in the fusion
-	 * @param regularPersona The regular (non-treasure demon) persona in the fusion
-	 * @modifies fusions, fusionResults
-	 * @effects adds an entry to fusions and to fusionResults if the fusion between p1 
-	 * 		    and p2 is possible
+	 * @param roster The personas a player owns
+	 * @requires no persona of this FusionDataGraph was added, removed or changed since roster
+	 * 			 was made
+	 * @return An array in which each consecutive triple of entries (r, p1, p2) is a persona r
+	 * 		   that can be made by fusing two personas of roster, and a fusion of p1 and p2 from
+	 * 		   roster that makes it, in increasing order of r. Personas already in roster are
+	 * 		   included, guillotine-only personas and treasure demons never are.
+	 * @throws IllegalArgumentException if roster == null or roster is not a Roster of this
+	 * 		   FusionDataGraph
 	 */
-	private void calculateTreasureXNonTreasureFusion(Persona treasureDemon, Persona regularPersona) {
-		String resArc = regularPersona.getArcana();
+	public int[] getFusableIds(Roster roster) throws IllegalArgumentException {
+		if (roster == null || roster.getData() != this || roster.wordCount() != bitWords) {
+			throw new IllegalArgumentException();
+		}
+		int n = personaTable.length;
+		long[] owned = new long[bitWords];
+		for (int w = 0; w < bitWords; w++) {
+			owned[w] = roster.word(w);
+		}
+		long[] candidates = new long[bitWords];
+		int[] fusable = new int[3 * n];
+		int count = 0;
+		for (int r = 0; r < n; r++) {
+			// the ingredients of r that are in the roster; r is fusable iff two of them fuse into r
+			int row = r * bitWords;
+			long any = 0;
+			for (int w = 0; w < bitWords; w++) {
+				candidates[w] = ingredientBits[row + w] & owned[w];
+				any |= candidates[w];
+			}
+			if (any == 0) {
+				continue;
+			}
+			int witness = findWitness(r, candidates, owned);
+			if (witness >= 0) {
+				fusable[count++] = r;
+				fusable[count++] = witness / n;
+				fusable[count++] = witness % n;
+			}
+		}
+		return Arrays.copyOf(fusable, count);
+	}
 
-		// get the index of the regular persona and the number that represents how many
-		// levels to go up/down
-		int levelShift = treasureFusions.get(treasureDemon.getName()).get(resArc);
-		int personaIndex = arcanas.get(resArc).indexOf(regularPersona);
+	/**
+	 * @param roster The personas a player owns
+	 * @requires no persona of this FusionDataGraph was added, removed or changed since roster
+	 * 			 was made
+	 * @return A map from every persona that can be made by fusing two personas of roster to a
+	 * 		   fusion of two personas of roster that makes it, in the order of getFusableIds
+	 * @throws IllegalArgumentException if roster == null or roster is not a Roster of this
+	 * 		   FusionDataGraph
+	 */
+	public Map<Persona, Pair> getFusable(Roster roster) throws IllegalArgumentException {
+		int[] fusable = getFusableIds(roster);
+		Map<Persona, Pair> result = new LinkedHashMap<Persona, Pair>();
+		for (int i = 0; i < fusable.length; i += 3) {
+			result.put(personaTable[fusable[i]], 
+					new Pair(personaTable[fusable[i + 1]], personaTable[fusable[i + 2]]));
+		}
+		return result;
+	}
 
-		// if the resulting index is still in the range of the list of personas (and is
-		// therefore a valid fusion), add it to fusions
-		if (personaIndex + levelShift >= 0 && 
-				personaIndex + levelShift < arcanas.get(resArc).size()) {
-			Persona finalPersona = arcanas.get(resArc).get(personaIndex + levelShift);
-			storeFusionResults(finalPersona.getName(), regularPersona, treasureDemon);
+	/**
+	 * @param roster The personas a player owns
+	 * @param playerLevel The highest base level of a persona a fusion can make
+	 * @requires no persona of this FusionDataGraph was added, removed or changed since roster
+	 * 			 was made
+	 * @return The RosterClosure of the personas that can be reached from roster through any
+	 * 		   number of fusions that make personas of base level at most playerLevel
+	 * @throws IllegalArgumentException if roster == null, roster is not a Roster of this
+	 * 		   FusionDataGraph or playerLevel < 1
+	 */
+	public RosterClosure getClosure(Roster roster, int playerLevel) throws IllegalArgumentException {
+		if (roster == null || roster.getData() != this || roster.wordCount() != bitWords || playerLevel < 1) {
+			throw new IllegalArgumentException();
 		}
+		return new RosterClosure(this, roster, playerLevel);
 	}
 
 	/**
-	 * private helper method that calculates a single fusion between p1 and p2 and
-	 * stores it in fusions. Handles the special case of same-arcana fusions.
+	 * Extends the depths of the personas reachable from a roster after personas were added to
+	 * it, round by round. The personas that get depth d + 1 in round d are the ones that don't
+	 * have a lower depth yet and have a fusion of two personas of depth at most d, one of which
+	 * has depth d, found by intersecting bitsets as in getFusableIds. A fusion that uses no
+	 * persona whose depth changed can't lower the depth of its result, so only those are tried.
 	 * 
-	 * @param p1 The first persona involved in the fusion (of the same arcana as p2)
-	 * @param p2 The second persona involved in the fusion (of the same arcana as p1)
-	 * @param resArc The resulting arcana that the fusion between p1 and p2 will produce
-	 * @modifies fusions
-	 * @effects adds an entry to fusions if the fusion between p1 and p2 is possible
+	 * @param depths The depth of every persona, or -1 for the ones that are not reachable
+	 * @param added The bits of the ids of the personas that were added to the roster
+	 * @param playerLevel The highest base level of a persona a fusion can make
+	 * @requires depths are the depths of the roster without added, except that the personas of
+	 * 			 added have depth 0, and added has bitWords longs
+	 * @modifies depths
+	 * @effects sets depths to the depths of the personas reachable from the roster
 	 */
-	private void calculateSingleSAFusion(Persona p1, Persona p2, String resArc) {
-		if (p1.getSpecialCase().equals("treasure") || p2.getSpecialCase().equals("treasure")) {
-			calculateSingleDAFusion(p1, p2, resArc);
-		} else {	
-			double calculatedLevel = (p1.getBaseLevel() + p2.getBaseLevel()) / 2.0 + 0.5;
+	void extendClosure(int[] depths, long[] added, int playerLevel) {
+		int n = personaTable.length;
+		long[] changed = added.clone();
+		long[] below = new long[bitWords]; // the personas of depth less than depth
+		long[] layer = new long[bitWords]; // the personas of depth depth
+		long[] reached = new long[bitWords]; // the personas of depth at most depth
+		long[] candidates = new long[bitWords];
+		for (int depth = 0; ; depth++) {
+			long any = 0;
+			Arrays.fill(layer, 0);
+			for (int i = 0; i < n; i++) {
+				if (depths[i] == depth) {
+					layer[i >>> 6] |= 1L << i;
+					any = 1;
+				}
+			}
+			// depths have no gaps, so no persona is deeper than an empty layer
+			if (any == 0) {
+				return;
+			}
+			for (int w = 0; w < bitWords; w++) {
+				below[w] = reached[w];
+				reached[w] |= layer[w];
+			}
 
-			// find the corresponding persona of the resulting arcana with the base level 
-			// calculatedLevel or the persona with the next lowest base level that is not a 
-			// treasure demon, dlc persona or a guillotine fusion only persona
-			List<Persona> pers = arcanas.get(p1.getArcana());
-			boolean doneSearching = false;
-			int i = 0;
-			Persona finalPersona = null;
-			while (!doneSearching) {
-				Persona currPersona = pers.get(i);
-
-				if (calculatedLevel == currPersona.getBaseLevel()) { // found an exact match
-					// treasure demons can't be fused and guillotine personas need more than two ingredient 
-					// personas. Also, it's impossible for a fusion to result in one of the ingredient personas.
-					if (!currPersona.getSpecialCase().equals("treasure") && 
-							!currPersona.getSpecialCase().equals("guillotine") &&
-							!currPersona.equals(p1) &&
-							!currPersona.equals(p2)) {
-						finalPersona = currPersona;
+			for (int r = 0; r < n; r++) {
+				if ((depths[r] >= 0 && depths[r] <= depth + 1) || personaTable[r].getBaseLevel() > playerLevel) {
+					continue;
+				}
+				int row = r * bitWords;
+				// a changed ingredient of depth depth with any partner reached so far, or a
+				// changed ingredient of a lower depth with a partner of depth depth
+				long deepest = 0;
+				long shallower = 0;
+				for (int w = 0; w < bitWords; w++) {
+					long fresh = ingredientBits[row + w] & changed[w];
+					candidates[w] = fresh & layer[w];
+					deepest |= candidates[w];
+					shallower |= fresh & below[w];
+				}
+				boolean made = deepest != 0 && findWitness(r, candidates, reached) >= 0;
+				if (!made && shallower != 0) {
+					for (int w = 0; w < bitWords; w++) {
+						candidates[w] = ingredientBits[row + w] & changed[w] & below[w];
 					}
-					doneSearching = true;
-				} else if (calculatedLevel < currPersona.getBaseLevel()) { // went over the limit: backtrack
-					doneSearching = true;
-				} else { // the base level of the current persona is still less than calculatedLevel; keep searching up
-					if (currPersona.getSpecialCase().equals("") && !currPersona.equals(p1) && !currPersona.equals(p2)) {
-						finalPersona = currPersona;
+					made = findWitness(r, candidates, layer) >= 0;
+				}
+				if (!made) {
+					// guillotine fusions; the row is empty for every other persona
+					long missing = 0;
+					long fresh = 0;
+					deepest = 0;
+					for (int w = 0; w < bitWords; w++) {
+						missing |= guillotineBits[row + w] & ~reached[w];
+						deepest |= guillotineBits[row + w] & layer[w];
+						fresh |= guillotineBits[row + w] & changed[w];
 					}
-					i++;
+					made = missing == 0 && deepest != 0 && fresh != 0;
+				}
+				if (made) {
+					depths[r] = depth + 1;
+					changed[r >>> 6] |= 1L << r;
 				}
 			}
+		}
+	}
 
-			if (finalPersona != null) { // the fusion is possible
-				storeFusionResults(finalPersona.getName(), p1, p2);
+	/**
+	 * private helper method that finds a fusion of a candidate and a partner that makes the
+	 * persona with the id r, intersecting the bitset of the personas each candidate fuses with
+	 * into r with partners
+	 * 
+	 * @param candidates Ingredients of r
+	 * @param partners The personas the candidates may be fused with
+	 * @return p1 * personaTable.length + p2 for the fusion of a candidate p1 and a partner p2
+	 * 		   with the lowest p1 and then the lowest p2, or -1 if there is none
+	 */
+	private int findWitness(int r, long[] candidates, long[] partners) {
+		int row = r * bitWords;
+		int rank = 0; // the number of ingredients of r before word w
+		for (int w = 0; w < bitWords; w++) {
+			for (long word = candidates[w]; word != 0; word &= word - 1) {
+				long bit = word & -word;
+				int k = rank + Long.bitCount(ingredientBits[row + w] & (bit - 1));
+				int start = ingredientPairStarts[r] + k * bitWords;
+				for (int w2 = 0; w2 < bitWords; w2++) {
+					long found = ingredientPairBits[start + w2] & partners[w2];
+					if (found != 0) {
+						int a = (w << 6) + Long.numberOfTrailingZeros(bit);
+						return a * personaTable.length + (w2 << 6) + Long.numberOfTrailingZeros(found);
+					}
+				}
 			}
+			rank += Long.bitCount(ingredientBits[row + w]);
 		}
+		return -1;
 	}
 
 	/**
-	 * private helper method that updates fusionResults when a new fusion calculation
-	 * is made.
+	 * Adds a persona and recalculates only the fusions the new persona can change: the fusions
+	 * between the personas of every pair of arcanas that includes p's arcana or that fuses into
+	 * it. The result is the same as building this FusionDataGraph from a personaData.txt that
+	 * lists p after the personas of its arcana whose base level is at most p's, and the ids of
+	 * the personas after it go up by one.
 	 * 
-	 * @param result The name of the resulting persona of the fusion between p1 and p2
-	 * @param p1 The first persona involved in the fusion (of the same arcana as p2)
+	 * @param p The persona to add
+	 * @throws IllegalArgumentException if p == null, a persona named p.getName() already exists,
+	 * 		   p.getArcana() is not an arcana, p.getBaseLevel() < 1, or p is a treasure demon
+	 * 		   with no treasure fusions
+	 * @throws IllegalStateException if this FusionDataGraph was frozen in place, see freezeInPlace
+	 * @modifies this
+	 * @effects adds p to this FusionDataGraph and updates fusions, fusionResults and
+	 * 			highestLevels to include its fusions
+	 */
+	public synchronized void addPersona(Persona p) throws IllegalArgumentException, IllegalStateException {
+		if (p == null || personas.containsKey(p.getName()) || !arcanas.containsKey(p.getArcana()) ||
+				p.getBaseLevel() < 1 ||
+				(p.getSpecialCase().equals("treasure") && !treasureFusions.containsKey(p.getName()))) {
+			throw new IllegalArgumentException();
+		}
+		replacePersona(null, p);
+	}
+
+	/**
+	 * Removes a persona and recalculates only the fusions its removal can change, see
+	 * addPersona. The ids of the personas after it go down by one.
+	 * 
+	 * @param name The name of the persona to remove
+	 * @throws IllegalArgumentException if name is not a valid persona name
+	 * @throws IllegalStateException if this FusionDataGraph was frozen in place, see freezeInPlace
+	 * @modifies this
+	 * @effects removes the persona named name and its fusions from this FusionDataGraph and
+	 * 			updates fusions, fusionResults and highestLevels to match
+	 */
+	public synchronized void removePersona(String name) throws IllegalArgumentException, IllegalStateException {
+		Persona p = name == null ? null : personas.get(name);
+		if (p == null) {
+			throw new IllegalArgumentException();
+		}
+		replacePersona(p, null);
+	}
+
+	/**
+	 * Changes the base level of a persona and recalculates only the fusions the change can
+	 * affect, see addPersona. The persona moves after the personas of its arcana whose base
+	 * level is at most level, and its id changes if that changes its place in the data file.
+	 * 
+	 * @param name The name of the persona whose base level will be changed
+	 * @param level The new base level of the persona
+	 * @throws IllegalArgumentException if name is not a valid persona name or level < 1
+	 * @throws IllegalStateException if this FusionDataGraph was frozen in place, see freezeInPlace
+	 * @modifies this
+	 * @effects replaces the persona named name with a persona with the base level level and
+	 * 			updates fusions, fusionResults and highestLevels to match
+	 */
+	public synchronized void updateBaseLevel(String name, int level) throws IllegalArgumentException, IllegalStateException {
+		Persona old = name == null ? null : personas.get(name);
+		if (old == null || level < 1) {
+			throw new IllegalArgumentException();
+		}
+		replacePersona(old, new PersonaTable(1).add(old, level));
+	}
+
+	/**
+	 * @return an immutable FrozenFusionData that answers the queries of FusionData with the same
+	 * 		   results as this FusionDataGraph. Later changes to this FusionDataGraph are not
+	 * 		   reflected in the FrozenFusionData. If this FusionDataGraph was frozen in place, it
+	 * 		   can't change, so the FrozenFusionData shares its personas, lists and tables instead
+	 * 		   of copying them.
+	 */
+	public synchronized FrozenFusionData freeze() {
+		if (shared) {
+			return FrozenFusionData.sharing(personaTable, personaRows, personaIds, arcanas, fusionResults,
+					fusionMatrix, fusionPairIds, includedFusionIds, relatedFusionIds, relatedFusionStarts,
+					personaNames, arcanaNames);
+		}
+		return FrozenFusionData.copyOf(personaTable, arcanas, fusionMatrix, fusionPairIds, includedFusionIds,
+				relatedFusionIds, relatedFusionStarts, personaNames, arcanaNames);
+	}
+
+	/**
+	 * Freezes this FusionDataGraph without copying it, for a caller that holds the only
+	 * reference to it and has no more changes to make, such as a FusionDataReloader that has
+	 * just built it: the FrozenFusionData holds its personas, lists and tables themselves.
+	 * 
+	 * @return an immutable FrozenFusionData that answers the queries of FusionData with the same
+	 * 		   results as this FusionDataGraph
+	 * @modifies this
+	 * @effects makes this FusionDataGraph unchangeable
+	 */
+	synchronized FrozenFusionData freezeInPlace() {
+		shared = true;
+		return freeze();
+	}
+
+	/**
+	 * private helper method that returns the name metrics are recorded under for a dataset
+	 */
+	private static String datasetName(boolean includeDlc) {
+		return includeDlc ? "dlc" : "nodlc";
+	}
+
+	/**
+	 * private helper method that records the duration of a build phase
+	 * 
+	 * @param dataset The name of the dataset being built
+	 * @param phase The name of the phase
+	 * @param since The value of System.nanoTime() when the phase started
+	 * @return The value of System.nanoTime() when the phase was recorded
+	 */
+	private static long recordPhase(String dataset, String phase, long since) {
+		long now = System.nanoTime();
+		FusionMetrics.get().recordPhase(dataset, phase, now - since);
+		return now;
+	}
+
+	/**
+	 * private helper method that builds the level index of every arcana
+	 * 
+	 * @modifies levelIndexes
+	 * @effects maps every arcana name to an ArcanaLevelIndex over its personas
+	 */
+	private void buildLevelIndexes() {
+		int maxLevel = maxBaseLevel();
+		for (String arc : arcanas.keySet()) {
+			Integer highest = highestLevels.get(arc);
+			levelIndexes.put(arc, new ArcanaLevelIndex(arcanas.get(arc), highest == null ? 0 : highest, maxLevel));
+		}
+	}
+
+	/**
+	 * private helper method that returns the highest base level of any persona
+	 */
+	private int maxBaseLevel() {
+		int maxLevel = 0;
+		for (Persona p : personaTable) {
+			maxLevel = Math.max(maxLevel, p.getBaseLevel());
+		}
+		return maxLevel;
+	}
+
+	/**
+	 * private helper method that calculates all the possible fusions and stores the results
+	 * in private fields for later access. The fusions of every pair of arcanas are calculated
+	 * into a FusionBlock of their own, and the blocks are then copied into fusionPairIds and
+	 * fusionMatrix at offsets worked out from the counts of every block, so that no two blocks
+	 * write to the same place. If parallel is true both steps, and making the Pair lists of
+	 * fusionResults, run on the common fork/join pool; either way the fusions of each result
+	 * are in the order of the arcana pairs and fusionResults is the same.
+	 * 
+	 * @param dataset The name of the dataset the fusion counts are recorded for
+	 * @param parallel Whether the fusions are calculated and stored in parallel
+	 * @modifies fusionMatrix, fusionPairIds, fusionResults
+	 * @effects adds an entry to fusionMatrix, fusionPairIds and fusionResults for every
+	 * 			possible fusion, and records the number of fusions of each kind
+	 */
+	private void calculateFusions(String dataset, boolean parallel) {
+		List<String> arc = new ArrayList<String>(arcanas.keySet()); // list of all the arcanas
+
+		// for the personas of each arcana i, calculate their fusions with each of the other
+		// personas in each of the other arcanas. j starts at i to avoid repeating calculations
+		List<int[]> arcanaPairs = new ArrayList<int[]>();
+		for (int i = 0; i < arc.size(); i++) {
+			for (int j = i; j < arc.size(); j++) {
+				arcanaPairs.add(new int[] {i, j});
+			}
+		}
+		FusionBlock[] blocks = new FusionBlock[arcanaPairs.size()];
+		forEachIndex(blocks.length, parallel, b -> {
+			int[] pair = arcanaPairs.get(b);
+			blocks[b] = calculateBlock(arc.get(pair[0]), arc.get(pair[1]));
+		});
+
+		// the fusions of a result are laid out block by block: turn the count of every block
+		// into the offset it writes its fusions of that result at
+		int n = personaTable.length;
+		int[] totals = new int[n];
+		for (FusionBlock block : blocks) {
+			for (int r = 0; r < n; r++) {
+				int count = block.offsets[r];
+				block.offsets[r] = totals[r];
+				totals[r] += count;
+			}
+		}
+		fusionPairIds = new int[n][];
+		for (int r = 0; r < n; r++) {
+			fusionPairIds[r] = new int[2 * totals[r]];
+		}
+		forEachIndex(blocks.length, parallel, b -> storeBlock(blocks[b]));
+
+		@SuppressWarnings("unchecked")
+		List<Pair>[] lists = (List<Pair>[]) new List<?>[n];
+		forEachIndex(n, parallel, r -> {
+			int[] ids = fusionPairIds[r];
+			if (ids.length > 0) {
+				List<Pair> pairs = new ArrayList<Pair>(ids.length / 2);
+				for (int k = 0; k < ids.length; k += 2) {
+					pairs.add(new Pair(personaTable[ids[k]], personaTable[ids[k + 1]]));
+				}
+				lists[r] = pairs;
+			}
+		});
+		long da = 0;
+		long sa = 0;
+		long treasure = 0;
+		for (int r = 0; r < n; r++) {
+			if (lists[r] != null) {
+				fusionResults.put(personaTable[r].getName(), lists[r]);
+			}
+		}
+		for (FusionBlock block : blocks) {
+			da += block.da;
+			sa += block.sa;
+			treasure += block.treasure;
+		}
+		FusionMetrics.get().recordFusionCounts(dataset, da, sa, treasure);
+	}
+
+	/**
+	 * private helper method that calculates the fusions between the personas of two arcanas
+	 * into a FusionBlock
+	 * 
+	 * @param arc1 The arcana of the first persona in each fusion
+	 * @param arc2 The arcana of the second persona in each fusion
+	 * @return A FusionBlock with the ids of every possible fusion between arc1 and arc2, in the
+	 * 		   order calculateArcanaFusions calculates them in, and the number of fusions of
+	 * 		   each result and each kind
+	 */
+	private FusionBlock calculateBlock(String arc1, String arc2) {
+		List<Persona> calculated = new ArrayList<Persona>();
+		calculateArcanaFusions(arc1, arc2, calculated);
+		FusionBlock block = new FusionBlock(calculated.size(), personaTable.length);
+		for (int i = 0; i < calculated.size(); i += 3) {
+			Persona p1 = calculated.get(i + 1);
+			Persona p2 = calculated.get(i + 2);
+			int result = personaIds.get(calculated.get(i).getName());
+			block.fusions[i] = result;
+			block.fusions[i + 1] = personaIds.get(p1.getName());
+			block.fusions[i + 2] = personaIds.get(p2.getName());
+			block.offsets[result]++;
+
+			// count the fusion by the rule that calculated it
+			boolean treasure1 = p1.getKind() == PersonaTable.Kind.TREASURE;
+			boolean treasure2 = p2.getKind() == PersonaTable.Kind.TREASURE;
+			if (treasure1 != treasure2) {
+				block.treasure++;
+			} else if (p1.getArcana().equals(p2.getArcana()) && !treasure1) {
+				block.sa++;
+			} else {
+				block.da++;
+			}
+		}
+		return block;
+	}
+
+	/**
+	 * private helper method that copies the fusions of a block into fusionMatrix and
+	 * fusionPairIds
+	 * 
+	 * @param block The block whose fusions will be stored
+	 * @requires fusionPairIds[r] has room for the fusions of block with the result r from
+	 * 			 offset block.offsets[r] on, and no other block has fusions of the same personas
+	 * @modifies fusionMatrix, fusionPairIds, block
+	 * @effects stores every fusion of block, and moves each offset of block past its fusions
+	 */
+	private void storeBlock(FusionBlock block) {
+		int n = personaTable.length;
+		for (int i = 0; i < block.fusions.length; i += 3) {
+			int result = block.fusions[i];
+			int id1 = block.fusions[i + 1];
+			int id2 = block.fusions[i + 2];
+			fusionMatrix[id1 * n + id2] = result;
+			fusionMatrix[id2 * n + id1] = result;
+			int at = 2 * block.offsets[result]++;
+			fusionPairIds[result][at] = id1;
+			fusionPairIds[result][at + 1] = id2;
+		}
+	}
+
+	/**
+	 * private helper method that runs body for every index from 0 to count - 1, on the common
+	 * fork/join pool if parallel is true
+	 */
+	private static void forEachIndex(int count, boolean parallel, IntConsumer body) {
+		if (parallel) {
+			ForkJoinPool.commonPool().invoke(new IndexRangeTask(0, count, body));
+		} else {
+			for (int i = 0; i < count; i++) {
+				body.accept(i);
+			}
+		}
+	}
+
+	/**
+	 * private helper method that calculates the fusions between the personas of two arcanas
+	 * 
+	 * @param arc1 The arcana of the first persona in each fusion
+	 * @param arc2 The arcana of the second persona in each fusion
+	 * @param calculated The list the calculated fusions are added to
+	 * @modifies calculated
+	 * @effects appends the resulting persona and the two ingredient personas of every possible
+	 * 			fusion between arc1 and arc2 to calculated
+	 */
+	private void calculateArcanaFusions(String arc1, String arc2, List<Persona> calculated) {
+		List<Persona> arc1Personas = arcanas.get(arc1);
+		List<Persona> arc2Personas = arcanas.get(arc2);
+
+		if (arc1.equals(arc2)) { // special case: calculate same-arcana fusions
+			for (int k = 0; k < arc1Personas.size(); k++) {
+				// l is initialized to k + 1 to avoid calculating fusions between two identical personas
+				for (int l = k + 1; l < arc1Personas.size(); l++) {
+					calculateSingleSAFusion(arc1Personas.get(k), arc2Personas.get(l), arc1, calculated);
+				}
+			}
+		} else { // regular case: calculate different-arcana fusions
+			Set<String> result = possibleFusions.getEdges(arc1, arc2);
+			Iterator<String> itr = result.iterator();
+			String resultingArcana = itr.next();
+
+			for (int k = 0; k < arc1Personas.size(); k++) {
+				for (int l = 0; l < arc2Personas.size(); l++) {
+					calculateSingleDAFusion(arc1Personas.get(k), arc2Personas.get(l), resultingArcana, calculated);
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that calculates a single fusion between p1 and p2. Handles the 
+	 * fusion cases of 1) regular fusion or treasure demon x treasure demon, and 2) treasure 
+	 * demon x regular persona
+	 * 
+	 * @param p1 The first persona involved in the fusion
+	 * @param p2 The second persona involved in the fusion
+	 * @param resArc The resulting arcana that the fusion between p1 and p2 will produce
+	 * @param calculated The list the fusion is added to
+	 * @modifies calculated
+	 * @effects appends the resulting persona, p1 and p2 to calculated if the fusion between p1 
+	 * 			and p2 is possible
+	 */
+	private void calculateSingleDAFusion(Persona p1, Persona p2, String resArc, List<Persona> calculated) {
+		if (p1.getSpecialCase().equals("treasure") && !p2.getSpecialCase().equals("treasure")) {
+			calculateTreasureXNonTreasureFusion(p1, p2, calculated);
+		} else if (p2.getSpecialCase().equals("treasure") && !p1.getSpecialCase().equals("treasure")) {
+			calculateTreasureXNonTreasureFusion(p2, p1, calculated);
+		} else { // fusion between two treasure demons or two regular/guillotine/dlc personas
+			// find the corresponding persona of the resulting arcana with the base level 
+			// (p1 + p2) / 2 + 0.5 or the persona with the next highest base level that is not a 
+			// treasure demon or a guillotine fusion only persona
+			Persona finalPersona = levelIndexes.get(resArc).roundUp(p1.getBaseLevel() + p2.getBaseLevel());
+			if (finalPersona != null) { // the fusion is possible
+				addFusion(calculated, finalPersona, p1, p2);
+			}
+		}
+	}
+
+	/**
+	 * private helper method that calculates a single fusion between a treasure demon and
+	 * a non-treasure persona.
+	 * 
+	 * @param treasureDemon The persona that is the treasure demon in the fusion
+	 * @param regularPersona The regular (non-treasure demon) persona in the fusion
+	 * @param calculated The list the fusion is added to
+	 * @modifies calculated
+	 * @effects appends the resulting persona, regularPersona and treasureDemon to calculated 
+	 * 		    if the fusion between them is possible
+	 */
+	private void calculateTreasureXNonTreasureFusion(Persona treasureDemon, Persona regularPersona, 
+			List<Persona> calculated) {
+		String resArc = regularPersona.getArcana();
+
+		// get the index of the regular persona and the number that represents how many
+		// levels to go up/down
+		int levelShift = treasureFusions.get(treasureDemon.getName()).get(resArc);
+		int personaIndex = levelIndexes.get(resArc).indexOf(regularPersona);
+
+		// if the resulting index is still in the range of the list of personas (and is
+		// therefore a valid fusion), add it to fusions
+		if (personaIndex + levelShift >= 0 && 
+				personaIndex + levelShift < arcanas.get(resArc).size()) {
+			Persona finalPersona = arcanas.get(resArc).get(personaIndex + levelShift);
+			addFusion(calculated, finalPersona, regularPersona, treasureDemon);
+		}
+	}
+
+	/**
+	 * private helper method that calculates a single fusion between p1 and p2. Handles the 
+	 * special case of same-arcana fusions.
+	 * 
+	 * @param p1 The first persona involved in the fusion (of the same arcana as p2)
 	 * @param p2 The second persona involved in the fusion (of the same arcana as p1)
-	 * @modifies fusionResults
+	 * @param resArc The resulting arcana that the fusion between p1 and p2 will produce
+	 * @param calculated The list the fusion is added to
+	 * @modifies calculated
+	 * @effects appends the resulting persona, p1 and p2 to calculated if the fusion between p1 
+	 * 			and p2 is possible
+	 */
+	private void calculateSingleSAFusion(Persona p1, Persona p2, String resArc, List<Persona> calculated) {
+		if (p1.getSpecialCase().equals("treasure") || p2.getSpecialCase().equals("treasure")) {
+			calculateSingleDAFusion(p1, p2, resArc, calculated);
+		} else {	
+			// find the corresponding persona of the resulting arcana with the base level 
+			// (p1 + p2) / 2 + 0.5 or the persona with the next lowest base level that is not a 
+			// treasure demon, dlc persona or a guillotine fusion only persona. It's impossible for
+			// a fusion to result in one of the ingredient personas.
+			Persona finalPersona = levelIndexes.get(p1.getArcana()).roundDown(p1, p2);
+			if (finalPersona != null) { // the fusion is possible
+				addFusion(calculated, finalPersona, p1, p2);
+			}
+		}
+	}
+
+	/**
+	 * private helper method that records a calculated fusion
+	 * 
+	 * @param calculated The list of calculated fusions
+	 * @param result The resulting persona of the fusion between p1 and p2
+	 * @param p1 The first persona involved in the fusion
+	 * @param p2 The second persona involved in the fusion
+	 * @modifies calculated
+	 * @effects appends result, p1 and p2 to calculated
+	 */
+	private static void addFusion(List<Persona> calculated, Persona result, Persona p1, Persona p2) {
+		calculated.add(result);
+		calculated.add(p1);
+		calculated.add(p2);
+	}
+
+	/**
+	 * private helper method that updates fusionResults when a new fusion calculation
+	 * is made.
+	 * 
+	 * @param result The name of the resulting persona of the fusion between p1 and p2
+	 * @param p1 The first persona involved in the fusion (of the same arcana as p2)
+	 * @param p2 The second persona involved in the fusion (of the same arcana as p1)
+	 * @modifies fusions, fusionMatrix, fusionResults
 	 * @effects adds a new mapping from persona to list of pairs or updates the list of
 	 * 			pairs for previously existing keys
 	 */
@@ -354,6 +1379,12 @@ public class FusionDataGraph {
 		fusions.insertEdge(p1.getName(), p2.getName(), result);
 		fusions.insertEdge(p2.getName(), p1.getName(), result);
 
+		int id1 = personaIds.get(p1.getName());
+		int id2 = personaIds.get(p2.getName());
+		int resultId = personaIds.get(result);
+		fusionMatrix[id1 * personaTable.length + id2] = resultId;
+		fusionMatrix[id2 * personaTable.length + id1] = resultId;
+
 		if (fusionResults.containsKey(result)) {
 			fusionResults.get(result).add(new Pair(p1, p2));
 		} else {
@@ -362,4 +1393,620 @@ public class FusionDataGraph {
 			fusionResults.put(result, temp);
 		}
 	}
+
+	/**
+	 * private helper method that fills fusions from fusionMatrix the first time it is needed:
+	 * neither a build nor a snapshot load fills it
+	 * 
+	 * @modifies fusions
+	 * @effects adds every persona and fusion to fusions if it is empty
+	 */
+	private synchronized void materializeFusions() {
+		if (!fusions.isEmpty()) {
+			return;
+		}
+		int n = personaTable.length;
+		long edges = 0;
+		for (int result : fusionMatrix) {
+			if (result >= 0) {
+				edges++;
+			}
+		}
+		fusions.fitStorage(n, edges);
+		for (Persona p : personaTable) {
+			fusions.insertNode(p.getName());
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				int result = fusionMatrix[i * n + j];
+				if (result >= 0) {
+					fusions.insertEdge(personaTable[i].getName(), personaTable[j].getName(),
+							personaTable[result].getName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that replaces one persona with another and recalculates the fusions
+	 * the change can affect: those between the personas of every pair of arcanas that includes
+	 * the arcana of the change, which has every fusion of the changed persona and every
+	 * treasure demon fusion that results in the arcana, and of every pair of arcanas that fuses
+	 * into it, since the results of those depend on the personas in the arcana.
+	 * 
+	 * @param removed The persona to remove, or null
+	 * @param added The persona to add, or null
+	 * @requires removed != null || added != null, and if both are given they have the same name
+	 * 			 and arcana
+	 * @modifies fusions, personas, personaTable, personaIds, fusionMatrix, fusionPairIds,
+	 * 			 includedFusionIds, arcanas, fusionResults, highestLevels, levelIndexes
+	 * @effects removes removed and adds added, and leaves every field as a build from the data
+	 * 			files with the same personas would, with fusionResults in the same order
+	 */
+	private void replacePersona(Persona removed, Persona added) throws IllegalStateException {
+		if (shared) {
+			throw new IllegalStateException();
+		}
+
+		// a FusionDataGraph loaded from a snapshot has neither yet
+		materializeFusions();
+		if (levelIndexes.isEmpty()) {
+			buildLevelIndexes();
+		}
+
+		String arcana = removed != null ? removed.getArcana() : added.getArcana();
+		int oldMaxLevel = maxBaseLevel();
+		List<String> arc = new ArrayList<String>(arcanas.keySet()); // same order as calculateFusions
+		HashMap<String, Integer> arcIndexes = new HashMap<String, Integer>();
+		for (int i = 0; i < arc.size(); i++) {
+			arcIndexes.put(arc.get(i), i);
+		}
+		boolean[][] affected = new boolean[arc.size()][arc.size()];
+		List<int[]> affectedPairs = new ArrayList<int[]>();
+		for (int i = 0; i < arc.size(); i++) {
+			for (int j = i; j < arc.size(); j++) {
+				Set<String> result = i == j ? null : possibleFusions.viewEdges(arc.get(i), arc.get(j));
+				if (arc.get(i).equals(arcana) || arc.get(j).equals(arcana) ||
+						(result != null && result.contains(arcana))) {
+					affected[i][j] = true;
+					affected[j][i] = true;
+					affectedPairs.add(new int[] {i, j});
+				}
+			}
+		}
+
+		// remove the fusions of the affected arcana pairs, remembering the personas they made
+		Set<String> changedResults = new HashSet<String>();
+		int n = personaTable.length;
+		for (int[] pair : affectedPairs) {
+			List<Persona> arc1Personas = arcanas.get(arc.get(pair[0]));
+			List<Persona> arc2Personas = arcanas.get(arc.get(pair[1]));
+			int[] arc2Ids = new int[arc2Personas.size()];
+			for (int l = 0; l < arc2Ids.length; l++) {
+				arc2Ids[l] = personaIds.get(arc2Personas.get(l).getName());
+			}
+			for (int k = 0; k < arc1Personas.size(); k++) {
+				String name1 = arc1Personas.get(k).getName();
+				int id1 = personaIds.get(name1);
+				for (int l = pair[0] == pair[1] ? k + 1 : 0; l < arc2Ids.length; l++) {
+					int id2 = arc2Ids[l];
+					int result = fusionMatrix[id1 * n + id2];
+					if (result >= 0) {
+						String resultName = personaTable[result].getName();
+						fusionMatrix[id1 * n + id2] = -1;
+						fusionMatrix[id2 * n + id1] = -1;
+						String name2 = arc2Personas.get(l).getName();
+						fusions.removeEdge(name1, name2, resultName);
+						fusions.removeEdge(name2, name1, resultName);
+						changedResults.add(resultName);
+					}
+				}
+			}
+		}
+		for (String result : changedResults) {
+			List<Pair> pairs = fusionResults.get(result);
+			pairs.removeIf(pair -> affected[arcIndexes.get(pair.getP1().getArcana())]
+					[arcIndexes.get(pair.getP2().getArcana())]);
+			if (pairs.isEmpty()) {
+				fusionResults.remove(result);
+			}
+		}
+
+		// replace the persona in its arcana, which stays ordered by base level, and in the
+		// persona list, where it goes next to the personas of its arcana as in the data file
+		List<Persona> arcanaPersonas = arcanas.get(arcana);
+		List<Persona> personaList = new ArrayList<Persona>(Arrays.asList(personaTable));
+		if (removed != null) {
+			arcanaPersonas.remove(removed);
+			personaList.remove(personaIds.get(removed.getName()).intValue());
+			personas.remove(removed.getName());
+			if (added == null) {
+				fusions.removeNode(removed.getName());
+			}
+		}
+		if (added != null) {
+			int position = 0;
+			while (position < arcanaPersonas.size() &&
+					arcanaPersonas.get(position).getBaseLevel() <= added.getBaseLevel()) {
+				position++;
+			}
+			arcanaPersonas.add(position, added);
+			int id;
+			if (position + 1 < arcanaPersonas.size()) {
+				id = personaList.indexOf(arcanaPersonas.get(position + 1));
+			} else if (position > 0) {
+				id = personaList.indexOf(arcanaPersonas.get(position - 1)) + 1;
+			} else {
+				id = personaList.size();
+			}
+			personaList.add(id, added);
+			personas.put(added.getName(), added);
+			fusions.insertNode(added.getName());
+		}
+		int[][] oldPairIds = fusionPairIds;
+		int[] newIds = renumber(personaList);
+
+		// the personas of the arcana ordered by base level, so the last regular one is the highest
+		int highest = 0;
+		for (Persona p : arcanaPersonas) {
+			if (p.getSpecialCase().equals("")) {
+				highest = p.getBaseLevel();
+			}
+		}
+		highestLevels.put(arcana, highest);
+		int maxLevel = maxBaseLevel();
+		if (maxLevel > oldMaxLevel) { // the other indexes only go up to the old highest level
+			buildLevelIndexes();
+		} else {
+			levelIndexes.put(arcana, new ArcanaLevelIndex(arcanaPersonas, highest, maxLevel));
+		}
+
+		// recalculate the affected arcana pairs with the new personas. The new pairs are appended
+		// to the lists of their results after the kept ones, so remember where they start.
+		List<Persona> calculated = new ArrayList<Persona>();
+		for (int[] pair : affectedPairs) {
+			calculateArcanaFusions(arc.get(pair[0]), arc.get(pair[1]), calculated);
+		}
+		HashMap<String, Integer> keptCounts = new HashMap<String, Integer>();
+		for (int i = 0; i < calculated.size(); i += 3) {
+			String result = calculated.get(i).getName();
+			if (!keptCounts.containsKey(result)) {
+				List<Pair> pairs = fusionResults.get(result);
+				keptCounts.put(result, pairs == null ? 0 : pairs.size());
+			}
+			storeFusionResults(result, calculated.get(i + 1), calculated.get(i + 2));
+		}
+		for (String result : keptCounts.keySet()) {
+			List<Pair> pairs = fusionResults.get(result);
+			fusionResults.put(result, mergeByArcanaPair(pairs, keptCounts.get(result), arcIndexes));
+			changedResults.add(result);
+		}
+
+		// only the personas whose fusions changed need their pairs looked up again
+		int[][] pairIds = new int[personaTable.length][];
+		for (int old = 0; old < newIds.length; old++) {
+			int id = newIds[old];
+			if (id >= 0 && !changedResults.contains(personaTable[id].getName())) {
+				pairIds[id] = new int[oldPairIds[old].length];
+				for (int k = 0; k < pairIds[id].length; k++) {
+					pairIds[id][k] = newIds[oldPairIds[old][k]];
+				}
+			}
+		}
+		for (int i = 0; i < pairIds.length; i++) {
+			if (pairIds[i] == null) {
+				pairIds[i] = indexPairs(i);
+			}
+		}
+		fusionPairIds = pairIds;
+		indexFusionTables();
+	}
+
+	/**
+	 * private helper method that merges the kept and the recalculated fusions of a persona
+	 * back into the order calculateFusions calculates them in. Both parts are in that order
+	 * already, and no pair of arcanas has fusions in both, so they are merged by arcana pair.
+	 * 
+	 * @param pairs The kept fusions followed by the recalculated fusions
+	 * @param kept The number of kept fusions at the start of pairs
+	 * @param arcIndexes A map from each arcana name to its index in the order of arcanas.keySet()
+	 * @return A list of the fusions in pairs in calculation order
+	 */
+	private static List<Pair> mergeByArcanaPair(List<Pair> pairs, int kept, HashMap<String, Integer> arcIndexes) {
+		List<Pair> merged = new ArrayList<Pair>(pairs.size());
+		int i = 0; // the first kept pair not yet merged
+		int j = kept; // the first new pair not yet merged
+		while (j < pairs.size()) {
+			// the new pairs of one arcana pair go before the first kept pair of a later one
+			int order = arcanaPairOrder(pairs.get(j), arcIndexes);
+			int end = j + 1;
+			while (end < pairs.size() && arcanaPairOrder(pairs.get(end), arcIndexes) == order) {
+				end++;
+			}
+			int low = i;
+			int high = kept;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (arcanaPairOrder(pairs.get(mid), arcIndexes) < order) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			merged.addAll(pairs.subList(i, low));
+			merged.addAll(pairs.subList(j, end));
+			i = low;
+			j = end;
+		}
+		merged.addAll(pairs.subList(i, kept));
+		return merged;
+	}
+
+	/**
+	 * private helper method that returns the position of the pair of arcanas of a fusion in the
+	 * order calculateFusions calculates the arcana pairs in
+	 * 
+	 * @param pair The ingredients of the fusion
+	 * @param arcIndexes A map from each arcana name to its index in the order of arcanas.keySet()
+	 * @return A number that is smaller for arcana pairs calculated earlier
+	 */
+	private static int arcanaPairOrder(Pair pair, HashMap<String, Integer> arcIndexes) {
+		int arc1 = arcIndexes.get(pair.getP1().getArcana());
+		int arc2 = arcIndexes.get(pair.getP2().getArcana());
+		return Math.min(arc1, arc2) * arcIndexes.size() + Math.max(arc1, arc2);
+	}
+
+	/**
+	 * private helper method that gives the personas new dense ids and moves their fusions in
+	 * fusionMatrix to the new ids
+	 * 
+	 * @param personaList The personas in their new order
+	 * @return An array that maps every old id to the new id of the persona with the same name,
+	 * 		   or -1 if it is not in personaList
+	 * @modifies personaTable, personaIds, fusionMatrix
+	 * @effects the persona at index i of personaList gets the id i, and every fusion between
+	 * 			two personas of personaList resulting in one is kept in fusionMatrix
+	 */
+	private int[] renumber(List<Persona> personaList) {
+		Persona[] oldTable = personaTable;
+		int[] oldMatrix = fusionMatrix;
+		int oldN = oldTable.length;
+		personaIds.clear();
+		assignIds(personaList);
+		clearFusionMatrix();
+
+		int[] newIds = new int[oldN];
+		for (int i = 0; i < oldN; i++) {
+			Integer id = personaIds.get(oldTable[i].getName());
+			newIds[i] = id == null ? -1 : id;
+		}
+		int n = personaTable.length;
+		for (int i = 0; i < oldN; i++) {
+			for (int j = 0; j < oldN; j++) {
+				int result = oldMatrix[i * oldN + j];
+				if (result >= 0 && newIds[i] >= 0 && newIds[j] >= 0 && newIds[result] >= 0) {
+					fusionMatrix[newIds[i] * n + newIds[j]] = newIds[result];
+				}
+			}
+		}
+		return newIds;
+	}
+
+	/**
+	 * private helper method that gives every persona a dense id
+	 * 
+	 * @param personaList The personas in the order they were loaded
+	 * @modifies personaTable, personaIds, personaRows
+	 * @effects the persona at index i of personaList gets the id i
+	 */
+	private void assignIds(List<Persona> personaList) {
+		personaTable = personaList.toArray(new Persona[personaList.size()]);
+		for (int i = 0; i < personaTable.length; i++) {
+			personaIds.put(personaTable[i].getName(), i);
+		}
+		personaRows = PersonaTable.inOrder(personaTable);
+	}
+
+	/**
+	 * private helper method that sizes fusionMatrix for the personas of personaTable
+	 * 
+	 * @modifies fusionMatrix
+	 * @effects fusionMatrix has an entry for every pair of personas and no fusions in it
+	 */
+	private void clearFusionMatrix() {
+		fusionMatrix = new int[personaTable.length * personaTable.length];
+		Arrays.fill(fusionMatrix, -1);
+	}
+
+	/**
+	 * private helper method that fills fusionMatrix from a fusionResults map that was read 
+	 * from a snapshot
+	 * 
+	 * @modifies fusionMatrix
+	 * @effects adds an entry to fusionMatrix for every fusion in fusionResults
+	 */
+	private void restoreFusions() {
+		int n = personaTable.length;
+		for (int i = 0; i < n; i++) {
+			List<Pair> pairs = fusionResults.get(personaTable[i].getName());
+			if (pairs != null) {
+				for (Pair pair : pairs) {
+					int id1 = personaIds.get(pair.getP1().getName());
+					int id2 = personaIds.get(pair.getP2().getName());
+					fusionMatrix[id1 * n + id2] = i;
+					fusionMatrix[id2 * n + id1] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that builds the id-based views of fusionResults and fusionMatrix
+	 * once all the fusions have been calculated
+	 * 
+	 * @modifies fusionPairIds, includedFusionIds, relatedFusionIds, ingredientBits,
+	 * 			 ingredientPairBits, personaNames, arcanaNames
+	 * @effects fills fusionPairIds with the ingredient ids of every fusion in fusionResults, 
+	 * 			includedFusionIds and relatedFusionIds with the fusion partners of every persona,
+	 * 			the bitsets with the ids in fusionPairIds and the name indexes
+	 */
+	private void indexFusions() {
+		fusionPairIds = new int[personaTable.length][];
+		for (int i = 0; i < personaTable.length; i++) {
+			fusionPairIds[i] = indexPairs(i);
+		}
+		indexFusionTables();
+	}
+
+	/**
+	 * private helper method that builds the indexes that are derived from fusionPairIds and
+	 * fusionMatrix
+	 * 
+	 * @modifies includedFusionIds, relatedFusionIds, ingredientBits, ingredientPairBits,
+	 * 			 personaNames, arcanaNames
+	 * @effects fills includedFusionIds and relatedFusionIds with the fusion partners of every
+	 * 			persona, the bitsets with the ids in fusionPairIds and the name indexes
+	 */
+	private void indexFusionTables() {
+		indexPartners();
+		indexRelatedFusions();
+		indexBits();
+		indexNames();
+	}
+
+	/**
+	 * private helper method that returns the ingredient ids of the fusions in fusionResults
+	 * that make a persona, in the layout of fusionPairIds
+	 * 
+	 * @param id The id of the persona
+	 * @return An array with the ids of the two ingredients of every fusion that makes the persona
+	 */
+	private int[] indexPairs(int id) {
+		List<Pair> pairs = fusionResults.get(personaTable[id].getName());
+		if (pairs == null) {
+			return new int[0];
+		}
+		int[] pairIds = new int[pairs.size() * 2];
+		for (int j = 0; j < pairs.size(); j++) {
+			pairIds[2 * j] = personaIds.get(pairs.get(j).getP1().getName());
+			pairIds[2 * j + 1] = personaIds.get(pairs.get(j).getP2().getName());
+		}
+		return pairIds;
+	}
+
+	/**
+	 * private helper method that builds includedFusionIds from fusionMatrix
+	 * 
+	 * @modifies includedFusionIds
+	 * @effects fills includedFusionIds with the ids of the fusion partners of every persona
+	 */
+	private void indexPartners() {
+		int n = personaTable.length;
+		includedFusionIds = new int[n][];
+		for (int i = 0; i < n; i++) {
+			// the partners of i are the non-empty entries of row i, already in id order
+			int count = 0;
+			for (int j = 0; j < n; j++) {
+				if (fusionMatrix[i * n + j] >= 0) {
+					count++;
+				}
+			}
+			includedFusionIds[i] = new int[count];
+			count = 0;
+			for (int j = 0; j < n; j++) {
+				if (fusionMatrix[i * n + j] >= 0) {
+					includedFusionIds[i][count++] = j;
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that builds the name indexes of the personas and the arcanas
+	 * 
+	 * @modifies personaNames, arcanaNames
+	 * @effects fills personaNames with the names of the personas and arcanaNames with the names
+	 * 			of the arcanas
+	 */
+	private void indexNames() {
+		personaNames = new NameIndex(personaIds.keySet());
+		if (arcanaNames == null) { // the arcanas never change
+			arcanaNames = new NameIndex(arcanas.keySet());
+		}
+	}
+
+	/**
+	 * private helper method that builds relatedFusionIds from includedFusionIds and fusionMatrix
+	 * 
+	 * @modifies relatedFusionIds, relatedFusionStarts
+	 * @effects fills relatedFusionIds with the partner and result of every fusion of every
+	 * 			persona, ordered by the base level of the result
+	 */
+	private void indexRelatedFusions() {
+		int n = personaTable.length;
+		relatedFusionStarts = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			relatedFusionStarts[i + 1] = relatedFusionStarts[i] + includedFusionIds[i].length;
+		}
+		relatedFusionIds = new int[2 * relatedFusionStarts[n]];
+		for (int i = 0; i < n; i++) {
+			// sort (level, result, partner) keys packed into longs; ids and levels fit in 21 bits
+			int[] partners = includedFusionIds[i];
+			long[] keys = new long[partners.length];
+			for (int j = 0; j < partners.length; j++) {
+				int result = fusionMatrix[i * n + partners[j]];
+				keys[j] = (long) personaTable[result].getBaseLevel() << 42 | (long) result << 21 | partners[j];
+			}
+			Arrays.sort(keys);
+			int k = 2 * relatedFusionStarts[i];
+			for (long key : keys) {
+				relatedFusionIds[k++] = (int) key & 0x1FFFFF;
+				relatedFusionIds[k++] = (int) (key >>> 21) & 0x1FFFFF;
+			}
+		}
+	}
+
+	/**
+	 * private helper method that builds ingredientBits and ingredientPairBits from fusionPairIds
+	 * and guillotineBits from the guillotine fusions of the personas
+	 * 
+	 * @modifies bitWords, ingredientBits, ingredientPairBits, ingredientPairStarts, guillotineBits
+	 * @effects fills the bitsets with the ids in fusionPairIds and the guillotine fusions
+	 */
+	private void indexBits() {
+		int n = personaTable.length;
+		bitWords = (n + 63) >>> 6;
+		ingredientBits = new long[n * bitWords];
+		ingredientPairStarts = new int[n];
+		guillotineBits = new long[n * bitWords];
+		int total = 0;
+		for (int r = 0; r < n; r++) {
+			ingredientPairStarts[r] = total;
+			if (personaTable[r].getSpecialCase().equals("guillotine")) {
+				indexGuillotineFusion(r);
+				continue;
+			}
+			// getFusions hides the fusions of treasure demons, so a roster can't make them either
+			if (personaTable[r].getSpecialCase().equals("treasure")) {
+				continue;
+			}
+			int row = r * bitWords;
+			for (int id : fusionPairIds[r]) {
+				ingredientBits[row + (id >>> 6)] |= 1L << id;
+			}
+			total += countIngredients(r) * bitWords;
+		}
+		ingredientPairBits = new long[total];
+		for (int r = 0; r < n; r++) {
+			int[] pairIds = fusionPairIds[r];
+			if (countIngredients(r) == 0) { // no fusions, or hidden ones
+				continue;
+			}
+			for (int i = 0; i < pairIds.length; i += 2) {
+				int p1 = pairIds[i];
+				int p2 = pairIds[i + 1];
+				ingredientPairBits[ingredientPairStarts[r] + ingredientRank(r, p1) * bitWords + (p2 >>> 6)] |= 1L << p2;
+				ingredientPairBits[ingredientPairStarts[r] + ingredientRank(r, p2) * bitWords + (p1 >>> 6)] |= 1L << p1;
+			}
+		}
+	}
+
+	/**
+	 * private helper method that fills row r of guillotineBits with the ids of the ingredients
+	 * of the guillotine fusion of r, or leaves it empty if one of them is not a persona
+	 */
+	private void indexGuillotineFusion(int r) {
+		long[] row = new long[bitWords];
+		for (String name : personaTable[r].getSpecialFusion()) {
+			Integer id = personaIds.get(name);
+			if (id == null) {
+				return;
+			}
+			row[id >>> 6] |= 1L << id;
+		}
+		System.arraycopy(row, 0, guillotineBits, r * bitWords, bitWords);
+	}
+
+	/**
+	 * private helper method that returns the number of ids in row r of ingredientBits
+	 */
+	private int countIngredients(int r) {
+		int count = 0;
+		for (int w = 0; w < bitWords; w++) {
+			count += Long.bitCount(ingredientBits[r * bitWords + w]);
+		}
+		return count;
+	}
+
+	/**
+	 * private helper method that returns the number of ids lower than id in row r of
+	 * ingredientBits
+	 */
+	private int ingredientRank(int r, int id) {
+		int row = r * bitWords;
+		int rank = 0;
+		for (int w = 0; w < id >>> 6; w++) {
+			rank += Long.bitCount(ingredientBits[row + w]);
+		}
+		return rank + Long.bitCount(ingredientBits[row + (id >>> 6)] & ((1L << id) - 1));
+	}
+
+	/**
+	 * The fusions between the personas of a pair of arcanas, as consecutive (result, first
+	 * ingredient, second ingredient) ids, with the number of fusions of every result and of
+	 * every kind.
+	 */
+	private static class FusionBlock {
+
+		private final int[] fusions;
+
+		// the number of fusions of each result id, then the offset the first of them is stored at
+		private final int[] offsets;
+
+		private long da;
+		private long sa;
+		private long treasure;
+
+		/**
+		 * @effects Constructs a FusionBlock for length / 3 fusions between personaCount personas
+		 */
+		FusionBlock(int length, int personaCount) {
+			fusions = new int[length];
+			offsets = new int[personaCount];
+		}
+	}
+
+	/**
+	 * A fork/join task that runs a body for a range of indexes, splitting the range in halves
+	 * until it is a single index.
+	 */
+	private static class IndexRangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from; // first index of the range, inclusive
+		private final int to; // last index of the range, exclusive
+		private final IntConsumer body;
+
+		/**
+		 * @effects Constructs a task that runs body for every index in [from, to)
+		 */
+		IndexRangeTask(int from, int to, IntConsumer body) {
+			this.from = from;
+			this.to = to;
+			this.body = body;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				if (to > from) {
+					body.accept(from);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new IndexRangeTask(from, mid, body), new IndexRangeTask(mid, to, body));
+		}
+	}
 }
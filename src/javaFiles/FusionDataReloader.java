@@ -0,0 +1,298 @@
+package javaFiles;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * FusionDataReloader holds the current Data, the frozen FusionDataGraphs with and without dlc
+ * personas built from the data files in a directory, and replaces it when the data files change.
+ * A reload builds new Data in full and then publishes it through an AtomicReference, so a query
+ * that got the current Data with get() finishes on it and never sees a partly built graph. A
+ * reload that fails, for example because a data file is malformed, is rejected and the old Data
+ * stays current.
+ *
+ * Reloads are made by reload(), or by a background thread that watches the data directory once
+ * watch() has been called. Every published Data has a version one more than the one before it, and
+ * the version, the duration of the last reload and the number of failed reloads are also recorded
+ * in FusionMetrics.
+ */
+public class FusionDataReloader implements Closeable {
+
+	// how long the data files must be left alone before a change is reloaded, so that a file that
+	// is written in several steps is only reloaded once it is complete
+	public static final long QUIET_MILLIS = 200;
+
+	private static final List<String> DATA_FILES = Arrays.asList(FusionDataGraph.PERSONA_DATA,
+			FusionDataGraph.POSSIBLE_FUSIONS, FusionDataGraph.TREASURE_FUSIONS);
+
+	private final String dataDir;
+	private final AtomicReference<Data> current;
+	private WatchService watchService;
+	private Thread watcher;
+
+	// Abstraction Function:
+	// A FusionDataReloader r serves current.get(), built from the data files in dataDir, or given
+	// to it if dataDir == null. While r watches dataDir, watchService and watcher are not null.
+	//
+	// Representation Invariant for every FusionDataReloader r:
+	// current.get() != null && current.get().version >= 1 &&
+	// (watcher == null) == (watchService == null)
+
+	/**
+	 * Data is an immutable set of the FrozenFusionData with and without dlc personas and the
+	 * RecipeRankings of their fusions, sorted up front so that they are only ever read.
+	 */
+	public static final class Data {
+
+		public final FrozenFusionData dlcData; // includes dlc personas
+		public final FrozenFusionData baseData; // excludes dlc personas
+		public final RecipeRanking dlcRanking;
+		public final RecipeRanking baseRanking;
+		public final long version;
+
+		/**
+		 * @param dlcData The FusionDataGraph that includes dlc personas
+		 * @param baseData The FusionDataGraph that excludes dlc personas
+		 * @param version The version of the Data
+		 * @effects Constructs a Data of frozen copies of dlcData and baseData with their sorted
+		 * 			RecipeRankings
+		 */
+		Data(FusionDataGraph dlcData, FusionDataGraph baseData, long version) {
+			this(dlcData.freeze(), baseData.freeze(), version);
+		}
+
+		/**
+		 * @param dlcData The FrozenFusionData that includes dlc personas
+		 * @param baseData The FrozenFusionData that excludes dlc personas
+		 * @param version The version of the Data
+		 * @effects Constructs a Data of dlcData and baseData with their sorted RecipeRankings
+		 */
+		Data(FrozenFusionData dlcData, FrozenFusionData baseData, long version) {
+			this.dlcData = dlcData;
+			this.baseData = baseData;
+			this.dlcRanking = new RecipeRanking(this.dlcData, FusionCost.MAX_INGREDIENT_LEVEL);
+			this.dlcRanking.sortAll();
+			this.baseRanking = new RecipeRanking(this.baseData, FusionCost.MAX_INGREDIENT_LEVEL);
+			this.baseRanking.sortAll();
+			this.version = version;
+		}
+
+		/**
+		 * @param dlc Whether the dlc personas are included
+		 * @return dlcData if dlc is true and baseData otherwise
+		 */
+		public FrozenFusionData getData(boolean dlc) {
+			return dlc ? dlcData : baseData;
+		}
+
+		/**
+		 * @param dlc Whether the dlc personas are included
+		 * @return dlcRanking if dlc is true and baseRanking otherwise
+		 */
+		public RecipeRanking getRanking(boolean dlc) {
+			return dlc ? dlcRanking : baseRanking;
+		}
+	}
+
+	/**
+	 * @param dataDir The directory that contains personaData.txt, possibleFusions.txt and
+	 * 		  treasureFusions.txt, ending in a path separator
+	 * @throws IllegalArgumentException if dataDir == null
+	 * @throws UncheckedIOException if the data files can't be read or are malformed
+	 * @effects Constructs a FusionDataReloader whose first Data is built from the data files in
+	 * 			dataDir, loaded from their snapshot files when those are up to date
+	 */
+	public FusionDataReloader(String dataDir) throws IllegalArgumentException {
+		if (dataDir == null) {
+			throw new IllegalArgumentException();
+		}
+		this.dataDir = dataDir;
+		long start = System.nanoTime();
+		this.current = new AtomicReference<Data>(build(1));
+		FusionMetrics.get().recordReload(1, System.nanoTime() - start);
+		checkRep();
+	}
+
+	/**
+	 * @param dlcData The FusionDataGraph that includes dlc personas
+	 * @param baseData The FusionDataGraph that excludes dlc personas
+	 * @effects Constructs a FusionDataReloader that always serves frozen copies of dlcData and
+	 * 			baseData, as the Data with version 1
+	 */
+	public FusionDataReloader(FusionDataGraph dlcData, FusionDataGraph baseData) {
+		this.dataDir = null;
+		this.current = new AtomicReference<Data>(new Data(dlcData, baseData, 1));
+		checkRep();
+	}
+
+	/**
+	 * This method can be called from any thread.
+	 *
+	 * @return The current Data
+	 */
+	public Data get() {
+		return current.get();
+	}
+
+	/**
+	 * @return The version of the current Data
+	 */
+	public long getVersion() {
+		return current.get().version;
+	}
+
+	/**
+	 * Builds new Data from the data files and publishes it, or keeps the current Data if the data
+	 * files can't be read, are malformed or have no personas. Only one reload runs at a time; the
+	 * current Data keeps answering queries while it does.
+	 *
+	 * @return true if the new Data was published and false if the reload was rejected
+	 * @throws IllegalStateException if this FusionDataReloader has no data directory
+	 * @modifies this
+	 * @effects replaces the current Data with Data built from the data files, with the next version
+	 */
+	public synchronized boolean reload() throws IllegalStateException {
+		if (dataDir == null) {
+			throw new IllegalStateException("no data directory to reload from");
+		}
+		long start = System.nanoTime();
+		long version = current.get().version + 1;
+		Data data;
+		try {
+			data = build(version);
+		} catch (RuntimeException e) {
+			FusionMetrics.get().reloadFailed();
+			System.err.println("reload rejected, keeping version " + (version - 1) + ": " + e);
+			return false;
+		}
+		current.set(data);
+		FusionMetrics.get().recordReload(version, System.nanoTime() - start);
+		checkRep();
+		return true;
+	}
+
+	/**
+	 * Starts a daemon thread that watches the data directory and reloads once the data files have
+	 * been left alone for QUIET_MILLIS after a change. Other files in the directory, such as the
+	 * snapshot files a reload writes, are ignored.
+	 *
+	 * @throws IOException if the data directory can't be watched
+	 * @throws IllegalStateException if this FusionDataReloader has no data directory or already
+	 * 		   watches it
+	 * @modifies this
+	 * @effects starts watching the data directory
+	 */
+	public synchronized void watch() throws IOException, IllegalStateException {
+		if (dataDir == null || watcher != null) {
+			throw new IllegalStateException();
+		}
+		WatchService ws = FileSystems.getDefault().newWatchService();
+		try {
+			Paths.get(dataDir).register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			ws.close();
+			throw e;
+		}
+		watchService = ws;
+		watcher = new Thread(() -> watchLoop(ws), "FusionDataReloader");
+		watcher.setDaemon(true);
+		watcher.start();
+		checkRep();
+	}
+
+	/**
+	 * Stops watching the data directory. The current Data stays available.
+	 *
+	 * @modifies this
+	 * @effects stops the thread started by watch(), if any
+	 */
+	@Override
+	public synchronized void close() {
+		if (watcher != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				System.err.println(e.toString());
+			}
+			watcher.interrupt();
+			watcher = null;
+			watchService = null;
+		}
+	}
+
+	/**
+	 * private helper method that builds the Data for the data files in dataDir
+	 *
+	 * @throws UncheckedIOException if the data files can't be read or are malformed
+	 * @throws IllegalStateException if the data files have no personas
+	 */
+	private Data build(long version) {
+		FusionDataGraph baseData = FusionDataGraph.load(dataDir, false, dataDir + FusionDataGraph.SNAPSHOT);
+		if (baseData.getPersonaCount() == 0) {
+			throw new IllegalStateException("no personas in " + dataDir + FusionDataGraph.PERSONA_DATA);
+		}
+		FusionDataGraph dlcData = FusionDataGraph.load(dataDir, true, dataDir + FusionDataGraph.DLC_SNAPSHOT);
+		// nothing else holds the two FusionDataGraphs, so they are frozen without copying them
+		return new Data(dlcData.freezeInPlace(), baseData.freezeInPlace(), version);
+	}
+
+	/**
+	 * private helper method run by the watcher thread until ws is closed
+	 */
+	private void watchLoop(WatchService ws) {
+		try {
+			while (true) {
+				if (!changesDataFile(ws.take())) {
+					continue;
+				}
+				// wait until the data files have been left alone for QUIET_MILLIS
+				for (WatchKey key = ws.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS); key != null;
+						key = ws.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) {
+					changesDataFile(key);
+				}
+				reload();
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// close() was called
+		}
+	}
+
+	/**
+	 * private helper method that returns true if one of the events of key is about a data file,
+	 * and resets key
+	 */
+	private static boolean changesDataFile(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| (context instanceof Path && DATA_FILES.contains(context.toString()))) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (current.get() != null) : "current is null";
+		assert (current.get().version >= 1) : "version is less than 1";
+		assert ((watcher == null) == (watchService == null)) : "watcher and watchService disagree";
+	}
+}
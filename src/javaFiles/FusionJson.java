@@ -0,0 +1,304 @@
+package javaFiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utility to write the results of fusion queries as JSON, shared by the query front ends.
+ */
+public class FusionJson {
+
+	// the names of the weaknesses/resistances, in the order of Persona.getWR()
+	private static final String[] ELEMENTS = {"phys", "gun", "fire", "ice", "elec", "wind",
+			"psych", "nucl", "bless", "curse"};
+
+	// the names of the stats, in the order of Persona.getStats()
+	private static final String[] STATS = {"strength", "magic", "endurance", "agility", "luck"};
+
+	/**
+	 * Writes a persona in the form:
+	 * {"name":..., "arcana":..., "baseLevel":..., "stats":{"strength":..., ...},
+	 *  "affinities":{"phys":..., ...}, "type":..., "guillotineFusion":[...]}
+	 * where type is "regular", "dlc", "treasure" or "guillotine" and guillotineFusion is only
+	 * present for guillotine-only personas.
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param p The persona to write
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writePersona(JsonWriter json, Persona p) throws IOException {
+		json.beginObject();
+		json.name("name").value(p.getName());
+		json.name("arcana").value(p.getArcana());
+		json.name("baseLevel").value(p.getBaseLevel());
+
+		json.name("stats").beginObject();
+		for (int i = 0; i < PersonaTable.STATS; i++) {
+			json.name(STATS[i]).value(p.getStat(i));
+		}
+		json.endObject();
+
+		json.name("affinities").beginObject();
+		for (int i = 0; i < PersonaTable.ELEMENTS; i++) {
+			json.name(ELEMENTS[i]).value(p.getAffinity(i).getCode());
+		}
+		json.endObject();
+
+		json.name("type").value(p.getSpecialCase().equals("") ? "regular" : p.getSpecialCase());
+		if (p.getSpecialFusion() != null) {
+			json.name("guillotineFusion");
+			writeNames(json, p.getSpecialFusion());
+		}
+		json.endObject();
+	}
+
+	/**
+	 * Writes a short reference to a persona in the form:
+	 * {"name":..., "arcana":..., "baseLevel":...}
+	 * or null if p == null
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param p The persona to write, or null
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writePersonaRef(JsonWriter json, Persona p) throws IOException {
+		if (p == null) {
+			json.nullValue();
+			return;
+		}
+		json.beginObject();
+		json.name("name").value(p.getName());
+		json.name("arcana").value(p.getArcana());
+		json.name("baseLevel").value(p.getBaseLevel());
+		json.endObject();
+	}
+
+	/**
+	 * Writes a list of pairs of ingredient personas in the form:
+	 * [{"p1":{persona ref}, "p2":{persona ref}}, ...]
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param pairs The pairs to write
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writePairs(JsonWriter json, List<Pair> pairs) throws IOException {
+		json.beginArray();
+		for (Pair pair : pairs) {
+			json.beginObject();
+			json.name("p1");
+			writePersonaRef(json, pair.getP1());
+			json.name("p2");
+			writePersonaRef(json, pair.getP2());
+			json.endObject();
+		}
+		json.endArray();
+	}
+
+	/**
+	 * Writes the names of all the arcanas, sorted, in the form:
+	 * {"arcanas":[...]}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param fd The FusionData from which data will be drawn
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeArcanas(JsonWriter json, FusionData fd) throws IOException {
+		List<String> arcanas = new ArrayList<String>(fd.getAllArcana());
+		Collections.sort(arcanas);
+		json.beginObject().name("arcanas");
+		writeNames(json, arcanas);
+		json.endObject();
+	}
+
+	/**
+	 * Writes the completions of a name in the form:
+	 * {"names":[name, ...]}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param names The completions
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeCompletions(JsonWriter json, List<String> names) throws IOException {
+		json.beginObject().name("names");
+		writeNames(json, names);
+		json.endObject();
+	}
+
+	/**
+	 * Writes the personas in an arcana in the form:
+	 * {"arcana":..., "personas":[{persona}, ...]}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param fd The FusionData from which data will be drawn
+	 * @param arcana The name of the arcana
+	 * @requires arcana is a valid arcana name
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeArcana(JsonWriter json, FusionData fd, String arcana) throws IOException {
+		json.beginObject().name("arcana").value(arcana).name("personas").beginArray();
+		for (Persona p : fd.viewArcPersonas(arcana)) {
+			writePersona(json, p);
+		}
+		json.endArray().endObject();
+	}
+
+	/**
+	 * Writes a slice of the fusions that make p, cheapest first, in the form:
+	 * {"persona":..., "count":..., "fusions":[pairs]}
+	 * where fusions is null if p is a treasure demon, or in the form:
+	 * {"persona":..., "guillotineFusion":[...]}
+	 * if p is a guillotine-only persona.
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param fd The FusionData from which data will be drawn
+	 * @param ranking The RecipeRanking of fd that orders the fusions
+	 * @param p The persona for which the fusions will be written
+	 * @param offset The number of cheaper fusions to skip
+	 * @param limit The most fusions that will be written
+	 * @requires p is a persona of fd, offset >= 0 and limit >= 0
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeFusionsTo(JsonWriter json, FusionData fd, RecipeRanking ranking, Persona p,
+			int offset, int limit) throws IOException {
+		json.beginObject().name("persona").value(p.getName());
+		if (p.getSpecialCase().equals("guillotine")) {
+			json.name("guillotineFusion");
+			writeNames(json, fd.viewGuillotineFusion(p.getName()));
+		} else {
+			List<Pair> pairs = ranking.getRecipes(p.getName(), offset, limit);
+			json.name("count").value(pairs == null ? 0 : ranking.getRecipeCount(p.getName()));
+			json.name("fusions");
+			if (pairs == null) { // treasure demons cannot be fused
+				json.nullValue();
+			} else {
+				writePairs(json, pairs);
+			}
+		}
+		json.endObject();
+	}
+
+	/**
+	 * Writes the result of a fusion between p1 and p2 in the form:
+	 * {"p1":{persona ref}, "p2":{persona ref}, "result":{persona ref} or null}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param fd The FusionData from which data will be drawn
+	 * @param p1 The first ingredient persona
+	 * @param p2 The second ingredient persona
+	 * @requires p1 and p2 are personas of fd
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeFusionResult(JsonWriter json, FusionData fd, Persona p1, Persona p2)
+			throws IOException {
+		json.beginObject();
+		json.name("p1");
+		writePersonaRef(json, p1);
+		json.name("p2");
+		writePersonaRef(json, p2);
+		json.name("result");
+		writePersonaRef(json, fd.getFusionResult(p1.getName(), p2.getName()));
+		json.endObject();
+	}
+
+	/**
+	 * Writes the fusions p is an ingredient of, ordered by the base level of the result, in the
+	 * form:
+	 * {"persona":..., "fusions":[{"partner":{persona ref}, "result":{persona ref}}, ...]}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param fd The FusionData from which data will be drawn
+	 * @param p The ingredient persona
+	 * @requires p is a persona of fd
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeRelatedFusions(JsonWriter json, FusionData fd, Persona p) throws IOException {
+		int id = fd.getPersonaId(p.getName());
+		json.beginObject().name("persona").value(p.getName()).name("fusions").beginArray();
+		int count = fd.getRelatedFusionCount(id);
+		for (int i = 0; i < count; i++) {
+			writeRelatedFusion(json, fd, fd.getRelatedPartnerId(id, i), fd.getRelatedResultId(id, i));
+		}
+		json.endArray().endObject();
+	}
+
+	/**
+	 * Writes the fusions p is an ingredient of that make a persona of arcana with a base level
+	 * from minLevel to maxLevel, in the form of writeRelatedFusions(JsonWriter, FusionData,
+	 * Persona)
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param fd The FusionData from which data will be drawn
+	 * @param p The ingredient persona
+	 * @param arcana The arcana of the results, or null for every arcana
+	 * @param minLevel The lowest base level of the results
+	 * @param maxLevel The highest base level of the results
+	 * @requires p is a persona of fd
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeRelatedFusions(JsonWriter json, FusionData fd, Persona p, String arcana,
+			int minLevel, int maxLevel) throws IOException {
+		int[] related = fd.getRelatedFusions(fd.getPersonaId(p.getName()), arcana, minLevel, maxLevel);
+		json.beginObject().name("persona").value(p.getName()).name("fusions").beginArray();
+		for (int i = 0; i < related.length; i += 2) {
+			writeRelatedFusion(json, fd, related[i], related[i + 1]);
+		}
+		json.endArray().endObject();
+	}
+
+	/**
+	 * private helper method that writes one fusion of writeRelatedFusions
+	 */
+	private static void writeRelatedFusion(JsonWriter json, FusionData fd, int partner, int result)
+			throws IOException {
+		json.beginObject();
+		json.name("partner");
+		writePersonaRef(json, fd.getPersona(partner));
+		json.name("result");
+		writePersonaRef(json, fd.getPersona(result));
+		json.endObject();
+	}
+
+	/**
+	 * Writes an error in the form:
+	 * {"error":message}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param message The error message
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeError(JsonWriter json, String message) throws IOException {
+		json.beginObject().name("error").value(message).endObject();
+	}
+
+	/**
+	 * Writes the version of the data served in the form:
+	 * {"version":..., "lastReloadNanos":..., "failedReloads":...}
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param version The version of the data
+	 * @param metrics The FusionMetrics the reload duration and failures are taken from
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeVersion(JsonWriter json, long version, FusionMetrics metrics) throws IOException {
+		json.beginObject().name("version").value(version)
+				.name("lastReloadNanos").value(metrics.getLastReloadNanos())
+				.name("failedReloads").value(metrics.getFailedReloads()).endObject();
+	}
+
+	/**
+	 * Writes a list of strings as a JSON array
+	 *
+	 * @param json The JsonWriter to write to
+	 * @param names The strings to write
+	 * @throws IOException if the JsonWriter throws an IOException
+	 */
+	public static void writeNames(JsonWriter json, Iterable<String> names) throws IOException {
+		json.beginArray();
+		for (String name : names) {
+			json.value(name);
+		}
+		json.endArray();
+	}
+}
@@ -0,0 +1,185 @@
+package javaFiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FusionLoadGenerator sends a mix of queries to a running FusionServer from several threads for
+ * a fixed amount of time, then prints the number of requests per second and the p50, p99, p99.9
+ * and maximum latencies.
+ *
+ * Usage: FusionLoadGenerator [base url] [threads] [seconds]
+ * (defaults: http://localhost:8080 8 10)
+ */
+public class FusionLoadGenerator {
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:" + FusionServer.DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		List<String> names = fetchPersonaNames(client, baseUrl);
+		List<URI> requests = buildRequests(baseUrl, names, new Random(42));
+		System.out.println("Sending " + requests.size() + " distinct requests from " + threads +
+				" threads for " + seconds + " s to " + baseUrl);
+
+		long end = System.nanoTime() + seconds * 1000000000L;
+		AtomicLong errors = new AtomicLong();
+		long[][] latencies = new long[threads][];
+		int[] counts = new int[threads];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			workers[t] = new Thread(() -> {
+				long[] recorded = new long[1 << 16];
+				int count = 0;
+				int next = id;
+				while (System.nanoTime() < end) {
+					HttpRequest request = HttpRequest.newBuilder(requests.get(next % requests.size())).build();
+					next += threads;
+					long start = System.nanoTime();
+					try {
+						HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+						if (response.statusCode() != 200) {
+							errors.incrementAndGet();
+						}
+					} catch (IOException | InterruptedException e) {
+						errors.incrementAndGet();
+					}
+					if (count == recorded.length) {
+						recorded = Arrays.copyOf(recorded, count * 2);
+					}
+					recorded[count++] = System.nanoTime() - start;
+				}
+				latencies[id] = recorded;
+				counts[id] = count;
+			});
+			workers[t].start();
+		}
+
+		long total = 0;
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+			total += counts[t];
+		}
+		long[] all = new long[(int) total];
+		int pos = 0;
+		for (int t = 0; t < threads; t++) {
+			System.arraycopy(latencies[t], 0, all, pos, counts[t]);
+			pos += counts[t];
+		}
+		Arrays.sort(all);
+
+		System.out.printf("requests: %d (%d errors), %.0f requests/s%n", total, errors.get(),
+				total / (double) seconds);
+		System.out.printf("latency p50: %.3f ms, p99: %.3f ms, p99.9: %.3f ms, max: %.3f ms%n",
+				percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), percentile(all, 1.0));
+	}
+
+	/**
+	 * private helper method that asks the server for the names of the personas that exist with
+	 * and without dlc
+	 */
+	private static List<String> fetchPersonaNames(HttpClient client, String baseUrl) throws Exception {
+		List<String> names = new ArrayList<String>();
+		String arcanas = get(client, baseUrl + "/arcanas?dlc=false");
+		for (String arc : stringValues(arcanas, null)) {
+			String personas = get(client, baseUrl + "/arcana?dlc=false&name=" + encode(arc));
+			names.addAll(stringValues(personas, "\"name\":"));
+		}
+		return names;
+	}
+
+	/**
+	 * private helper method that builds a mix of requests over the given persona names, weighted
+	 * towards the cheap lookups like the interactive calculator is
+	 */
+	private static List<URI> buildRequests(String baseUrl, List<String> names, Random rnd) {
+		List<URI> requests = new ArrayList<URI>();
+		for (int i = 0; i < 4096; i++) {
+			String n1 = encode(names.get(rnd.nextInt(names.size())));
+			String n2 = encode(names.get(rnd.nextInt(names.size())));
+			String dlc = rnd.nextBoolean() ? "true" : "false";
+			int kind = rnd.nextInt(10);
+			String path;
+			if (kind < 4) {
+				path = "/fusion-result?p1=" + n1 + "&p2=" + n2;
+			} else if (kind < 6) {
+				path = "/persona?name=" + n1;
+			} else if (kind < 8) {
+				path = "/fusions-to?name=" + n1 + "&limit=20";
+			} else if (kind < 9) {
+				path = "/related-fusions?name=" + n1;
+			} else {
+				path = "/arcanas?x=";
+			}
+			requests.add(URI.create(baseUrl + path + "&dlc=" + dlc));
+		}
+		return requests;
+	}
+
+	/**
+	 * private helper method that returns the body of a GET request
+	 */
+	private static String get(HttpClient client, String url) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+	}
+
+	/**
+	 * private helper method that extracts the string values that follow marker in a JSON text,
+	 * or every string value in the first array if marker is null. It is only meant for the
+	 * responses of FusionServer, whose persona names contain no escaped characters.
+	 */
+	private static List<String> stringValues(String json, String marker) {
+		List<String> values = new ArrayList<String>();
+		if (marker == null) {
+			int start = json.indexOf('[');
+			int end = json.indexOf(']', start);
+			for (String token : json.substring(start + 1, end).split(",")) {
+				if (token.length() > 1) {
+					values.add(token.substring(1, token.length() - 1));
+				}
+			}
+		} else {
+			int from = 0;
+			while ((from = json.indexOf(marker, from)) >= 0) {
+				int start = from + marker.length() + 1;
+				int end = json.indexOf('"', start);
+				values.add(json.substring(start, end));
+				from = end;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * private helper method that URL-encodes a query parameter
+	 */
+	private static String encode(String s) {
+		return URLEncoder.encode(s, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * private helper method that returns the given percentile of sorted nanosecond latencies
+	 * in milliseconds
+	 */
+	private static double percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}
@@ -0,0 +1,187 @@
+package javaFiles;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * FusionMetrics collects the runtime metrics of the calculator in one place for the whole JVM:
+ * - the duration of every phase of the last build or load of each FusionDataGraph dataset, and
+ *   the number of fusions of each kind it calculated
+ * - a LatencyHistogram of every command or endpoint of the front ends
+ * - the number of lookups of persona names that are not valid
+ * - the version of the data served by a FusionDataReloader, how long its last reload took and
+ *   how many reloads it rejected
+ *
+ * Recording is lock-free, so it stays on under load. The metrics can be read through the
+ * getters, the stats command of the front ends, or JMX once register() has been called.
+ */
+public class FusionMetrics implements FusionMetricsMXBean {
+
+	public static final String OBJECT_NAME = "javaFiles:type=FusionMetrics";
+
+	private static final FusionMetrics INSTANCE = new FusionMetrics();
+
+	private final Map<String, Long> buildPhases;
+	private final Map<String, Long> fusionCounts;
+	private final Map<String, LatencyHistogram> commands;
+	private final LongAdder invalidLookups;
+	private volatile long dataVersion;
+	private volatile long lastReloadNanos;
+	private final LongAdder failedReloads;
+
+	/**
+	 * @effects Constructs a FusionMetrics with nothing recorded
+	 */
+	private FusionMetrics() {
+		buildPhases = new ConcurrentHashMap<String, Long>();
+		fusionCounts = new ConcurrentHashMap<String, Long>();
+		commands = new ConcurrentHashMap<String, LatencyHistogram>();
+		invalidLookups = new LongAdder();
+		failedReloads = new LongAdder();
+	}
+
+	/**
+	 * @return The FusionMetrics of this JVM
+	 */
+	public static FusionMetrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the FusionMetrics of this JVM with the platform MBean server under OBJECT_NAME,
+	 * unless it is already registered. Failures are reported on System.err.
+	 */
+	public static synchronized void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(INSTANCE, name);
+			}
+		} catch (JMException e) {
+			System.err.println(e.toString());
+		}
+	}
+
+	/**
+	 * @param dataset The dataset that was built or loaded, "dlc" or "nodlc"
+	 * @param phase The name of the phase
+	 * @param nanos The duration of the phase in nanoseconds
+	 * @modifies this
+	 * @effects records nanos as the last duration of phase for dataset
+	 */
+	public void recordPhase(String dataset, String phase, long nanos) {
+		buildPhases.put(dataset + "/" + phase, nanos);
+	}
+
+	/**
+	 * @param dataset The dataset that was built, "dlc" or "nodlc"
+	 * @param da The number of different-arcana fusions calculated
+	 * @param sa The number of same-arcana fusions calculated
+	 * @param treasure The number of fusions between a treasure demon and a non-treasure persona
+	 * @modifies this
+	 * @effects records the number of fusions of each kind in the last build of dataset
+	 */
+	public void recordFusionCounts(String dataset, long da, long sa, long treasure) {
+		fusionCounts.put(dataset + "/da", da);
+		fusionCounts.put(dataset + "/sa", sa);
+		fusionCounts.put(dataset + "/treasure", treasure);
+	}
+
+	/**
+	 * @param command The name of the command
+	 * @param nanos How long the command took, in nanoseconds
+	 * @modifies this
+	 * @effects adds nanos to the latencies of command
+	 */
+	public void recordCommand(String command, long nanos) {
+		LatencyHistogram histogram = commands.get(command);
+		if (histogram == null) {
+			histogram = commands.computeIfAbsent(command, c -> new LatencyHistogram());
+		}
+		histogram.record(nanos);
+	}
+
+	/**
+	 * @modifies this
+	 * @effects counts a persona or arcana name given by a user, through the calculator, the
+	 * 			server or a batch, that is not valid. Lookups made by the code itself aren't counted.
+	 */
+	public void invalidLookup() {
+		invalidLookups.increment();
+	}
+
+	/**
+	 * @param version The version of the data that was published
+	 * @param nanos How long the data took to build, in nanoseconds
+	 * @modifies this
+	 * @effects records version as the data version and nanos as the last reload duration
+	 */
+	public void recordReload(long version, long nanos) {
+		lastReloadNanos = nanos;
+		dataVersion = version;
+	}
+
+	/**
+	 * @modifies this
+	 * @effects counts a reload that was rejected
+	 */
+	public void reloadFailed() {
+		failedReloads.increment();
+	}
+
+	@Override
+	public Map<String, Long> getBuildPhases() {
+		return new TreeMap<String, Long>(buildPhases);
+	}
+
+	@Override
+	public Map<String, Long> getFusionCounts() {
+		return new TreeMap<String, Long>(fusionCounts);
+	}
+
+	@Override
+	public Map<String, LatencyHistogram.Summary> getCommandLatencies() {
+		Map<String, LatencyHistogram.Summary> result = new TreeMap<String, LatencyHistogram.Summary>();
+		for (Map.Entry<String, LatencyHistogram> entry : commands.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getSummary());
+		}
+		return result;
+	}
+
+	@Override
+	public long getInvalidLookups() {
+		return invalidLookups.sum();
+	}
+
+	@Override
+	public long getDataVersion() {
+		return dataVersion;
+	}
+
+	@Override
+	public long getLastReloadNanos() {
+		return lastReloadNanos;
+	}
+
+	@Override
+	public long getFailedReloads() {
+		return failedReloads.sum();
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram histogram : commands.values()) {
+			histogram.reset();
+		}
+		invalidLookups.reset();
+		failedReloads.reset();
+	}
+}
@@ -0,0 +1,55 @@
+package javaFiles;
+
+import java.util.Map;
+
+/**
+ * The management interface of FusionMetrics, registered with the platform MBean server under
+ * FusionMetrics.OBJECT_NAME. All durations are in nanoseconds.
+ */
+public interface FusionMetricsMXBean {
+
+	/**
+	 * @return A map from "dataset/phase" to the duration of that phase in the last build or load
+	 * 		   of the dataset, where dataset is "dlc" or "nodlc"
+	 */
+	Map<String, Long> getBuildPhases();
+
+	/**
+	 * @return A map from "dataset/kind" to the number of fusions of that kind calculated in the
+	 * 		   last build of the dataset, where kind is the rule that calculated the fusion:
+	 * 		   "sa" (two non-treasure personas of the same arcana), "treasure" (a treasure demon
+	 * 		   and a non-treasure persona) or "da" (every other fusion)
+	 */
+	Map<String, Long> getFusionCounts();
+
+	/**
+	 * @return A map from command names to a summary of their latencies
+	 */
+	Map<String, LatencyHistogram.Summary> getCommandLatencies();
+
+	/**
+	 * @return The number of persona and arcana names given by users that are not valid
+	 */
+	long getInvalidLookups();
+
+	/**
+	 * @return The version of the data served by a FusionDataReloader, or 0 if there is none
+	 */
+	long getDataVersion();
+
+	/**
+	 * @return How long the last published data of a FusionDataReloader took to build
+	 */
+	long getLastReloadNanos();
+
+	/**
+	 * @return The number of reloads that were rejected because the data files could not be read
+	 * 		   or were malformed
+	 */
+	long getFailedReloads();
+
+	/**
+	 * Clears the command latencies, the invalid lookup counter and the failed reload counter.
+	 */
+	void reset();
+}
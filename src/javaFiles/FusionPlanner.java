@@ -0,0 +1,370 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FusionPlanner finds the shortest sequences of fusions that produce a target persona from a
+ * roster of owned personas. Owned personas can be used as ingredients any number of times, since
+ * they can be summoned again from the compendium. The length of a chain is its total number of
+ * fusions, and its depth is the longest path of fusions from an owned persona to the target.
+ *
+ * For a given roster the planner computes, for every persona and every depth d up to the maximum
+ * depth, the fewest fusions needed to produce the persona with a chain of depth at most d. This
+ * is a dynamic program over every persona, one depth at a time, rather than a best-first search
+ * from the target: it costs the same for every target, and one table answers every target of the
+ * roster. The tables are cached per roster, so planning several targets for the same roster only
+ * pays for them once. A table that a budget cut short is not cached, so the next plan for the
+ * roster computes it again. A FusionPlanner is not safe for use by multiple threads.
+ */
+public class FusionPlanner {
+
+	public static final int DEFAULT_MAX_DEPTH = 5;
+	public static final int DEFAULT_NODE_BUDGET = 5000000;
+	public static final long DEFAULT_TIME_BUDGET_MILLIS = 50;
+
+	// a number of fusions larger than any reachable one; small enough that adding two of them
+	// doesn't overflow
+	private static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+	// marks a persona that is produced by its guillotine fusion in choices
+	private static final int GUILLOTINE = -2;
+
+	// the number of rosters whose cost tables are kept
+	private static final int CACHE_SIZE = 16;
+
+	private final FusionDataGraph fd;
+	private final int maxDepth; // the deepest chain that will be searched
+	private final int nodeBudget; // the most fusions that will be evaluated for one roster
+	private final long timeBudgetNanos; // the longest time spent computing one roster
+
+	// for each persona id, the ingredient ids of the fusions that make it as consecutive pairs;
+	// empty for treasure demons and guillotine-only personas
+	private final int[][] recipes;
+
+	// for each persona id, the ids of the ingredients of its guillotine fusion, or null if it is
+	// not a guillotine-only persona
+	private final int[][] guillotineIngredients;
+
+	// cost tables of the most recently planned rosters, least recently used first
+	private final LinkedHashMap<BitSet, CostTable> cache;
+
+	/**
+	 * @param fd The FusionDataGraph the fusions are taken from
+	 * @effects Constructs a FusionPlanner with the default depth, node and time budgets
+	 */
+	public FusionPlanner(FusionDataGraph fd) {
+		this(fd, DEFAULT_MAX_DEPTH, DEFAULT_NODE_BUDGET, DEFAULT_TIME_BUDGET_MILLIS);
+	}
+
+	/**
+	 * @param fd The FusionDataGraph the fusions are taken from
+	 * @param maxDepth The deepest chain of fusions that will be searched
+	 * @param nodeBudget The most fusions that will be evaluated when planning for a new roster
+	 * @param timeBudgetMillis The longest time that will be spent planning for a new roster. When
+	 * 		  a budget runs out, the chains found so far are returned.
+	 * @throws IllegalArgumentException if fd == null || maxDepth < 1 || nodeBudget < 1 ||
+	 * 		   timeBudgetMillis < 1
+	 * @effects Constructs a FusionPlanner
+	 */
+	public FusionPlanner(FusionDataGraph fd, int maxDepth, int nodeBudget, long timeBudgetMillis)
+			throws IllegalArgumentException {
+		if (fd == null || maxDepth < 1 || nodeBudget < 1 || timeBudgetMillis < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.fd = fd;
+		this.maxDepth = maxDepth;
+		this.nodeBudget = nodeBudget;
+		this.timeBudgetNanos = timeBudgetMillis * 1000000L;
+
+		int n = fd.getPersonaCount();
+		recipes = new int[n][];
+		guillotineIngredients = new int[n][];
+		for (int i = 0; i < n; i++) {
+			Persona p = fd.getPersona(i);
+			int[] pairs = fd.getFusions(i);
+			recipes[i] = pairs == null ? new int[0] : pairs;
+			if (p.getSpecialCase().equals("guillotine")) {
+				List<String> names = p.getSpecialFusion();
+				int[] ids = new int[names.size()];
+				for (int j = 0; j < ids.length; j++) {
+					ids[j] = fd.getPersonaId(names.get(j));
+				}
+				guillotineIngredients[i] = ids;
+			}
+		}
+
+		cache = new LinkedHashMap<BitSet, CostTable>(CACHE_SIZE, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<BitSet, CostTable> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+	}
+
+	/**
+	 * @param roster The names of the personas that are owned
+	 * @param target The name of the persona to produce
+	 * @param k The most chains that will be returned
+	 * @return A list of at most k chains that produce target, each ending in a different fusion,
+	 * 		   ordered by number of fusions (fewest first). If target is owned, the first chain is
+	 * 		   the owned persona itself. The list is empty if target can't be produced within the
+	 * 		   maximum depth. Returns null if target is not a valid persona name.
+	 * @throws IllegalArgumentException if roster == null || k < 1 || a name in roster is not a
+	 * 		   valid persona name
+	 */
+	public List<FusionChain> plan(Collection<String> roster, String target, int k)
+			throws IllegalArgumentException {
+		if (roster == null || k < 1) {
+			throw new IllegalArgumentException();
+		}
+		int targetId = fd.getPersonaId(target);
+		if (targetId < 0) {
+			return null;
+		}
+
+		BitSet owned = new BitSet(fd.getPersonaCount());
+		for (String name : roster) {
+			int id = fd.getPersonaId(name);
+			if (id < 0) {
+				throw new IllegalArgumentException("unknown persona " + name);
+			}
+			owned.set(id);
+		}
+
+		CostTable table = cache.get(owned);
+		if (table == null) {
+			table = computeCosts(owned);
+			if (!table.truncated) {
+				cache.put(owned, table);
+			}
+		}
+
+		List<FusionChain> chains = new ArrayList<FusionChain>();
+		if (owned.get(targetId)) {
+			chains.add(new FusionChain(fd.getPersona(targetId), Collections.<FusionChain>emptyList()));
+		}
+
+		// the last fusion of every chain makes the target from ingredients of one level less deep
+		int ingredientDepth = table.maxDepth - 1;
+		int[] costs = table.costs(ingredientDepth);
+		if (guillotineIngredients[targetId] != null) {
+			if (chains.size() < k && sumCosts(guillotineIngredients[targetId], costs) < UNREACHABLE) {
+				chains.add(buildGuillotineChain(table, targetId, ingredientDepth));
+			}
+			return chains;
+		}
+
+		// rank the reachable fusions by their total number of fusions, keeping the order of
+		// getFusions between ties
+		int[] pairs = recipes[targetId];
+		List<long[]> candidates = new ArrayList<long[]>();
+		for (int j = 0; j < pairs.length; j += 2) {
+			long cost = (long) costs[pairs[j]] + costs[pairs[j + 1]] + 1;
+			if (cost < UNREACHABLE) {
+				candidates.add(new long[] {cost, j});
+			}
+		}
+		Collections.sort(candidates, (c1, c2) -> c1[0] != c2[0] ? Long.compare(c1[0], c2[0])
+				: Long.compare(c1[1], c2[1]));
+
+		for (int i = 0; i < candidates.size() && chains.size() < k; i++) {
+			int j = (int) candidates.get(i)[1];
+			List<FusionChain> ingredients = new ArrayList<FusionChain>();
+			ingredients.add(buildChain(table, pairs[j], ingredientDepth));
+			ingredients.add(buildChain(table, pairs[j + 1], ingredientDepth));
+			chains.add(new FusionChain(fd.getPersona(targetId), ingredients));
+		}
+		return chains;
+	}
+
+	/**
+	 * @param roster The names of the personas that are owned
+	 * @param target The name of the persona to produce
+	 * @return The fewest fusions needed to produce target from roster within the maximum depth,
+	 * 		   0 if target is owned, or -1 if target can't be produced or is not a valid persona name
+	 * @throws IllegalArgumentException if roster == null || a name in roster is not a valid
+	 * 		   persona name
+	 */
+	public int fusionsNeeded(Collection<String> roster, String target) throws IllegalArgumentException {
+		List<FusionChain> chains = plan(roster, target, 1);
+		if (chains == null || chains.isEmpty()) {
+			return -1;
+		}
+		return chains.get(0).getFusionCount();
+	}
+
+	/**
+	 * private helper method that computes the cost table of a roster, depth by depth, until
+	 * the costs stop changing or a budget runs out
+	 *
+	 * @param owned The ids of the owned personas
+	 * @return The cost table for owned
+	 */
+	private CostTable computeCosts(BitSet owned) {
+		int n = recipes.length;
+		long deadline = System.nanoTime() + timeBudgetNanos;
+		long nodes = 0;
+
+		List<int[]> costs = new ArrayList<int[]>();
+		List<int[]> choices = new ArrayList<int[]>();
+		int[] cost = new int[n];
+		int[] choice = new int[n];
+		for (int i = 0; i < n; i++) {
+			cost[i] = owned.get(i) ? 0 : UNREACHABLE;
+			choice[i] = -1;
+		}
+		costs.add(cost);
+		choices.add(choice);
+
+		boolean converged = false;
+		for (int depth = 1; depth <= maxDepth && !converged; depth++) {
+			int[] prev = cost;
+			cost = prev.clone();
+			choice = choice.clone();
+			boolean changed = false;
+
+			for (int r = 0; r < n; r++) {
+				// a persona that is owned or one fusion away can't get any cheaper
+				if (cost[r] <= 1) {
+					continue;
+				}
+
+				if (guillotineIngredients[r] != null) {
+					int total = sumCosts(guillotineIngredients[r], prev);
+					if (total + 1 < cost[r]) {
+						cost[r] = total + 1;
+						choice[r] = GUILLOTINE;
+						changed = true;
+					}
+				} else {
+					int[] pairs = recipes[r];
+					for (int j = 0; j < pairs.length; j += 2) {
+						int total = prev[pairs[j]] + prev[pairs[j + 1]] + 1;
+						if (total < cost[r]) {
+							cost[r] = total;
+							choice[r] = j;
+							changed = true;
+						}
+					}
+					nodes += pairs.length / 2;
+				}
+			}
+
+			costs.add(cost);
+			choices.add(choice);
+			converged = !changed;
+
+			// the chains found so far are still valid if a budget runs out
+			if (nodes > nodeBudget || System.nanoTime() > deadline) {
+				break;
+			}
+		}
+
+		return new CostTable(costs, choices, converged, !converged && costs.size() - 1 < maxDepth);
+	}
+
+	/**
+	 * private helper method that rebuilds the cheapest chain for a persona
+	 *
+	 * @param table The cost table of the roster
+	 * @param id The id of the persona to produce
+	 * @param depth The deepest the chain may be
+	 * @requires the persona can be produced within depth
+	 * @return The cheapest chain of at most depth fusions deep that produces id
+	 */
+	private FusionChain buildChain(CostTable table, int id, int depth) {
+		int choice = table.choices(depth)[id];
+		if (choice == GUILLOTINE) {
+			return buildGuillotineChain(table, id, depth - 1);
+		}
+		List<FusionChain> ingredients = new ArrayList<FusionChain>();
+		if (choice >= 0) {
+			ingredients.add(buildChain(table, recipes[id][choice], depth - 1));
+			ingredients.add(buildChain(table, recipes[id][choice + 1], depth - 1));
+		}
+		return new FusionChain(fd.getPersona(id), ingredients);
+	}
+
+	/**
+	 * private helper method that builds the chain of a guillotine fusion
+	 *
+	 * @param table The cost table of the roster
+	 * @param id The id of the guillotine-only persona to produce
+	 * @param ingredientDepth The deepest the chains of the ingredients may be
+	 * @requires every ingredient can be produced within ingredientDepth
+	 * @return The cheapest chain that ends in the guillotine fusion of id
+	 */
+	private FusionChain buildGuillotineChain(CostTable table, int id, int ingredientDepth) {
+		List<FusionChain> ingredients = new ArrayList<FusionChain>();
+		for (int ingredient : guillotineIngredients[id]) {
+			ingredients.add(buildChain(table, ingredient, ingredientDepth));
+		}
+		return new FusionChain(fd.getPersona(id), ingredients);
+	}
+
+	/**
+	 * private helper method that adds up the costs of the ingredients of a guillotine fusion
+	 *
+	 * @return The sum of the costs of ids, or UNREACHABLE if one of them is unreachable or is
+	 * 		   not a valid persona
+	 */
+	private static int sumCosts(int[] ids, int[] costs) {
+		int total = 0;
+		for (int id : ids) {
+			if (id < 0 || costs[id] >= UNREACHABLE) {
+				return UNREACHABLE;
+			}
+			total += costs[id];
+		}
+		return Math.min(total, UNREACHABLE);
+	}
+
+	/**
+	 * The fewest fusions needed to produce each persona from one roster for every depth, and
+	 * the fusion that achieves it.
+	 */
+	private static class CostTable {
+
+		private final List<int[]> costs; // costs.get(d)[p] is the cost of p within depth d
+		private final List<int[]> choices; // the fusion used for the cost, or -1 if owned
+
+		// the deepest depth the table answers for; deeper chains are the same as this depth if
+		// the costs converged before the maximum depth
+		private final int maxDepth;
+
+		// a budget ran out before the costs converged or reached the maximum depth of the planner
+		private final boolean truncated;
+
+		/**
+		 * @effects Constructs a CostTable from the per-depth costs and choices
+		 */
+		CostTable(List<int[]> costs, List<int[]> choices, boolean converged, boolean truncated) {
+			this.costs = costs;
+			this.choices = choices;
+			this.maxDepth = converged ? Integer.MAX_VALUE : costs.size() - 1;
+			this.truncated = truncated;
+		}
+
+		/**
+		 * @return The costs of all personas within depth
+		 */
+		int[] costs(int depth) {
+			return costs.get(Math.max(0, Math.min(depth, costs.size() - 1)));
+		}
+
+		/**
+		 * @return The fusions used for the costs of all personas within depth
+		 */
+		int[] choices(int depth) {
+			return choices.get(Math.max(0, Math.min(depth, choices.size() - 1)));
+		}
+	}
+}
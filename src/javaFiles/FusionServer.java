@@ -0,0 +1,360 @@
+package javaFiles;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * FusionServer serves the queries of the FusionCalculator menu as JSON over HTTP, using the
+ * HTTP server built into the JDK. The FusionDataGraphs with and without dlc personas are built
+ * at start up and served as the immutable FrozenFusionData made from them, so requests are
+ * handled concurrently, on virtual threads when the JVM supports them.
+ * They are served from a FusionDataReloader; when it reloads them, a request in flight finishes
+ * on the data it started with.
+ *
+ * Every endpoint takes an optional dlc=true|false parameter (default true):
+ * GET /persona?name=N              information about the persona N
+ * GET /arcanas                     the names of all the arcanas
+ * GET /arcana?name=A               the personas in the arcana A
+ * GET /fusions-to?name=N           the fusions that make N, cheapest first (optional offset
+ *                                  and limit parameters page through them)
+ * GET /fusion-result?p1=N1&p2=N2   the persona that fusing N1 and N2 makes
+ * GET /related-fusions?name=N      the fusions N is an ingredient of, lowest result level first
+ *                                  (optional arcana, minLevel and maxLevel parameters keep the
+ *                                  results of that arcana and level range)
+ *
+ * GET /complete?prefix=P          the persona names that start with P (optional limit parameter)
+ * GET /version                     the version of the data served and how long its reload took
+ *
+ * Names are resolved as in FusionData.resolvePersona and resolveArcana, so they may be in any
+ * case and with or without spaces and punctuation. Invalid names are answered with status 404 and
+ * {"error": message}, where the message suggests names the invalid one may stand for.
+ */
+public class FusionServer {
+
+	public static final int DEFAULT_PORT = 8080;
+
+	private final FusionDataReloader reloader;
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * @param dlcData The FusionDataGraph that includes dlc personas
+	 * @param baseData The FusionDataGraph that excludes dlc personas
+	 * @effects Constructs a FusionServer that answers queries from frozen copies of dlcData and
+	 * 			baseData
+	 */
+	public FusionServer(FusionDataGraph dlcData, FusionDataGraph baseData) {
+		this(new FusionDataReloader(dlcData, baseData));
+	}
+
+	/**
+	 * @param reloader The FusionDataReloader whose current data is served
+	 * @throws IllegalArgumentException if reloader == null
+	 * @effects Constructs a FusionServer that answers each query from the current data of reloader
+	 */
+	public FusionServer(FusionDataReloader reloader) throws IllegalArgumentException {
+		if (reloader == null) {
+			throw new IllegalArgumentException();
+		}
+		this.reloader = reloader;
+	}
+
+	/**
+	 * Starts a FusionServer. Launch the JVM with -Dsun.net.httpserver.nodelay=true so that the
+	 * JDK's server sets TCP_NODELAY; without it, small responses wait on the client's delayed ack
+	 * (about 40 ms). The property applies to every HttpServer in the JVM, so it is left to the
+	 * command line rather than set here.
+	 *
+	 * @param args optionally, the port to listen on (default 8080), and --watch to reload the
+	 * 		  data whenever the data files change
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		boolean watch = false;
+		for (String arg : args) {
+			if (arg.equals("--watch")) {
+				watch = true;
+			} else {
+				port = Integer.parseInt(arg);
+			}
+		}
+		FusionMetrics.register();
+		FusionDataReloader reloader = new FusionDataReloader(FusionDataGraph.DATA_DIR);
+		if (watch) {
+			reloader.watch();
+		}
+		FusionServer fs = new FusionServer(reloader);
+		fs.start(port);
+		System.out.println("Listening on http://localhost:" + fs.getPort() + "/");
+	}
+
+	/**
+	 * @param port The port to listen on, or 0 for any free port
+	 * @throws IOException if the server can't bind to port
+	 * @modifies this
+	 * @effects starts answering requests on port
+	 */
+	public void start(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/", this::handle);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * @modifies this
+	 * @effects stops answering requests
+	 */
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdown();
+			server = null;
+		}
+	}
+
+	/**
+	 * @requires the server has been started
+	 * @return The port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * private helper method that answers a single request
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		String path = exchange.getRequestURI().getPath();
+		try {
+			Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+			boolean dlc = !"false".equals(params.get("dlc"));
+			// the whole request is answered from the data that is current when it starts
+			FusionDataReloader.Data data = reloader.get();
+			FusionData fd = data.getData(dlc);
+			RecipeRanking ranking = data.getRanking(dlc);
+
+			StringBuilder body = new StringBuilder(256);
+			JsonWriter json = new JsonWriter(body);
+			int status;
+			switch (path) {
+			case "/persona":
+				status = persona(fd, params, json);
+				break;
+			case "/arcanas":
+				status = arcanas(fd, json);
+				break;
+			case "/arcana":
+				status = arcana(fd, params, json);
+				break;
+			case "/fusions-to":
+				status = fusionsTo(fd, ranking, params, json);
+				break;
+			case "/fusion-result":
+				status = fusionResult(fd, params, json);
+				break;
+			case "/related-fusions":
+				status = relatedFusions(fd, params, json);
+				break;
+			case "/complete":
+				status = complete(fd, params, json);
+				break;
+			case "/version":
+				FusionJson.writeVersion(json, data.version, FusionMetrics.get());
+				status = 200;
+				break;
+			default:
+				status = error(json, 404, "unknown endpoint " + path);
+				path = null;
+			}
+			respond(exchange, status, body);
+			if (path != null) {
+				FusionMetrics.get().recordCommand(path, System.nanoTime() - start);
+			}
+		} catch (IllegalArgumentException e) { // a malformed query, such as a number that isn't one
+			StringBuilder body = new StringBuilder();
+			respond(exchange, error(new JsonWriter(body), 400, "bad request: " + e.getMessage()), body);
+		} catch (RuntimeException e) { // a bug: log it, but don't show its internals to the client
+			System.err.println("error answering " + exchange.getRequestURI() + ":");
+			e.printStackTrace();
+			StringBuilder body = new StringBuilder();
+			respond(exchange, error(new JsonWriter(body), 500, "internal error"), body);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * private helper method for /persona
+	 */
+	private static int persona(FusionData fd, Map<String, String> params, JsonWriter json)
+			throws IOException {
+		Persona p = fd.resolvePersona(params.get("name"));
+		if (p == null) {
+			return error(json, 404, FusionCalculator.invalidName("persona", fd.getPersonaNames(), params.get("name")));
+		}
+		FusionJson.writePersona(json, p);
+		return 200;
+	}
+
+	/**
+	 * private helper method for /arcanas
+	 */
+	private static int arcanas(FusionData fd, JsonWriter json) throws IOException {
+		FusionJson.writeArcanas(json, fd);
+		return 200;
+	}
+
+	/**
+	 * private helper method for /arcana
+	 */
+	private static int arcana(FusionData fd, Map<String, String> params, JsonWriter json)
+			throws IOException {
+		String arc = fd.resolveArcana(params.get("name"));
+		if (arc == null) {
+			return error(json, 404, FusionCalculator.invalidName("arcana", fd.getArcanaNames(), params.get("name")));
+		}
+		FusionJson.writeArcana(json, fd, arc);
+		return 200;
+	}
+
+	/**
+	 * private helper method for /fusions-to
+	 */
+	private static int fusionsTo(FusionData fd, RecipeRanking ranking, Map<String, String> params,
+			JsonWriter json) throws IOException {
+		Persona p = fd.resolvePersona(params.get("name"));
+		if (p == null) {
+			return error(json, 404, FusionCalculator.invalidName("persona", fd.getPersonaNames(), params.get("name")));
+		}
+		int offset = params.containsKey("offset") ? Integer.parseInt(params.get("offset")) : 0;
+		int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : Integer.MAX_VALUE;
+		if (offset < 0 || limit < 0) {
+			throw new IllegalArgumentException("offset and limit must not be negative");
+		}
+		FusionJson.writeFusionsTo(json, fd, ranking, p, offset, limit);
+		return 200;
+	}
+
+	/**
+	 * private helper method for /fusion-result
+	 */
+	private static int fusionResult(FusionData fd, Map<String, String> params, JsonWriter json)
+			throws IOException {
+		Persona p1 = fd.resolvePersona(params.get("p1"));
+		if (p1 == null) {
+			return error(json, 404, FusionCalculator.invalidName("persona", fd.getPersonaNames(), params.get("p1")));
+		}
+		Persona p2 = fd.resolvePersona(params.get("p2"));
+		if (p2 == null) {
+			return error(json, 404, FusionCalculator.invalidName("persona", fd.getPersonaNames(), params.get("p2")));
+		}
+		FusionJson.writeFusionResult(json, fd, p1, p2);
+		return 200;
+	}
+
+	/**
+	 * private helper method for /related-fusions
+	 */
+	private static int relatedFusions(FusionData fd, Map<String, String> params, JsonWriter json)
+			throws IOException {
+		Persona p = fd.resolvePersona(params.get("name"));
+		if (p == null) {
+			return error(json, 404, FusionCalculator.invalidName("persona", fd.getPersonaNames(), params.get("name")));
+		}
+		String arc = params.containsKey("arcana") ? fd.resolveArcana(params.get("arcana")) : null;
+		if (params.containsKey("arcana") && arc == null) {
+			return error(json, 404, FusionCalculator.invalidName("arcana", fd.getArcanaNames(), params.get("arcana")));
+		}
+		if (arc == null && !params.containsKey("minLevel") && !params.containsKey("maxLevel")) {
+			FusionJson.writeRelatedFusions(json, fd, p);
+		} else {
+			int minLevel = params.containsKey("minLevel") ? Integer.parseInt(params.get("minLevel")) : 0;
+			int maxLevel = params.containsKey("maxLevel") ? Integer.parseInt(params.get("maxLevel")) : Integer.MAX_VALUE;
+			FusionJson.writeRelatedFusions(json, fd, p, arc, minLevel, maxLevel);
+		}
+		return 200;
+	}
+
+	/**
+	 * private helper method for /complete
+	 */
+	private static int complete(FusionData fd, Map<String, String> params, JsonWriter json)
+			throws IOException {
+		String prefix = params.containsKey("prefix") ? params.get("prefix") : "";
+		int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : Integer.MAX_VALUE;
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit must not be negative");
+		}
+		FusionJson.writeCompletions(json, fd.getPersonaNames().complete(prefix, limit));
+		return 200;
+	}
+
+	/**
+	 * private helper method that writes an error body
+	 *
+	 * @return status
+	 */
+	private static int error(JsonWriter json, int status, String message) throws IOException {
+		FusionJson.writeError(json, message);
+		return status;
+	}
+
+	/**
+	 * private helper method that sends a JSON response
+	 */
+	private static void respond(HttpExchange exchange, int status, CharSequence body) throws IOException {
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes);
+		os.close();
+	}
+
+	/**
+	 * private helper method that decodes the parameters of a query string
+	 */
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null) {
+			return params;
+		}
+		for (String param : query.split("&")) {
+			int eq = param.indexOf('=');
+			if (eq > 0) {
+				params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+						URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * private helper method that creates the executor requests are handled on: one virtual
+	 * thread per request if the JVM supports virtual threads (Java 21 and later), otherwise a
+	 * pool of platform threads
+	 */
+	private static ExecutorService newRequestExecutor() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) m.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Math.max(4, 4 * Runtime.getRuntime().availableProcessors()));
+		}
+	}
+}
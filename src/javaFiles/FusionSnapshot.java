@@ -0,0 +1,338 @@
+package javaFiles;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Utility to write and read a binary snapshot of a FusionDataGraph, so that the data files do
+ * not have to be parsed and the fusions do not have to be calculated on every start up.
+ *
+ * A snapshot file has the following layout (all numbers are big-endian, all strings are an
+ * int byte length followed by that many UTF-8 bytes):
+ *
+ * int magic ("P5FS"), int version, long checksum of the data files
+ * int number of arcanas, then for each arcana: name, highest level
+ * int number of personas, then for each persona (in id order): name, arcana index, base level,
+ *     5 stats, 10 weaknesses/resistances, special case, number of guillotine ingredients and
+ *     their names
+ * int number of arcana fusions, then for each fusion: arcana index, arcana index, result arcana index
+ * int number of treasure demons, then for each treasure demon: name, number of entries and for
+ *     each entry an arcana index and a level shift
+ * for each persona (in id order): int number of fusions that make it, then the ids of the two
+ *     ingredient personas of each fusion as unsigned 16-bit numbers
+ */
+public class FusionSnapshot {
+
+	// "P5FS" in ASCII
+	public static final int MAGIC = 0x50354653;
+
+	// must be incremented whenever the layout above changes
+	public static final int VERSION = 1;
+
+	/**
+	 * @param includeDlc Whether the snapshot includes dlc personas
+	 * @param filenames The data files the snapshot is built from
+	 * @return a checksum of the contents of the given files, the includeDlc flag and the snapshot
+	 * 		   format version
+	 * @throws IOException if one of the files can't be read
+	 */
+	public static long checksum(boolean includeDlc, String... filenames) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(VERSION);
+		crc.update(includeDlc ? 1 : 0);
+		for (String filename : filenames) {
+			crc.update(Files.readAllBytes(Paths.get(filename)));
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Writes a snapshot file. The file is first written next to its final location and then
+	 * moved into place, so a reader never sees a partially written snapshot.
+	 *
+	 * @param filename The file the snapshot will be written to
+	 * @param checksum The checksum of the data files the given data was built from
+	 * @param personaList The personas in id order
+	 * @param highestLevels A map from arcanas to the level of the highest-level persona in that arcana
+	 * @param possibleFusions A graph with arcanas as nodes and the resulting arcana of the
+	 * 		  two personas fused as edges
+	 * @param treasureFusions A map that maps from the name of a treasure demon to a map
+	 * 		  that maps from the name of an arcana to the level shift
+	 * @param fusionPairIds For each persona id, the ids of the ingredients of the fusions that make it
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(String filename, long checksum, List<Persona> personaList,
+			HashMap<String, Integer> highestLevels, Graph<String, String> possibleFusions,
+			HashMap<String, HashMap<String, Integer>> treasureFusions, int[][] fusionPairIds)
+					throws IOException {
+		// arcanas are numbered in the order they first appear in the persona list
+		List<String> arcanaList = new ArrayList<String>();
+		HashMap<String, Integer> arcanaIds = new HashMap<String, Integer>();
+		for (Persona p : personaList) {
+			if (!arcanaIds.containsKey(p.getArcana())) {
+				arcanaIds.put(p.getArcana(), arcanaList.size());
+				arcanaList.add(p.getArcana());
+			}
+		}
+		if (personaList.size() > Character.MAX_VALUE) {
+			throw new IllegalArgumentException("too many personas for the snapshot format");
+		}
+
+		Path target = Paths.get(filename);
+		Path temp = Paths.get(filename + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp.toFile()), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(checksum);
+
+			out.writeInt(arcanaList.size());
+			for (String arc : arcanaList) {
+				writeString(out, arc);
+				Integer highest = highestLevels.get(arc);
+				out.writeInt(highest == null ? -1 : highest);
+			}
+
+			out.writeInt(personaList.size());
+			for (Persona p : personaList) {
+				writeString(out, p.getName());
+				out.writeInt(arcanaIds.get(p.getArcana()));
+				out.writeInt(p.getBaseLevel());
+				for (int i = 0; i < PersonaTable.STATS; i++) {
+					out.writeInt(p.getStat(i));
+				}
+				for (int i = 0; i < PersonaTable.ELEMENTS; i++) {
+					writeString(out, p.getAffinity(i).getCode());
+				}
+				writeString(out, p.getSpecialCase());
+				if (p.getSpecialFusion() == null) {
+					out.writeInt(-1);
+				} else {
+					out.writeInt(p.getSpecialFusion().size());
+					for (String ingredient : p.getSpecialFusion()) {
+						writeString(out, ingredient);
+					}
+				}
+			}
+
+			// only the arcana fusions between arcanas that have personas are needed
+			List<int[]> arcanaFusions = new ArrayList<int[]>();
+			for (int i = 0; i < arcanaList.size(); i++) {
+				for (int j = 0; j < arcanaList.size(); j++) {
+					Set<String> result = possibleFusions.getEdges(arcanaList.get(i), arcanaList.get(j));
+					if (result != null) {
+						Integer resultId = arcanaIds.get(result.iterator().next());
+						if (resultId != null) {
+							arcanaFusions.add(new int[] {i, j, resultId});
+						}
+					}
+				}
+			}
+			out.writeInt(arcanaFusions.size());
+			for (int[] fusion : arcanaFusions) {
+				out.writeInt(fusion[0]);
+				out.writeInt(fusion[1]);
+				out.writeInt(fusion[2]);
+			}
+
+			out.writeInt(treasureFusions.size());
+			for (Map.Entry<String, HashMap<String, Integer>> td : treasureFusions.entrySet()) {
+				writeString(out, td.getKey());
+				int count = 0;
+				for (String arc : td.getValue().keySet()) {
+					if (arcanaIds.containsKey(arc)) {
+						count++;
+					}
+				}
+				out.writeInt(count);
+				for (Map.Entry<String, Integer> shift : td.getValue().entrySet()) {
+					if (arcanaIds.containsKey(shift.getKey())) {
+						out.writeInt(arcanaIds.get(shift.getKey()));
+						out.writeInt(shift.getValue());
+					}
+				}
+			}
+
+			for (int i = 0; i < personaList.size(); i++) {
+				out.writeInt(fusionPairIds[i].length / 2);
+				for (int id : fusionPairIds[i]) {
+					out.writeChar(id);
+				}
+			}
+		} finally {
+			out.close();
+		}
+
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a snapshot file through a memory mapping.
+	 *
+	 * @param filename The snapshot file that will be read
+	 * @param checksum The checksum of the current data files
+	 * @param arcana A map from arcana names to a list of the personas in that arcana
+	 * @param personas A map from persona names to the actual persona objects
+	 * @param personaList A list of the personas in id order
+	 * @param highestLevels A map from arcanas to the level of the highest-level persona in that arcana
+	 * @param possibleFusions A graph with arcanas as nodes and the resulting arcana of the
+	 * 		  two personas fused as edges
+	 * @param treasureFusions A map that maps from the name of a treasure demon to a map
+	 * 		  that maps from the name of an arcana to the level shift
+	 * @param fusionResults A map from persona names to a list of pairs of persona that fuse
+	 * 		  together to make the key persona
+	 * @return true if the snapshot was read, false if it was written by another version of this
+	 * 		   class or from data files with a different checksum. Nothing is modified if false
+	 * 		   is returned.
+	 * @throws IOException if the file can't be read or is corrupt
+	 * @modifies arcana, personas, personaList, highestLevels, possibleFusions, treasureFusions,
+	 * 			 fusionResults
+	 * @effects fills all the given collections with the data stored in the snapshot
+	 */
+	public static boolean read(String filename, long checksum, HashMap<String, List<Persona>> arcana,
+			HashMap<String, Persona> personas, List<Persona> personaList,
+			HashMap<String, Integer> highestLevels, Graph<String, String> possibleFusions,
+			HashMap<String, HashMap<String, Integer>> treasureFusions,
+			HashMap<String, List<Pair>> fusionResults) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getLong() != checksum) {
+				return false;
+			}
+
+			String[] arcanaNames = new String[readCount(buf, 8)]; // a string length and a level each
+			for (int i = 0; i < arcanaNames.length; i++) {
+				arcanaNames[i] = readString(buf);
+				arcana.put(arcanaNames[i], new ArrayList<Persona>());
+				int highest = buf.getInt();
+				if (highest >= 0) {
+					highestLevels.put(arcanaNames[i], highest);
+				}
+			}
+
+			int personaCount = readCount(buf, 4);
+			PersonaTable table = new PersonaTable(personaCount);
+			int[] stats = new int[PersonaTable.STATS];
+			for (int i = 0; i < personaCount; i++) {
+				String name = readString(buf);
+				String arc = arcanaNames[buf.getInt()];
+				int level = buf.getInt();
+				for (int j = 0; j < PersonaTable.STATS; j++) {
+					stats[j] = buf.getInt();
+				}
+				long affinities = 0;
+				for (int j = 0; j < PersonaTable.ELEMENTS; j++) {
+					affinities = PersonaTable.withAffinity(affinities, j, Affinity.of(readString(buf)));
+				}
+				PersonaTable.Kind kind = PersonaTable.Kind.of(readString(buf));
+				List<String> special = null;
+				int specialCount = buf.getInt();
+				if (specialCount >= 0) {
+					special = new ArrayList<String>();
+					for (int j = 0; j < specialCount; j++) {
+						special.add(readString(buf));
+					}
+				}
+
+				Persona pers = table.add(name, arc, level, stats, affinities, kind, special);
+				arcana.get(arc).add(pers);
+				personas.put(name, pers);
+				personaList.add(pers);
+			}
+
+			for (String arc : arcanaNames) {
+				possibleFusions.insertNode(arc);
+			}
+			int arcanaFusionCount = buf.getInt();
+			for (int i = 0; i < arcanaFusionCount; i++) {
+				String arc1 = arcanaNames[buf.getInt()];
+				String arc2 = arcanaNames[buf.getInt()];
+				possibleFusions.insertEdge(arc1, arc2, arcanaNames[buf.getInt()]);
+			}
+
+			int treasureCount = buf.getInt();
+			for (int i = 0; i < treasureCount; i++) {
+				HashMap<String, Integer> shifts = new HashMap<String, Integer>();
+				treasureFusions.put(readString(buf), shifts);
+				int shiftCount = buf.getInt();
+				for (int j = 0; j < shiftCount; j++) {
+					String arc = arcanaNames[buf.getInt()];
+					shifts.put(arc, buf.getInt());
+				}
+			}
+
+			for (int i = 0; i < personaCount; i++) {
+				int pairCount = readCount(buf, 4); // two chars each
+				if (pairCount > 0) {
+					List<Pair> pairs = new ArrayList<Pair>(pairCount);
+					for (int j = 0; j < pairCount; j++) {
+						Persona p1 = personaList.get(buf.getChar());
+						Persona p2 = personaList.get(buf.getChar());
+						pairs.add(new Pair(p1, p2));
+					}
+					fusionResults.put(personaList.get(i).getName(), pairs);
+				}
+			}
+			return true;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("corrupt snapshot file " + filename, e);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * private helper method that writes a length-prefixed UTF-8 string
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * private helper method that reads the number of entries that follow, each at least
+	 * entryBytes long, or throws IOException if that many entries don't fit in what is left of buf
+	 */
+	private static int readCount(ByteBuffer buf, int entryBytes) throws IOException {
+		int count = buf.getInt();
+		if (count < 0 || count > buf.remaining() / entryBytes) {
+			throw new IOException("count " + count + " at " + (buf.position() - 4) + " is out of range");
+		}
+		return count;
+	}
+
+	/**
+	 * private helper method that reads a length-prefixed UTF-8 string, or throws IOException if
+	 * the length doesn't fit in what is left of buf
+	 */
+	private static String readString(ByteBuffer buf) throws IOException {
+		int length = buf.getInt();
+		if (length < 0 || length > buf.remaining()) {
+			throw new IOException("string length " + length + " at " + (buf.position() - 4) + " is out of range");
+		}
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -1,46 +1,112 @@
 package javaFiles;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * Graph represents a mutable, directed labled multigraph that holds Strings in its nodes and edges.
  * Repeated edges (edges with the same lable that point from and to the same node) are not supported.
  * Repeat nodes (nodes represented by objects considered to be equal) are not supported.
+ *
+ * The nodes and edges are kept in a pluggable GraphStorage: a HashGraphStorage by default, which
+ * suits sparse graphs, or a BitMatrixGraphStorage for small dense ones. The storage can be chosen
+ * when the Graph is made or switched later with fitStorage, and does not change the results of
+ * any operation.
  */
 public class Graph<N, E> {
 
-	// disables/enables the more expensive part of checkRep() to improve performance
-	private final boolean runExpensiveCheckRep = false;
+	// the largest number of nodes a Graph picks a BitMatrixGraphStorage for; its labels take
+	// 4 bytes per pair of nodes, so 64 MB at this size
+	private static final int MAX_DENSE_NODES = 4096;
 
-	private Map<N, GraphNode<N>> nodes;
-	private Map<N, HashMap<N, HashSet<E>>> nodesToEdges;
+	// the smallest fraction of the pairs of nodes with an edge for which a Graph picks a
+	// BitMatrixGraphStorage. At about 4.25 bytes per pair against roughly 200 bytes per edge in
+	// a HashGraphStorage, the bit matrix is smaller from about 1 edge in 50 pairs
+	private static final double MIN_DENSE_DENSITY = 1.0 / 50;
+
+	private GraphStorage<N, E> storage;
 
 	// Abstraction Function:
-	// The Graph g, is represented by two fields. nodes stores all of the nodes that are currently in 
-	// the graph. nodesToEdges maps the nodes that have outedges to the nodes that those outedges point to.
-	// Those nodes that the outedges point to are then mapped to the outedges.
+	// The Graph g is represented by its storage, which holds the nodes and edges of g.
 	//
 	// Representation Invariant for every Graph g:
-	// nodes != null &&
-	// nodesToEdges != null &&
-	// no String key in nodesToEdges maps to an empty HashMap (in other words, a node that 
-	// does not have any outgoing edges should not be in the keyset for nodesToEdges)
+	// storage != null
 
 	/**
 	 * @effects Constructs an empty Graph with no nodes or edges.
 	 */
 	public Graph() {
-		nodes = new HashMap<N, GraphNode<N>>();
-		nodesToEdges = new HashMap<N, HashMap<N, HashSet<E>>>();
+		this(new HashGraphStorage<N, E>());
+	}
+
+	/**
+	 * @param storage The empty storage to keep the nodes and edges in
+	 * @throws IllegalArgumentException if: storage == null || storage is not empty
+	 * @effects Constructs an empty Graph with no nodes or edges that keeps them in storage
+	 */
+	public Graph(GraphStorage<N, E> storage) throws IllegalArgumentException {
+		if (storage == null || storage.nodeCount() != 0) {
+			throw new IllegalArgumentException();
+		}
+		this.storage = storage;
 		checkRep();
 	}
 
+	/**
+	 * @param expectedNodes The number of nodes the Graph is expected to have
+	 * @param expectedEdges The number of edges the Graph is expected to have
+	 * @effects Constructs an empty Graph with no nodes or edges, with the storage that suits a
+	 * 			graph of that size (see fitStorage)
+	 */
+	public Graph(int expectedNodes, long expectedEdges) {
+		this(storageFor(expectedNodes, expectedEdges));
+	}
+
+	/**
+	 * @param expectedNodes The number of nodes 'this' is expected to have
+	 * @param expectedEdges The number of edges 'this' is expected to have
+	 * @modifies this
+	 * @effects moves the nodes and edges of 'this' into the storage that suits a graph of that
+	 * 			size, if it is not kept in that kind of storage already: a BitMatrixGraphStorage if
+	 * 			there are at most 4096 nodes and at least 1 in 50 pairs of nodes has an edge, and a
+	 * 			HashGraphStorage otherwise
+	 */
+	public void fitStorage(int expectedNodes, long expectedEdges) {
+		GraphStorage<N, E> fitted = storageFor(expectedNodes, expectedEdges);
+		if (fitted.getClass() == storage.getClass()) {
+			return;
+		}
+		for (N node : storage.nodesView()) {
+			fitted.insertNode(node);
+		}
+		List<E> labels = new ArrayList<E>();
+		for (N node : storage.nodesView()) {
+			Set<N> children = storage.childrenView(node);
+			if (children != null) {
+				for (N child : children) {
+					labels.clear();
+					storage.copyEdges(node, child, labels);
+					for (E label : labels) {
+						fitted.insertEdge(node, child, label);
+					}
+				}
+			}
+		}
+		storage = fitted;
+		checkRep();
+	}
+
+	/**
+	 * @return the storage 'this' keeps its nodes and edges in
+	 */
+	public GraphStorage<N, E> getStorage() {
+		return storage;
+	}
+
 	/**
 	 * @param node The object that represents the node to be inserted
 	 * @return true if the insertion succeeded and false otherwise. It will fail if the node 
@@ -54,15 +120,8 @@ public class Graph<N, E> {
 			throw new IllegalArgumentException();
 		}
 
-		if (nodes.containsKey(node)) { // graph already contains n1, failure
-			return false;
-		}
-
-		// the graph doesn't contain n1 yet, so add it in
-		nodes.put(node, new GraphNode<N>(node));
-
-		checkRep();
-		return true;
+		// fails if the graph already contains the node
+		return storage.insertNode(node);
 	}
 
 	/**
@@ -83,40 +142,11 @@ public class Graph<N, E> {
 		}
 
 		// if the graph doesn't contain one or both of the given nodes, first insert them
-		if (!nodes.containsKey(nodeTo)) {
-			insertNode(nodeTo);
-		}
-		if (!nodes.containsKey(nodeFrom)) {
-			insertNode(nodeFrom);
-		}
-
-		// check if the edge already exists; if not, insert it
-		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
-		if (hm == null) { // nodeFrom does not point to any other nodes
-			// add a new edge between the nodeFrom and nodeTo
-			hm = new HashMap<N, HashSet<E>>();
-			HashSet<E> ts = new HashSet<E>();
-			ts.add(label);
-			hm.put(nodeTo, ts);
-			nodesToEdges.put(nodeFrom, hm);
-		} else { // nodeFrom points to some/a node(s)
-			if (hm.containsKey(nodeTo)) { // nodeFrom has existing edges to nodeTo
-				if (hm.get(nodeTo).contains(label)) {
-					return false;
-				} else {
-					hm.get(nodeTo).add(label);
-				}
-			} else { // add a mapping for nodeTo
-				HashSet<E> ts = new HashSet<E>();
-				ts.add(label);
-				hm.put(nodeTo, ts);
-			}
-		}
-		// update nodeTo to have nodeFrom pointing to it
-		nodes.get(nodeTo).addToPointsToMe(nodeFrom);
+		storage.insertNode(nodeTo);
+		storage.insertNode(nodeFrom);
 
-		checkRep();
-		return true;
+		// fails if the edge already exists
+		return storage.insertEdge(nodeFrom, nodeTo, label);
 	}
 
 	/**
@@ -132,44 +162,7 @@ public class Graph<N, E> {
 			throw new IllegalArgumentException();
 		}
 
-		if (this.isEmpty() || !nodes.containsKey(node)) {
-			return false;
-		}
-
-		// disconnect the nodes that n points to if there are any
-		if (nodesToEdges.containsKey(node)) { // n has edges pointing to other nodes
-			// for each node that n points to, update its pointsToMe field
-			Iterator<N> itr = nodesToEdges.get(node).keySet().iterator();
-			while (itr.hasNext()) {
-				N elem = itr.next();
-				nodes.get(elem).removeFromPointsToMe(node);
-			}
-
-			// remove the mapping for n in nodesToEdges because it no longer points to anything
-			// after it's removed
-			nodesToEdges.remove(node);
-		}
-
-		// disconnect the nodes that point to n if there are any
-		if (!nodes.get(node).pointsToMeIsEmpty()) {
-			Iterator<N> itr = nodes.get(node).getPointsToMe().iterator();
-			while (itr.hasNext()) { // for every node that points to n, remove its connection to n
-				N elem = itr.next();
-				nodesToEdges.get(elem).remove(node);
-
-				// if a node that points to n doens't have any edges that point to other nodes, remove 
-				// it from nodesToEdges
-				if (nodesToEdges.get(elem).isEmpty()) {
-					nodesToEdges.remove(elem);
-				}
-			}
-		}
-
-		// remove the mapping for n
-		nodes.remove(node);
-
-		checkRep();
-		return true;
+		return storage.removeNode(node);
 	}
 
 	/**
@@ -190,40 +183,7 @@ public class Graph<N, E> {
 			throw new IllegalArgumentException();
 		}
 
-		if (this.isEmpty() || !nodes.containsKey(nodeTo) || !nodes.containsKey(nodeFrom)) {
-			return false;
-		}
-
-		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
-		if (hm == null) { // nodeFrom does not point to any nodes
-			return false;
-		} else { // nodeFrom points to some/a node(s)
-			if (hm.containsKey(nodeTo)) { // nodeFrom has existing edges to nodeTo
-				if (hm.get(nodeTo).contains(label)) { // the specific edge exists
-					hm.get(nodeTo).remove(label);
-
-					// if the removed edge was the only edge between nodeFrom and nodeTo,
-					// remove the mapping from nodeFrom to nodeTo
-					if (nodesToEdges.get(nodeFrom).get(nodeTo).isEmpty()) {
-						nodesToEdges.get(nodeFrom).remove(nodeTo);
-
-						// if nodeFrom now has edges to nothing, remove its mapping in nodesToEdges
-						if (nodesToEdges.get(nodeFrom).isEmpty()) {
-							nodesToEdges.remove(nodeFrom);
-						}
-					}
-
-					nodes.get(nodeTo).removeFromPointsToMe(nodeFrom);
-				} else {
-					return false;
-				}
-			} else { // nodeFrom doesn't have any edges to nodeTo
-				return false;
-			}
-		}
-
-		checkRep();
-		return true;
+		return storage.removeEdge(nodeFrom, nodeTo, label);
 	}
 
 	/**
@@ -237,11 +197,7 @@ public class Graph<N, E> {
 		if (node == null) {
 			throw new IllegalArgumentException();
 		}
-		if (!nodesToEdges.containsKey(node)) {
-			return null;
-		}
-
-		return new HashSet<N>(nodesToEdges.get(node).keySet());
+		return storage.children(node);
 	}
 
 	/**
@@ -259,23 +215,69 @@ public class Graph<N, E> {
 		if (nodeFrom == null || nodeTo == null) {
 			throw new IllegalArgumentException();
 		}
-		if (!nodes.containsKey(nodeFrom) || 
-				!nodes.containsKey(nodeTo) || 
-				!nodesToEdges.containsKey(nodeFrom) ||
-				!nodesToEdges.get(nodeFrom).containsKey(nodeTo) ||
-				isEmpty()) {
+		return storage.edges(nodeFrom, nodeTo);
+	}
+
+	/**
+	 * @param node The object that represents the node for which the children will be returned
+	 * @return an unmodifiable view of the children of node, which reflects later changes to
+	 * 		   'this' and must not be used while 'this' is being modified, or null in the same
+	 * 		   cases as getChildren
+	 * @throws IllegalArgumentException if: node == null
+	 */
+	public Set<N> viewChildren(N node) throws IllegalArgumentException {
+		if (node == null) {
+			throw new IllegalArgumentException();
+		}
+		return storage.childrenView(node);
+	}
+
+	/**
+	 * @param node The object that represents the node for which the parents will be returned
+	 * @return an unmodifiable view of the nodes with edges to node (the pointsToMe set of its
+	 * 		   GraphNode) like viewChildren, or null if node is not in 'this'
+	 * @throws IllegalArgumentException if: node == null
+	 */
+	public Set<N> viewParents(N node) throws IllegalArgumentException {
+		if (node == null) {
+			throw new IllegalArgumentException();
+		}
+		if (!storage.containsNode(node)) {
 			return null;
 		}
+		return storage.parentsView(node);
+	}
 
-		return new HashSet<E>(nodesToEdges.get(nodeFrom).get(nodeTo));
+	/**
+	 * @param nodeFrom The name of the node with an edge that points to nodeTo
+	 * @param nodeTo The name of the node with an edge pointing to it from nodeFrom
+	 * @return an unmodifiable view of the labels of the edges from nodeFrom to nodeTo like
+	 * 		   viewChildren, or null in the same cases as getEdges
+	 * @throws IllegalArgumentException if: nodeFrom == null || nodeTo == null
+	 */
+	public Set<E> viewEdges(N nodeFrom, N nodeTo) throws IllegalArgumentException {
+		if (nodeFrom == null || nodeTo == null) {
+			throw new IllegalArgumentException();
+		}
+		return storage.edgesView(nodeFrom, nodeTo);
+	}
+
+	/**
+	 * @return an unmodifiable view of all the nodes in 'this' like viewChildren, or null if
+	 * 		   'this' is empty
+	 */
+	public Set<N> viewAllNodes() {
+		if (isEmpty()) {
+			return null;
+		}
+		return storage.nodesView();
 	}
 
 	/**
 	 * @effects Clears 'this' so that it has no nodes or edges.
 	 */
 	public void clear() {
-		nodes.clear();
-		nodesToEdges.clear();
+		storage.clear();
 		checkRep();
 	}
 
@@ -283,7 +285,7 @@ public class Graph<N, E> {
 	 * @return true if 'this' is empty and false otherwise
 	 */
 	public boolean isEmpty() {
-		return nodes.isEmpty();
+		return storage.nodeCount() == 0;
 	}
 
 	/**
@@ -295,7 +297,15 @@ public class Graph<N, E> {
 		if (isEmpty()) {
 			return null;
 		}
-		return new HashSet<N>(nodes.keySet());
+		return storage.nodes();
+	}
+
+	/**
+	 * @return an immutable FrozenGraph with the nodes and edges of 'this'. Later changes to
+	 * 		   'this' are not reflected in the FrozenGraph.
+	 */
+	public FrozenGraph<N, E> freeze() {
+		return new FrozenGraph<N, E>(storage);
 	}
 
 	/**
@@ -311,58 +321,49 @@ public class Graph<N, E> {
 			return "";
 		}
 
-		String result = "";
-		Set<N> allNodes = getAllNodes();
-		Iterator<N> itr = allNodes.iterator();
-		while (itr.hasNext()) {
-			N nextNode= itr.next();
+		// built in one StringBuilder from the views of the storage, so it takes time linear in
+		// the size of the output
+		StringBuilder result = new StringBuilder();
+		for (N nextNode : storage.nodesView()) {
+			Set<N> pointsToMe = storage.parentsView(nextNode);
+			Set<N> pointsTo = storage.childrenView(nextNode);
 
 			// this node has no edges
-			if (!nodesToEdges.containsKey(nextNode) && nodes.get(nextNode).getPointsToMe().isEmpty()) {
-				result += "(" + nextNode + " has no edges to or from it)\n";
+			if (pointsTo == null && pointsToMe.isEmpty()) {
+				result.append('(').append(nextNode).append(" has no edges to or from it)\n");
 				continue;
 			}
 
 			// this node has other nodes pointing to it
-			if (!nodes.get(nextNode).getPointsToMe().isEmpty()) {
-				result += "(" + nextNode + " is pointed to by: ";
-				Iterator<N> itr2 = nodes.get(nextNode).getPointsToMe().iterator();
-				if (itr2.hasNext()) {
-					N nextNode2 = itr2.next();
-					result += nextNode2 + "(edge(s): " + nodesToEdges.get(nextNode2).get(nextNode).toString() + ")";
-				} else {
-
+			if (!pointsToMe.isEmpty()) {
+				result.append('(').append(nextNode).append(" is pointed to by: ");
+				String separator = "";
+				for (N nextNode2 : pointsToMe) {
+					result.append(separator).append(nextNode2).append("(edge(s): ")
+							.append(storage.edgesView(nextNode2, nextNode)).append(')');
+					separator = ", ";
 				}
-				while (itr2.hasNext()) {
-					N nextNode2 = itr2.next();
-					result += ", " + nextNode2 + "(edge(s): " + nodesToEdges.get(nextNode2).get(nextNode).toString() + ")";
-				}
-				result += ")\n";
+				result.append(")\n");
 			} else {
-				result += "(" + nextNode + " has no edges to it)\n";
+				result.append('(').append(nextNode).append(" has no edges to it)\n");
 			}
 
 			// this node has edges to other nodes
-			if (nodesToEdges.containsKey(nextNode)) {
-				result += "(" + nextNode + " points to: ";
-
-				Set<N> pointsToNodes = nodesToEdges.get(nextNode).keySet();
-				Iterator<N> itr2 = pointsToNodes.iterator();
-				if (itr2.hasNext()) {
-					N nextNode2 = itr2.next();
-					result += nextNode2 + "(edge(s): " + nodesToEdges.get(nextNode).get(nextNode2).toString() + ")";
-				}
-				while (itr2.hasNext()) {
-					N str2 = itr2.next();
-					result += ", " + str2 + "(edge(s): " + nodesToEdges.get(nextNode).get(str2).toString() + ")";
+			if (pointsTo != null) {
+				result.append('(').append(nextNode).append(" points to: ");
+				String separator = "";
+				for (N nextNode2 : pointsTo) {
+					result.append(separator).append(nextNode2).append("(edge(s): ")
+							.append(storage.edgesView(nextNode, nextNode2)).append(')');
+					separator = ", ";
 				}
-				result += ")\n";
+				result.append(")\n");
 			} else {
-				result += "(" + nextNode + " has no edges from it)\n";
+				result.append('(').append(nextNode).append(" has no edges from it)\n");
 			}
-		}	
+		}
 
-		return result;
+		return result.toString();
 	}
 
 	/**
@@ -378,7 +379,7 @@ public class Graph<N, E> {
 			return false;
 		}
 		Graph<?, ?> g = (Graph<?, ?>) o;
-		return this.nodes.equals(g.nodes) && this.nodesToEdges.equals(g.nodesToEdges);
+		return this.getNodes().equals(g.getNodes()) && this.getNodesToEdges().equals(g.getNodesToEdges());
 	}
 
 	/**
@@ -386,7 +387,15 @@ public class Graph<N, E> {
 	 * @return nodes
 	 */
 	public Map<N, GraphNode<N>> getNodes() {
-		return new HashMap<N, GraphNode<N>>(nodes);
+		Map<N, GraphNode<N>> result = new HashMap<N, GraphNode<N>>();
+		for (N node : storage.nodesView()) {
+			GraphNode<N> graphNode = new GraphNode<N>(node);
+			for (N parent : storage.parentsView(node)) {
+				graphNode.addToPointsToMe(parent);
+			}
+			result.put(node, graphNode);
+		}
+		return result;
 	}
 
 	/**
@@ -394,23 +403,36 @@ public class Graph<N, E> {
 	 * @return nodesToEdges
 	 */
 	public Map<N, HashMap<N, HashSet<E>>> getNodesToEdges() {
-		return new HashMap<N, HashMap<N, HashSet<E>>>(nodesToEdges);
+		Map<N, HashMap<N, HashSet<E>>> result = new HashMap<N, HashMap<N, HashSet<E>>>();
+		for (N node : storage.nodesView()) {
+			Set<N> children = storage.childrenView(node);
+			if (children != null) {
+				HashMap<N, HashSet<E>> hm = new HashMap<N, HashSet<E>>();
+				for (N child : children) {
+					hm.put(child, new HashSet<E>(storage.edgesView(node, child)));
+				}
+				result.put(node, hm);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * private helper method that returns an empty storage that suits a graph with
+	 * expectedNodes nodes and expectedEdges edges
+	 */
+	private static <N, E> GraphStorage<N, E> storageFor(int expectedNodes, long expectedEdges) {
+		if (expectedNodes > 0 && expectedNodes <= MAX_DENSE_NODES
+				&& expectedEdges >= MIN_DENSE_DENSITY * expectedNodes * expectedNodes) {
+			return new BitMatrixGraphStorage<N, E>(expectedNodes);
+		}
+		return new HashGraphStorage<N, E>();
 	}
 
 	/**
 	 * Checks that the representation invariant holds.
 	 */
 	private void checkRep() {
-		assert (nodes != null) : "nodes is null";
-		assert (nodesToEdges != null) : "nodesToEdges is null";
-
-		if (runExpensiveCheckRep) {
-			Set<N> temp = nodesToEdges.keySet();
-			Iterator<N> itr = temp.iterator();
-			while (itr.hasNext()) {
-				N nextNode = itr.next();
-				assert (!nodesToEdges.get(nextNode).isEmpty()) : "HashMap for key " + nextNode + " is empty.";
-			}
-		}
+		assert (storage != null) : "storage is null";
 	}
 }
@@ -0,0 +1,428 @@
+package javaFiles;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * GraphExporter writes a Graph to an Appendable in one of three formats:
+ *
+ * dot      a Graphviz digraph with a statement per node and per edge, the edges labeled
+ * graphml  a GraphML document with a node element per node and an edge element per edge, the
+ *          label of the edge in a data element with the key "label"
+ * tsv      an edge list with a line "from\tto\tlabel" per edge and a line "node" per node that
+ *          has no edges to or from it; tabs, newlines and backslashes in names are escaped
+ *          as \t, \n and \\
+ *
+ * The nodes and labels are written as the Strings returned by pluggable formatters, String.valueOf
+ * by default, and escaped for the format. The graph is read through its views and written as it
+ * is read, so an export takes constant memory besides the formatted Strings however large the
+ * graph is. Nodes and edges are written in no particular order.
+ *
+ * Usage: GraphExporter [-format dot|graphml|tsv] [-nodlc] [-o output file] fusions|possibleFusions
+ * (defaults: dot, dlc personas included, standard output)
+ */
+public class GraphExporter<N, E> {
+
+	// the size of the output buffer of main
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	public static final String DOT = "dot";
+	public static final String GRAPHML = "graphml";
+	public static final String TSV = "tsv";
+
+	private final Function<? super N, String> nodeFormatter;
+	private final Function<? super E, String> labelFormatter;
+
+	/**
+	 * @effects Constructs a GraphExporter that formats nodes and labels with String.valueOf
+	 */
+	public GraphExporter() {
+		this(String::valueOf, String::valueOf);
+	}
+
+	/**
+	 * @param nodeFormatter The function that formats the nodes
+	 * @param labelFormatter The function that formats the labels of the edges
+	 * @throws IllegalArgumentException if nodeFormatter == null || labelFormatter == null
+	 * @effects Constructs a GraphExporter that formats nodes and labels with the given functions
+	 */
+	public GraphExporter(Function<? super N, String> nodeFormatter, Function<? super E, String> labelFormatter)
+			throws IllegalArgumentException {
+		if (nodeFormatter == null || labelFormatter == null) {
+			throw new IllegalArgumentException();
+		}
+		this.nodeFormatter = nodeFormatter;
+		this.labelFormatter = labelFormatter;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String format = DOT;
+		boolean includeDlc = true;
+		String graph = null;
+		String output = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-format") && i + 1 < args.length) {
+				format = args[++i];
+			} else if (args[i].equals("-nodlc")) {
+				includeDlc = false;
+			} else if (args[i].equals("-o") && i + 1 < args.length) {
+				output = args[++i];
+			} else if (graph == null && (args[i].equals("fusions") || args[i].equals("possibleFusions"))) {
+				graph = args[i];
+			} else {
+				graph = null;
+				break;
+			}
+		}
+		if (graph == null || !(format.equals(DOT) || format.equals(GRAPHML) || format.equals(TSV))) {
+			System.err.println("Usage: GraphExporter [-format dot|graphml|tsv] [-nodlc] [-o output file] fusions|possibleFusions");
+			System.exit(2);
+		}
+
+		FusionDataGraph fd = FusionDataGraph.load(includeDlc);
+		OutputStream os = output == null ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(output);
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			if (graph.equals("fusions")) {
+				fd.exportFusions(out, format);
+			} else {
+				fd.exportPossibleFusions(out, format);
+			}
+		}
+	}
+
+	/**
+	 * @param graph The graph to write
+	 * @param name The name of the graph in the dot and graphml formats
+	 * @param format The format to write: DOT, GRAPHML or TSV
+	 * @param out The Appendable to write to
+	 * @throws IOException if out throws an IOException
+	 * @throws IllegalArgumentException if graph == null || name == null || out == null or format
+	 * 		   is not a valid format
+	 * @modifies out
+	 * @effects writes every node and edge of graph to out in format
+	 */
+	public void write(Graph<N, E> graph, String name, String format, Appendable out)
+			throws IOException, IllegalArgumentException {
+		if (graph == null || name == null || out == null || format == null) {
+			throw new IllegalArgumentException();
+		}
+		if (format.equals(DOT)) {
+			writeDot(graph, name, out);
+		} else if (format.equals(GRAPHML)) {
+			writeGraphML(graph, name, out);
+		} else if (format.equals(TSV)) {
+			writeEdgeList(graph, out);
+		} else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Writes the graph with the nodes nodes and an edge from nodes.get(i) to nodes.get(j) labeled
+	 * labels.get(matrix[i * n + j]) for every entry of matrix that is not negative, where n is
+	 * nodes.size(), without building it as a Graph.
+	 *
+	 * @param nodes The nodes of the graph, in the order of the rows and columns of matrix
+	 * @param matrix The n x n matrix of the indexes into labels of the labels of the edges, in
+	 * 		  row-major order, with a negative entry where there is no edge
+	 * @param labels The labels of the edges
+	 * @param name The name of the graph in the dot and graphml formats
+	 * @param format The format to write: DOT, GRAPHML or TSV
+	 * @param out The Appendable to write to
+	 * @throws IOException if out throws an IOException
+	 * @throws IllegalArgumentException if an argument is null, matrix.length != n * n or format
+	 * 		   is not a valid format
+	 * @requires every entry of matrix is negative or a valid index into labels
+	 * @modifies out
+	 * @effects writes every node and edge of the graph to out in format
+	 */
+	public void writeMatrix(List<N> nodes, int[] matrix, List<E> labels, String name, String format,
+			Appendable out) throws IOException, IllegalArgumentException {
+		if (nodes == null || matrix == null || labels == null || name == null || out == null || format == null
+				|| (long) nodes.size() * nodes.size() != matrix.length) {
+			throw new IllegalArgumentException();
+		}
+		if (!format.equals(DOT) && !format.equals(GRAPHML) && !format.equals(TSV)) {
+			throw new IllegalArgumentException();
+		}
+		int n = nodes.size();
+		String[] names = new String[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = nodeFormatter.apply(nodes.get(i));
+		}
+		appendHeader(format, name, out);
+		if (!format.equals(TSV)) {
+			for (String node : names) {
+				appendNode(format, node, out);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			boolean hasEdges = false;
+			for (int j = 0; j < n; j++) {
+				int label = matrix[i * n + j];
+				if (label >= 0) {
+					appendEdge(format, names[i], names[j], labelFormatter.apply(labels.get(label)), out);
+					hasEdges = true;
+				}
+			}
+			// write the nodes with no edges at all, so that the edge list has every node
+			if (format.equals(TSV) && !hasEdges && !hasEdgeTo(matrix, n, i)) {
+				appendNode(format, names[i], out);
+			}
+		}
+		appendFooter(format, out);
+	}
+
+	/**
+	 * @param graph The graph to write
+	 * @param name The name of the digraph
+	 * @param out The Appendable to write to
+	 * @throws IOException if out throws an IOException
+	 * @modifies out
+	 * @effects writes graph to out in the dot format
+	 */
+	public void writeDot(Graph<N, E> graph, String name, Appendable out) throws IOException {
+		appendHeader(DOT, name, out);
+		Set<N> nodes = graph.viewAllNodes();
+		if (nodes != null) {
+			for (N node : nodes) {
+				appendNode(DOT, nodeFormatter.apply(node), out);
+			}
+			for (N from : nodes) {
+				Set<N> children = graph.viewChildren(from);
+				if (children == null) {
+					continue;
+				}
+				String fromName = nodeFormatter.apply(from);
+				for (N to : children) {
+					String toName = nodeFormatter.apply(to);
+					for (E label : graph.viewEdges(from, to)) {
+						appendEdge(DOT, fromName, toName, labelFormatter.apply(label), out);
+					}
+				}
+			}
+		}
+		appendFooter(DOT, out);
+	}
+
+	/**
+	 * @param graph The graph to write
+	 * @param name The id of the graph element
+	 * @param out The Appendable to write to
+	 * @throws IOException if out throws an IOException
+	 * @modifies out
+	 * @effects writes graph to out as a GraphML document
+	 */
+	public void writeGraphML(Graph<N, E> graph, String name, Appendable out) throws IOException {
+		appendHeader(GRAPHML, name, out);
+		Set<N> nodes = graph.viewAllNodes();
+		if (nodes != null) {
+			for (N node : nodes) {
+				appendNode(GRAPHML, nodeFormatter.apply(node), out);
+			}
+			for (N from : nodes) {
+				Set<N> children = graph.viewChildren(from);
+				if (children == null) {
+					continue;
+				}
+				String fromName = nodeFormatter.apply(from);
+				for (N to : children) {
+					String toName = nodeFormatter.apply(to);
+					for (E label : graph.viewEdges(from, to)) {
+						appendEdge(GRAPHML, fromName, toName, labelFormatter.apply(label), out);
+					}
+				}
+			}
+		}
+		appendFooter(GRAPHML, out);
+	}
+
+	/**
+	 * @param graph The graph to write
+	 * @param out The Appendable to write to
+	 * @throws IOException if out throws an IOException
+	 * @modifies out
+	 * @effects writes graph to out as a tab-separated edge list
+	 */
+	public void writeEdgeList(Graph<N, E> graph, Appendable out) throws IOException {
+		Set<N> nodes = graph.viewAllNodes();
+		if (nodes == null) {
+			return;
+		}
+		for (N from : nodes) {
+			Set<N> children = graph.viewChildren(from);
+			String fromName = nodeFormatter.apply(from);
+			if (children == null) {
+				// write the nodes with no edges at all, so that the edge list has every node
+				if (graph.viewParents(from).isEmpty()) {
+					appendNode(TSV, fromName, out);
+				}
+				continue;
+			}
+			for (N to : children) {
+				String toName = nodeFormatter.apply(to);
+				for (E label : graph.viewEdges(from, to)) {
+					appendEdge(TSV, fromName, toName, labelFormatter.apply(label), out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that appends what comes before the nodes and edges in format
+	 */
+	private static void appendHeader(String format, String name, Appendable out) throws IOException {
+		if (format.equals(DOT)) {
+			out.append("digraph ");
+			appendDotString(out, name);
+			out.append(" {\n");
+		} else if (format.equals(GRAPHML)) {
+			out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			out.append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+			out.append("\t<key id=\"label\" for=\"edge\" attr.name=\"label\" attr.type=\"string\"/>\n");
+			out.append("\t<graph id=\"");
+			appendXml(out, name);
+			out.append("\" edgedefault=\"directed\">\n");
+		}
+	}
+
+	/**
+	 * private helper method that appends the node with the formatted name node in format
+	 */
+	private static void appendNode(String format, String node, Appendable out) throws IOException {
+		if (format.equals(DOT)) {
+			out.append('\t');
+			appendDotString(out, node);
+			out.append(";\n");
+		} else if (format.equals(GRAPHML)) {
+			out.append("\t\t<node id=\"");
+			appendXml(out, node);
+			out.append("\"/>\n");
+		} else {
+			appendTsv(out, node);
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * private helper method that appends the edge from the node from to the node to, labeled
+	 * label, in format
+	 */
+	private static void appendEdge(String format, String from, String to, String label, Appendable out)
+			throws IOException {
+		if (format.equals(DOT)) {
+			out.append('\t');
+			appendDotString(out, from);
+			out.append(" -> ");
+			appendDotString(out, to);
+			out.append(" [label=");
+			appendDotString(out, label);
+			out.append("];\n");
+		} else if (format.equals(GRAPHML)) {
+			out.append("\t\t<edge source=\"");
+			appendXml(out, from);
+			out.append("\" target=\"");
+			appendXml(out, to);
+			out.append("\"><data key=\"label\">");
+			appendXml(out, label);
+			out.append("</data></edge>\n");
+		} else {
+			appendTsv(out, from);
+			out.append('\t');
+			appendTsv(out, to);
+			out.append('\t');
+			appendTsv(out, label);
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * private helper method that appends what comes after the nodes and edges in format
+	 */
+	private static void appendFooter(String format, Appendable out) throws IOException {
+		if (format.equals(DOT)) {
+			out.append("}\n");
+		} else if (format.equals(GRAPHML)) {
+			out.append("\t</graph>\n");
+			out.append("</graphml>\n");
+		}
+	}
+
+	/**
+	 * private helper method that returns whether column col of the n x n matrix has an entry
+	 * that is not negative
+	 */
+	private static boolean hasEdgeTo(int[] matrix, int n, int col) {
+		for (int i = 0; i < n; i++) {
+			if (matrix[i * n + col] >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * private helper method that appends s as a quoted dot string
+	 */
+	private static void appendDotString(Appendable out, String s) throws IOException {
+		out.append('"');
+		int start = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\' || c == '\n') {
+				out.append(s, start, i);
+				out.append(c == '\n' ? "\\n" : c == '"' ? "\\\"" : "\\\\");
+				start = i + 1;
+			}
+		}
+		out.append(s, start, s.length());
+		out.append('"');
+	}
+
+	/**
+	 * private helper method that appends s escaped for XML text and attribute values
+	 */
+	private static void appendXml(Appendable out, String s) throws IOException {
+		int start = 0;
+		for (int i = 0; i < s.length(); i++) {
+			String escaped;
+			switch (s.charAt(i)) {
+			case '&': escaped = "&amp;"; break;
+			case '<': escaped = "&lt;"; break;
+			case '>': escaped = "&gt;"; break;
+			case '"': escaped = "&quot;"; break;
+			case '\'': escaped = "&apos;"; break;
+			default: continue;
+			}
+			out.append(s, start, i);
+			out.append(escaped);
+			start = i + 1;
+		}
+		out.append(s, start, s.length());
+	}
+
+	/**
+	 * private helper method that appends s with its tabs, newlines and backslashes escaped
+	 */
+	private static void appendTsv(Appendable out, String s) throws IOException {
+		int start = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\t' || c == '\n' || c == '\\') {
+				out.append(s, start, i);
+				out.append(c == '\t' ? "\\t" : c == '\n' ? "\\n" : "\\\\");
+				start = i + 1;
+			}
+		}
+		out.append(s, start, s.length());
+	}
+}
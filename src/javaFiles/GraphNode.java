@@ -1,5 +1,6 @@
 package javaFiles;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -44,6 +45,14 @@ public class GraphNode<N> {
 		return new HashSet<N>(pointsToMe);
 	}
 
+	/**
+	 * @return an unmodifiable view of the objects/primitives that represent the GraphNodes with
+	 * 		   outgoing edges to 'this', which reflects later changes to 'this'
+	 */
+	public Set<N> viewPointsToMe() {
+		return Collections.unmodifiableSet(pointsToMe);
+	}
+
 	/**
 	 * @param n The object/primitive that represents the GraphNode that will have an outgoing edge to 'this'
 	 * @requires n != null && pointsToMe doesn't already contain n
@@ -0,0 +1,123 @@
+package javaFiles;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * GraphStorage is the representation of the nodes and edges of a Graph. Graph checks the
+ * arguments of its operations and inserts missing nodes before it calls the storage, so an
+ * implementation may assume that no argument is null and that the nodes of an inserted edge
+ * are already in it.
+ *
+ * The sets returned by the storage are new sets that the caller may keep and modify, except
+ * for the ones returned by the view methods: those are unmodifiable views of the storage that
+ * reflect later changes to it and are not safe to use while it is being modified.
+ */
+public interface GraphStorage<N, E> {
+
+	/**
+	 * @param node The node to insert
+	 * @return true if node was inserted and false if it is already stored
+	 */
+	boolean insertNode(N node);
+
+	/**
+	 * @param from The node the edge points from, which is already stored
+	 * @param to The node the edge points to, which is already stored
+	 * @param label The label of the edge
+	 * @return true if the edge was inserted and false if an edge from 'from' to 'to' with label
+	 * 		   is already stored
+	 */
+	boolean insertEdge(N from, N to, E label);
+
+	/**
+	 * @param node The node to remove
+	 * @return true if node and all its edges were removed and false if it is not stored
+	 */
+	boolean removeNode(N node);
+
+	/**
+	 * @param from The node the edge points from
+	 * @param to The node the edge points to
+	 * @param label The label of the edge
+	 * @return true if the edge was removed and false if it is not stored
+	 */
+	boolean removeEdge(N from, N to, E label);
+
+	/**
+	 * @param node A node
+	 * @return true if node is stored and false otherwise
+	 */
+	boolean containsNode(N node);
+
+	/**
+	 * @return the number of stored nodes
+	 */
+	int nodeCount();
+
+	/**
+	 * @return a set of all the stored nodes
+	 */
+	Set<N> nodes();
+
+	/**
+	 * @param node A node
+	 * @return a set of the nodes that node has edges to, or null if there are none or node is
+	 * 		   not stored
+	 */
+	Set<N> children(N node);
+
+	/**
+	 * @param node A stored node
+	 * @return a set of the nodes that have edges to node, which is empty if there are none
+	 */
+	Set<N> parents(N node);
+
+	/**
+	 * @param from A node
+	 * @param to A node
+	 * @return a set of the labels of the edges from 'from' to 'to', or null if there are none or
+	 * 		   either node is not stored
+	 */
+	Set<E> edges(N from, N to);
+
+	/**
+	 * @return an unmodifiable view of all the stored nodes
+	 */
+	Set<N> nodesView();
+
+	/**
+	 * @param node A node
+	 * @return an unmodifiable view of the nodes that node has edges to, or null if there are
+	 * 		   none or node is not stored
+	 */
+	Set<N> childrenView(N node);
+
+	/**
+	 * @param node A stored node
+	 * @return an unmodifiable view of the nodes that have edges to node
+	 */
+	Set<N> parentsView(N node);
+
+	/**
+	 * @param from A node
+	 * @param to A node
+	 * @return an unmodifiable view of the labels of the edges from 'from' to 'to', or null if
+	 * 		   there are none or either node is not stored
+	 */
+	Set<E> edgesView(N from, N to);
+
+	/**
+	 * @param from A node
+	 * @param to A node
+	 * @param target The collection to add the labels to
+	 * @effects adds the labels of the edges from 'from' to 'to' to target, without making a
+	 * 			set of them as edges does
+	 */
+	void copyEdges(N from, N to, Collection<? super E> target);
+
+	/**
+	 * Removes all the nodes and edges.
+	 */
+	void clear();
+}
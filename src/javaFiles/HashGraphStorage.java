@@ -0,0 +1,235 @@
+package javaFiles;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HashGraphStorage stores a Graph as a map from every node to the nodes it points to, and from
+ * those to the labels of the edges between them. It takes memory in proportion to the number
+ * of edges, so it suits sparse graphs, and it is the storage of a Graph made with Graph().
+ */
+public class HashGraphStorage<N, E> implements GraphStorage<N, E> {
+
+	// disables/enables the more expensive part of checkRep() to improve performance
+	private final boolean runExpensiveCheckRep = false;
+
+	private Map<N, GraphNode<N>> nodes;
+	private Map<N, HashMap<N, HashSet<E>>> nodesToEdges;
+
+	// Abstraction Function:
+	// The storage is represented by two fields. nodes stores all of the nodes that are currently in
+	// the graph. nodesToEdges maps the nodes that have outedges to the nodes that those outedges point to.
+	// Those nodes that the outedges point to are then mapped to the outedges.
+	//
+	// Representation Invariant:
+	// nodes != null &&
+	// nodesToEdges != null &&
+	// no key in nodesToEdges maps to an empty HashMap (in other words, a node that
+	// does not have any outgoing edges should not be in the keyset for nodesToEdges)
+
+	/**
+	 * @effects Constructs an empty HashGraphStorage
+	 */
+	public HashGraphStorage() {
+		nodes = new HashMap<N, GraphNode<N>>();
+		nodesToEdges = new HashMap<N, HashMap<N, HashSet<E>>>();
+		checkRep();
+	}
+
+	@Override
+	public boolean insertNode(N node) {
+		if (nodes.containsKey(node)) {
+			return false;
+		}
+		nodes.put(node, new GraphNode<N>(node));
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public boolean insertEdge(N nodeFrom, N nodeTo, E label) {
+		// check if the edge already exists; if not, insert it
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
+		if (hm == null) { // nodeFrom does not point to any other nodes
+			// add a new edge between the nodeFrom and nodeTo
+			hm = new HashMap<N, HashSet<E>>();
+			HashSet<E> ts = new HashSet<E>();
+			ts.add(label);
+			hm.put(nodeTo, ts);
+			nodesToEdges.put(nodeFrom, hm);
+		} else { // nodeFrom points to some/a node(s)
+			HashSet<E> ts = hm.get(nodeTo);
+			if (ts != null) { // nodeFrom has existing edges to nodeTo
+				if (!ts.add(label)) {
+					return false;
+				}
+			} else { // add a mapping for nodeTo
+				ts = new HashSet<E>();
+				ts.add(label);
+				hm.put(nodeTo, ts);
+			}
+		}
+		// update nodeTo to have nodeFrom pointing to it
+		nodes.get(nodeTo).addToPointsToMe(nodeFrom);
+
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public boolean removeNode(N node) {
+		if (!nodes.containsKey(node)) {
+			return false;
+		}
+
+		// disconnect the nodes that n points to if there are any
+		HashMap<N, HashSet<E>> children = nodesToEdges.remove(node);
+		if (children != null) { // n has edges pointing to other nodes
+			// for each node that n points to, update its pointsToMe field
+			for (N elem : children.keySet()) {
+				nodes.get(elem).removeFromPointsToMe(node);
+			}
+		}
+
+		// disconnect the nodes that point to n if there are any
+		for (N elem : nodes.get(node).getPointsToMe()) {
+			// for every node that points to n, remove its connection to n; if it doesn't have
+			// any edges that point to other nodes left, remove it from nodesToEdges
+			HashMap<N, HashSet<E>> hm = nodesToEdges.get(elem);
+			hm.remove(node);
+			if (hm.isEmpty()) {
+				nodesToEdges.remove(elem);
+			}
+		}
+
+		// remove the mapping for n
+		nodes.remove(node);
+
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public boolean removeEdge(N nodeFrom, N nodeTo, E label) {
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
+		if (hm == null || !hm.containsKey(nodeTo) || !hm.get(nodeTo).remove(label)) {
+			return false;
+		}
+
+		// if the removed edge was the only edge between nodeFrom and nodeTo, remove the mapping
+		// from nodeFrom to nodeTo, and the mapping of nodeFrom if it now has edges to nothing
+		if (hm.get(nodeTo).isEmpty()) {
+			hm.remove(nodeTo);
+			if (hm.isEmpty()) {
+				nodesToEdges.remove(nodeFrom);
+			}
+			nodes.get(nodeTo).removeFromPointsToMe(nodeFrom);
+		}
+
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public boolean containsNode(N node) {
+		return nodes.containsKey(node);
+	}
+
+	@Override
+	public int nodeCount() {
+		return nodes.size();
+	}
+
+	@Override
+	public Set<N> nodes() {
+		return new HashSet<N>(nodes.keySet());
+	}
+
+	@Override
+	public Set<N> children(N node) {
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(node);
+		if (hm == null) {
+			return null;
+		}
+		return new HashSet<N>(hm.keySet());
+	}
+
+	@Override
+	public Set<N> parents(N node) {
+		return nodes.get(node).getPointsToMe();
+	}
+
+	@Override
+	public Set<E> edges(N nodeFrom, N nodeTo) {
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
+		if (hm == null || !hm.containsKey(nodeTo)) {
+			return null;
+		}
+		return new HashSet<E>(hm.get(nodeTo));
+	}
+
+	@Override
+	public Set<N> nodesView() {
+		return Collections.unmodifiableSet(nodes.keySet());
+	}
+
+	@Override
+	public Set<N> childrenView(N node) {
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(node);
+		if (hm == null) {
+			return null;
+		}
+		return Collections.unmodifiableSet(hm.keySet());
+	}
+
+	@Override
+	public Set<N> parentsView(N node) {
+		return nodes.get(node).viewPointsToMe();
+	}
+
+	@Override
+	public Set<E> edgesView(N nodeFrom, N nodeTo) {
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
+		HashSet<E> labels = hm == null ? null : hm.get(nodeTo);
+		if (labels == null) {
+			return null;
+		}
+		return Collections.unmodifiableSet(labels);
+	}
+
+	@Override
+	public void copyEdges(N nodeFrom, N nodeTo, Collection<? super E> target) {
+		HashMap<N, HashSet<E>> hm = nodesToEdges.get(nodeFrom);
+		HashSet<E> labels = hm == null ? null : hm.get(nodeTo);
+		if (labels != null) {
+			for (E label : labels) {
+				target.add(label);
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		nodes.clear();
+		nodesToEdges.clear();
+		checkRep();
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (nodes != null) : "nodes is null";
+		assert (nodesToEdges != null) : "nodesToEdges is null";
+
+		if (runExpensiveCheckRep) {
+			for (N nextNode : nodesToEdges.keySet()) {
+				assert (!nodesToEdges.get(nextNode).isEmpty()) : "HashMap for key " + nextNode + " is empty.";
+			}
+		}
+	}
+}
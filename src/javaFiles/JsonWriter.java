@@ -0,0 +1,219 @@
+package javaFiles;
+
+import java.io.IOException;
+
+/**
+ * JsonWriter writes JSON text to an Appendable one token at a time. It inserts the commas and
+ * colons between values itself, so callers only describe the structure:
+ *
+ * 		json.beginObject().name("name").value("Arsene").name("level").value(1).endObject();
+ *
+ * JsonWriter does not check that the tokens form valid JSON.
+ */
+public class JsonWriter {
+
+	private final Appendable out;
+
+	// true if the next value is the first one in the current object or array (or the document)
+	private boolean first;
+
+	// true if the next value follows a name and needs no comma
+	private boolean afterName;
+
+	/**
+	 * @param out The Appendable the JSON text will be written to
+	 * @requires out != null
+	 * @effects Constructs a JsonWriter that writes to out
+	 */
+	public JsonWriter(Appendable out) {
+		this.out = out;
+		this.first = true;
+	}
+
+	/**
+	 * @modifies this
+	 * @effects starts a JSON object
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter beginObject() throws IOException {
+		separate();
+		out.append('{');
+		first = true;
+		return this;
+	}
+
+	/**
+	 * @modifies this
+	 * @effects ends the current JSON object
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter endObject() throws IOException {
+		out.append('}');
+		first = false;
+		return this;
+	}
+
+	/**
+	 * @modifies this
+	 * @effects starts a JSON array
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter beginArray() throws IOException {
+		separate();
+		out.append('[');
+		first = true;
+		return this;
+	}
+
+	/**
+	 * @modifies this
+	 * @effects ends the current JSON array
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter endArray() throws IOException {
+		out.append(']');
+		first = false;
+		return this;
+	}
+
+	/**
+	 * @param name The name of the next member of the current object
+	 * @modifies this
+	 * @effects writes the name of an object member
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter name(String name) throws IOException {
+		separate();
+		writeString(name);
+		out.append(':');
+		afterName = true;
+		return this;
+	}
+
+	/**
+	 * @param value The string to write, or null
+	 * @modifies this
+	 * @effects writes a string value, or null if value == null
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter value(String value) throws IOException {
+		separate();
+		if (value == null) {
+			out.append("null");
+		} else {
+			writeString(value);
+		}
+		first = false;
+		return this;
+	}
+
+	/**
+	 * @param value The number to write
+	 * @modifies this
+	 * @effects writes a number value
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter value(long value) throws IOException {
+		separate();
+		out.append(Long.toString(value));
+		first = false;
+		return this;
+	}
+
+	/**
+	 * @param value The number to write
+	 * @modifies this
+	 * @effects writes a number value, or null if value is NaN or infinite, which JSON can't represent
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter value(double value) throws IOException {
+		separate();
+		out.append(Double.isFinite(value) ? Double.toString(value) : "null");
+		first = false;
+		return this;
+	}
+
+	/**
+	 * @param value The boolean to write
+	 * @modifies this
+	 * @effects writes a boolean value
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter value(boolean value) throws IOException {
+		separate();
+		out.append(value ? "true" : "false");
+		first = false;
+		return this;
+	}
+
+	/**
+	 * @modifies this
+	 * @effects writes a null value
+	 * @return this
+	 * @throws IOException if out throws an IOException
+	 */
+	public JsonWriter nullValue() throws IOException {
+		separate();
+		out.append("null");
+		first = false;
+		return this;
+	}
+
+	/**
+	 * private helper method that writes the comma before a value if it isn't the first one
+	 */
+	private void separate() throws IOException {
+		if (afterName) {
+			afterName = false;
+		} else if (!first) {
+			out.append(',');
+		}
+	}
+
+	/**
+	 * private helper method that writes a quoted and escaped string. Runs of characters that
+	 * need no escaping are appended with a single call.
+	 */
+	private void writeString(String s) throws IOException {
+		out.append('"');
+		int start = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			out.append(s, start, i);
+			start = i + 1;
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				out.append(String.format("\\u%04x", (int) c));
+			}
+		}
+		out.append(s, start, s.length());
+		out.append('"');
+	}
+}
@@ -0,0 +1,206 @@
+package javaFiles;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram records durations in nanoseconds into log-linear buckets, like an HDR
+ * histogram: every power of two is split into 32 buckets of equal width, so a recorded value is
+ * off by at most 1/32 (about 3%) of itself, for any value from 0 to Long.MAX_VALUE.
+ *
+ * Recording is lock-free and allocation-free: it increments one counter of an AtomicLongArray,
+ * so it is cheap enough to be left on in every request. Reads may run concurrently with
+ * recording and see a count that is off by the values recorded meanwhile.
+ */
+public class LatencyHistogram {
+
+	// values below 2^SUB_BUCKET_BITS get a bucket of their own, larger values share a bucket
+	// with the values that have the same SUB_BUCKET_BITS highest bits
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+	private final LongAdder total;
+	private final AtomicLong max;
+
+	/**
+	 * @effects Constructs an empty LatencyHistogram
+	 */
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(BUCKETS);
+		total = new LongAdder();
+		max = new AtomicLong();
+	}
+
+	/**
+	 * @param nanos The duration to record, in nanoseconds. Negative durations are recorded as 0.
+	 * @modifies this
+	 * @effects adds nanos to the recorded durations
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		total.add(value);
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value)) {
+			m = max.get();
+		}
+	}
+
+	/**
+	 * @return The number of recorded durations
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @param percentile The percentile, between 0 and 100
+	 * @return The recorded duration at percentile, in nanoseconds, rounded up to the largest
+	 * 		   value of its bucket (but no more than getMax()), or 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		return Math.min(valueAtPercentile(snapshot, count, percentile), max.get());
+	}
+
+	/**
+	 * @return The largest recorded duration in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return A Summary of the recorded durations
+	 */
+	public Summary getSummary() {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		long m = max.get();
+		return new Summary(count, count == 0 ? 0 : total.sum() / count,
+				Math.min(valueAtPercentile(snapshot, count, 50), m), 
+				Math.min(valueAtPercentile(snapshot, count, 99), m),
+				Math.min(valueAtPercentile(snapshot, count, 99.9), m), m);
+	}
+
+	/**
+	 * @modifies this
+	 * @effects removes all the recorded durations. Durations recorded concurrently may or may
+	 * 			not be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		total.reset();
+		max.set(0);
+	}
+
+	/**
+	 * private helper method that returns the bucket of a non-negative value
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * private helper method that returns the largest value of a bucket
+	 */
+	private static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long lowest = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * private helper method that finds a percentile in a snapshot of the bucket counts
+	 */
+	private static long valueAtPercentile(long[] snapshot, long count, double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return highestValueOf(i);
+			}
+		}
+		return highestValueOf(snapshot.length - 1);
+	}
+
+	/**
+	 * An immutable summary of the durations recorded by a LatencyHistogram, in nanoseconds.
+	 */
+	public static class Summary {
+
+		private final long count;
+		private final long mean;
+		private final long p50;
+		private final long p99;
+		private final long p999;
+		private final long max;
+
+		/**
+		 * @effects Constructs a Summary with the given count and durations
+		 */
+		@ConstructorProperties({"count", "mean", "p50", "p99", "p999", "max"})
+		public Summary(long count, long mean, long p50, long p99, long p999, long max) {
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p99 = p99;
+			this.p999 = p999;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMean() {
+			return mean;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getP999() {
+			return p999;
+		}
+
+		public long getMax() {
+			return max;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package javaFiles;
+
+import java.io.IOException;
+
+/**
+ * MalformedDataException is thrown when a data file can't be parsed. It carries the file, line
+ * and column the problem was found at, and its message has the form "file:line:column: problem".
+ */
+public class MalformedDataException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String filename;
+	private final int line;
+	private final int column;
+
+	/**
+	 * @param filename The file that can't be parsed
+	 * @param line The line the problem was found at, starting from 1
+	 * @param column The column the problem was found at in bytes, starting from 1
+	 * @param problem A description of the problem
+	 * @effects Constructs a MalformedDataException
+	 */
+	public MalformedDataException(String filename, int line, int column, String problem) {
+		super(filename + ":" + line + ":" + column + ": " + problem);
+		this.filename = filename;
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * @return The file that can't be parsed
+	 */
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * @return The line the problem was found at, starting from 1
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return The column the problem was found at in bytes, starting from 1
+	 */
+	public int getColumn() {
+		return column;
+	}
+}
@@ -0,0 +1,285 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * NameIndex resolves names typed by a user, such as persona and arcana names, to the names they
+ * stand for. Names are compared by their key: their letters and digits in lower case, so case,
+ * spaces and punctuation don't matter ("jack o lantern" and "JACK-O'-LANTERN" both resolve to
+ * "Jack-o'-Lantern"). The keys are kept in a sorted array, so an exact lookup or the start of a
+ * prefix completion is a binary search that normalizes the input as it compares it and allocates
+ * nothing. Names that don't resolve get "did you mean" suggestions: the names the input is a prefix
+ * of, then the names whose keys are within a small edit distance of it.
+ *
+ * A NameIndex is immutable, so it can be shared by any number of threads.
+ */
+public class NameIndex {
+
+	// the largest edit distance between the keys of an input and a name suggested for it
+	public static final int MAX_DISTANCE = 2;
+
+	private final String[] keys;
+	private final String[] names;
+	private final int maxKeyLength;
+
+	// Abstraction Function:
+	// A NameIndex resolves the input s to names[i] iff key(s) equals keys[i], where key(s) is
+	// the letters and digits of s in lower case.
+	//
+	// Representation Invariant for every NameIndex n:
+	// keys.length == names.length &&
+	// for every i, keys[i] == key(names[i]) && keys[i] is not empty &&
+	// keys is sorted in strictly increasing order &&
+	// maxKeyLength is the length of the longest key
+
+	/**
+	 * @param names The names to index
+	 * @throws IllegalArgumentException if names == null, a name is null or has no letters or
+	 * 		   digits, or two names have the same key
+	 * @effects Constructs a NameIndex of names
+	 */
+	public NameIndex(Collection<String> names) throws IllegalArgumentException {
+		if (names == null) {
+			throw new IllegalArgumentException();
+		}
+		String[][] entries = new String[names.size()][];
+		int count = 0;
+		for (String name : names) {
+			if (name == null) {
+				throw new IllegalArgumentException();
+			}
+			entries[count++] = new String[] {key(name), name};
+		}
+		Arrays.sort(entries, (e1, e2) -> e1[0].compareTo(e2[0]));
+
+		this.keys = new String[count];
+		this.names = new String[count];
+		int longest = 0;
+		for (int i = 0; i < count; i++) {
+			if (entries[i][0].isEmpty() || (i > 0 && entries[i][0].equals(entries[i - 1][0]))) {
+				throw new IllegalArgumentException("ambiguous name " + entries[i][1]);
+			}
+			keys[i] = entries[i][0];
+			this.names[i] = entries[i][1];
+			longest = Math.max(longest, keys[i].length());
+		}
+		this.maxKeyLength = longest;
+		checkRep();
+	}
+
+	/**
+	 * @param input A name typed by a user
+	 * @return The name whose key is the key of input, or null if there is none or input is null
+	 */
+	public String resolve(CharSequence input) {
+		if (input == null) {
+			return null;
+		}
+		int i = lowerBound(input);
+		return i < keys.length && compare(keys[i], input) == 0 ? names[i] : null;
+	}
+
+	/**
+	 * @param prefix The start of a name typed by a user
+	 * @param limit The most names that will be returned
+	 * @return The names whose keys start with the key of prefix, in the order of their keys, at
+	 * 		   most limit of them
+	 * @throws IllegalArgumentException if prefix == null || limit < 0
+	 */
+	public List<String> complete(CharSequence prefix, int limit) throws IllegalArgumentException {
+		if (prefix == null || limit < 0) {
+			throw new IllegalArgumentException();
+		}
+		List<String> completions = new ArrayList<String>();
+		for (int i = lowerBound(prefix); i < keys.length && completions.size() < limit
+				&& startsWith(keys[i], prefix); i++) {
+			completions.add(names[i]);
+		}
+		return completions;
+	}
+
+	/**
+	 * @param input A name typed by a user that doesn't resolve
+	 * @param limit The most names that will be returned
+	 * @return The names input may stand for, at most limit of them: first the completions of
+	 * 		   input, then the names whose keys are within MAX_DISTANCE edits of the key of input,
+	 * 		   closest first. Returns no names if input has no letters or digits.
+	 * @throws IllegalArgumentException if input == null || limit < 0
+	 */
+	public List<String> suggest(CharSequence input, int limit) throws IllegalArgumentException {
+		if (input == null || limit < 0) {
+			throw new IllegalArgumentException();
+		}
+		// input with no letters or digits, such as "??", stands for no name in particular
+		String key = key(input);
+		if (key.isEmpty()) {
+			return new ArrayList<String>();
+		}
+		List<String> suggestions = complete(input, limit);
+		if (suggestions.size() == limit) {
+			return suggestions;
+		}
+
+		// the rows of the edit distance table, reused for every key
+		int[] previous = new int[maxKeyLength + 1];
+		int[] current = new int[maxKeyLength + 1];
+		List<List<String>> byDistance = new ArrayList<List<String>>();
+		for (int d = 0; d <= MAX_DISTANCE; d++) {
+			byDistance.add(new ArrayList<String>());
+		}
+		for (int i = 0; i < keys.length; i++) {
+			int d = distance(key, keys[i], previous, current);
+			if (d <= MAX_DISTANCE && !suggestions.contains(names[i])) {
+				byDistance.get(d).add(names[i]);
+			}
+		}
+		for (List<String> matches : byDistance) {
+			for (String name : matches) {
+				if (suggestions.size() == limit) {
+					return suggestions;
+				}
+				suggestions.add(name);
+			}
+		}
+		return suggestions;
+	}
+
+	/**
+	 * @return The number of names in this NameIndex
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * @param s A name
+	 * @return The key of s: its letters and digits in lower case
+	 */
+	public static String key(CharSequence s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				sb.append(Character.toLowerCase(c));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * private helper method that returns the index of the first key that is not less than the
+	 * key of input, or keys.length if there is none
+	 */
+	private int lowerBound(CharSequence input) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compare(keys[mid], input) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * private helper method that compares key to the key of input without building it
+	 *
+	 * @return a negative number, zero or a positive number if key is less than, equal to or
+	 * 		   greater than the key of input
+	 */
+	private static int compare(String key, CharSequence input) {
+		int j = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char c = nextKeyChar(input, j);
+			if (c == 0) {
+				return 1; // the key of input is a proper prefix of key
+			}
+			j = skipToKeyChar(input, j) + 1;
+			if (key.charAt(i) != c) {
+				return key.charAt(i) - c;
+			}
+		}
+		return nextKeyChar(input, j) == 0 ? 0 : -1;
+	}
+
+	/**
+	 * private helper method that returns true if key starts with the key of prefix
+	 */
+	private static boolean startsWith(String key, CharSequence prefix) {
+		int i = 0;
+		for (int j = skipToKeyChar(prefix, 0); j < prefix.length(); j = skipToKeyChar(prefix, j + 1)) {
+			if (i == key.length() || key.charAt(i++) != Character.toLowerCase(prefix.charAt(j))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * private helper method that returns the index of the first letter or digit of s at or
+	 * after j, or s.length() if there is none
+	 */
+	private static int skipToKeyChar(CharSequence s, int j) {
+		while (j < s.length() && !Character.isLetterOrDigit(s.charAt(j))) {
+			j++;
+		}
+		return j;
+	}
+
+	/**
+	 * private helper method that returns the first letter or digit of s at or after j in lower
+	 * case, or 0 if there is none
+	 */
+	private static char nextKeyChar(CharSequence s, int j) {
+		j = skipToKeyChar(s, j);
+		return j < s.length() ? Character.toLowerCase(s.charAt(j)) : 0;
+	}
+
+	/**
+	 * private helper method that computes the edit distance between a and b, stopping early
+	 * once it is certain to be more than MAX_DISTANCE
+	 *
+	 * @requires previous.length > b.length() && current.length > b.length()
+	 * @return The edit distance between a and b, or MAX_DISTANCE + 1 if it is more than that
+	 */
+	private static int distance(String a, String b, int[] previous, int[] current) {
+		if (Math.abs(a.length() - b.length()) > MAX_DISTANCE) {
+			return MAX_DISTANCE + 1;
+		}
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > MAX_DISTANCE) {
+				return MAX_DISTANCE + 1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return Math.min(previous[b.length()], MAX_DISTANCE + 1);
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (keys.length == names.length) : "keys and names have different lengths";
+		for (int i = 1; i < keys.length; i++) {
+			assert (keys[i - 1].compareTo(keys[i]) < 0) : "keys are not sorted";
+		}
+	}
+}
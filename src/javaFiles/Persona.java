@@ -6,84 +6,137 @@ import java.util.List;
  * belongs to, a base level, unique stats (strength, magic, endurance, agility, luck), unique
  * weaknesses and resistances to the types of attacks in the game, and a status as a regular
  * persona, a dlc persona, a treasure demon, or a guillotine-only persona.
+ *
+ * A Persona is a flyweight over a row of a PersonaTable, which holds its data in columns of
+ * primitives. Its data never changes.
  */
 public class Persona implements Comparable<Persona> {
 
-	private String name;
-	private String arcana;
-	private final int baseLevel;
-
-	// the base stats of the persona, in the order: strength, magic, endurance, agility, luck
-	private final List<Integer> stats;
-
-	// the weaknesses/resistance of the persona, in the order: physical, gun, fire, ice, electric, 
-	// wind, psychic, nuclear, bless, curse
-	// Abbreviation key:
-	// nu = null
-	// rp = repel
-	// wk = weak
-	// rs = resist
-	// ab = absorb
-	private final List<String> wr;
-
-	// either "" (regular persona), "treasure" (treasure demon), "dlc" (dlc persona) or
-	// "guillotine" (guillotine fusion only persona)
-	private final String specialCase;
-
-	// a list of the personas that fuse together to make this persona if this persona can only
-	// be made via guillotine fusion. If this persona is not a guillotine-only persona, then
-	// specialFusion is null.
-	private final List<String> specialFusion;
+	// the table this persona is a row of, and its row
+	private final PersonaTable table;
+	private final int row;
+
+	// Abstraction Function:
+	// A Persona p is the persona in row row of table: see PersonaTable for what it holds.
+	// The stats are in the order: strength, magic, endurance, agility, luck, and the
+	// weaknesses/resistances are in the order: physical, gun, fire, ice, electric, wind, psychic,
+	// nuclear, bless, curse, see Affinity for their codes. The special case is either ""
+	// (regular persona), "treasure" (treasure demon), "dlc" (dlc persona) or "guillotine"
+	// (guillotine fusion only persona), and only guillotine-only personas have a list of the
+	// personas that fuse together to make them.
+	//
+	// Representation Invariant for every Persona p:
+	// table != null && 0 <= row < table.size()
 
 	/**
+	 * @throws IllegalArgumentException if stats doesn't have PersonaTable.STATS entries, wr
+	 * 		   doesn't have PersonaTable.ELEMENTS entries or has one that is not an affinity code
+	 * 		   of Affinity, specialCase is not "", "treasure", "dlc" or "guillotine", or
+	 * 		   specialFusion is null exactly when specialCase is "guillotine". Affinity codes and
+	 * 		   special cases outside those used to be stored as given; since the personas are
+	 * 		   packed into a PersonaTable they are rejected.
 	 * @effects Constructs a Persona object with the specified name, arcana, base level,
 	 * 	        stats, weaknesses/resistances, status (regular persona, treasure demon, dlc 
-	 * 			persona) and list of ingredient personas if applicable
+	 * 			persona) and list of ingredient personas if applicable, in a PersonaTable of its own
 	 */
 	public Persona(String name, String arcana, int baseLevel, List<Integer> stats, List<String> wr,
-			String specialCase, List<String> specialFusion) {
-		this.name = name;
-		this.arcana = arcana;
-		this.baseLevel = baseLevel;
-		this.stats = stats;
-		this.wr = wr;
-		this.specialCase = specialCase;
-		this.specialFusion = specialFusion;
+			String specialCase, List<String> specialFusion) throws IllegalArgumentException {
+		if (stats == null || stats.size() != PersonaTable.STATS || wr == null
+				|| wr.size() != PersonaTable.ELEMENTS) {
+			throw new IllegalArgumentException();
+		}
+		int[] statArray = new int[PersonaTable.STATS];
+		for (int i = 0; i < statArray.length; i++) {
+			statArray[i] = stats.get(i);
+		}
+		long affinities = 0;
+		for (int i = 0; i < PersonaTable.ELEMENTS; i++) {
+			affinities = PersonaTable.withAffinity(affinities, i, Affinity.of(wr.get(i)));
+		}
+		Persona p = new PersonaTable(1).add(name, arcana, baseLevel, statArray, affinities,
+				PersonaTable.Kind.of(specialCase), specialFusion);
+		this.table = p.table;
+		this.row = p.row;
+	}
+
+	/**
+	 * @param table The table the persona is a row of
+	 * @param row The row of the persona
+	 * @requires 0 <= row < table.size()
+	 * @effects Constructs the Persona in row row of table
+	 */
+	Persona(PersonaTable table, int row) {
+		this.table = table;
+		this.row = row;
 	}
 
 	/**
 	 * @returns a String that represents the name of this persona
 	 */
 	public String getName() {
-		return name;
+		return table.getName(row);
 	}
 
 	/**
 	 * @returns a String that represents the arcana of this persona
 	 */
 	public String getArcana() {
-		return arcana;
+		return table.getArcana(row);
 	}
 
 	/**
 	 * @returns an int that is the base level of this persona
 	 */
 	public int getBaseLevel() {
-		return baseLevel;
+		return table.getBaseLevel(row);
 	}
 
 	/**
-	 * @returns a list of Integers representing the base stats of this persona
+	 * @returns an unmodifiable list of Integers representing the base stats of this persona
 	 */
 	public List<Integer> getStats() {
-		return stats;
+		Integer[] stats = new Integer[PersonaTable.STATS];
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] = table.getStat(row, i);
+		}
+		return List.of(stats);
 	}
 
 	/**
-	 * @returns a list of Strings representing the weaknesses/resistance of this persona
+	 * @param stat The index of a stat, in the order of getStats()
+	 * @requires 0 <= stat < PersonaTable.STATS
+	 * @returns the base stat of this persona at index stat, without boxing
+	 */
+	public int getStat(int stat) {
+		return table.getStat(row, stat);
+	}
+
+	/**
+	 * @returns an unmodifiable list of Strings representing the weaknesses/resistance of this persona
 	 */
 	public List<String> getWR() {
-		return wr;
+		String[] wr = new String[PersonaTable.ELEMENTS];
+		for (int i = 0; i < wr.length; i++) {
+			wr[i] = table.getAffinity(row, i).getCode();
+		}
+		return List.of(wr);
+	}
+
+	/**
+	 * @param element The index of an element, in the order of getWR()
+	 * @requires 0 <= element < PersonaTable.ELEMENTS
+	 * @returns the affinity of this persona to element
+	 */
+	public Affinity getAffinity(int element) {
+		return table.getAffinity(row, element);
+	}
+
+	/**
+	 * @returns the affinities of this persona to every element, packed as by
+	 * 			PersonaTable.withAffinity
+	 */
+	public long getAffinities() {
+		return table.getAffinities(row);
 	}
 
 	/**
@@ -91,15 +144,36 @@ public class Persona implements Comparable<Persona> {
 	 * 			persona, treasure demon, or guillotine fusion only persona)
 	 */
 	public String getSpecialCase() {
-		return specialCase;
+		return table.getKind(row).getCode();
+	}
+
+	/**
+	 * @returns the special case of this persona as a PersonaTable.Kind
+	 */
+	public PersonaTable.Kind getKind() {
+		return table.getKind(row);
 	}
 
 	/**
-	 * @returns a list of Strings representing the personas that fuse together to make
+	 * @returns an unmodifiable list of Strings representing the personas that fuse together to make
 	 * 	        this persona. If this persona is not a guillotine-only persona, returns null
 	 */
 	public List<String> getSpecialFusion() {
-		return specialFusion;
+		return table.getSpecialFusion(row);
+	}
+
+	/**
+	 * @returns the PersonaTable this persona is a row of
+	 */
+	PersonaTable getTable() {
+		return table;
+	}
+
+	/**
+	 * @returns the row of this persona in getTable()
+	 */
+	int getRow() {
+		return row;
 	}
 
 	/**
@@ -114,9 +188,9 @@ public class Persona implements Comparable<Persona> {
 	 *          persona
 	 */
 	public int compareTo(Persona other) {
-		if (this.baseLevel > other.baseLevel) {
+		if (getBaseLevel() > other.getBaseLevel()) {
 			return 1;
-		} else if (this.baseLevel < other.baseLevel) {
+		} else if (getBaseLevel() < other.getBaseLevel()) {
 			return -1;
 		} else {
 			return 0;
@@ -127,7 +201,7 @@ public class Persona implements Comparable<Persona> {
 	 * @returns a unique hashcode for this persona
 	 */
 	public int hashCode() {
-		return name.hashCode();
+		return getName().hashCode();
 	}
 
 	/**
@@ -142,13 +216,13 @@ public class Persona implements Comparable<Persona> {
 			return false;
 		}
 		Persona p = (Persona) o;
-		return this.name.equals(p.name);
+		return getName().equals(p.getName());
 	}
 
 	/**
 	 * @returns a String representation of this persona in the form of its name
 	 */
 	public String toString() {
-		return name;
+		return getName();
 	}
 }
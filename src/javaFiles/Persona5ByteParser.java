@@ -0,0 +1,413 @@
+package javaFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Parser for the personaData.txt, possibleFusions.txt and treasureFusions.txt files that reads
+ * the same formats as Persona5ParserGraph, see there, into the same collections. Each file is
+ * memory-mapped and split into lines and tab-separated fields in place, as byte offsets into the
+ * mapping. Numbers and affinity codes are decoded from the bytes, and the personas are added to
+ * one PersonaTable per file, so the only Strings made are the names, once per distinct name: a
+ * name that was seen before in the same file is looked up without allocating. A line that
+ * doesn't have the format of its file is reported with a MalformedDataException that gives its
+ * line and column, instead of an ArrayIndexOutOfBoundsException or a NumberFormatException.
+ */
+public class Persona5ByteParser {
+
+	// the number of fields of a persona line before the dlc flag, treasure flag or guillotine
+	// ingredients
+	private static final int PERSONA_FIELDS = 17;
+
+	/**
+	 * Reads the personaData.txt file, see Persona5ParserGraph.parsePersonas
+	 *
+	 * @param filename the file that will be read
+	 * @param arcana A map from arcana names to a list of the personas in that arcana
+	 * @param personas A map from persona names to the actual persona objects
+	 * @param personaList A list of the personas in the order they are read from the file
+	 * @param highestLevels A map from arcanas to the level of the highest-level persona in that arcana
+	 * @param fusions A graph that gets a node for every persona
+	 * @param includeDlc Whether dlc personas are read or skipped
+	 * @throws IOException if the file can't be read
+	 * @throws MalformedDataException if a line of the file is not an arcana or a persona
+	 * @modifies arcana, personas, personaList, highestLevels, fusions
+	 * @effects fills the collections as Persona5ParserGraph.parsePersonas does
+	 */
+	public static void parsePersonas(String filename, HashMap<String, List<Persona>> arcana,
+			HashMap<String, Persona> personas, List<Persona> personaList,
+			HashMap<String, Integer> highestLevels, Graph<String, String> fusions, boolean includeDlc)
+					throws IOException, MalformedDataException {
+		LineReader in = new LineReader(filename);
+		PersonaTable table = new PersonaTable(256);
+		int[] stats = new int[PersonaTable.STATS];
+		String currentArcana = null;
+		int highLev = 0;
+		while (in.nextLine()) {
+			int fields = in.fieldCount();
+			if (fields == 0) { // the end of an arcana
+				if (currentArcana != null) {
+					highestLevels.put(currentArcana, highLev);
+				}
+				continue;
+			}
+			if (fields == 1) { // this is an arcana line
+				currentArcana = in.string(0);
+				arcana.put(currentArcana, new ArrayList<Persona>());
+				continue;
+			}
+			if (currentArcana == null) {
+				throw in.error(0, "persona before the first arcana");
+			}
+			if (fields < PERSONA_FIELDS) {
+				throw in.error(fields, "expected at least " + PERSONA_FIELDS + " fields, found " + fields);
+			}
+
+			int level = in.integer(0);
+			String name = in.string(1);
+			for (int i = 0; i < PersonaTable.STATS; i++) {
+				stats[i] = in.integer(i + 2);
+			}
+			long affinities = 0;
+			for (int i = 0; i < PersonaTable.ELEMENTS; i++) {
+				affinities = PersonaTable.withAffinity(affinities, i, in.affinity(i + 7));
+			}
+
+			Persona pers;
+			if (fields == PERSONA_FIELDS) { // regular persona
+				pers = table.add(name, currentArcana, level, stats, affinities, PersonaTable.Kind.REGULAR, null);
+				highLev = level;
+			} else if (in.fieldEquals(PERSONA_FIELDS, "y")) { // dlc persona
+				pers = includeDlc ? table.add(name, currentArcana, level, stats, affinities,
+						PersonaTable.Kind.DLC, null) : null;
+			} else if (in.fieldEquals(PERSONA_FIELDS, "t")) { // treasure demon
+				pers = table.add(name, currentArcana, level, stats, affinities, PersonaTable.Kind.TREASURE, null);
+			} else { // guillotine fusion
+				List<String> special = new ArrayList<String>(fields - PERSONA_FIELDS);
+				for (int i = PERSONA_FIELDS; i < fields; i++) {
+					special.add(in.string(i));
+				}
+				pers = table.add(name, currentArcana, level, stats, affinities, PersonaTable.Kind.GUILLOTINE, special);
+			}
+
+			if (pers != null) {
+				arcana.get(currentArcana).add(pers);
+				personas.put(name, pers);
+				personaList.add(pers);
+				fusions.insertNode(name);
+			}
+		}
+		if (currentArcana != null) {
+			highestLevels.put(currentArcana, highLev);
+		}
+	}
+
+	/**
+	 * Reads the possibleFusions.txt file, see Persona5ParserGraph.parsePossibleFusions
+	 *
+	 * @param filename the file that will be read
+	 * @param possibleFusions A graph with arcanas as nodes and the resulting arcana of the
+	 * 		  two personas fused as edges
+	 * @throws IOException if the file can't be read
+	 * @throws MalformedDataException if a line of the file is not an arcana or an arcana and
+	 * 		   the result of fusing it with the current arcana
+	 * @modifies possibleFusions
+	 * @effects fills possibleFusions as Persona5ParserGraph.parsePossibleFusions does
+	 */
+	public static void parsePossibleFusions(String filename, Graph<String, String> possibleFusions)
+			throws IOException, MalformedDataException {
+		LineReader in = new LineReader(filename);
+		String currentArcana = null;
+		while (in.nextLine()) {
+			int fields = in.fieldCount();
+			if (fields == 0) { // ignore blank lines
+				continue;
+			}
+			if (fields == 1) { // this is an arcana line
+				currentArcana = in.string(0);
+				possibleFusions.insertNode(currentArcana);
+			} else if (fields == 2) {
+				if (currentArcana == null) {
+					throw in.error(0, "fusion before the first arcana");
+				}
+				String other = in.string(0);
+				String result = in.string(1);
+				possibleFusions.insertEdge(currentArcana, other, result);
+				possibleFusions.insertEdge(other, currentArcana, result);
+			} else {
+				throw in.error(2, "expected 1 or 2 fields, found " + fields);
+			}
+		}
+	}
+
+	/**
+	 * Reads the treasureFusions.txt file, see Persona5ParserGraph.parseTreasureFusions
+	 *
+	 * @param filename the file that will be read
+	 * @param treasureFusions A map that maps from the name of a treasure demon to a map
+	 * 		  that maps from the name of an arcana to an Integer (1, 2, -1, or -2)
+	 * @throws IOException if the file can't be read
+	 * @throws MalformedDataException if a line of the file is not a treasure demon or an arcana
+	 * 		   and a number
+	 * @modifies treasureFusions
+	 * @effects fills treasureFusions as Persona5ParserGraph.parseTreasureFusions does
+	 */
+	public static void parseTreasureFusions(String filename, HashMap<String, HashMap<String, Integer>> treasureFusions)
+			throws IOException, MalformedDataException {
+		LineReader in = new LineReader(filename);
+		HashMap<String, Integer> current = null;
+		while (in.nextLine()) {
+			int fields = in.fieldCount();
+			if (fields == 0) { // ignore blank lines
+				continue;
+			}
+			if (fields == 1) { // this is a treasure demon line
+				current = new HashMap<String, Integer>();
+				treasureFusions.put(in.string(0), current);
+			} else if (fields == 2) {
+				if (current == null) {
+					throw in.error(0, "arcana before the first treasure demon");
+				}
+				current.put(in.string(0), in.integer(1));
+			} else {
+				throw in.error(2, "expected 1 or 2 fields, found " + fields);
+			}
+		}
+	}
+
+	/**
+	 * LineReader walks the lines of a memory-mapped file and splits each one into tab-separated
+	 * fields, kept as byte offsets into the mapping. It makes a String for a field only the first
+	 * time a field with those bytes is read.
+	 */
+	private static class LineReader {
+
+		private final String filename;
+		private final ByteBuffer buf;
+		private int pos; // the start of the next line
+		private int lineNumber;
+		private int lineStart;
+
+		// the fields of the current line are the bytes from starts[i] to ends[i]
+		private int[] starts = new int[32];
+		private int[] ends = new int[32];
+		private int count;
+
+		// open-addressing table of the Strings made so far, by the bytes they were made from
+		private byte[][] keys = new byte[256][];
+		private String[] values = new String[256];
+		private int size;
+
+		/**
+		 * @param filename The file to read
+		 * @throws IOException if the file can't be opened or mapped
+		 * @effects Constructs a LineReader before the first line of filename
+		 */
+		LineReader(String filename) throws IOException {
+			this.filename = filename;
+			try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+				// the mapping stays valid after the channel is closed
+				this.buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+
+		/**
+		 * @return true if there was a next line and it is now the current line, false at the end
+		 * 		   of the file
+		 */
+		boolean nextLine() {
+			int limit = buf.limit();
+			if (pos >= limit) {
+				return false;
+			}
+			lineNumber++;
+			lineStart = pos;
+			int end = pos;
+			while (end < limit && buf.get(end) != '\n') {
+				end++;
+			}
+			pos = end + 1;
+			if (end > lineStart && buf.get(end - 1) == '\r') {
+				end--;
+			}
+
+			count = 0;
+			int start = lineStart;
+			for (int i = lineStart; i <= end; i++) {
+				if (i == end || buf.get(i) == '\t') {
+					if (count == starts.length) {
+						starts = Arrays.copyOf(starts, 2 * count);
+						ends = Arrays.copyOf(ends, 2 * count);
+					}
+					starts[count] = start;
+					ends[count++] = i;
+					start = i + 1;
+				}
+			}
+			// trailing empty fields are dropped, as String.split does
+			while (count > 0 && starts[count - 1] == ends[count - 1]) {
+				count--;
+			}
+			return true;
+		}
+
+		/**
+		 * @return The number of fields of the current line, 0 if it is blank
+		 */
+		int fieldCount() {
+			return count;
+		}
+
+		/**
+		 * @param i The index of a field of the current line
+		 * @return The field as a String, the same String for every field with the same bytes
+		 * @throws MalformedDataException if the field is empty
+		 */
+		String string(int i) throws MalformedDataException {
+			int start = starts[i];
+			int length = ends[i] - start;
+			if (length == 0) {
+				throw error(i, "empty field");
+			}
+			int hash = 0;
+			for (int k = start; k < ends[i]; k++) {
+				hash = 31 * hash + buf.get(k);
+			}
+			int mask = keys.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (keys[slot] != null) {
+				if (sameBytes(keys[slot], start, length)) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			byte[] key = new byte[length];
+			buf.get(start, key);
+			keys[slot] = key;
+			values[slot] = new String(key, StandardCharsets.UTF_8);
+			String value = values[slot];
+			if (++size > keys.length / 2) {
+				grow();
+			}
+			return value;
+		}
+
+		/**
+		 * @param i The index of a field of the current line
+		 * @return The field as a decimal integer with an optional sign
+		 * @throws MalformedDataException if the field is not such an integer or doesn't fit in an int
+		 */
+		int integer(int i) throws MalformedDataException {
+			int k = starts[i];
+			boolean negative = k < ends[i] && buf.get(k) == '-';
+			if (negative || (k < ends[i] && buf.get(k) == '+')) {
+				k++;
+			}
+			if (k == ends[i]) {
+				throw error(i, "expected a number");
+			}
+			long value = 0;
+			for (; k < ends[i]; k++) {
+				int digit = buf.get(k) - '0';
+				if (digit < 0 || digit > 9) {
+					throw new MalformedDataException(filename, lineNumber, k - lineStart + 1, "expected a digit");
+				}
+				value = 10 * value + digit;
+				if (value > Integer.MAX_VALUE) {
+					throw error(i, "number too large");
+				}
+			}
+			return (int) (negative ? -value : value);
+		}
+
+		/**
+		 * @param i The index of a field of the current line
+		 * @return The Affinity whose code is the field
+		 * @throws MalformedDataException if the field is not the code of an Affinity
+		 */
+		Affinity affinity(int i) throws MalformedDataException {
+			for (Affinity a : Affinity.values()) {
+				if (fieldEquals(i, a.getCode())) {
+					return a;
+				}
+			}
+			throw error(i, "expected an affinity");
+		}
+
+		/**
+		 * @param i The index of a field of the current line
+		 * @param s An ASCII String
+		 * @return true if the field has the same characters as s
+		 */
+		boolean fieldEquals(int i, String s) {
+			if (ends[i] - starts[i] != s.length()) {
+				return false;
+			}
+			for (int k = 0; k < s.length(); k++) {
+				if (buf.get(starts[i] + k) != s.charAt(k)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @param i The index of the field the problem is in, or fieldCount() for the end of the line
+		 * @param problem A description of the problem
+		 * @return a MalformedDataException at the start of field i of the current line
+		 */
+		MalformedDataException error(int i, String problem) {
+			int column = i < count ? starts[i] : count == 0 ? lineStart : ends[count - 1];
+			return new MalformedDataException(filename, lineNumber, column - lineStart + 1, problem);
+		}
+
+		/**
+		 * private helper method that returns true if key has the bytes of the mapping from start
+		 */
+		private boolean sameBytes(byte[] key, int start, int length) {
+			if (key.length != length) {
+				return false;
+			}
+			for (int k = 0; k < length; k++) {
+				if (key[k] != buf.get(start + k)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * private helper method that doubles the size of the table of Strings
+		 */
+		private void grow() {
+			byte[][] oldKeys = keys;
+			String[] oldValues = values;
+			keys = new byte[2 * oldKeys.length][];
+			values = new String[keys.length];
+			int mask = keys.length - 1;
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldKeys[j] != null) {
+					int hash = 0;
+					for (byte b : oldKeys[j]) {
+						hash = 31 * hash + b;
+					}
+					int slot = (hash ^ (hash >>> 16)) & mask;
+					while (keys[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					keys[slot] = oldKeys[j];
+					values[slot] = oldValues[j];
+				}
+			}
+		}
+	}
+}
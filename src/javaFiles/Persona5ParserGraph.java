@@ -23,15 +23,17 @@ public class Persona5ParserGraph {
 	 * @param filename the file that will be read
 	 * @param arcana A map from arcana names to a list of the personas in that arcana
 	 * @param personas A map from persona names to the actual persona objects
+	 * @param personaList A list of the personas in the order they are read from the file
 	 * @param highestLevels A map from arcanas to the level of the highest-level persona in that arcana
-	 * @modifies arcana, personas, highestLevels
+	 * @modifies arcana, personas, personaList, highestLevels
 	 * @effects fills arcana with a mappings from arcanas to a list of personas, fills personas with
-	 *          mappings from persona names to the actual persona objects, fills highestLevels with 
-	 *          mappings from arcanas to the level of the highest-level persona in that arcana
+	 *          mappings from persona names to the actual persona objects, appends every persona to 
+	 *          personaList in file order, fills highestLevels with mappings from arcanas to the level 
+	 *          of the highest-level persona in that arcana
 	 */
 	public static void parsePersonas(String filename, HashMap<String, List<Persona>> arcana, 
-			HashMap<String, Persona> personas, HashMap<String, Integer> highestLevels, 
-			Graph<String, String> fusions, boolean includeDlc) {
+			HashMap<String, Persona> personas, List<Persona> personaList, 
+			HashMap<String, Integer> highestLevels, Graph<String, String> fusions, boolean includeDlc) {
 
 		BufferedReader reader = null;
 		try {
@@ -101,6 +103,7 @@ public class Persona5ParserGraph {
 					if (pers != null) {
 						arcana.get(currentArcana).add(pers);
 						personas.put(name, pers);
+						personaList.add(pers);
 						fusions.insertNode(name);
 					}
 				}
@@ -0,0 +1,356 @@
+package javaFiles;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PersonaTable stores personas column by column: a row per persona, with a primitive array for
+ * the base levels and for each stat, one long per persona that packs its affinity to every
+ * element into AFFINITY_BITS bits, and a Kind per persona for its special case. A Persona is a
+ * flyweight over a row of a PersonaTable, so the personas a parser reads share one table and a
+ * scan over every persona reads the columns instead of following a list per persona, with no
+ * boxing.
+ *
+ * Rows are only ever added, never changed or removed, so a Persona keeps its data for as long as
+ * it lives. A PersonaTable that is added to must not be read from other threads at the same time;
+ * once rows are no longer added it can be read from any number of threads.
+ */
+public class PersonaTable {
+
+	// the number of stats of a persona: strength, magic, endurance, agility, luck
+	public static final int STATS = 5;
+
+	// the number of elements a persona has an affinity to: physical, gun, fire, ice, electric,
+	// wind, psychic, nuclear, bless, curse
+	public static final int ELEMENTS = 10;
+
+	// the number of bits of the packed affinities of a persona per element
+	public static final int AFFINITY_BITS = 4;
+
+	private static final long AFFINITY_MASK = (1L << AFFINITY_BITS) - 1;
+
+	/**
+	 * Kind is the special case of a persona, with the code used by Persona.getSpecialCase().
+	 */
+	public enum Kind {
+
+		REGULAR(""),
+		DLC("dlc"),
+		TREASURE("treasure"),
+		GUILLOTINE("guillotine");
+
+		private final String code;
+
+		/**
+		 * @param code The special case of the persona
+		 * @effects Constructs a Kind with the given code
+		 */
+		Kind(String code) {
+			this.code = code;
+		}
+
+		/**
+		 * @return The special case of personas of this Kind, for example "treasure"
+		 */
+		public String getCode() {
+			return code;
+		}
+
+		/**
+		 * @param code The special case of a persona
+		 * @return The Kind with the given code
+		 * @throws IllegalArgumentException if code is not a special case
+		 */
+		public static Kind of(String code) throws IllegalArgumentException {
+			for (Kind k : values()) {
+				if (k.code.equals(code)) {
+					return k;
+				}
+			}
+			throw new IllegalArgumentException("unknown special case " + code);
+		}
+	}
+
+	private static final Kind[] KINDS = Kind.values();
+
+	private String[] names;
+	private String[] arcanas;
+	private int[] baseLevels;
+	private final int[][] stats;
+	private long[] affinities;
+	private byte[] kinds;
+	private List<String>[] specialFusions;
+	private int size;
+
+	// Abstraction Function:
+	// A PersonaTable t holds the rows 0 to size - 1. Row r is the persona named names[r] of the
+	// arcana arcanas[r] with the base level baseLevels[r], the stat s stats[s][r], the affinity
+	// Affinity.get(affinities[r] >>> (AFFINITY_BITS * e) & AFFINITY_MASK) to the element e, the
+	// special case KINDS[kinds[r]] and the guillotine fusion specialFusions[r].
+	//
+	// Representation Invariant for every PersonaTable t:
+	// 0 <= size <= names.length &&
+	// arcanas, baseLevels, every stats[s], affinities, kinds and specialFusions have the length of
+	// names && stats.length == STATS &&
+	// for every row r < size, names[r] != null && arcanas[r] != null &&
+	// specialFusions[r] != null iff kinds[r] is the ordinal of Kind.GUILLOTINE
+
+	/**
+	 * @effects Constructs an empty PersonaTable
+	 */
+	public PersonaTable() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity The number of rows the PersonaTable can hold before it grows
+	 * @throws IllegalArgumentException if capacity < 0
+	 * @effects Constructs an empty PersonaTable
+	 */
+	public PersonaTable(int capacity) throws IllegalArgumentException {
+		if (capacity < 0) {
+			throw new IllegalArgumentException();
+		}
+		names = new String[capacity];
+		arcanas = new String[capacity];
+		baseLevels = new int[capacity];
+		stats = new int[STATS][capacity];
+		affinities = new long[capacity];
+		kinds = new byte[capacity];
+		specialFusions = newLists(capacity);
+		checkRep();
+	}
+
+	/**
+	 * @param name The name of the persona
+	 * @param arcana The arcana of the persona
+	 * @param baseLevel The base level of the persona
+	 * @param stats The STATS base stats of the persona, in the order of Persona.getStats()
+	 * @param affinities The affinities of the persona, packed as by withAffinity
+	 * @param kind The special case of the persona
+	 * @param specialFusion The ingredients of the guillotine fusion of the persona, or null if it
+	 * 		  is not a guillotine-only persona
+	 * @return A Persona over the new row
+	 * @throws IllegalArgumentException if name, arcana, stats or kind is null, stats.length !=
+	 * 		   STATS, or specialFusion is null exactly when kind is Kind.GUILLOTINE
+	 * @modifies this
+	 * @effects adds a row with the given data
+	 */
+	public Persona add(String name, String arcana, int baseLevel, int[] stats, long affinities, Kind kind,
+			List<String> specialFusion) throws IllegalArgumentException {
+		if (name == null || arcana == null || stats == null || stats.length != STATS || kind == null
+				|| (specialFusion == null) == (kind == Kind.GUILLOTINE)) {
+			throw new IllegalArgumentException();
+		}
+		if (size == names.length) {
+			grow();
+		}
+		int row = size++;
+		names[row] = name;
+		arcanas[row] = arcana;
+		baseLevels[row] = baseLevel;
+		for (int s = 0; s < STATS; s++) {
+			this.stats[s][row] = stats[s];
+		}
+		this.affinities[row] = affinities;
+		kinds[row] = (byte) kind.ordinal();
+		specialFusions[row] = specialFusion == null ? null : List.copyOf(specialFusion);
+		return new Persona(this, row);
+	}
+
+	/**
+	 * @param p The persona to copy
+	 * @param baseLevel The base level of the copy
+	 * @return A Persona over the new row
+	 * @throws IllegalArgumentException if p == null
+	 * @modifies this
+	 * @effects adds a row with the data of p, except that its base level is baseLevel
+	 */
+	public Persona add(Persona p, int baseLevel) throws IllegalArgumentException {
+		if (p == null) {
+			throw new IllegalArgumentException();
+		}
+		PersonaTable from = p.getTable();
+		int r = p.getRow();
+		if (size == names.length) {
+			grow();
+		}
+		int row = size++;
+		names[row] = from.names[r];
+		arcanas[row] = from.arcanas[r];
+		baseLevels[row] = baseLevel;
+		for (int s = 0; s < STATS; s++) {
+			stats[s][row] = from.stats[s][r];
+		}
+		affinities[row] = from.affinities[r];
+		kinds[row] = from.kinds[r];
+		specialFusions[row] = from.specialFusions[r]; // unmodifiable, so it can be shared
+		return new Persona(this, row);
+	}
+
+	/**
+	 * @param p The persona to copy
+	 * @return A Persona over the new row
+	 * @throws IllegalArgumentException if p == null
+	 * @modifies this
+	 * @effects adds a row with the data of p
+	 */
+	public Persona add(Persona p) throws IllegalArgumentException {
+		if (p == null) {
+			throw new IllegalArgumentException();
+		}
+		return add(p, p.getBaseLevel());
+	}
+
+	/**
+	 * @param personas The personas that will be the rows
+	 * @return A PersonaTable whose row i is personas[i]: the table of the personas themselves if
+	 * 		   they are its rows in that order, as they are after a parse, and otherwise a new
+	 * 		   table with copies of their rows
+	 * @throws IllegalArgumentException if personas == null or holds null
+	 */
+	public static PersonaTable inOrder(Persona[] personas) throws IllegalArgumentException {
+		if (personas == null) {
+			throw new IllegalArgumentException();
+		}
+		PersonaTable table = personas.length == 0 || personas[0] == null ? null : personas[0].getTable();
+		boolean aligned = table != null && table.size == personas.length;
+		for (int i = 0; aligned && i < personas.length; i++) {
+			aligned = personas[i] != null && personas[i].getTable() == table && personas[i].getRow() == i;
+		}
+		if (aligned) {
+			return table;
+		}
+		PersonaTable copy = new PersonaTable(personas.length);
+		for (Persona p : personas) {
+			copy.add(p);
+		}
+		return copy;
+	}
+
+	/**
+	 * @param affinities Packed affinities
+	 * @param element The index of an element, in the order of Persona.getWR()
+	 * @param affinity The affinity to the element
+	 * @requires 0 <= element < ELEMENTS && affinity != null
+	 * @return affinities with the affinity to element replaced by affinity
+	 */
+	public static long withAffinity(long affinities, int element, Affinity affinity) {
+		int shift = AFFINITY_BITS * element;
+		return affinities & ~(AFFINITY_MASK << shift) | (long) affinity.ordinal() << shift;
+	}
+
+	/**
+	 * @return The number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param row A row
+	 * @requires 0 <= row < size()
+	 * @return The name of the persona in row
+	 */
+	public String getName(int row) {
+		return names[row];
+	}
+
+	/**
+	 * @param row A row
+	 * @requires 0 <= row < size()
+	 * @return The arcana of the persona in row
+	 */
+	public String getArcana(int row) {
+		return arcanas[row];
+	}
+
+	/**
+	 * @param row A row
+	 * @requires 0 <= row < size()
+	 * @return The base level of the persona in row
+	 */
+	public int getBaseLevel(int row) {
+		return baseLevels[row];
+	}
+
+	/**
+	 * @param row A row
+	 * @param stat The index of a stat, in the order of Persona.getStats()
+	 * @requires 0 <= row < size() && 0 <= stat < STATS
+	 * @return The base stat of the persona in row
+	 */
+	public int getStat(int row, int stat) {
+		return stats[stat][row];
+	}
+
+	/**
+	 * @param row A row
+	 * @requires 0 <= row < size()
+	 * @return The affinities of the persona in row, packed as by withAffinity
+	 */
+	public long getAffinities(int row) {
+		return affinities[row];
+	}
+
+	/**
+	 * @param row A row
+	 * @param element The index of an element, in the order of Persona.getWR()
+	 * @requires 0 <= row < size() && 0 <= element < ELEMENTS
+	 * @return The affinity of the persona in row to element
+	 */
+	public Affinity getAffinity(int row, int element) {
+		return Affinity.get((int) (affinities[row] >>> (AFFINITY_BITS * element) & AFFINITY_MASK));
+	}
+
+	/**
+	 * @param row A row
+	 * @requires 0 <= row < size()
+	 * @return The special case of the persona in row
+	 */
+	public Kind getKind(int row) {
+		return KINDS[kinds[row]];
+	}
+
+	/**
+	 * @param row A row
+	 * @requires 0 <= row < size()
+	 * @return An unmodifiable list of the ingredients of the guillotine fusion of the persona in
+	 * 		   row, or null if it is not a guillotine-only persona
+	 */
+	public List<String> getSpecialFusion(int row) {
+		return specialFusions[row];
+	}
+
+	/**
+	 * private helper method that doubles the capacity of every column
+	 */
+	private void grow() {
+		int capacity = Math.max(16, 2 * names.length);
+		names = Arrays.copyOf(names, capacity);
+		arcanas = Arrays.copyOf(arcanas, capacity);
+		baseLevels = Arrays.copyOf(baseLevels, capacity);
+		for (int s = 0; s < STATS; s++) {
+			stats[s] = Arrays.copyOf(stats[s], capacity);
+		}
+		affinities = Arrays.copyOf(affinities, capacity);
+		kinds = Arrays.copyOf(kinds, capacity);
+		specialFusions = Arrays.copyOf(specialFusions, capacity);
+	}
+
+	/**
+	 * private helper method that makes an array of capacity lists of names
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<String>[] newLists(int capacity) {
+		return (List<String>[]) new List<?>[capacity];
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (size >= 0 && size <= names.length) : "size is out of range";
+		assert (stats.length == STATS) : "stats has the wrong number of columns";
+	}
+}
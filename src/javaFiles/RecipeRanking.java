@@ -0,0 +1,230 @@
+package javaFiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * RecipeRanking orders the fusions that make each persona (its recipes) by a FusionCost, cheapest
+ * first, with ties kept in the order of FusionData.getFusions.
+ *
+ * The k cheapest recipes of a persona are selected with a bounded heap of size k. The first time
+ * a page past the top is requested, the full order of that persona's recipes is sorted once and
+ * kept, so paging through the rest only copies the requested slice.
+ */
+public class RecipeRanking {
+
+	private final FusionData fd;
+	private final FusionCost cost;
+
+	// for each persona id, the ingredient ids of its recipes as consecutive pairs, or null if
+	// they have not been needed yet
+	private final int[][] recipes;
+
+	// for each persona id, the costs of its recipes, or null if not needed yet
+	private final int[][] costs;
+
+	// for each persona id, the indexes of its recipes from cheapest to most expensive, or null
+	// if the full order has not been needed yet
+	private final int[][] orders;
+
+	/**
+	 * @param fd The FusionData the recipes are taken from
+	 * @param cost The cost the recipes are ranked by
+	 * @throws IllegalArgumentException if fd == null || cost == null
+	 * @effects Constructs a RecipeRanking
+	 */
+	public RecipeRanking(FusionData fd, FusionCost cost) throws IllegalArgumentException {
+		if (fd == null || cost == null) {
+			throw new IllegalArgumentException();
+		}
+		this.fd = fd;
+		this.cost = cost;
+		recipes = new int[fd.getPersonaCount()][];
+		costs = new int[fd.getPersonaCount()][];
+		orders = new int[fd.getPersonaCount()][];
+	}
+
+	/**
+	 * @param p The name of the persona for which the recipes will be returned
+	 * @param k The most recipes that will be returned
+	 * @return A list of the (at most) k cheapest pairs of personas that fuse together to produce
+	 * 		   p, cheapest first. Returns null if p is a guillotine-only persona, a treasure demon,
+	 * 		   or not a valid persona name.
+	 * @throws IllegalArgumentException if k < 0
+	 */
+	public List<Pair> getTopRecipes(String p, int k) throws IllegalArgumentException {
+		if (k < 0) {
+			throw new IllegalArgumentException();
+		}
+		int id = fd.getPersonaId(p);
+		if (id < 0 || !loadRecipes(id)) {
+			return null;
+		}
+		if (orders[id] != null) {
+			return toPairs(id, orders[id], 0, k);
+		}
+
+		// keep the k cheapest recipes seen so far in a heap with the most expensive on top; the
+		// heap never holds more than all the recipes, however large k is
+		int[] c = costs[id];
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(Math.max(1, Math.min(k, c.length)),
+				(i, j) -> c[i] != c[j] ? Integer.compare(c[j], c[i]) : Integer.compare(j, i));
+		for (int i = 0; i < c.length && k > 0; i++) {
+			if (heap.size() < k) {
+				heap.add(i);
+			} else if (c[i] < c[heap.peek()]) {
+				heap.poll();
+				heap.add(i);
+			}
+		}
+
+		int[] top = new int[heap.size()];
+		for (int i = top.length - 1; i >= 0; i--) {
+			top[i] = heap.poll();
+		}
+		return toPairs(id, top, 0, top.length);
+	}
+
+	/**
+	 * @param p The name of the persona for which the recipes will be returned
+	 * @param offset The number of cheaper recipes to skip
+	 * @param limit The most recipes that will be returned
+	 * @return A list of the recipes of p from position offset (cheapest is position 0) to
+	 * 		   offset + limit, or an empty list if p has no more than offset recipes. Returns null
+	 * 		   if p is a guillotine-only persona, a treasure demon, or not a valid persona name.
+	 * @throws IllegalArgumentException if offset < 0 || limit < 0
+	 */
+	public List<Pair> getRecipes(String p, int offset, int limit) throws IllegalArgumentException {
+		if (offset < 0 || limit < 0) {
+			throw new IllegalArgumentException();
+		}
+		int id = fd.getPersonaId(p);
+		if (id < 0 || !loadRecipes(id)) {
+			return null;
+		}
+		return toPairs(id, getOrder(id), offset, limit);
+	}
+
+	/**
+	 * @param p The name of the persona for which the number of recipes will be returned
+	 * @return The number of recipes of p, or -1 if p is a guillotine-only persona, a treasure
+	 * 		   demon, or not a valid persona name
+	 */
+	public int getRecipeCount(String p) {
+		int id = fd.getPersonaId(p);
+		if (id < 0 || !loadRecipes(id)) {
+			return -1;
+		}
+		return costs[id].length;
+	}
+
+	/**
+	 * @param p The id of the persona for which the number of recipes will be returned
+	 * @requires 0 <= p < fd.getPersonaCount()
+	 * @return The number of recipes of p, or -1 if p is a guillotine-only persona or a
+	 * 		   treasure demon
+	 */
+	public int getRecipeCount(int p) {
+		if (!loadRecipes(p)) {
+			return -1;
+		}
+		return costs[p].length;
+	}
+
+	/**
+	 * Reads the recipes of a persona in order without making Pair objects: the recipe at
+	 * position r (cheapest is position 0) is fused from the personas with the ids
+	 * getRecipeIngredientId(p, 2 * r) and getRecipeIngredientId(p, 2 * r + 1).
+	 *
+	 * @param p The id of the persona the recipe produces
+	 * @param i The index of the ingredient, 2 * position + 0 or 1
+	 * @requires 0 <= p < fd.getPersonaCount() && 0 <= i < 2 * getRecipeCount(p)
+	 * @return The id of the ingredient persona at index i
+	 */
+	public int getRecipeIngredientId(int p, int i) {
+		loadRecipes(p);
+		return recipes[p][2 * getOrder(p)[i / 2] + i % 2];
+	}
+
+	/**
+	 * Computes the full order of the recipes of every persona up front. After this method
+	 * returns, the queries of this RecipeRanking never modify it, so it can be shared by threads
+	 * that are started afterwards.
+	 *
+	 * @modifies this
+	 * @effects computes and keeps the order of the recipes of every persona
+	 */
+	public void sortAll() {
+		for (int id = 0; id < orders.length; id++) {
+			if (loadRecipes(id)) {
+				getOrder(id);
+			}
+		}
+	}
+
+	/**
+	 * @return The FusionCost the recipes are ranked by
+	 */
+	public FusionCost getCost() {
+		return cost;
+	}
+
+	/**
+	 * private helper method that fetches the recipes of a persona and computes their costs
+	 *
+	 * @param id The id of the persona
+	 * @return true if the persona can be made by a two-persona fusion
+	 */
+	private boolean loadRecipes(int id) {
+		if (recipes[id] == null) {
+			int[] pairs = fd.getFusions(id);
+			if (pairs == null) {
+				return false;
+			}
+			int[] c = new int[pairs.length / 2];
+			for (int i = 0; i < c.length; i++) {
+				c[i] = cost.cost(fd.getPersona(pairs[2 * i]), fd.getPersona(pairs[2 * i + 1]));
+			}
+			costs[id] = c;
+			recipes[id] = pairs;
+		}
+		return true;
+	}
+
+	/**
+	 * private helper method that returns the full order of a persona's recipes, sorting them
+	 * the first time they are needed
+	 */
+	private int[] getOrder(int id) {
+		if (orders[id] == null) {
+			int[] c = costs[id];
+			Integer[] order = new Integer[c.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (i, j) -> c[i] != c[j] ? Integer.compare(c[i], c[j]) : Integer.compare(i, j));
+			int[] sorted = new int[order.length];
+			for (int i = 0; i < sorted.length; i++) {
+				sorted[i] = order[i];
+			}
+			orders[id] = sorted;
+		}
+		return orders[id];
+	}
+
+	/**
+	 * private helper method that turns a slice of recipe indexes into pairs of personas
+	 */
+	private List<Pair> toPairs(int id, int[] indexes, int offset, int limit) {
+		int end = (int) Math.min(indexes.length, (long) offset + limit);
+		List<Pair> result = new ArrayList<Pair>(Math.max(0, end - offset));
+		int[] pairs = recipes[id];
+		for (int i = offset; i < end; i++) {
+			int r = indexes[i];
+			result.add(new Pair(fd.getPersona(pairs[2 * r]), fd.getPersona(pairs[2 * r + 1])));
+		}
+		return result;
+	}
+}
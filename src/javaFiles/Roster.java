@@ -0,0 +1,193 @@
+package javaFiles;
+
+/**
+ * Roster represents a mutable set of the personas a player owns, out of the personas of one
+ * FusionDataGraph. It is a bitset over the persona ids of that FusionDataGraph, so it may only be
+ * used with it, and only while its personas don't change.
+ */
+public class Roster {
+
+	private final FusionDataGraph fd;
+	private final long[] bits;
+	private int size;
+
+	// Abstraction Function:
+	// The Roster r holds the persona of fd with the id i iff bit i % 64 of bits[i / 64] is set.
+	// size is the number of personas in r.
+	//
+	// Representation Invariant for every Roster r:
+	// fd != null &&
+	// bits.length == (fd.getPersonaCount() + 63) / 64 when r was made &&
+	// no bit at or after fd.getPersonaCount() is set &&
+	// size == the number of set bits
+
+	/**
+	 * @param fd The FusionDataGraph the personas are taken from
+	 * @throws IllegalArgumentException if fd == null
+	 * @effects Constructs an empty Roster of the personas of fd
+	 */
+	public Roster(FusionDataGraph fd) throws IllegalArgumentException {
+		if (fd == null) {
+			throw new IllegalArgumentException();
+		}
+		this.fd = fd;
+		this.bits = new long[(fd.getPersonaCount() + 63) >>> 6];
+		checkRep();
+	}
+
+	/**
+	 * @return The FusionDataGraph the personas of this Roster are taken from
+	 */
+	public FusionDataGraph getData() {
+		return fd;
+	}
+
+	/**
+	 * @param name The name of the persona to add
+	 * @return true if the persona was added and false if it is already in this Roster
+	 * @throws IllegalArgumentException if name is not a valid persona name
+	 * @modifies this
+	 * @effects adds the persona named name to this Roster
+	 */
+	public boolean add(String name) throws IllegalArgumentException {
+		return add(idOf(name));
+	}
+
+	/**
+	 * @param id The id of the persona to add
+	 * @return true if the persona was added and false if it is already in this Roster
+	 * @throws IllegalArgumentException if id is not a valid persona id
+	 * @modifies this
+	 * @effects adds the persona with the id id to this Roster
+	 */
+	public boolean add(int id) throws IllegalArgumentException {
+		checkId(id);
+		long bit = 1L << id;
+		if ((bits[id >>> 6] & bit) != 0) {
+			return false;
+		}
+		bits[id >>> 6] |= bit;
+		size++;
+		checkRep();
+		return true;
+	}
+
+	/**
+	 * @param name The name of the persona to remove
+	 * @return true if the persona was removed and false if it is not in this Roster
+	 * @throws IllegalArgumentException if name is not a valid persona name
+	 * @modifies this
+	 * @effects removes the persona named name from this Roster
+	 */
+	public boolean remove(String name) throws IllegalArgumentException {
+		return remove(idOf(name));
+	}
+
+	/**
+	 * @param id The id of the persona to remove
+	 * @return true if the persona was removed and false if it is not in this Roster
+	 * @throws IllegalArgumentException if id is not a valid persona id
+	 * @modifies this
+	 * @effects removes the persona with the id id from this Roster
+	 */
+	public boolean remove(int id) throws IllegalArgumentException {
+		checkId(id);
+		long bit = 1L << id;
+		if ((bits[id >>> 6] & bit) == 0) {
+			return false;
+		}
+		bits[id >>> 6] &= ~bit;
+		size--;
+		checkRep();
+		return true;
+	}
+
+	/**
+	 * @param name The name of a persona
+	 * @return true if the persona named name is in this Roster and false otherwise, including
+	 * 		   when name is not a valid persona name
+	 */
+	public boolean contains(String name) {
+		int id = fd.getPersonaId(name);
+		return id >= 0 && contains(id);
+	}
+
+	/**
+	 * @param id The id of a persona
+	 * @return true if the persona with the id id is in this Roster and false otherwise,
+	 * 		   including when id is not a valid persona id
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < fd.getPersonaCount() && (bits[id >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * @return The number of personas in this Roster
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of longs in the bitset of this Roster
+	 */
+	int wordCount() {
+		return bits.length;
+	}
+
+	/**
+	 * @param i The index of a long in the bitset of this Roster
+	 * @requires 0 <= i < wordCount()
+	 * @return The bits of the personas with the ids 64 * i to 64 * i + 63
+	 */
+	long word(int i) {
+		return bits[i];
+	}
+
+	/**
+	 * @return a String representation of this Roster in the form of the names of its personas
+	 * 		   in id order, for example [Arsene, Pixie]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int w = 0; w < bits.length; w++) {
+			for (long word = bits[w]; word != 0; word &= word - 1) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(fd.getPersona((w << 6) + Long.numberOfTrailingZeros(word)).getName());
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * private helper method that returns the id of the persona named name
+	 */
+	private int idOf(String name) throws IllegalArgumentException {
+		int id = name == null ? -1 : fd.getPersonaId(name);
+		if (id < 0) {
+			throw new IllegalArgumentException();
+		}
+		return id;
+	}
+
+	/**
+	 * private helper method that throws an IllegalArgumentException if id is not a valid
+	 * persona id for the bitset
+	 */
+	private void checkId(int id) throws IllegalArgumentException {
+		if (id < 0 || id >= fd.getPersonaCount() || id >>> 6 >= bits.length) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (fd != null) : "fd is null";
+		assert (size >= 0 && size <= fd.getPersonaCount()) : "size is out of range";
+	}
+}
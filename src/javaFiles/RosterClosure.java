@@ -0,0 +1,208 @@
+package javaFiles;
+
+import java.util.Arrays;
+
+/**
+ * RosterClosure represents the personas that can be reached from a roster through any number of
+ * fusions, when fusions whose result has a base level above the player level can't be made. The
+ * personas of the roster can always be reached, whatever their level, and can be used in any
+ * number of fusions. Every reachable persona has a depth: 0 for the personas of the roster, and
+ * otherwise the fewest rounds of fusions needed to reach it, where a fusion in round d uses
+ * ingredients reached in earlier rounds. A guillotine-only persona is reached one round after all
+ * the ingredients of its guillotine fusion are.
+ *
+ * Adding a persona to the roster of a RosterClosure only extends it from the new persona. Like a
+ * Roster, a RosterClosure may only be used while the personas of its FusionDataGraph don't change.
+ */
+public class RosterClosure {
+
+	private final FusionDataGraph fd;
+	private final int playerLevel;
+	private final int[] depths;
+	private int size;
+
+	// Abstraction Function:
+	// The RosterClosure c of a roster holds the persona of fd with the id i iff depths[i] >= 0,
+	// and depths[i] is its depth. playerLevel is the highest base level a fusion can make and
+	// size is the number of personas in c.
+	//
+	// Representation Invariant for every RosterClosure c:
+	// fd != null && playerLevel >= 1 &&
+	// depths.length == fd.getPersonaCount() when c was made &&
+	// for every i, depths[i] >= -1 &&
+	// size == the number of i such that depths[i] >= 0
+
+	/**
+	 * @param fd The FusionDataGraph the fusions are taken from
+	 * @param roster The personas a player owns
+	 * @param playerLevel The highest base level of a persona a fusion can make
+	 * @requires roster is a Roster of fd && playerLevel >= 1
+	 * @effects Constructs the RosterClosure of roster
+	 */
+	RosterClosure(FusionDataGraph fd, Roster roster, int playerLevel) {
+		this.fd = fd;
+		this.playerLevel = playerLevel;
+		this.depths = new int[fd.getPersonaCount()];
+		Arrays.fill(depths, -1);
+		long[] owned = new long[roster.wordCount()];
+		for (int w = 0; w < owned.length; w++) {
+			owned[w] = roster.word(w);
+			for (long word = owned[w]; word != 0; word &= word - 1) {
+				depths[(w << 6) + Long.numberOfTrailingZeros(word)] = 0;
+			}
+		}
+		fd.extendClosure(depths, owned, playerLevel);
+		countReachable();
+	}
+
+	/**
+	 * @return The FusionDataGraph the fusions of this RosterClosure are taken from
+	 */
+	public FusionDataGraph getData() {
+		return fd;
+	}
+
+	/**
+	 * @return The highest base level of a persona a fusion can make in this RosterClosure
+	 */
+	public int getPlayerLevel() {
+		return playerLevel;
+	}
+
+	/**
+	 * @param name The name of the persona to add to the roster
+	 * @return true if the persona was added and false if it is already in the roster
+	 * @throws IllegalArgumentException if name is not a valid persona name
+	 * @modifies this
+	 * @effects adds the persona named name to the roster of this RosterClosure and adds the
+	 * 			personas it makes reachable, or makes reachable in fewer rounds
+	 */
+	public boolean add(String name) throws IllegalArgumentException {
+		int id = name == null ? -1 : fd.getPersonaId(name);
+		if (id < 0) {
+			throw new IllegalArgumentException();
+		}
+		return add(id);
+	}
+
+	/**
+	 * @param id The id of the persona to add to the roster
+	 * @return true if the persona was added and false if it is already in the roster
+	 * @throws IllegalArgumentException if id is not a valid persona id
+	 * @modifies this
+	 * @effects adds the persona with the id id to the roster of this RosterClosure and adds the
+	 * 			personas it makes reachable, or makes reachable in fewer rounds
+	 */
+	public boolean add(int id) throws IllegalArgumentException {
+		if (id < 0 || id >= depths.length) {
+			throw new IllegalArgumentException();
+		}
+		if (depths[id] == 0) {
+			return false;
+		}
+		depths[id] = 0;
+		long[] added = new long[(depths.length + 63) >>> 6];
+		added[id >>> 6] = 1L << id;
+		fd.extendClosure(depths, added, playerLevel);
+		countReachable();
+		return true;
+	}
+
+	/**
+	 * @param name The name of a persona
+	 * @return true if the persona named name is reachable and false otherwise, including when
+	 * 		   name is not a valid persona name
+	 */
+	public boolean contains(String name) {
+		return getDepth(name) >= 0;
+	}
+
+	/**
+	 * @param id The id of a persona
+	 * @return true if the persona with the id id is reachable and false otherwise, including
+	 * 		   when id is not a valid persona id
+	 */
+	public boolean contains(int id) {
+		return getDepth(id) >= 0;
+	}
+
+	/**
+	 * @param name The name of a persona
+	 * @return The depth of the persona named name, or -1 if it is not reachable or name is not a
+	 * 		   valid persona name
+	 */
+	public int getDepth(String name) {
+		int id = fd.getPersonaId(name);
+		return id < 0 ? -1 : getDepth(id);
+	}
+
+	/**
+	 * @param id The id of a persona
+	 * @return The depth of the persona with the id id, or -1 if it is not reachable or id is not
+	 * 		   a valid persona id
+	 */
+	public int getDepth(int id) {
+		return id < 0 || id >= depths.length ? -1 : depths[id];
+	}
+
+	/**
+	 * @return The number of reachable personas, including the roster
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The ids of the reachable personas in increasing order
+	 */
+	public int[] getIds() {
+		int[] ids = new int[size];
+		int count = 0;
+		for (int i = 0; i < depths.length; i++) {
+			if (depths[i] >= 0) {
+				ids[count++] = i;
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * @return a String representation of this RosterClosure in the form of the names and depths
+	 * 		   of its personas in id order, for example [Arsene 0, Pixie 0, Agathion 1]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < depths.length; i++) {
+			if (depths[i] >= 0) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(fd.getPersona(i).getName()).append(' ').append(depths[i]);
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * private helper method that recounts size from depths
+	 */
+	private void countReachable() {
+		size = 0;
+		for (int depth : depths) {
+			if (depth >= 0) {
+				size++;
+			}
+		}
+		checkRep();
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		assert (fd != null) : "fd is null";
+		assert (playerLevel >= 1) : "playerLevel is less than 1";
+		assert (size <= depths.length) : "size is out of range";
+	}
+}
@@ -0,0 +1,148 @@
+package javaFiles;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a FrozenFusionData gives the same answers to THREADS threads querying it at once as
+ * to a single thread. The FrozenFusionData is the one with dlc personas frozen in place, as a
+ * FusionDataReloader serves it, which holds the personas, lists and tables of the FusionDataGraph
+ * it was made from without copying them.
+ * The answers of one thread to every query for every persona are recorded first; then THREADS
+ * threads, started together, each walk all the persona ids ROUNDS times from their own starting
+ * point and compare every answer with the recorded one.
+ */
+public class FrozenFusionDataConcurrencyTest {
+
+	private static final int THREADS = 64;
+
+	// the number of times each thread walks all the persona ids
+	private static final int ROUNDS = 3;
+
+	private static FrozenFusionData fd;
+	private static int n;
+
+	// the answers of a single thread, indexed by persona id
+	private static int[][] results;
+	private static int[][] fusionIds;
+	private static List<String>[] fusionPairs;
+	private static int[][] includedIds;
+	private static Set<String>[] includedNames;
+	private static int[][] related;
+
+	@BeforeAll
+	@SuppressWarnings("unchecked")
+	public static void setUp() {
+		fd = new FusionDataGraph(true).freezeInPlace();
+		n = fd.getPersonaCount();
+
+		results = new int[n][n];
+		fusionIds = new int[n][];
+		fusionPairs = (List<String>[]) new List<?>[n];
+		includedIds = new int[n][];
+		includedNames = (Set<String>[]) new Set<?>[n];
+		related = new int[n][];
+		for (int p = 0; p < n; p++) {
+			String name = fd.getPersona(p).getName();
+			for (int q = 0; q < n; q++) {
+				results[p][q] = fd.getFusionResultId(p, q);
+			}
+			fusionIds[p] = fd.getFusions(p);
+			fusionPairs[p] = toStrings(fd.getFusions(name));
+			includedIds[p] = fd.getIncludedFusions(p);
+			includedNames[p] = fd.getIncludedFusions(name);
+			related[p] = fd.getRelatedFusions(p, null, 0, Integer.MAX_VALUE);
+		}
+	}
+
+	@Test
+	public void testConcurrentAnswersMatchSingleThreaded() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> mismatches = new ArrayList<Future<String>>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				int first = t * 37 % n;
+				Callable<String> walk = () -> {
+					start.await();
+					for (int k = 0; k < ROUNDS * n; k++) {
+						String mismatch = check((first + k) % n);
+						if (mismatch != null) {
+							return mismatch;
+						}
+					}
+					return null;
+				};
+				mismatches.add(pool.submit(walk));
+			}
+			start.countDown();
+			for (Future<String> mismatch : mismatches) {
+				assertNull(mismatch.get());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * private helper method that asks fd every query about the persona p and returns a
+	 * description of the first answer that differs from the single-threaded one, or null if
+	 * there is none
+	 */
+	private static String check(int p) {
+		String name = fd.getPersona(p).getName();
+		for (int q = 0; q < n; q++) {
+			int result = fd.getFusionResultId(p, q);
+			if (result != results[p][q]) {
+				return "getFusionResultId(" + p + ", " + q + ") was " + result + ", not " + results[p][q];
+			}
+			Persona persona = fd.getFusionResult(p, q);
+			if ((persona == null ? -1 : fd.getPersonaId(persona.getName())) != results[p][q]) {
+				return "getFusionResult(" + p + ", " + q + ") was " + persona;
+			}
+		}
+		if (!Arrays.equals(fd.getFusions(p), fusionIds[p])) {
+			return "getFusions(" + p + ") differs";
+		}
+		List<String> pairs = toStrings(fd.getFusions(name));
+		if (pairs == null ? fusionPairs[p] != null : !pairs.equals(fusionPairs[p])) {
+			return "getFusions(" + name + ") differs";
+		}
+		if (!Arrays.equals(fd.getIncludedFusions(p), includedIds[p])) {
+			return "getIncludedFusions(" + p + ") differs";
+		}
+		if (!fd.getIncludedFusions(name).equals(includedNames[p])) {
+			return "getIncludedFusions(" + name + ") differs";
+		}
+		if (!Arrays.equals(fd.getRelatedFusions(p, null, 0, Integer.MAX_VALUE), related[p])) {
+			return "getRelatedFusions(" + p + ") differs";
+		}
+		return null;
+	}
+
+	/**
+	 * private helper method that returns the Strings of the pairs, or null if pairs is null
+	 */
+	private static List<String> toStrings(List<Pair> pairs) {
+		if (pairs == null) {
+			return null;
+		}
+		List<String> strings = new ArrayList<String>(pairs.size());
+		for (Pair pair : pairs) {
+			strings.add(pair.toString());
+		}
+		return strings;
+	}
+}
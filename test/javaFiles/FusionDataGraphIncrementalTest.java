@@ -0,0 +1,218 @@
+package javaFiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks that addPersona, removePersona and updateBaseLevel leave a FusionDataGraph the same as
+ * a full build from data files with the same change. Every test applies a random sequence of
+ * removals, re-additions of removed personas and base level changes to a FusionDataGraph, makes
+ * the same change to a copy of personaData.txt, and after every step compares the
+ * FusionDataGraph with one built from the copy: the persona ids, getFusions by name and by id,
+ * getIncludedFusions by name and by id, the related-fusion index, and the result of every
+ * fusion.
+ */
+public class FusionDataGraphIncrementalTest {
+
+	// the number of changes made by each test
+	private static final int STEPS = 25;
+
+	@TempDir
+	Path dataDir;
+
+	// the lines of the copy of personaData.txt
+	private List<String> lines;
+
+	@ParameterizedTest(name = "includeDlc={0}, fromSnapshot={1}, seed={2}")
+	@CsvSource({ "true, false, 1", "false, false, 2", "true, true, 3", "false, true, 4" })
+	public void testMatchesRebuild(boolean includeDlc, boolean fromSnapshot, long seed) throws IOException {
+		Path source = Paths.get(FusionDataGraph.DATA_DIR);
+		for (String file : new String[] { FusionDataGraph.POSSIBLE_FUSIONS, FusionDataGraph.TREASURE_FUSIONS }) {
+			Files.copy(source.resolve(file), dataDir.resolve(file));
+		}
+		lines = new ArrayList<String>(Files.readAllLines(source.resolve(FusionDataGraph.PERSONA_DATA),
+				StandardCharsets.UTF_8));
+		writeData();
+
+		String dir = dataDir.toString() + "/";
+		FusionDataGraph fd;
+		if (fromSnapshot) {
+			String snapshot = dataDir.resolve("fusions.snapshot").toString();
+			FusionDataGraph.load(dir, includeDlc, snapshot); // builds and writes the snapshot
+			fd = FusionDataGraph.load(dir, includeDlc, snapshot);
+		} else {
+			fd = new FusionDataGraph(dir, includeDlc);
+		}
+
+		List<String> present = regularPersonas(fd, includeDlc);
+		List<Persona> removed = new ArrayList<Persona>();
+		HashMap<String, String> removedLines = new HashMap<String, String>();
+		Random random = new Random(seed);
+		for (int step = 0; step < STEPS; step++) {
+			int op = random.nextInt(3);
+			String change;
+			if (op == 0 && !removed.isEmpty()) {
+				Persona p = removed.remove(random.nextInt(removed.size()));
+				change = "add " + p.getName();
+				fd.addPersona(p);
+				insertLine(p.getArcana(), removedLines.remove(p.getName()));
+				present.add(p.getName());
+			} else if (op == 1) {
+				String name = present.get(random.nextInt(present.size()));
+				Persona p = fd.getPersona(name);
+				if (fd.viewArcPersonas(p.getArcana()).size() <= 2) {
+					step--; // keep at least two personas in every arcana
+					continue;
+				}
+				change = "remove " + name;
+				removed.add(new PersonaTable(1).add(p)); // a copy that outlives the removal
+				removedLines.put(name, removeLine(name));
+				fd.removePersona(name);
+				present.remove(name);
+			} else {
+				String name = present.get(random.nextInt(present.size()));
+				int level = 1 + random.nextInt(99);
+				change = "update " + name + " to " + level;
+				String arcana = fd.getPersona(name).getArcana();
+				fd.updateBaseLevel(name, level);
+				String[] fields = removeLine(name).split("\t", -1);
+				fields[0] = Integer.toString(level);
+				insertLine(arcana, String.join("\t", fields));
+			}
+
+			writeData();
+			assertSameAsRebuild(new FusionDataGraph(dir, includeDlc), fd, "step " + step + ": " + change);
+		}
+	}
+
+	/**
+	 * private helper method that asserts that fd answers every compared query as expected does
+	 */
+	private static void assertSameAsRebuild(FusionDataGraph expected, FusionDataGraph fd, String change) {
+		int n = expected.getPersonaCount();
+		assertEquals(n, fd.getPersonaCount(), change + ": persona count");
+		for (int id = 0; id < n; id++) {
+			assertEquals(expected.getPersona(id).getName(), fd.getPersona(id).getName(), change + ": id " + id);
+			assertEquals(expected.getPersona(id).getBaseLevel(), fd.getPersona(id).getBaseLevel(),
+					change + ": base level of id " + id);
+		}
+		for (int id = 0; id < n; id++) {
+			String name = expected.getPersona(id).getName();
+			assertEquals(toStrings(expected.getFusions(name)), toStrings(fd.getFusions(name)),
+					change + ": getFusions(" + name + ")");
+			assertArrayEquals(expected.getFusions(id), fd.getFusions(id), change + ": getFusions(" + id + ")");
+			assertEquals(expected.getIncludedFusions(name), fd.getIncludedFusions(name),
+					change + ": getIncludedFusions(" + name + ")");
+			assertArrayEquals(expected.getIncludedFusions(id), fd.getIncludedFusions(id),
+					change + ": getIncludedFusions(" + id + ")");
+
+			int count = expected.getRelatedFusionCount(id);
+			assertEquals(count, fd.getRelatedFusionCount(id), change + ": related fusion count of " + name);
+			for (int i = 0; i < count; i++) {
+				assertEquals(expected.getRelatedPartnerId(id, i), fd.getRelatedPartnerId(id, i),
+						change + ": related partner " + i + " of " + name);
+				assertEquals(expected.getRelatedResultId(id, i), fd.getRelatedResultId(id, i),
+						change + ": related result " + i + " of " + name);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (expected.getFusionResultId(i, j) != fd.getFusionResultId(i, j)) {
+					assertEquals(expected.getFusionResultId(i, j), fd.getFusionResultId(i, j),
+							change + ": result of " + i + " x " + j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that returns the Strings of the pairs, or null if pairs is null
+	 */
+	private static List<String> toStrings(List<Pair> pairs) {
+		if (pairs == null) {
+			return null;
+		}
+		List<String> strings = new ArrayList<String>(pairs.size());
+		for (Pair pair : pairs) {
+			strings.add(pair.toString());
+		}
+		return strings;
+	}
+
+	/**
+	 * private helper method that returns the names of the personas of fd that may be removed
+	 * and changed: the personas with no dlc flag (or with one if includeDlc), treasure flag or
+	 * guillotine fusion that are not an ingredient of a guillotine fusion
+	 */
+	private List<String> regularPersonas(FusionDataGraph fd, boolean includeDlc) {
+		Set<String> ingredients = new HashSet<String>();
+		List<String> candidates = new ArrayList<String>();
+		for (String line : lines) {
+			String[] fields = line.split("\t");
+			if (fields.length == 17 || (fields.length == 18 && fields[17].equals("y") && includeDlc)) {
+				candidates.add(fields[1]);
+			} else if (fields.length > 17) {
+				for (int i = 17; i < fields.length; i++) {
+					ingredients.add(fields[i]);
+				}
+			}
+		}
+		List<String> regular = new ArrayList<String>();
+		for (String name : candidates) {
+			if (!ingredients.contains(name) && fd.getPersona(name) != null) {
+				regular.add(name);
+			}
+		}
+		return regular;
+	}
+
+	/**
+	 * private helper method that removes the line of the persona name from lines and returns it
+	 */
+	private String removeLine(String name) {
+		for (int i = 0; i < lines.size(); i++) {
+			String[] fields = lines.get(i).split("\t");
+			if (fields.length > 1 && fields[1].equals(name)) {
+				return lines.remove(i);
+			}
+		}
+		throw new AssertionError("no line for " + name);
+	}
+
+	/**
+	 * private helper method that inserts the persona line line into the arcana arcana of lines,
+	 * after the personas whose base level is at most its own
+	 */
+	private void insertLine(String arcana, String line) {
+		int level = Integer.parseInt(line.substring(0, line.indexOf('\t')));
+		int i = lines.indexOf(arcana) + 1;
+		while (i < lines.size() && lines.get(i).indexOf('\t') >= 0 &&
+				Integer.parseInt(lines.get(i).substring(0, lines.get(i).indexOf('\t'))) <= level) {
+			i++;
+		}
+		lines.add(i, line);
+	}
+
+	/**
+	 * private helper method that writes lines to the personaData.txt of dataDir
+	 */
+	private void writeData() throws IOException {
+		Files.write(dataDir.resolve(FusionDataGraph.PERSONA_DATA), lines, StandardCharsets.UTF_8);
+	}
+}
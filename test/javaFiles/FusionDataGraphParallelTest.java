@@ -0,0 +1,107 @@
+package javaFiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that a FusionDataGraph built in parallel is the same as one built sequentially, on data
+ * files with every persona but the treasure demons repeated a number of times in its arcana,
+ * each copy with its own name: the same personas with the same ids, the same fusions of every
+ * persona in the same order by name and by id, and the same result of every fusion.
+ */
+public class FusionDataGraphParallelTest {
+
+	@TempDir
+	Path dataDir;
+
+	@ParameterizedTest(name = "copies={0}")
+	@ValueSource(ints = { 1, 4 })
+	public void testParallelMatchesSequential(int copies) throws IOException {
+		writeSyntheticData(copies);
+		String dir = dataDir.toString() + "/";
+		for (boolean includeDlc : new boolean[] { true, false }) {
+			FusionDataGraph sequential = new FusionDataGraph(dir, includeDlc, false);
+			FusionDataGraph parallel = new FusionDataGraph(dir, includeDlc, true);
+
+			int n = sequential.getPersonaCount();
+			assertEquals(n, parallel.getPersonaCount(), "persona count");
+			for (int id = 0; id < n; id++) {
+				String name = sequential.getPersona(id).getName();
+				assertEquals(name, parallel.getPersona(id).getName(), "id " + id);
+				assertEquals(toStrings(sequential.getFusions(name)), toStrings(parallel.getFusions(name)),
+						"getFusions(" + name + ")");
+				assertArrayEquals(sequential.getFusions(id), parallel.getFusions(id), "getFusions(" + id + ")");
+				assertArrayEquals(sequential.getIncludedFusions(id), parallel.getIncludedFusions(id),
+						"getIncludedFusions(" + id + ")");
+			}
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					if (sequential.getFusionResultId(i, j) != parallel.getFusionResultId(i, j)) {
+						assertEquals(sequential.getFusionResultId(i, j), parallel.getFusionResultId(i, j),
+								"result of " + i + " x " + j);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * private helper method that writes the data files to dataDir with every persona line but
+	 * those of treasure demons repeated copies times, the copies after the first with " c"
+	 * added to the name and the guillotine ingredients
+	 */
+	private void writeSyntheticData(int copies) throws IOException {
+		Path source = Paths.get(FusionDataGraph.DATA_DIR);
+		for (String file : new String[] { FusionDataGraph.POSSIBLE_FUSIONS, FusionDataGraph.TREASURE_FUSIONS }) {
+			Files.copy(source.resolve(file), dataDir.resolve(file));
+		}
+		List<String> lines = new ArrayList<String>();
+		for (String line : Files.readAllLines(source.resolve(FusionDataGraph.PERSONA_DATA), StandardCharsets.UTF_8)) {
+			String[] tokens = line.split("\t");
+			boolean treasure = tokens.length > 17 && tokens[17].equals("t");
+			if (tokens.length <= 1 || treasure) {
+				lines.add(line);
+				continue;
+			}
+			for (int copy = 0; copy < copies; copy++) {
+				String[] copied = tokens.clone();
+				if (copy > 0) {
+					copied[1] += " " + copy;
+					for (int i = 17; i < copied.length; i++) {
+						if (!copied[i].equals("y")) {
+							copied[i] += " " + copy;
+						}
+					}
+				}
+				lines.add(String.join("\t", copied));
+			}
+		}
+		Files.write(dataDir.resolve(FusionDataGraph.PERSONA_DATA), lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * private helper method that returns the Strings of the pairs, or null if pairs is null
+	 */
+	private static List<String> toStrings(List<Pair> pairs) {
+		if (pairs == null) {
+			return null;
+		}
+		List<String> strings = new ArrayList<String>(pairs.size());
+		for (Pair pair : pairs) {
+			strings.add(pair.toString());
+		}
+		return strings;
+	}
+}
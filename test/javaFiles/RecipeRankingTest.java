@@ -0,0 +1,56 @@
+package javaFiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that getTopRecipes with a k larger than the number of recipes of a persona, up to
+ * Integer.MAX_VALUE, returns all the recipes in the order getRecipes gives them. The top recipes
+ * come from a RecipeRanking that has not sorted them yet, so that they come from its heap.
+ */
+public class RecipeRankingTest {
+
+	private static FusionDataGraph fd;
+
+	@BeforeAll
+	public static void setUp() {
+		fd = new FusionDataGraph(true);
+	}
+
+	@ParameterizedTest(name = "extra={0}")
+	@ValueSource(ints = { 1, 1000, Integer.MAX_VALUE })
+	public void testLargeKReturnsAllRecipes(int extra) {
+		RecipeRanking top = new RecipeRanking(fd, FusionCost.MAX_INGREDIENT_LEVEL);
+		RecipeRanking sorted = new RecipeRanking(fd, FusionCost.MAX_INGREDIENT_LEVEL);
+		for (int id = 0; id < fd.getPersonaCount(); id++) {
+			String name = fd.getPersona(id).getName();
+			int count = sorted.getRecipeCount(name);
+			if (count < 0) {
+				continue; // guillotine-only personas and treasure demons have no recipes
+			}
+			int k = (int) Math.min(Integer.MAX_VALUE, (long) count + extra);
+			List<Pair> recipes = top.getTopRecipes(name, k);
+			assertNotNull(recipes, name);
+			assertEquals(count, recipes.size(), name);
+			assertEquals(toStrings(sorted.getRecipes(name, 0, count)), toStrings(recipes), name);
+		}
+	}
+
+	/**
+	 * private helper method that returns the Strings of the pairs
+	 */
+	private static List<String> toStrings(List<Pair> pairs) {
+		List<String> strings = new ArrayList<String>(pairs.size());
+		for (Pair pair : pairs) {
+			strings.add(pair.toString());
+		}
+		return strings;
+	}
+}